@@ -213,6 +213,18 @@ public @interface Property {
      */
     boolean isHidden() default false;
 
+    /**
+     * Indicates whether the value expression of this property is evaluated at
+     * most once per component and request phase. The value is evaluated again
+     * when the row of an enclosing table changes, but not when the row of the
+     * component itself changes: only properties that do not depend on the
+     * current row may be cached. The getter of a cached property must read
+     * the value expression through the property cache of its component.
+     *
+     * @return {@code true} if cached, {@code false} otherwise
+     */
+    boolean isCached() default false;
+
     /**
      * The fully qualified name of a property editor class, to be instantiated
      * by the IDE for editing this property's values. An IDE will provide a
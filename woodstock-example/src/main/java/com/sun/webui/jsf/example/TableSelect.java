@@ -18,6 +18,7 @@ package com.sun.webui.jsf.example;
 import com.sun.webui.jsf.example.util.ExampleUtilities;
 import com.sun.data.provider.RowKey;
 import com.sun.webui.jsf.event.TableSelectPhaseListener;
+import com.sun.webui.jsf.model.TableSelectionIndex;
 import jakarta.faces.context.FacesContext;
 import jakarta.el.ValueExpression;
 
@@ -89,6 +90,14 @@ public final class TableSelect {
         tspl.keepSelected(keepSelected);
     }
 
+    /**
+     * Get the selection index used by the table row group.
+     * @return TableSelectionIndex
+     */
+    public TableSelectionIndex getSelectionIndex() {
+        return tspl;
+    }
+
     /**
      * Get selected property.
      * @return Object
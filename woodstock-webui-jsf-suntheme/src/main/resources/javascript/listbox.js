@@ -14,12 +14,243 @@
  * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
  */
 
+/* global DynaFaces */
+
 define([
     "webui/suntheme/props",
     "webui/suntheme/common"
 ], function (props, common) {
 
+    /**
+     * Delay in milliseconds before the typed characters are used to filter
+     * the options of a virtual list.
+     */
+    var TYPE_AHEAD_DELAY = 300;
+
+    /**
+     * Distance in pixels from the bottom of a virtual list at which the
+     * next options are loaded.
+     */
+    var SCROLL_THRESHOLD = 20;
+
+    /**
+     * Request options of a virtual list.
+     *
+     * @param domNode The select element.
+     * @param first The index of the first option.
+     */
+    var fetchOptions = function (domNode, first) {
+        if (domNode._pending) {
+            return false;
+        }
+        domNode._pending = true;
+        new DynaFaces.fireAjaxTransaction(domNode, {
+            execute: "none",
+            render: domNode.renderId,
+            replaceElement: function (elementId, content, closure, xjson) {
+                return updateOptions(domNode, content, xjson);
+            },
+            xjson: {
+                first: first,
+                count: domNode.rows,
+                filter: domNode._filter
+            }
+        });
+        return true;
+    };
+
+    /**
+     * Add the options returned by the AJAX response to a virtual list.
+     *
+     * @param domNode The select element.
+     * @param content The content returned by the AJAX response.
+     * @param xjson The xjson argument provided to
+     * DynaFaces.fireAjaxTransaction.
+     */
+    var updateOptions = function (domNode, content, xjson) {
+        domNode._pending = false;
+        if (content === null) {
+            return false;
+        }
+        var json = JSON.parse(content);
+
+        // A new filter replaces the options.
+        if (xjson.first === 0) {
+            domNode.options.length = 0;
+            domNode.scrollTop = 0;
+        }
+        for (var i = 0; i < json.options.length; i++) {
+            var item = json.options[i];
+            var option = document.createElement("option");
+            if (item[0] !== null) {
+                option.value = item[0];
+            }
+            // Labels are rendered as markup, like the initial options.
+            var label = (item[1] === null) ? "" : item[1];
+            option.innerHTML = (item[3]) ? "&#8212; " + label + " &#8212;"
+                    : label;
+            option.disabled = item[2];
+            option.selected = !item[2]
+                    && domNode._current.hasOwnProperty(option.value);
+            if (option.disabled) {
+                option.className = props.listbox.optionDisabledClassName;
+            } else if (option.selected) {
+                option.className = props.listbox.optionSelectedClassName;
+            } else {
+                option.className = props.listbox.optionClassName;
+            }
+            domNode.appendChild(option);
+        }
+        domNode._loaded = json.first + json.options.length;
+        domNode.count = json.count;
+        return true;
+    };
+
+    /**
+     * Load the next options of a virtual list when it is scrolled to the
+     * bottom.
+     */
+    var onVirtualScroll = function () {
+        if (this._loaded < this.count && this.scrollTop + this.clientHeight
+                >= this.scrollHeight - SCROLL_THRESHOLD) {
+            fetchOptions(this, this._loaded);
+        }
+        return true;
+    };
+
+    /**
+     * Filter the options of a virtual list with the typed characters.
+     *
+     * @param event The key event.
+     */
+    var onVirtualKeyPress = function (event) {
+        var evt = (event) ? event : window.event;
+        var code = (evt.charCode) ? evt.charCode : evt.keyCode;
+        if (code < 32 || evt.ctrlKey || evt.altKey || evt.metaKey) {
+            return true;
+        }
+        var domNode = this;
+        domNode._typed += String.fromCharCode(code);
+        clearTimeout(domNode._typeTimer);
+        domNode._typeTimer = setTimeout(function () {
+            domNode._filter = domNode._typed;
+            domNode._typed = "";
+            fetchOptions(domNode, 0);
+        }, TYPE_AHEAD_DELAY);
+        return false;
+    };
+
+    /**
+     * Clear the filter of a virtual list on escape.
+     *
+     * @param event The key event.
+     */
+    var onVirtualKeyDown = function (event) {
+        var evt = (event) ? event : window.event;
+        if (evt.keyCode === 27 && this._filter.length > 0) {
+            clearTimeout(this._typeTimer);
+            this._typed = "";
+            this._filter = "";
+            fetchOptions(this, 0);
+            return false;
+        }
+        return true;
+    };
+
+    /**
+     * Record the selection of the loaded options of a virtual list, and
+     * write the changes from the initial selection in the delta field.
+     *
+     * @param domNode The select element.
+     */
+    var updateDelta = function (domNode) {
+        var options = domNode.options;
+        var i;
+        if (!domNode.multiple && domNode.selectedIndex !== -1) {
+            domNode._current = {};
+        }
+        for (i = 0; i < options.length; i++) {
+            if (options[i].selected) {
+                domNode._current[options[i].value] = true;
+            } else {
+                delete domNode._current[options[i].value];
+            }
+        }
+        var delta = {add: [], remove: []};
+        var value;
+        for (value in domNode._current) {
+            if (domNode._current.hasOwnProperty(value)
+                    && !domNode._initial.hasOwnProperty(value)) {
+                delta.add.push(value);
+            }
+        }
+        for (value in domNode._initial) {
+            if (domNode._initial.hasOwnProperty(value)
+                    && !domNode._current.hasOwnProperty(value)) {
+                delta.remove.push(value);
+            }
+        }
+        var field = document.getElementById(domNode.deltaId);
+        if (field !== null) {
+            field.value = JSON.stringify(delta);
+        }
+        return true;
+    };
+
     return {
+        addOnInitCallback: common.addOnInitCallback,
+        /**
+         * This function is used to initialize a virtual list, which renders
+         * only its first options, with the following Object literals.
+         *
+         * <ul>
+         *  <li>id: The HTML element ID of the select element.</li>
+         *  <li>renderId: The component ID to render with AJAX.</li>
+         *  <li>deltaId: The HTML element ID of the selection delta field.</li>
+         *  <li>count: The total number of options.</li>
+         *  <li>rows: The number of options loaded by a request.</li>
+         *  <li>selected: The initially selected values.</li>
+         * </ul>
+         *
+         * Note: This is considered a private API, do not use.
+         *
+         * @param props Key-Value pairs of properties.
+         */
+        init: function (props) {
+            if (props === null || props.id === null) {
+                return false;
+            }
+            var domNode = document.getElementById(props.id);
+            if (domNode === null) {
+                return false;
+            }
+            if(common.fireInitCallBacks(domNode)){
+                return true;
+            }
+
+            // Set given properties on domNode.
+            Object.extend(domNode, props);
+
+            // Set the virtual state.
+            domNode._virtual = true;
+            domNode._loaded = domNode.options.length;
+            domNode._initial = {};
+            domNode._current = {};
+            for (var i = 0; i < props.selected.length; i++) {
+                domNode._initial[props.selected[i]] = true;
+                domNode._current[props.selected[i]] = true;
+            }
+            domNode._filter = "";
+            domNode._typed = "";
+            domNode._pending = false;
+
+            // Set functions.
+            domNode.onscroll = onVirtualScroll;
+            domNode.onkeypress = onVirtualKeyPress;
+            domNode.onkeydown = onVirtualKeyDown;
+            common.setInitialized(domNode);
+        },
+
         /**
          * Use this function to access the HTML select element that makes up
          * the list. 
@@ -53,7 +284,8 @@ define([
          */
         changed: function (elementId) {
             var cntr = 0;
-            var listItem = this.getSelectElement(elementId).options;
+            var select = this.getSelectElement(elementId);
+            var listItem = select.options;
 
             //disabled items should not be selected (IE problem)
             //So setting selectedIndex = -1 for disabled selected items.
@@ -82,6 +314,9 @@ define([
                 }
                 ++cntr;
             }
+            if (select._virtual) {
+                updateDelta(select);
+            }
             return true;
         },
 
@@ -14,6 +14,8 @@
  * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
  */
 
+/* global DynaFaces */
+
 define([
     "webui/suntheme/props",
     "webui/suntheme/common"
@@ -68,6 +70,7 @@ define([
             domNode.highlightParent = this.highlightParent;
             domNode.isAnHref = this.isAnHref;
             domNode.isTreeHandle = this.isTreeHandle;
+            domNode.loadChildNodes = this.loadChildNodes;
             domNode.onTreeNodeClick = this.onTreeNodeClick;
             domNode.selectTreeNode = this.selectTreeNode;
             domNode.setCookieValue = this.setCookieValue;
@@ -135,6 +138,12 @@ define([
             var tree = this.getTree(treeNode);
             var childNodes = document.getElementById(treeNode.id + "_children");
             if (childNodes) {
+                // Child nodes provided on demand are loaded first
+                if (childNodes.style.display === "none"
+                        && this.loadChildNodes(treeNode, imageId)) {
+                    return;
+                }
+
                 // Get the event source
                 if (!event) {
                     event = window.event;
@@ -165,6 +174,45 @@ define([
             }
         },
 
+        /**
+         * This function requests the child nodes of the given tree node with
+         * Ajax, if they are provided on demand and have not been loaded yet.
+         * The tree node is expanded once its child nodes are inserted.  It
+         * returns <code>false</code> if the child nodes are already loaded.
+         */
+        loadChildNodes: function (treeNode, imageId) {
+            var childNodes = document.getElementById(treeNode.id + "_children");
+            if (childNodes === null || childNodes.firstChild !== null
+                    || childNodes._loaded
+                    || typeof DynaFaces === "undefined") {
+                return false;
+            }
+            if (childNodes._pending) {
+                return true;
+            }
+            childNodes._pending = true;
+            var tree = this;
+            new DynaFaces.fireAjaxTransaction(treeNode, {
+                execute: "none",
+                render: treeNode.id,
+                replaceElement: function (elementId, content) {
+                    childNodes._pending = false;
+                    if (content === null) {
+                        return false;
+                    }
+                    // An empty response marks the child nodes as loaded
+                    childNodes._loaded = true;
+                    childNodes.innerHTML = content;
+                    tree.expandCollapse(treeNode, imageId);
+                    return true;
+                },
+                xjson: {
+                    childNodes: true
+                }
+            });
+            return true;
+        },
+
         /**
          * This function returns the Tree for the given TreeNode.  From
          * a DOM point of view, the tree directly contains all its children
@@ -51,7 +51,9 @@ require([
             render: domNode.id,
             replaceElement: update,
             xjson: {
-                first: domNode._first
+                first: domNode._first,
+                count: domNode._props.maxRows,
+                prefetch: domNode._props.maxRows
             }
         });
         return true;
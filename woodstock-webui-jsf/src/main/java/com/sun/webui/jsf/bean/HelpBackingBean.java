@@ -40,6 +40,7 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 import jakarta.faces.component.UIComponent;
 import jakarta.servlet.http.HttpServletRequest;
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -681,7 +682,20 @@ public final class HelpBackingBean {
         List<UIComponent> resultsKids = getSearchResultsPanel().getChildren();
         resultsKids.clear();
         Theme zeTheme = getTheme();
-        Enumeration searchResults = getHelpUtils().doSearch(zeSearchText);
+        Enumeration searchResults;
+        try {
+            searchResults = getHelpUtils().doSearch(zeSearchText);
+        } catch (TimeoutException ex) {
+            // the search engine is busy, this is not an empty result
+            LogUtil.warning(ex.getMessage());
+            StaticText text = new StaticText();
+            text.setId("searchError");
+            text.setStyleClass(
+                    zeTheme.getStyleClass(ThemeStyles.HELP_RESULT_DIV));
+            text.setText(zeTheme.getMessage("help.searchTimedOut"));
+            resultsKids.add(text);
+            return;
+        }
 
         if (searchResults == null || !searchResults.hasMoreElements()) {
             // search text produced no results
@@ -705,7 +719,7 @@ public final class HelpBackingBean {
             div.setStyle("padding-top:6px; white-space: nowrap");
             resultLink = new Hyperlink();
             resultLink.setId("searchLink" + linkId++);
-            resultLink.setUrl(item.getURL().toString());
+            resultLink.setUrl(getHelpUtils().getRequestURL(item.getURL()));
             resultLink.setText(item.getName());
             resultLink.setTarget(CONTENT_FRAME_NAME);
             resultLink.setStyleClass(
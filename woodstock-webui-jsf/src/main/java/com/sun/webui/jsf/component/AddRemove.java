@@ -22,6 +22,7 @@ import com.sun.webui.jsf.model.Option;
 import com.sun.webui.jsf.model.OptionGroup;
 import com.sun.webui.jsf.model.Separator;
 import com.sun.webui.jsf.model.list.ListItem;
+import com.sun.webui.jsf.model.list.ListItemIndex;
 import com.sun.webui.jsf.theme.ThemeStyles;
 import com.sun.webui.jsf.util.ComponentUtilities;
 import com.sun.webui.jsf.util.MessageUtil;
@@ -34,6 +35,7 @@ import java.text.Collator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 
@@ -1399,124 +1401,99 @@ public class AddRemove extends ListSelector implements ListManager {
         // If sorting, use the available item key.
         String selectedKey = "";
 
+        // Index the available items by value, the key of the first
+        // available item is kept for duplicate values.
+        ListItemIndex<String> availableKeys = new ListItemIndex<String>();
+        for (Map.Entry<String, ListItem> entry : availableItems.entrySet()) {
+            availableKeys.add(entry.getValue(), entry.getKey());
+        }
+
         while (selected.hasNext()) {
 
             Object selectedValue = selected.next();
 
-            // The "keys" are the keys of the options on the available map
-            // Need to "rewind" for every selected item.
-            Iterator<String> keys = availableItems.keySet().iterator();
-
-            // Does the current listItem match the selected value?
-            boolean match = false;
-
-            while (keys.hasNext()) {
-
-                String key = keys.next();
-                // The next object from the available map
-                //
-                Object nextItem = availableItems.get(key);
-                ListItem listItem = null;
-
-                // If we get an exception just log it and continue.
-                // It's cheaper this way than testing with "instanceof".
-                try {
-                    listItem = (ListItem) nextItem;
-                } catch (Exception e) {
-                    log("An available item was not a ListItem.");
-                    continue;
-                }
-
-                if (DEBUG) {
-                    log("Now processing ListItem "
-                            + listItem.getValue());
-                    log("\tSelected object value: "
-                            + String.valueOf(selectedValue));
-                    log("\tSelected object type: "
-                            + selectedValue.getClass().getName());
-                    if (processed) {
-                        log("\tMatching the values by "
-                                + "object.equals()");
-                    } else {
-                        log("\tMatching the values by string"
-                                + "comparison on converted values.");
-                    }
-                }
-
+            if (DEBUG) {
+                log("\tSelected object value: "
+                        + String.valueOf(selectedValue));
                 if (processed) {
-                    match = listItem.getValueObject().equals(selectedValue);
+                    log("\tMatching the values by "
+                            + "object.equals()");
                 } else {
-                    // Recall that "processed" means that we compare using the
-                    // actual value of this component, and this case means that
-                    // we compare from the submitted values. In other words, in
-                    // this scenario, the selectedValue is an already converted
-                    // String.
-                    match = selectedValue.toString()
-                            .equals(listItem.getValue());
+                    log("\tMatching the values by string"
+                            + "comparison on converted values.");
                 }
+            }
 
-                // Note that elements in the selected list that do
-                // not match will not appear in the "selectedItems"
-                // TreeMap.
-                if (!match) {
-                    continue;
-                }
+            // Does the current listItem match the selected value?
+            String key = null;
+            if (processed) {
+                key = availableKeys.getByValueObject(selectedValue);
+            } else if (selectedValue != null) {
+                // Recall that "processed" means that we compare using the
+                // actual value of this component, and this case means that
+                // we compare from the submitted values. In other words, in
+                // this scenario, the selectedValue is an already converted
+                // String.
+                key = availableKeys.getByValue(selectedValue.toString());
+            }
 
+            // Note that elements in the selected list that do
+            // not match will not appear in the "selectedItems"
+            // TreeMap.
+            if (key == null) {
                 if (DEBUG) {
-                    log("\tListItem and selected item match");
-                }
-                // Ensure that the selectedItems are sorted appropriately.
-                // Use the sort order of the available items if sorted
-                // and the insertion order if not.
-                if (isSorted) {
-                    selectedKey = key;
-                } else {
-                    selectedKey = selectedKey.concat(KEY_STRING);
+                    log("\tSelected value "
+                            + String.valueOf(selectedValue)
+                            + " not present on the list of options.");
                 }
+                continue;
+            }
+
+            ListItem listItem = availableItems.get(key);
+            if (DEBUG) {
+                log("\tListItem and selected item match");
+            }
+            // Ensure that the selectedItems are sorted appropriately.
+            // Use the sort order of the available items if sorted
+            // and the insertion order if not.
+            if (isSorted) {
+                selectedKey = key;
+            } else {
+                selectedKey = selectedKey.concat(KEY_STRING);
+            }
 
-                // See if we have a dup. If dups are allowed
-                // create a new unique key for the dup and add it
-                // to the selectedItems.
-                // If not a dup, add it to the removeItems map
-                // and add it to the selectedItems.
-                if (removeItems.contains(key)) {
-                    if (allowDups) {
-                        // In case users are allowed to add the same
-                        // item more than once, use this complicated
-                        // procedure.
-                        // The assumption is that "1" comes before "a".
-                        //
-                        if (DEBUG) {
-                            log("\tAdding duplicate "
-                                    + "and creating unique key.");
-                        }
-                        String key2 = selectedKey.concat(DUP_STRING);
-                        while (selectedItems.containsKey(key2)) {
-                            key2 = key2.concat(DUP_STRING);
-                        }
-                        selectedItems.put(key2, listItem);
-                    } else {
-                        if (DEBUG) {
-                            log("\tDuplicates not allowed "
-                                    + "ignoring this duplicate selected item.");
-                        }
+            // See if we have a dup. If dups are allowed
+            // create a new unique key for the dup and add it
+            // to the selectedItems.
+            // If not a dup, add it to the removeItems map
+            // and add it to the selectedItems.
+            if (removeItems.contains(key)) {
+                if (allowDups) {
+                    // In case users are allowed to add the same
+                    // item more than once, use this complicated
+                    // procedure.
+                    // The assumption is that "1" comes before "a".
+                    //
+                    if (DEBUG) {
+                        log("\tAdding duplicate "
+                                + "and creating unique key.");
                     }
+                    String key2 = selectedKey.concat(DUP_STRING);
+                    while (selectedItems.containsKey(key2)) {
+                        key2 = key2.concat(DUP_STRING);
+                    }
+                    selectedItems.put(key2, listItem);
                 } else {
-                    // Add the found key to the removeItems map
-                    // and add to the selectedItems.
-                    removeItems.add(key);
-                    selectedItems.put(selectedKey, listItem);
-                }
-
-                // We have a match break the loop
-                break;
-            }
-            if (DEBUG) {
-                if (!match) {
-                    log("\tSelected value "
-                            + String.valueOf(selectedValue)
-                            + " not present on the list of options.");
+                    if (DEBUG) {
+                        log("\tDuplicates not allowed "
+                                + "ignoring this duplicate selected item.");
+                    }
                 }
+            } else {
+                // Add the found key to the removeItems map
+                // and add to the selectedItems.
+                removeItems.add(key);
+                selectedItems.put(selectedKey, listItem);
             }
         }
 
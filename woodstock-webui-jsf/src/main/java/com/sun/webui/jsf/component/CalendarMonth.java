@@ -31,7 +31,6 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.Locale;
 import java.util.TimeZone;
 import jakarta.el.ValueExpression;
@@ -148,9 +147,11 @@ public final class CalendarMonth extends UIOutput implements NamingContainer {
     }
 
     /**
-     * Test if the specified date range is selected.
-     * @param current first date in the range
-     * @param endDate last date in the range
+     * Test if the specified date is selected. If the value is a
+     * {@link ScheduledEvent}, the occurrences of the event are not
+     * enumerated, the day is tested in constant time.
+     * @param current date to test
+     * @param endDate last date rendered
      * @return {@code boolean}
      */
     public boolean isDateSelected(final java.util.Calendar current,
@@ -176,18 +177,7 @@ public final class CalendarMonth extends UIOutput implements NamingContainer {
             if (DEBUG) {
                 log("Value is ScheduledEvent");
             }
-            if (DEBUG) {
-                log("Checking dates before " + endDate.getTime().toString());
-            }
-            Iterator dates = ((ScheduledEvent) value).getDates(endDate);
-            Calendar cal;
-            while (dates.hasNext()) {
-                cal = (Calendar) (dates.next());
-                if (compareDate(cal, current)) {
-                    return true;
-                }
-            }
-            return false;
+            return ((ScheduledEvent) value).occursOn(current);
         }
         return false;
     }
@@ -1636,17 +1636,37 @@ public final class EditableList extends WebuiInput implements ListManager,
             }
         }
 
+        // Count the values to remove, each one removes the first
+        // remaining occurrence of the value from the list.
         String[] toRemove = getValuesToRemove();
+        Map<String, Integer> removeCounts = new HashMap<String, Integer>();
         for (counter = 0; counter < toRemove.length; ++counter) {
-            items.remove(toRemove[counter]);
+            Integer count = removeCounts.get(toRemove[counter]);
+            if (count == null) {
+                removeCounts.put(toRemove[counter], 1);
+            } else {
+                removeCounts.put(toRemove[counter], count + 1);
+            }
             if (DEBUG) {
                 log("remove " + toRemove[counter]);
             }
         }
 
-        String[] newValues = new String[items.size()];
-        for (counter = 0; counter < items.size(); ++counter) {
-            newValues[counter] = (String) (items.get(counter));
+        ArrayList<String> kept = new ArrayList<String>(items.size());
+        for (String item : items) {
+            Integer count = removeCounts.get(item);
+            if (count == null) {
+                kept.add(item);
+            } else if (count == 1) {
+                removeCounts.remove(item);
+            } else {
+                removeCounts.put(item, count - 1);
+            }
+        }
+
+        String[] newValues = new String[kept.size()];
+        for (counter = 0; counter < kept.size(); ++counter) {
+            newValues[counter] = kept.get(counter);
             if (DEBUG) {
                 log("\tAdding back " + newValues[counter]);
             }
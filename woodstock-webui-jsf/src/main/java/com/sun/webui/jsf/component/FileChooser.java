@@ -1927,6 +1927,10 @@ public final class FileChooser extends WebuiInput implements NamingContainer {
         ResourceItem[] items;
         // If a folder chooser always disable files
 
+        // The whole listing is rendered: the client script selects and opens
+        // the entries through the options of the list box, so a page of
+        // the listing can't be rendered on its own. The model reads and
+        // sorts the folder once, only the items are created here.
         items = zModel.getFolderContent(zModel.getCurrentDir(),
                 isFolderChooser(), false);
 
@@ -102,6 +102,11 @@ public final class Form extends UIForm {
      */
     private static final boolean DEFAULT_RETAIN_STATUS = true;
 
+    /**
+     * Participation index of the virtual forms, built on demand.
+     */
+    private transient VirtualFormIndex virtualFormIndex;
+
     /**
      * Use this non-XHTML compliant {@code boolean} attribute to turn off auto
      * completion feature of Internet Explorer and Firefox browsers. Set to
@@ -412,6 +417,8 @@ public final class Form extends UIForm {
 
         submittedVirtualForm = null;
         erasedMap.clear();
+        // the descriptors may have been modified since the last request
+        virtualFormIndex = null;
         //clearing out nonDefaultRetainStatusEvhs occurs in
         // restoreNonParticipatingSubmittedValues
         //(which is called during renderering)
@@ -438,8 +445,16 @@ public final class Form extends UIForm {
             //if the children of the Form are known to participate in
             // submittedVirtualForm,
             //then don't bother erasing
-            if (!childrenAreKnownToParticipate(this, submittedVirtualForm)) {
-                eraseVirtualFormNonParticipants(this, null, null);
+            if (!getVirtualFormIndex().childrenParticipate(
+                    submittedVirtualForm, ID_SEP)) {
+                // FIXME check the synchronization issue here
+                synchronized (erasedMap) {
+                    // prevent multiple threads from the same session
+                    // simultaneously accessing erasedMap,
+                    // nonDefaultRetainStatusEvhs
+                    eraseVirtualFormNonParticipants(this, ID_SEP, null,
+                            null);
+                }
             }
         }
     }
@@ -522,76 +537,30 @@ public final class Form extends UIForm {
     }
 
     /**
-     * Get the virtual form submits by fully qualified Id.
-     * @param fqId fully qualified id
-     * @return VirtualFormDescriptor
+     * Get the participation index of the virtual forms.
+     * @return VirtualFormIndex
      */
-    private VirtualFormDescriptor getVFormCompSubmitsByFQId(final String fqId) {
-
-        if (!isValidFullyQualifiedId(fqId)) {
-            return null;
-        }
-
-        //first try regular configuration
-        VirtualFormDescriptor vfd = getVFormCompSubmitsByFQId(fqId,
-                getVirtualForms());
-        if (vfd != null) {
-            return vfd;
+    private VirtualFormIndex getVirtualFormIndex() {
+        VirtualFormDescriptor[] vfds = getVirtualForms();
+        VirtualFormDescriptor[] ivfds = getInternalVirtualForms();
+        if (virtualFormIndex == null
+                || !virtualFormIndex.isBuiltFrom(vfds, ivfds)) {
+            virtualFormIndex = new VirtualFormIndex(vfds, ivfds);
         }
-
-        //try internal configuration
-        vfd = getVFormCompSubmitsByFQId(fqId, getInternalVirtualForms());
-        return vfd;
+        return virtualFormIndex;
     }
 
     /**
-     * Get the virtual form submits by fully qualified Id.
+     * Get the virtual form submits by fully qualified Id. The submitting ids
+     * of the regular configuration are tried first against the id and its
+     * ancestors, then those of the internal configuration. This technique
+     * ensures that the most appropriate submitter is found first and its
+     * virtual form is returned.
      * @param fqId fully qualified id
-     * @param vfds virtual form descriptors
      * @return VirtualFormDescriptor
      */
-    private VirtualFormDescriptor getVFormCompSubmitsByFQId(final String fqId,
-            final VirtualFormDescriptor[] vfds) {
-
-        if (vfds == null || vfds.length < 1) {
-            return null;
-        }
-
-        //look for matches of fqId against all of vfds's submitters--without
-        // any trailing wilds.
-        // if no match found, try the parent fqId.
-        // this technique ensures that the most appropriate submitter is found
-        // first and its vf is returned
-        String currentFqId = fqId;
-        while (currentFqId.length() > 0) {
-            for (int v = 0; v < vfds.length; v++) {
-                VirtualFormDescriptor vfd = vfds[v];
-                String[] submitters = vfd.getSubmittingIds();
-                for (int s = 0; submitters != null
-                        && s < submitters.length; s++) {
-                    String submitter = submitters[s];
-                    if (submitter == null) {
-                        continue;
-                    }
-                    String wildSuffix = ID_SEP + ID_WILD;
-                    if (submitter.endsWith(wildSuffix)) {
-                        submitter = submitter.substring(0, submitter.length()
-                                - wildSuffix.length());
-                    }
-                    if (submitter.length() < 1) {
-                        continue;
-                    }
-                    boolean fqIdMatches = fQIdMatchesPattern(
-                            currentFqId, submitter);
-                    if (fqIdMatches) {
-                        return vfd;
-                    }
-                }
-            }
-            int lastIndexOfSep = currentFqId.lastIndexOf(ID_SEP);
-            currentFqId = currentFqId.substring(0, lastIndexOfSep);
-        }
-        return null;
+    private VirtualFormDescriptor getVFormCompSubmitsByFQId(final String fqId) {
+        return getVirtualFormIndex().getSubmitted(fqId);
     }
 
     /**
@@ -665,32 +634,41 @@ public final class Form extends UIForm {
             return null;
         }
         // see if id indicates the Form itself
-        String fqId = getFullyQualifiedId(this);
-        if (fQIdMatchesPattern(fqId, id)) {
+        if (fQIdMatchesPattern(ID_SEP, id)) {
             return this;
         }
-        return searchKidsRecursivelyForId(this, id);
+        return searchKidsRecursivelyForId(this, ID_SEP, id);
     }
 
     /**
-     * Search children recursively.
+     * Search children recursively. A fully qualified id only leads to the
+     * children whose id is the next segment of the id.
      * @param parent parent to traverse.
+     * @param parentFqId fully qualified id of the parent
      * @param id component id
      * @return UIComponent
      */
     private UIComponent searchKidsRecursivelyForId(
-            final UIComponent parent, final String id) {
+            final UIComponent parent, final String parentFqId,
+            final String id) {
 
         Iterator kids = parent.getFacetsAndChildren();
         while (kids.hasNext()) {
             UIComponent kid = (UIComponent) kids.next();
-            String fqId = getFullyQualifiedId(kid);
-            //see if id indicates kid
-            boolean fqIdMatches = fQIdMatchesPattern(fqId, id);
-            if (fqIdMatches) {
-                return kid;
+            String fqId = getChildFullyQualifiedId(parentFqId, kid);
+            if (fqId != null) {
+                // a fully qualified id can't indicate a descendant of kid
+                if (id.startsWith(ID_SEP) && !fqId.equals(ID_SEP)
+                        && !id.equals(fqId) && !id.startsWith(fqId + ID_SEP)) {
+                    continue;
+                }
+                //see if id indicates kid
+                boolean fqIdMatches = fQIdMatchesPattern(fqId, id);
+                if (fqIdMatches) {
+                    return kid;
+                }
             }
-            UIComponent match = searchKidsRecursivelyForId(kid, id);
+            UIComponent match = searchKidsRecursivelyForId(kid, fqId, id);
             if (match != null) {
                 return match;
             }
@@ -698,6 +676,29 @@ public final class Form extends UIForm {
         return null;
     }
 
+    /**
+     * Get the fully qualified id of a child from the one of its parent, this
+     * is equivalent to {@link #getFullyQualifiedId(UIComponent)}.
+     * @param parentFqId fully qualified id of the parent, may be {@code null}
+     * @param kid child component
+     * @return String or {@code null} if the child has no fully qualified id
+     */
+    private static String getChildFullyQualifiedId(final String parentFqId,
+            final UIComponent kid) {
+
+        if (kid instanceof Form) {
+            return ID_SEP;
+        }
+        String kidId = kid.getId();
+        if (parentFqId == null || kidId == null) {
+            return null;
+        }
+        if (parentFqId.equals(ID_SEP)) {
+            return ID_SEP + kidId;
+        }
+        return parentFqId + ID_SEP + kidId;
+    }
+
     /**
      * Return true if a virtual form has been submitted and this component
      * participates in that virtual form.
@@ -711,7 +712,8 @@ public final class Form extends UIForm {
             return false;
         }
         String fqId = getFullyQualifiedId(component);
-        return submittedVirtualForm.hasParticipant(fqId);
+        return getVirtualFormIndex().hasParticipant(submittedVirtualForm,
+                fqId);
     }
 
     // Be sure to keep this method in sync with the version in
@@ -1011,6 +1013,8 @@ public final class Form extends UIForm {
                 String name = oldDescriptors[i].getName();
                 if (name != null && name.equals(descriptor.getName())) {
                     oldDescriptors[i] = descriptor;
+                    // The array is modified in place.
+                    virtualFormIndex = null;
                     return; // No further processing is required.
                 }
             }
@@ -1224,41 +1228,6 @@ public final class Form extends UIForm {
         }
     }
 
-    /**
-     * Examine the participating ids that end in ID_WILD. If any of them match
-     * the component's fully qualified id, then the component's children are
-     * known to participate in the virtual form descriptor.
-     *
-     * @param component UI component
-     * @param vfd virtual form descriptor
-     * @return {@code boolean}
-     */
-    private static boolean childrenAreKnownToParticipate(
-            final UIComponent component, final VirtualFormDescriptor vfd) {
-
-        if (vfd == null) {
-            return false;
-        }
-
-        String fqId = getFullyQualifiedId(component);
-        if (fqId == null) {
-            return false;
-        }
-
-        String[] participants = vfd.getParticipatingIds();
-        for (int i = 0; participants != null && i < participants.length; i++) {
-            String participant = participants[i];
-            String wildSuffix = ID_SEP + ID_WILD;
-            if (participant == null || !participant.endsWith(wildSuffix)) {
-                continue;
-            }
-            if (fQIdMatchesPattern(fqId, participant)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Recursively erase virtual form non-participants by setting their
      * submitted values to {@code null}. This method caches the submitted values
@@ -1274,8 +1243,16 @@ public final class Form extends UIForm {
      * them, in case a third-party component extends {@code UIData} and, unlike
      * {@code UIData}, does not discard its saved state during rendering.</p>
      *
+     * <p>
+     * Only the rows that were rendered, and therefore decoded, are visited,
+     * and the children of the components known to participate in the
+     * submitted virtual form are skipped. The caller must hold the lock of
+     * {@code erasedMap}.</p>
+     *
      * @param parent A parent component whose children will be examined and
      * possibly erased
+     * @param parentFqId the fully qualified id of the parent, or {@code null}
+     * if it does not have one
      * @param contextualTables an array of UIData or TableRowGroup components in
      * the parent's ancestry (with the most distant ancestor as the first member
      * of the array), or {@code null} if the parent is not embedded within any
@@ -1285,87 +1262,90 @@ public final class Form extends UIForm {
      * table, or {@code null} if the parent is not embedded within any tables
      */
     private void eraseVirtualFormNonParticipants(
-            final UIComponent parent, final Object[] contextualTables,
-            final Object[] contextualRows) {
+            final UIComponent parent, final String parentFqId,
+            final Object[] contextualTables, final Object[] contextualRows) {
+
+        VirtualFormIndex index = getVirtualFormIndex();
 
         // Process all facets and children of this component
-        // FIXME check the synchronization issue here
-        synchronized (erasedMap) {
-            // prevent multiple threads from the same session simultaneously
-            // accessing erasedMap, nonDefaultRetainStatusEvhs
-            Iterator kids = parent.getFacetsAndChildren();
-            while (kids.hasNext()) {
-                UIComponent kid = (UIComponent) kids.next();
-                // if this kid is an EditableValueHolder, and it does not
-                // participate, set submitted value to null
-                if (kid instanceof EditableValueHolder
-                        && !participatesInSubmittedVirtualForm(kid)) {
-                    EditableValueHolder kidEvh = (EditableValueHolder) kid;
-                    //cache the submitted value to be erased in eraseMap
-                    Object submittedValueToErase = kidEvh.getSubmittedValue();
-                    if (contextualTables == null) {
-                        erasedMap.put(kidEvh, submittedValueToErase);
-                    } else {
-                        addTableValuesEntry(erasedMap, kidEvh, 0,
-                                contextualTables, contextualRows,
-                                submittedValueToErase);
-                    }
-                    kidEvh.setSubmittedValue(null);
+        Iterator kids = parent.getFacetsAndChildren();
+        while (kids.hasNext()) {
+            UIComponent kid = (UIComponent) kids.next();
+            String kidFqId = getChildFullyQualifiedId(parentFqId, kid);
+            // if this kid is an EditableValueHolder, and it does not
+            // participate, set submitted value to null
+            if (kid instanceof EditableValueHolder
+                    && !index.hasParticipant(submittedVirtualForm, kidFqId)) {
+                EditableValueHolder kidEvh = (EditableValueHolder) kid;
+                //cache the submitted value to be erased in eraseMap
+                Object submittedValueToErase = kidEvh.getSubmittedValue();
+                if (contextualTables == null) {
+                    erasedMap.put(kidEvh, submittedValueToErase);
+                } else {
+                    addTableValuesEntry(erasedMap, kidEvh, 0,
+                            contextualTables, contextualRows,
+                            submittedValueToErase);
                 }
+                kidEvh.setSubmittedValue(null);
+            }
 
-                // if children of kid are known to participate in
-                // submittedVirtualForm,
-                // then no need to recurse on kid
-                if (childrenAreKnownToParticipate(kid, submittedVirtualForm)) {
-                    continue;   //continue to next kid
-                }
+            // if children of kid are known to participate in
+            // submittedVirtualForm,
+            // then no need to recurse on kid
+            if (index.childrenParticipate(submittedVirtualForm, kidFqId)) {
+                continue;   //continue to next kid
+            }
 
-                // recurse. if kid is a UIData or TableRowGroup, perform a
-                // recursive call once per row.
-                // if kid is not a UIData or TableRowGroup, simply perform
-                // a recursive call once.
-                if (kid instanceof UIData) {
-                    UIData kidTable = (UIData) kid;
-                    int originalRowIndex = kidTable.getRowIndex();
-                    int rowIndex = 0;
-                    kidTable.setRowIndex(rowIndex);
-                    while (kidTable.isRowAvailable()) {
+            // recurse. if kid is a UIData or TableRowGroup, perform a
+            // recursive call once per rendered row.
+            // if kid is not a UIData or TableRowGroup, simply perform
+            // a recursive call once.
+            if (kid instanceof UIData) {
+                UIData kidTable = (UIData) kid;
+                int originalRowIndex = kidTable.getRowIndex();
+                int rowIndex = kidTable.getFirst();
+                int lastRowIndex = Integer.MAX_VALUE;
+                if (kidTable.getRows() > 0) {
+                    lastRowIndex = rowIndex + kidTable.getRows() - 1;
+                }
+                kidTable.setRowIndex(rowIndex);
+                while (rowIndex <= lastRowIndex
+                        && kidTable.isRowAvailable()) {
+                    Object[] localContextualTables =
+                            appendToArray(contextualTables, kidTable);
+                    Object[] localContextualRows =
+                            appendToArray(contextualRows, rowIndex);
+                    eraseVirtualFormNonParticipants(kidTable, kidFqId,
+                            localContextualTables, localContextualRows);
+                    kidTable.setRowIndex(++rowIndex);
+                }
+                kidTable.setRowIndex(originalRowIndex);
+            } else if (kid instanceof TableRowGroup) {
+                TableRowGroup group = (TableRowGroup) kid;
+                RowKey[] rowKeys = group.getRenderedRowKeys();
+                // Save RowKey.
+                RowKey oldRowKey = group.getRowKey();
+
+                // Check for null TableDataProvider.
+                if (rowKeys != null) {
+                    for (RowKey rowKey : rowKeys) {
+                        group.setRowKey(rowKey);
+                        if (!group.isRowAvailable()) {
+                            continue;
+                        }
                         Object[] localContextualTables =
-                                appendToArray(contextualTables, kidTable);
+                                appendToArray(contextualTables, group);
                         Object[] localContextualRows =
-                                appendToArray(contextualRows, rowIndex);
-                        eraseVirtualFormNonParticipants(kidTable,
+                                appendToArray(contextualRows, rowKey);
+                        eraseVirtualFormNonParticipants(group, kidFqId,
                                 localContextualTables, localContextualRows);
-                        kidTable.setRowIndex(++rowIndex);
-                    }
-                    kidTable.setRowIndex(originalRowIndex);
-                } else if (kid instanceof TableRowGroup) {
-                    TableRowGroup group = (TableRowGroup) kid;
-                    RowKey[] rowKeys = group.getRowKeys();
-                    // Save RowKey.
-                    RowKey oldRowKey = group.getRowKey();
-
-                    // Check for null TableDataProvider.
-                    if (rowKeys != null) {
-                        for (RowKey rowKey : rowKeys) {
-                            group.setRowKey(rowKey);
-                            if (!group.isRowAvailable()) {
-                                continue;
-                            }
-                            Object[] localContextualTables =
-                                    appendToArray(contextualTables, group);
-                            Object[] localContextualRows =
-                                    appendToArray(contextualRows, rowKey);
-                            eraseVirtualFormNonParticipants(group,
-                                    localContextualTables, localContextualRows);
-                        }
                     }
-                    // Restore RowKey.
-                    group.setRowKey(oldRowKey);
-                } else {
-                    eraseVirtualFormNonParticipants(kid, contextualTables,
-                            contextualRows);
                 }
+                // Restore RowKey.
+                group.setRowKey(oldRowKey);
+            } else {
+                eraseVirtualFormNonParticipants(kid, kidFqId,
+                        contextualTables, contextualRows);
             }
         }
     }
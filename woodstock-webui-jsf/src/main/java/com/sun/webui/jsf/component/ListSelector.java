@@ -23,6 +23,7 @@ import com.sun.webui.jsf.model.OptionTitle;
 import com.sun.webui.jsf.model.Separator;
 import com.sun.webui.jsf.model.list.EndGroup;
 import com.sun.webui.jsf.model.list.ListItem;
+import com.sun.webui.jsf.model.list.ListItemIndex;
 import com.sun.webui.jsf.model.list.StartGroup;
 import com.sun.webui.jsf.util.ComponentUtilities;
 import com.sun.webui.jsf.util.ConversionUtilities;
@@ -34,6 +35,7 @@ import java.beans.Beans;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import jakarta.el.ValueExpression;
@@ -59,6 +61,11 @@ public class ListSelector extends Selector implements ListManager,
      */
     private ArrayList<Object> listItems = null;
 
+    /**
+     * Index of the list items by value object, built on demand.
+     */
+    private ListItemIndex<ListItem> listItemIndex = null;
+
     /**
      * ReadOnly facet.
      */
@@ -224,6 +231,7 @@ public class ListSelector extends Selector implements ListManager,
             log("getListItems()");
         }
         listItems = new ArrayList<Object>();
+        listItemIndex = null;
         separatorLength = 0;
 
         // Retrieve the current selections. If there are selected
@@ -248,10 +256,35 @@ public class ListSelector extends Selector implements ListManager,
             return listItems.iterator();
         }
         listItems = new ArrayList<Object>();
+        listItemIndex = null;
         processOptions(getOptions());
         return listItems.iterator();
     }
 
+    /**
+     * Get the list item whose value object is equal to the given object.
+     * The list items are indexed the first time this method is invoked after
+     * they are evaluated.
+     *
+     * @param valueObject value object
+     * @return the first matching {@link ListItem}, or {@code null} if there
+     * is none
+     */
+    public ListItem getListItem(final Object valueObject) {
+        if (listItemIndex == null) {
+            Iterator items = getListItems();
+            ListItemIndex<ListItem> index = new ListItemIndex<ListItem>();
+            while (items.hasNext()) {
+                Object item = items.next();
+                if (item instanceof ListItem) {
+                    index.add((ListItem) item, (ListItem) item);
+                }
+            }
+            listItemIndex = index;
+        }
+        return listItemIndex.getByValueObject(valueObject);
+    }
+
     /**
      * This method resets the options. Use this only if you need to add or
      * remove options after the component has been rendered once. public void
@@ -446,10 +479,27 @@ public class ListSelector extends Selector implements ListManager,
         if (DEBUG) {
             log("markSelectedListItems()");
         }
+        // Count the occurrences of the selected values, each occurrence
+        // marks at most one option as selected.
+        Map<Object, Integer> remaining = new HashMap<Object, Integer>();
+        Iterator selected = list.iterator();
+        while (selected.hasNext()) {
+            Object o = selected.next();
+            if (DEBUG) {
+                log("\tSelected object value: " + String.valueOf(o));
+            }
+            Integer count = remaining.get(o);
+            if (count == null) {
+                remaining.put(o, 1);
+            } else {
+                remaining.put(o, count + 1);
+            }
+        }
+        int unmatched = list.size();
+
         ListItem option;
         Object nextItem;
         Iterator items = listItems.iterator();
-        Iterator selected;
 
         while (items.hasNext()) {
             nextItem = items.next();
@@ -473,47 +523,42 @@ public class ListSelector extends Selector implements ListManager,
 
             // There are no more selected items, continue with the
             // next option
-            if (list.isEmpty()) {
+            if (unmatched == 0) {
                 if (DEBUG) {
                     log("No more selected items");
                 }
                 continue;
             }
 
-            // There are still selected items to account for
-            selected = list.iterator();
-            while (selected.hasNext()) {
-                if (processed) {
-                    Object o = selected.next();
-                    if (DEBUG) {
-                        log("\tSelected object value: " + String.valueOf(o));
-                        log("\tSelected object type: "
-                                + o.getClass().getName());
-                    }
-                    if (option.getValueObject().equals(o)) {
-                        if (DEBUG) {
-                            log("\tFound a match: " + String.valueOf(o));
-                        }
-                        option.setSelected(true);
-                        list.remove(o);
-                        break;
-                    }
-                } else {
-                    String s = (String) selected.next();
-                    if (s.equals(option.getValue())) {
-                        if (DEBUG) {
-                            log("\tFound a match: " + s);
-                        }
-                        option.setSelected(true);
-                        list.remove(s);
-                        break;
-                    }
-                }
+            // If processed, compare the value objects, otherwise compare
+            // the submitted strings with the converted values.
+            Object key;
+            if (processed) {
+                key = option.getValueObject();
+            } else {
+                key = option.getValue();
+            }
+            if (key == null) {
+                continue;
+            }
+            Integer count = remaining.get(key);
+            if (count == null) {
+                continue;
+            }
+            if (DEBUG) {
+                log("\tFound a match: " + String.valueOf(key));
+            }
+            option.setSelected(true);
+            unmatched--;
+            if (count == 1) {
+                remaining.remove(key);
+            } else {
+                remaining.put(key, count - 1);
             }
         }
 
-        // At this point the selected list should be empty.
-        if (!list.isEmpty() && !Beans.isDesignTime()) {
+        // At this point all the selected values should be matched.
+        if (unmatched > 0 && !Beans.isDesignTime()) {
             String msg = MessageUtil.getMessage(
                     "com.sun.webui.jsf.resources.LogMessages",
                     "List.badValue",
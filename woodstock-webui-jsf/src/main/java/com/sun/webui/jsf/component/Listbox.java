@@ -17,6 +17,7 @@ package com.sun.webui.jsf.component;
 
 import com.sun.faces.annotation.Component;
 import com.sun.faces.annotation.Property;
+import com.sun.faces.extensions.avatar.lifecycle.AsyncResponse;
 import jakarta.el.ValueExpression;
 import jakarta.faces.context.FacesContext;
 
@@ -32,6 +33,12 @@ import jakarta.faces.context.FacesContext;
         //CHECKSTYLE:ON
 public final class Listbox extends ListSelector {
 
+    /**
+     * Suffix of the hidden field used to submit the selection changes of a
+     * virtual list.
+     */
+    public static final String VIRTUAL_DELTA_ID = "_delta";
+
     /**
      * When set to true, this attribute causes the list items to be rendered in
      * a monospace font.
@@ -68,6 +75,27 @@ public final class Listbox extends ListSelector {
             category = "Behavior")
     private String toolTip = null;
 
+    /**
+     * When greater than zero and the list has more options, only this number
+     * of options is rendered. The other options are loaded with Ajax requests
+     * when the list is scrolled, or when the user types the beginning of an
+     * option label, and the selection changes are submitted as a delta.
+     * Grouped options are always rendered. The default value is 0, which
+     * renders all the options.
+     */
+    @Property(name = "virtualRows",
+            displayName = "Number of Options to Render",
+            category = "Advanced",
+            //CHECKSTYLE:OFF
+            editorClassName = "com.sun.rave.propertyeditors.IntegerPropertyEditor")
+            //CHECKSTYLE:ON
+    private int virtualRows = Integer.MIN_VALUE;
+
+    /**
+     * virtualRows set flag.
+     */
+    private boolean virtualRowsSet = false;
+
     /**
      * Default constructor.
      */
@@ -81,6 +109,14 @@ public final class Listbox extends ListSelector {
         return "com.sun.webui.jsf.Listbox";
     }
 
+    @Override
+    public String getRendererType() {
+        if (getVirtualRows() > 0 && AsyncResponse.isAjaxRequest()) {
+            return "com.sun.webui.jsf.ajax.Listbox";
+        }
+        return super.getRendererType();
+    }
+
     @Override
     @SuppressWarnings("checkstyle:magicnumber")
     public int getRows() {
@@ -178,6 +214,38 @@ public final class Listbox extends ListSelector {
         this.toolTip = newToolTip;
     }
 
+    /**
+     * Get the number of options to render.
+     * @return int
+     */
+    public int getVirtualRows() {
+        if (this.virtualRowsSet) {
+            return this.virtualRows;
+        }
+        ValueExpression vb = getValueExpression("virtualRows");
+        if (vb != null) {
+            Object result = vb.getValue(getFacesContext().getELContext());
+            if (result == null) {
+                return Integer.MIN_VALUE;
+            } else {
+                return ((Integer) result);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * When greater than zero and the list has more options, only this number
+     * of options is rendered.
+     *
+     * @see #getVirtualRows()
+     * @param newVirtualRows virtualRows
+     */
+    public void setVirtualRows(final int newVirtualRows) {
+        this.virtualRows = newVirtualRows;
+        this.virtualRowsSet = true;
+    }
+
     @Override
     @SuppressWarnings("checkstyle:magicnumber")
     public void restoreState(final FacesContext context, final Object state) {
@@ -188,12 +256,14 @@ public final class Listbox extends ListSelector {
         this.multiple = ((Boolean) values[3]);
         this.multipleSet = ((Boolean) values[4]);
         this.toolTip = (String) values[5];
+        this.virtualRows = ((Integer) values[6]);
+        this.virtualRowsSet = ((Boolean) values[7]);
     }
 
     @Override
     @SuppressWarnings("checkstyle:magicnumber")
     public Object saveState(final FacesContext context) {
-        Object[] values = new Object[6];
+        Object[] values = new Object[8];
         values[0] = super.saveState(context);
         if (this.monospace) {
             values[1] = Boolean.TRUE;
@@ -216,6 +286,12 @@ public final class Listbox extends ListSelector {
             values[4] = Boolean.FALSE;
         }
         values[5] = this.toolTip;
+        values[6] = this.virtualRows;
+        if (this.virtualRowsSet) {
+            values[7] = Boolean.TRUE;
+        } else {
+            values[7] = Boolean.FALSE;
+        }
         return values;
     }
 }
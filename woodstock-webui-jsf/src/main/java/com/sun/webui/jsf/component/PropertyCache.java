@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.jsf.component;
+
+import java.util.HashMap;
+import java.util.Map;
+import jakarta.el.ValueExpression;
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.event.PhaseId;
+
+/**
+ * Cache of the values of the value expressions of the cached properties of a
+ * table component, see {@code Property.isCached}.
+ * <p>
+ * The values are evaluated at most once per request phase. They are also
+ * evaluated again when the row of the table row group enclosing the table of
+ * the component changes, since the values may depend on the row of a nested
+ * table. The values of a component do not depend on the rows of its own
+ * table.
+ * </p>
+ */
+final class PropertyCache {
+
+    /**
+     * Marker of a {@code null} value in the cache.
+     */
+    private static final Object NULL_VALUE = new Object();
+
+    /**
+     * Component of the properties.
+     */
+    private final UIComponent component;
+
+    /**
+     * Cached values, by property name.
+     */
+    private final Map<String, Object> values = new HashMap<String, Object>();
+
+    /**
+     * Faces context of the cached values.
+     */
+    private FacesContext context;
+
+    /**
+     * Phase of the cached values.
+     */
+    private PhaseId phaseId;
+
+    /**
+     * Table row group enclosing the table of the component, may be
+     * {@code null}.
+     */
+    private TableRowGroup rowGroup;
+
+    /**
+     * Row key version of {@link #rowGroup} when the values were cached.
+     */
+    private int rowKeyVersion;
+
+    /**
+     * Create a new cache.
+     * @param newComponent component of the properties
+     */
+    PropertyCache(final UIComponent newComponent) {
+        this.component = newComponent;
+    }
+
+    /**
+     * Get the value of the value expression of a property.
+     *
+     * @param name property name
+     * @return the value, or {@code null} if the property has no value
+     * expression
+     */
+    Object getValue(final String name) {
+        FacesContext ctx = FacesContext.getCurrentInstance();
+        if (ctx != context || ctx.getCurrentPhaseId() != phaseId
+                || (rowGroup != null
+                && rowGroup.getRowKeyVersion() != rowKeyVersion)) {
+            reset(ctx);
+        }
+        Object value = values.get(name);
+        if (value == null) {
+            ValueExpression vb = component.getValueExpression(name);
+            if (vb != null) {
+                value = vb.getValue(ctx.getELContext());
+            }
+            if (value == null) {
+                values.put(name, NULL_VALUE);
+            } else {
+                values.put(name, value);
+            }
+            return value;
+        }
+        if (value == NULL_VALUE) {
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * Remove the cached values.
+     */
+    void clear() {
+        values.clear();
+        context = null;
+    }
+
+    /**
+     * Remove the cached values and start caching for the current phase.
+     * @param ctx faces context
+     */
+    private void reset(final FacesContext ctx) {
+        values.clear();
+        context = ctx;
+        phaseId = ctx.getCurrentPhaseId();
+        rowGroup = getEnclosingRowGroup(component);
+        if (rowGroup != null) {
+            rowKeyVersion = rowGroup.getRowKeyVersion();
+        }
+    }
+
+    /**
+     * Get the table row group enclosing the table of a component.
+     * @param comp component
+     * @return TableRowGroup or {@code null}
+     */
+    private static TableRowGroup getEnclosingRowGroup(
+            final UIComponent comp) {
+
+        UIComponent parent = comp;
+        while (parent != null && !(parent instanceof Table)) {
+            parent = parent.getParent();
+        }
+        while (parent != null && !(parent instanceof TableRowGroup)) {
+            parent = parent.getParent();
+        }
+        return (TableRowGroup) parent;
+    }
+}
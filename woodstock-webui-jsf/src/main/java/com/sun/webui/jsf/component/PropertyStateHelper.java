@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.jsf.component;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Helper to save the properties of a component as the changes made after
+ * its initial state was marked.
+ * <p>
+ * The properties are stored in an array, the first element of which holds
+ * the state of the super class. When partial state saving is enabled, the
+ * properties are copied when the initial state of the component is marked
+ * after the view is built. Only the elements that differ from this copy are
+ * saved, and they are restored on top of the properties set when the view is
+ * built again. When the initial state is not marked, all the properties are
+ * saved.
+ * </p><p>
+ * Each component holds its own instance, and only provides the mapping of
+ * its properties to the array, see {@link Properties}. When the initial
+ * state is marked, the array of current properties is reused across calls.
+ * </p>
+ */
+final class PropertyStateHelper {
+
+    /**
+     * The properties of a component.
+     */
+    interface Properties {
+
+        /**
+         * Get the properties to save. The first element is reserved for the
+         * state of the super class and must be set to {@code null}.
+         *
+         * @param reuse array to fill, or {@code null} to allocate one
+         * @return Object[]
+         */
+        Object[] save(Object[] reuse);
+    }
+
+    /**
+     * The properties of the component.
+     */
+    private final Properties properties;
+
+    /**
+     * Properties of the initial state, {@code null} if the initial state is
+     * not marked.
+     */
+    private Object[] initialProperties = null;
+
+    /**
+     * The current properties, compared with the initial state when saving.
+     */
+    private Object[] currentProperties = null;
+
+    /**
+     * Create a new instance.
+     *
+     * @param newProperties the properties of the component
+     */
+    PropertyStateHelper(final Properties newProperties) {
+        this.properties = newProperties;
+    }
+
+    /**
+     * Copy the properties of the initial state.
+     */
+    void markInitialState() {
+        initialProperties = properties.save(null);
+    }
+
+    /**
+     * Discard the properties of the initial state.
+     */
+    void clearInitialState() {
+        initialProperties = null;
+        currentProperties = null;
+    }
+
+    /**
+     * Get the state to save for the current properties.
+     *
+     * @param superState state of the super class
+     * @return the properties if the initial state is not marked, otherwise
+     * the changed properties, or {@code null} if no property has changed
+     */
+    Object saveState(final Object superState) {
+        Object[] values = getCurrentProperties();
+        values[0] = superState;
+        if (initialProperties == null) {
+            return values;
+        }
+        Object[] initial = initialProperties;
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (!Objects.equals(initial[i], values[i])) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        int[] indexes = new int[count];
+        Object[] changes = new Object[count];
+        count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (!Objects.equals(initial[i], values[i])) {
+                indexes[count] = i;
+                changes[count] = values[i];
+                count++;
+            }
+        }
+        return new Delta(indexes, changes);
+    }
+
+    /**
+     * Get the properties to restore from the given state. The changed
+     * properties are applied on top of the current properties.
+     *
+     * @param state the state saved by {@link #saveState}
+     * @return the properties to restore, the first element is the state of
+     * the super class
+     */
+    Object[] restoreState(final Object state) {
+        if (state instanceof Object[]) {
+            return (Object[]) state;
+        }
+        Object[] values = getCurrentProperties();
+        if (state instanceof Delta) {
+            Delta delta = (Delta) state;
+            for (int i = 0; i < delta.indexes.length; i++) {
+                values[delta.indexes[i]] = delta.values[i];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Get the current properties. The array is reused across calls when the
+     * initial state is marked, since only the changed properties are saved.
+     *
+     * @return Object[]
+     */
+    private Object[] getCurrentProperties() {
+        if (initialProperties == null) {
+            return properties.save(null);
+        }
+        currentProperties = properties.save(currentProperties);
+        return currentProperties;
+    }
+
+    /**
+     * The properties changed after the initial state was marked.
+     */
+    private static final class Delta implements Serializable {
+
+        /**
+         * Serialization UID.
+         */
+        private static final long serialVersionUID = 4195386529614907751L;
+
+        /**
+         * Indexes of the changed properties.
+         */
+        private final int[] indexes;
+
+        /**
+         * Values of the changed properties.
+         */
+        private final Object[] values;
+
+        /**
+         * Create a new delta.
+         * @param newIndexes indexes of the changed properties
+         * @param newValues values of the changed properties
+         */
+        Delta(final int[] newIndexes, final Object[] newValues) {
+            this.indexes = newIndexes;
+            this.values = newValues;
+        }
+    }
+}
@@ -1008,6 +1008,18 @@ public class Table extends UIComponentBase implements NamingContainer {
             //CHECKSTYLE:ON
     private String width = null;
 
+    /**
+     * State of the properties, saved as the changes made after the initial
+     * state was marked.
+     */
+    private final PropertyStateHelper propertyState =
+            new PropertyStateHelper(new PropertyStateHelper.Properties() {
+                @Override
+                public Object[] save(final Object[] reuse) {
+                    return saveProperties(reuse);
+                }
+            });
+
     /**
      * Default constructor.
      */
@@ -3264,7 +3276,7 @@ public class Table extends UIComponentBase implements NamingContainer {
     @Override
     @SuppressWarnings("checkstyle:magicnumber")
     public void restoreState(final FacesContext context, final Object state) {
-        Object[] values = (Object[]) state;
+        Object[] values = propertyState.restoreState(state);
         super.restoreState(context, values[0]);
         this.align = (String) values[1];
         this.augmentTitle = ((Boolean) values[2]);
@@ -3334,15 +3346,41 @@ public class Table extends UIComponentBase implements NamingContainer {
     }
 
     /**
-     * This implementation saves the state of all properties.
+     * This implementation saves the state of all properties, or of the
+     * properties changed after the initial state was marked.
      * @param context faces context
      * @return Object
      */
     @Override
-    @SuppressWarnings({"checkstyle:magicnumber", "checkstyle:methodlength"})
     public Object saveState(final FacesContext context) {
-        Object[] values = new Object[66];
-        values[0] = super.saveState(context);
+        return propertyState.saveState(super.saveState(context));
+    }
+
+    @Override
+    public void markInitialState() {
+        super.markInitialState();
+        propertyState.markInitialState();
+    }
+
+    @Override
+    public void clearInitialState() {
+        super.clearInitialState();
+        propertyState.clearInitialState();
+    }
+
+    /**
+     * Get the properties to save. The first element is reserved for the
+     * state of the super class.
+     * @param reuse array to fill, or {@code null} to allocate one
+     * @return Object[]
+     */
+    @SuppressWarnings({"checkstyle:magicnumber", "checkstyle:methodlength"})
+    private Object[] saveProperties(final Object[] reuse) {
+        Object[] values = reuse;
+        if (values == null) {
+            values = new Object[66];
+        }
+        values[0] = null;
         values[1] = this.align;
         if (this.augmentTitle) {
             values[2] = Boolean.TRUE;
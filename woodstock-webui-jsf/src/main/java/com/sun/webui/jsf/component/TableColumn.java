@@ -305,7 +305,8 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
      */
     @Property(name = "descending",
             displayName = "Is Descending",
-            category = "Data")
+            category = "Data",
+            isCached = true)
     private boolean descending = false;
 
     /**
@@ -321,7 +322,8 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
      */
     @Property(name = "embeddedActions",
             displayName = "Is Embedded Actions",
-            category = "Advanced")
+            category = "Advanced",
+            isCached = true)
     private boolean embeddedActions = false;
 
     /**
@@ -607,7 +609,8 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
      */
     @Property(name = "rowHeader",
             displayName = "Row Header",
-            category = "Advanced")
+            category = "Advanced",
+            isCached = true)
     private boolean rowHeader = false;
 
     /**
@@ -676,6 +679,7 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
     @Property(name = "selectId",
             displayName = "Select Component Id",
             category = "Data",
+            isCached = true,
             //CHECKSTYLE:OFF
             editorClassName = "com.sun.rave.propertyeditors.StringPropertyEditor")
             //CHECKSTYLE:ON
@@ -758,7 +762,8 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
      */
     @Property(name = "spacerColumn",
             displayName = "Spacer Column",
-            category = "Layout")
+            category = "Layout",
+            isCached = true)
     private boolean spacerColumn = false;
 
     /**
@@ -863,6 +868,23 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
             //CHECKSTYLE:ON
     private String width = null;
 
+    /**
+     * State of the properties, saved as the changes made after the initial
+     * state was marked.
+     */
+    private final PropertyStateHelper propertyState =
+            new PropertyStateHelper(new PropertyStateHelper.Properties() {
+                @Override
+                public Object[] save(final Object[] reuse) {
+                    return saveProperties(reuse);
+                }
+            });
+
+    /**
+     * Cache of the cached properties.
+     */
+    private transient PropertyCache propertyCache = null;
+
     /**
      * Default constructor.
      */
@@ -880,6 +902,24 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
         return "com.sun.webui.jsf.TableColumn";
     }
 
+    /**
+     * Set the ValueExpression used to calculate the value for the specified
+     * attribute or property name, if any. Any value cached for the current
+     * request phase is discarded.
+     *
+     * @param name Name of the attribute or property for which to set a
+     * ValueExpression.
+     * @param valueExpression The ValueExpression to set, or null to remove any
+     * currently set ValueExpression.
+     */
+    @Override
+    public void setValueExpression(final String name,
+            final ValueExpression valueExpression) {
+
+        getPropertyCache().clear();
+        super.setValueExpression(name, valueExpression);
+    }
+
     /**
      * Clear cached properties.
      * <p>
@@ -898,6 +938,7 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
         tableRowGroupAncestor = null;
         columnCount = -1;
         rowCount = -1;
+        propertyCache = null;
 
         // Clear properties of nested TableColumn children.
         Iterator kids = getTableColumnChildren();
@@ -1687,16 +1728,11 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
         if (this.descendingSet) {
             return this.descending;
         }
-        ValueExpression vb = getValueExpression("descending");
-        if (vb != null) {
-            Object result = vb.getValue(getFacesContext().getELContext());
-            if (result == null) {
-                return false;
-            } else {
-                return ((Boolean) result);
-            }
+        Object result = getPropertyCache().getValue("descending");
+        if (result == null) {
+            return false;
         }
-        return false;
+        return ((Boolean) result);
     }
 
     /**
@@ -1722,16 +1758,11 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
         if (this.embeddedActionsSet) {
             return this.embeddedActions;
         }
-        ValueExpression vb = getValueExpression("embeddedActions");
-        if (vb != null) {
-            Object result = vb.getValue(getFacesContext().getELContext());
-            if (result == null) {
-                return false;
-            } else {
-                return ((Boolean) result);
-            }
+        Object result = getPropertyCache().getValue("embeddedActions");
+        if (result == null) {
+            return false;
         }
-        return false;
+        return ((Boolean) result);
     }
 
     /**
@@ -2299,16 +2330,11 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
         if (this.rowHeaderSet) {
             return this.rowHeader;
         }
-        ValueExpression vb = getValueExpression("rowHeader");
-        if (vb != null) {
-            Object result = vb.getValue(getFacesContext().getELContext());
-            if (result == null) {
-                return false;
-            } else {
-                return ((Boolean) result);
-            }
+        Object result = getPropertyCache().getValue("rowHeader");
+        if (result == null) {
+            return false;
         }
-        return false;
+        return ((Boolean) result);
     }
 
     /**
@@ -2446,11 +2472,7 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
         if (this.selectId != null) {
             return this.selectId;
         }
-        ValueExpression vb = getValueExpression("selectId");
-        if (vb != null) {
-            return (String) vb.getValue(getFacesContext().getELContext());
-        }
-        return null;
+        return (String) getPropertyCache().getValue("selectId");
     }
 
     /**
@@ -2621,16 +2643,11 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
         if (this.spacerColumnSet) {
             return this.spacerColumn;
         }
-        ValueExpression vb = getValueExpression("spacerColumn");
-        if (vb != null) {
-            Object result = vb.getValue(getFacesContext().getELContext());
-            if (result == null) {
-                return false;
-            } else {
-                return ((Boolean) result);
-            }
+        Object result = getPropertyCache().getValue("spacerColumn");
+        if (result == null) {
+            return false;
         }
-        return false;
+        return ((Boolean) result);
     }
 
     /**
@@ -2867,7 +2884,7 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
     @Override
     @SuppressWarnings("checkstyle:magicnumber")
     public void restoreState(final FacesContext context, final Object state) {
-        Object[] values = (Object[]) state;
+        Object[] values = propertyState.restoreState(state);
         super.restoreState(context, values[0]);
         this.abbr = (String) values[1];
         this.align = (String) values[2];
@@ -2926,15 +2943,41 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
     }
 
     /**
-     * This implementation saves the state of all properties.
+     * This implementation saves the state of all properties, or of the
+     * properties changed after the initial state was marked.
      * @param context faces context
      * @return Object
      */
     @Override
-    @SuppressWarnings("checkstyle:magicnumber")
     public Object saveState(final FacesContext context) {
-        Object[] values = new Object[55];
-        values[0] = super.saveState(context);
+        return propertyState.saveState(super.saveState(context));
+    }
+
+    @Override
+    public void markInitialState() {
+        super.markInitialState();
+        propertyState.markInitialState();
+    }
+
+    @Override
+    public void clearInitialState() {
+        super.clearInitialState();
+        propertyState.clearInitialState();
+    }
+
+    /**
+     * Get the properties to save. The first element is reserved for the
+     * state of the super class.
+     * @param reuse array to fill, or {@code null} to allocate one
+     * @return Object[]
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    private Object[] saveProperties(final Object[] reuse) {
+        Object[] values = reuse;
+        if (values == null) {
+            values = new Object[55];
+        }
+        values[0] = null;
         values[1] = this.abbr;
         values[2] = this.align;
         values[3] = this.alignKey;
@@ -3195,6 +3238,17 @@ public class TableColumn extends UIComponentBase implements NamingContainer {
         return String.class;
     }
 
+    /**
+     * Get the cache of the cached properties.
+     * @return PropertyCache
+     */
+    private PropertyCache getPropertyCache() {
+        if (propertyCache == null) {
+            propertyCache = new PropertyCache(this);
+        }
+        return propertyCache;
+    }
+
     /**
      * Helper method to get Theme objects.
      *
@@ -552,6 +552,18 @@ public final class TableHeader extends UIComponentBase
     @Property(name = "width", displayName = "Width")
     private String width = null;
 
+    /**
+     * State of the properties, saved as the changes made after the initial
+     * state was marked.
+     */
+    private final PropertyStateHelper propertyState =
+            new PropertyStateHelper(new PropertyStateHelper.Properties() {
+                @Override
+                public Object[] save(final Object[] reuse) {
+                    return saveProperties(reuse);
+                }
+            });
+
     /**
      * Default constructor.
      */
@@ -2262,7 +2274,7 @@ public final class TableHeader extends UIComponentBase
     @Override
     @SuppressWarnings("checkstyle:magicnumber")
     public void restoreState(final FacesContext context, final Object state) {
-        Object[] values = (Object[]) state;
+        Object[] values = propertyState.restoreState(state);
         super.restoreState(context, values[0]);
         this.abbr = (String) values[1];
         this.align = (String) values[2];
@@ -2306,10 +2318,35 @@ public final class TableHeader extends UIComponentBase
     }
 
     @Override
-    @SuppressWarnings("checkstyle:magicnumber")
     public Object saveState(final FacesContext context) {
-        Object[] values = new Object[40];
-        values[0] = super.saveState(context);
+        return propertyState.saveState(super.saveState(context));
+    }
+
+    @Override
+    public void markInitialState() {
+        super.markInitialState();
+        propertyState.markInitialState();
+    }
+
+    @Override
+    public void clearInitialState() {
+        super.clearInitialState();
+        propertyState.clearInitialState();
+    }
+
+    /**
+     * Get the properties to save. The first element is reserved for the
+     * state of the super class.
+     * @param reuse array to fill, or {@code null} to allocate one
+     * @return Object[]
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    private Object[] saveProperties(final Object[] reuse) {
+        Object[] values = reuse;
+        if (values == null) {
+            values = new Object[40];
+        }
+        values[0] = null;
         values[1] = this.abbr;
         values[2] = this.align;
         values[3] = this.axis;
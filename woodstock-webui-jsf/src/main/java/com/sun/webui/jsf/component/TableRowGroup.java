@@ -30,6 +30,9 @@ import com.sun.data.provider.impl.ObjectArrayDataProvider;
 import com.sun.data.provider.impl.ObjectListDataProvider;
 import com.sun.data.provider.impl.TableRowDataProvider;
 import com.sun.webui.theme.Theme;
+import com.sun.webui.jsf.model.PagedTableDataProvider;
+import com.sun.webui.jsf.model.TableSelectionIndex;
+import com.sun.webui.jsf.model.VersionedTableDataProvider;
 import com.sun.webui.jsf.theme.ThemeStyles;
 import com.sun.webui.jsf.util.ConversionUtilities;
 import com.sun.webui.jsf.util.LogUtil;
@@ -38,7 +41,9 @@ import java.beans.Beans;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -171,12 +176,25 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
             "_tableColumnFooterBar";
 
     /**
-     * This map contains SavedState instances for each descendant component,
-     * keyed by the client identifier of the descendant. Because descendant
-     * client identifiers will contain the RowKey value of the parent, per-row
-     * state information is actually preserved.
+     * This map contains RowState instances for each row, keyed by the client
+     * identifier of this component for the row. Because this client identifier
+     * contains the RowKey value, per-row state information is actually
+     * preserved. Rows in which all descendants have their default state are
+     * not stored.
      */
-    private Map<String, SavedState> saved = new HashMap<String, SavedState>();
+    private Map<String, RowState> saved = new HashMap<String, RowState>();
+
+    /**
+     * The id paths of the EditableValueHolder descendants, used to index the
+     * saved RowState instances.
+     */
+    private String[] savedHolderPaths = null;
+
+    /**
+     * Flat descriptor of the descendants of the TableColumn children. This
+     * object is not part of the saved and restored state of the component.
+     */
+    private transient DescendantIndex descendants = null;
 
     /**
      * TableDataFilter object used to apply filter. This object is not part of
@@ -229,11 +247,54 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
      */
     private RowKey[] sortedRowKeys = null;
 
+    /**
+     * Array containing the RowKey objects of the current page when rows are
+     * obtained from a PagedTableDataProvider. This page will be cached and used
+     * to iterate over children during the decode, validate, and update phases.
+     */
+    private RowKey[] pagedRowKeys = null;
+
+    /**
+     * The zero-relative row number of the first row of the cached page.
+     */
+    private int pagedFirst = -1;
+
+    /**
+     * The number of rows obtained from a PagedTableDataProvider.
+     */
+    private int pagedRowCount = -1;
+
+    /**
+     * Map of row ids to the position of the row in the sorted RowKey objects,
+     * used to look up the rows of a TableSelectionIndex when they cannot be
+     * resolved directly. The map is shared with the cached sort of the
+     * default sorter when available, otherwise it is built once per sorted
+     * RowKey objects, i.e. once per request. This object is not part of the
+     * saved and restored state of the component.
+     */
+    private transient Map<String, Integer> sortedRowIndex = null;
+
+    /**
+     * The sorted RowKey objects for which sortedRowIndex was built.
+     */
+    private transient RowKey[] sortedRowIndexKeys = null;
+
+    /**
+     * Flag indicating that sortedRowIndex is the map cached with the sort.
+     */
+    private transient boolean sortedRowIndexShared = false;
+
     /**
      * The number of columns to be rendered.
      */
     private int columnCount = -1;
 
+    /**
+     * Number of changes of the current row, used to invalidate the cached
+     * properties of nested tables.
+     */
+    private transient int rowKeyVersion = 0;
+
     /**
      * Set the {@code aboveColumnFooter} attribute to true to display the
      * group footer bar above the column footers bar. The default is to display
@@ -337,7 +398,8 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
      */
     @Property(name = "collapsed",
             displayName = "Is Collapsed",
-            category = "Appearance")
+            category = "Appearance",
+            isCached = true)
     private boolean collapsed = false;
 
     /**
@@ -651,6 +713,23 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
      */
     private boolean selectedSet = false;
 
+    /**
+     * The {@code selectionIndex} attribute is used to specify an index of
+     * the selected rows. The value of the {@code selectionIndex} attribute
+     * must be a JavaServer Faces EL expression that resolves to a backing bean
+     * of type {@code com.sun.webui.jsf.model.TableSelectionIndex}, such as
+     * the {@code TableSelectPhaseListener} the {@code selected} attribute is
+     * bound to. When set, selected rows are counted without evaluating the
+     * {@code selected} attribute for each row of the table. The index is not
+     * saved with the state of the component, it is resolved again from its
+     * value expression.
+     */
+    @Property(name = "selectionIndex",
+            displayName = "Selection Index",
+            category = "Data",
+            isHidden = true)
+    private transient TableSelectionIndex selectionIndex = null;
+
     /**
      * The {@code sourceData} attribute is used to specify the data source
      * to populate the table. The value of the {@code sourceData} attribute
@@ -676,7 +755,8 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
      */
     @Property(name = "sourceVar",
             displayName = "Source Variable",
-            category = "Data")
+            category = "Data",
+            isCached = true)
     private String sourceVar = null;
 
     /**
@@ -696,6 +776,7 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
     @Property(name = "styleClasses",
             displayName = "CSS Style Class(es)",
             category = "Appearance",
+            isCached = true,
             //CHECKSTYLE:OFF
             editorClassName = "com.sun.rave.propertyeditors.StyleClassPropertyEditor")
             //CHECKSTYLE:ON
@@ -781,6 +862,23 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
      */
     private boolean visibleSet = false;
 
+    /**
+     * State of the properties, saved as the changes made after the initial
+     * state was marked.
+     */
+    private final PropertyStateHelper propertyState =
+            new PropertyStateHelper(new PropertyStateHelper.Properties() {
+                @Override
+                public Object[] save(final Object[] reuse) {
+                    return saveProperties(reuse);
+                }
+            });
+
+    /**
+     * Cache of the cached properties.
+     */
+    private transient PropertyCache propertyCache = null;
+
     /**
      * Default constructor.
      */
@@ -816,9 +914,14 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         provider = null;
         tableAncestor = null;
         tableColumnChildren = null;
+        descendants = null;
         filteredRowKeys = null;
         sortedRowKeys = null;
+        sortedRowIndex = null;
+        pagedRowKeys = null;
+        pagedRowCount = -1;
         columnCount = -1;
+        propertyCache = null;
 
         // Clear properties of TableColumn children.
         Iterator kids = getTableColumnChildren();
@@ -928,6 +1031,9 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         String msg = null;
         if (getEmptyDataMsg() != null) {
             msg = getEmptyDataMsg();
+        } else if (getPagedDataProvider() != null) {
+            // Filtering is not used or applied by the provider itself.
+            msg = theme.getMessage("table.emptyData");
         } else {
             // Get unfiltered row keys.
             RowKey[] rowKeys = getRowKeys();
@@ -1038,6 +1144,9 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         setPage(1);
         filteredRowKeys = null; // Clear filtered row keys.
         sortedRowKeys = null; // Clear sorted row keys.
+        sortedRowIndex = null; // Clear sorted row positions.
+        pagedRowKeys = null; // Clear paged row keys.
+        pagedRowCount = -1;
     }
 
     /**
@@ -1353,6 +1462,8 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
     public void setPaginated(final boolean newPaginated) {
         this.paginated = newPaginated;
         paginatedSet = true;
+        // Clear paged row keys.
+        pagedRowKeys = null;
     }
 
     /**
@@ -1401,6 +1512,8 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         }
         this.rows = newRows;
         this.rowsSet = true;
+        // Clear paged row keys.
+        pagedRowKeys = null;
     }
 
     /**
@@ -1499,6 +1612,14 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
      * @return The number of rows in the underlying TableDataProvider.
      */
     public int getRowCount() {
+        // Only obtain the row count from a paged provider.
+        PagedTableDataProvider pagedProvider = getPagedDataProvider();
+        if (pagedProvider != null) {
+            if (pagedRowCount == -1) {
+                pagedRowCount = Math.max(0, pagedProvider.getRowCount());
+            }
+            return pagedRowCount;
+        }
         RowKey[] rowKeys = getFilteredRowKeys();
         if (rowKeys != null) {
             return rowKeys.length;
@@ -1633,11 +1754,21 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
      * instances used by this component. If TableDataFilter and TableDataSorter
      * are modified directly, invoke the clearSort and clearFilter method to
      * clear the previous sort and filter.
+     * </p><p>
+     * Note: If the underlying TableDataProvider implements
+     * PagedTableDataProvider and filtering and sorting are either not used or
+     * applied by the provider itself, only the RowKey objects of the current
+     * page are obtained from the provider.
      * </p>
      *
      * @return An array of RowKey objects.
      */
     public RowKey[] getRenderedRowKeys() {
+        PagedTableDataProvider pagedProvider = getPagedDataProvider();
+        if (pagedProvider != null) {
+            return getPagedRowKeys(pagedProvider);
+        }
+
         // Get sorted RowKey objects.
         RowKey[] rowKeys = getSortedRowKeys();
         if (rowKeys == null) {
@@ -1720,6 +1851,7 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
     public void setRowKey(final RowKey rowKey) {
         // Save current state for the previous row.
         saveDescendantState();
+        rowKeyVersion++;
 
         // Update to the new row.
         getTableRowDataProvider().setTableRow(rowKey);
@@ -1744,6 +1876,16 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         restoreDescendantState();
     }
 
+    /**
+     * Get the number of changes of the current row. The cached properties of
+     * the nested tables are evaluated again when it changes.
+     *
+     * @return The number of changes of the current row.
+     */
+    int getRowKeyVersion() {
+        return rowKeyVersion;
+    }
+
     /**
      * Set the source data of the TableRowGroup.
      * <p>
@@ -1814,11 +1956,23 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
      * instances used by this component. If TableDataFilter and TableDataSorter
      * are modified directly, invoke the clearSort and clearFilter method to
      * clear the previous sort and filter.
+     * </p><p>
+     * Note: If a TableSelectionIndex is given to the selectionIndex property,
+     * the selected rows are looked up in the index instead of evaluating the
+     * selected property for each row.
      * </p>
      *
      * @return An array of RowKey objects.
      */
     public RowKey[] getHiddenSelectedRowKeys() {
+        TableSelectionIndex index = getSelectionIndex();
+        if (index != null) {
+            if (!isPaginated()) {
+                return null; // No rows are hidden during scroll mode.
+            }
+            return getIndexedSelectedRowKeys(index, false, true);
+        }
+
         // Get hidden RowKey objects.
         RowKey[] rowKeys = getHiddenRowKeys();
         if (rowKeys == null) {
@@ -1870,11 +2024,23 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
      * provided to the TableDataFilter instance used by this component. If
      * TableDataFilter is modified directly, invoke the clearFilter method to
      * clear the previous filter.
+     * </p><p>
+     * Note: If a TableSelectionIndex is given to the selectionIndex property,
+     * the selected rows are looked up in the index instead of evaluating the
+     * selected property for each row. The selected rows of the current page
+     * are then returned first, in sorted order, followed by the other
+     * selected rows, in sorted order if the sort is cached across requests
+     * (see getSortedRowKeys), otherwise in selection order.
      * </p>
      *
      * @return An array of RowKey objects.
      */
     public RowKey[] getSelectedRowKeys() {
+        TableSelectionIndex index = getSelectionIndex();
+        if (index != null) {
+            return getIndexedSelectedRowKeys(index, true, true);
+        }
+
         // Get filtered RowKey objects.
         RowKey[] rowKeys = getFilteredRowKeys();
         if (rowKeys == null) {
@@ -1943,11 +2109,20 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
      * instances used by this component. If TableDataFilter and TableDataSorter
      * are modified directly, invoke the clearSort and clearFilter method to
      * clear the previous sort and filter.
+     * </p><p>
+     * Note: If a TableSelectionIndex is given to the selectionIndex property,
+     * the selected rows are looked up in the index instead of evaluating the
+     * selected property for each row.
      * </p>
      *
      * @return An array of RowKey objects.
      */
     public RowKey[] getRenderedSelectedRowKeys() {
+        TableSelectionIndex index = getSelectionIndex();
+        if (index != null) {
+            return getIndexedSelectedRowKeys(index, true, false);
+        }
+
         // Get rendered RowKey objects.
         RowKey[] rowKeys = getRenderedRowKeys();
         if (rowKeys == null) {
@@ -2029,6 +2204,8 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         tableSorter.setSortCriteria(newCriteria);
         // Clear sorted row keys.
         sortedRowKeys = null;
+        sortedRowIndex = null;
+        pagedRowKeys = null;
         // Reset to first page.
         setPage(1);
     }
@@ -2046,6 +2223,8 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         getTableDataSorter().setSortCriteria(null);
         // Clear sorted row keys.
         sortedRowKeys = null;
+        sortedRowIndex = null;
+        pagedRowKeys = null;
         // Reset to first page.
         setPage(1);
     }
@@ -2144,6 +2323,11 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
      * TableDataFilter instances used by this component are modified directly,
      * invoke the clearSort and clearFilter methods to clear the previous sort
      * and filter.
+     * </p><p>
+     * Note: When the default TableDataSorter is used, the sort value of each
+     * row is obtained only once and the sort is cached per TableDataProvider.
+     * If the TableDataProvider implements VersionedTableDataProvider, the sort
+     * is re-used across requests until its data version changes.
      * </p>
      *
      * @return An array containing sorted RowKey objects.
@@ -2170,7 +2354,20 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         // sort method is never called. The sort order is assumed to be
         // intrinsic in the row order of the TableDataProvider.
         TableDataSorter tableSorter = getTableDataSorter();
-        if (tableProvider != tableSorter) {
+        if (tableProvider == tableSorter) {
+            return sortedRowKeys;
+        }
+
+        // The default sorter reads the sort value of each row for every
+        // comparison, use the indexed sort engine instead. Custom sorters are
+        // used as is.
+        if (tableSorter.getClass() == BasicTableDataSorter.class) {
+            sortedRowKeys = TableRowSorter.getInstance(tableProvider)
+                    .sort(tableProvider, sortedRowKeys,
+                            tableSorter.getSortCriteria(),
+                            ((BasicTableDataSorter) tableSorter)
+                                    .getSortLocale());
+        } else {
             sortedRowKeys = tableSorter.sort(tableProvider, sortedRowKeys);
         }
         return sortedRowKeys;
@@ -2240,7 +2437,7 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
     @Override
     @SuppressWarnings({"unchecked", "checkstyle:magicnumber"})
     public void restoreState(final FacesContext context, final Object state) {
-        Object[] values = (Object[]) ((Object[]) state)[0];
+        Object[] values = propertyState.restoreState(((Object[]) state)[0]);
         super.restoreState(context, values[0]);
         this.aboveColumnFooter = ((Boolean) values[1]);
         this.aboveColumnFooterSet = ((Boolean) values[2]);
@@ -2292,8 +2489,9 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         this.visibleSet = ((Boolean) values[48]);
 
         Object[] values2 = (Object[]) state;
-        values2[0] = values;
         saved = (Map) values2[1];
+        savedHolderPaths = (String[]) values2[9];
+        descendants = null;
         setPaginated(((Boolean) values2[2]));
 
         // Note: When the iterate method is called (during the decode, validate,
@@ -2316,18 +2514,73 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         filteredRowKeys = (RowKey[]) values2[5];
         // Clear sorted row keys.
         sortedRowKeys = (RowKey[]) values2[6];
+        sortedRowIndex = null;
+        // Restore the previously displayed page of a paged provider.
+        pagedRowKeys = (RowKey[]) values2[7];
+        pagedFirst = ((Integer) values2[8]);
     }
 
     /**
-     * This implementation saves the state of all properties.
+     * This implementation saves the state of all properties, or of the
+     * properties changed after the initial state was marked.
      * @param context faces context
      * @return Object
      */
     @Override
     @SuppressWarnings({"unchecked", "checkstyle:magicnumber"})
     public Object saveState(final FacesContext context) {
-        Object[] values = new Object[49];
-        values[0] = super.saveState(context);
+        Object[] values2 = new Object[10];
+        values2[0] = propertyState.saveState(super.saveState(context));
+        values2[1] = saved;
+        if (isPaginated()) {
+            values2[2] = Boolean.TRUE;
+        } else {
+            values2[2] = Boolean.FALSE;
+        }
+        // Save SortCriteria.
+        values2[3] = getTableDataSorter().getSortCriteria();
+        // Save FilterCriteria.
+        values2[4] = getTableDataFilter().getFilterCriteria();
+        if (getPagedDataProvider() != null) {
+            // Save the RowKey objects of the current page only.
+            values2[7] = getRenderedRowKeys();
+            values2[8] = pagedFirst;
+        } else {
+            // Save filtered RowKey objects.
+            values2[5] = getFilteredRowKeys();
+            // Save sorted RowKey objects.
+            values2[6] = getSortedRowKeys();
+            values2[8] = -1;
+        }
+        values2[9] = savedHolderPaths;
+        return values2;
+    }
+
+    @Override
+    public void markInitialState() {
+        super.markInitialState();
+        propertyState.markInitialState();
+    }
+
+    @Override
+    public void clearInitialState() {
+        super.clearInitialState();
+        propertyState.clearInitialState();
+    }
+
+    /**
+     * Get the properties to save. The first element is reserved for the
+     * state of the super class.
+     * @param reuse array to fill, or {@code null} to allocate one
+     * @return Object[]
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    private Object[] saveProperties(final Object[] reuse) {
+        Object[] values = reuse;
+        if (values == null) {
+            values = new Object[49];
+        }
+        values[0] = null;
         if (this.aboveColumnFooter) {
             values[1] = Boolean.TRUE;
         } else {
@@ -2456,23 +2709,7 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         } else {
             values[48] = Boolean.FALSE;
         }
-        Object[] values2 = new Object[8];
-        values2[0] = values;
-        values2[1] = saved;
-        if (isPaginated()) {
-            values2[2] = Boolean.TRUE;
-        } else {
-            values2[2] = Boolean.FALSE;
-        }
-        // Save SortCriteria.
-        values2[3] = getTableDataSorter().getSortCriteria();
-        // Save FilterCriteria.
-        values2[4] = getTableDataFilter().getFilterCriteria();
-        // Save filtered RowKey objects.
-        values2[5] = getFilteredRowKeys();
-        // Save sorted RowKey objects.
-        values2[6] = getSortedRowKeys();
-        return values2;
+        return values;
     }
 
     /**
@@ -2510,6 +2747,7 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
             log("setValueExpression", "sourceVar cannot equal given name");
             throw new IllegalArgumentException();
         }
+        getPropertyCache().clear();
         super.setValueExpression(name, valueExpression);
     }
 
@@ -2608,7 +2846,7 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
             clear(); // Clear cached properties.
         }
         if (!keepSaved(context)) {
-            saved = new HashMap<String, SavedState>();
+            saved = new HashMap<String, RowState>();
         }
         super.encodeBegin(context);
     }
@@ -2655,8 +2893,10 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         }
         if (saved == null || !keepSaved(context)) {
             // We don't need saved state here
-            saved = new HashMap<String, SavedState>();
+            saved = new HashMap<String, RowState>();
         }
+        // Children may have changed since the previous request.
+        descendants = null;
         iterate(context, PhaseId.APPLY_REQUEST_VALUES);
         decode(context);
     }
@@ -2743,6 +2983,10 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         }
         iterate(context, PhaseId.UPDATE_MODEL_VALUES);
 
+        // Model values may have changed, discard the cached sort.
+        TableRowSorter.invalidate(getTableRowDataProvider()
+                .getTableDataProvider());
+
         // Set collapsed property applied client-side.
         UIComponent header = getFacet(GROUP_HEADER_ID);
         UIComponent field;
@@ -3010,16 +3254,11 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         if (this.collapsedSet) {
             return this.collapsed;
         }
-        ValueExpression vb = getValueExpression("collapsed");
-        if (vb != null) {
-            Object result = vb.getValue(getFacesContext().getELContext());
-            if (result == null) {
-                return false;
-            } else {
-                return ((Boolean) result);
-            }
+        Object result = getPropertyCache().getValue("collapsed");
+        if (result == null) {
+            return false;
         }
-        return false;
+        return ((Boolean) result);
     }
 
     /**
@@ -3605,6 +3844,42 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         this.selectedSet = true;
     }
 
+    /**
+     * The {@code selectionIndex} attribute is used to specify an index of
+     * the selected rows. The value of the {@code selectionIndex} attribute
+     * must be a JavaServer Faces EL expression that resolves to a backing bean
+     * of type {@code com.sun.webui.jsf.model.TableSelectionIndex}, such as
+     * the {@code TableSelectPhaseListener} the {@code selected} attribute is
+     * bound to. When set, selected rows are counted without evaluating the
+     * {@code selected} attribute for each row of the table. The index is not
+     * saved with the state of the component, it is resolved again from its
+     * value expression.
+     * @return TableSelectionIndex
+     */
+    public TableSelectionIndex getSelectionIndex() {
+        if (this.selectionIndex != null) {
+            return this.selectionIndex;
+        }
+        ValueExpression vb = getValueExpression("selectionIndex");
+        if (vb != null) {
+            return (TableSelectionIndex) vb.getValue(getFacesContext()
+                    .getELContext());
+        }
+        return null;
+    }
+
+    /**
+     * The {@code selectionIndex} attribute is used to specify an index of
+     * the selected rows. An index set with this method is only used until
+     * the state of the component is restored.
+     * @param newSelectionIndex selectionIndex
+     */
+    public void setSelectionIndex(
+            final TableSelectionIndex newSelectionIndex) {
+
+        this.selectionIndex = newSelectionIndex;
+    }
+
     /**
      * The {@code sourceData} attribute is used to specify the data source
      * to populate the table. The value of the {@code sourceData} attribute
@@ -3641,11 +3916,7 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         if (this.sourceVar != null) {
             return this.sourceVar;
         }
-        ValueExpression vb = getValueExpression("sourceVar");
-        if (vb != null) {
-            return (String) vb.getValue(getFacesContext().getELContext());
-        }
-        return null;
+        return (String) getPropertyCache().getValue("sourceVar");
     }
 
     /**
@@ -3680,11 +3951,7 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         if (this.styleClasses != null) {
             return this.styleClasses;
         }
-        ValueExpression vb = getValueExpression("styleClasses");
-        if (vb != null) {
-            return (String) vb.getValue(getFacesContext().getELContext());
-        }
-        return null;
+        return (String) getPropertyCache().getValue("styleClasses");
     }
 
     /**
@@ -3809,6 +4076,17 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         this.visibleSet = true;
     }
 
+    /**
+     * Get the cache of the cached properties.
+     * @return PropertyCache
+     */
+    private PropertyCache getPropertyCache() {
+        if (propertyCache == null) {
+            propertyCache = new PropertyCache(this);
+        }
+        return propertyCache;
+    }
+
     /**
      * Helper method to get Theme objects.
      *
@@ -3818,6 +4096,299 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         return ThemeUtilities.getTheme(getFacesContext());
     }
 
+    /**
+     * Helper method to get the underlying TableDataProvider if rows can be
+     * obtained one page at a time. This is the case if the provider implements
+     * PagedTableDataProvider and filtering and sorting are either not used or
+     * applied by the provider itself.
+     *
+     * @return The PagedTableDataProvider or null.
+     */
+    private PagedTableDataProvider getPagedDataProvider() {
+        if (Beans.isDesignTime()) {
+            return null;
+        }
+        TableDataProvider tableProvider = getTableRowDataProvider()
+                .getTableDataProvider();
+        if (!(tableProvider instanceof PagedTableDataProvider)) {
+            return null;
+        }
+        TableDataFilter tableFilter = getTableDataFilter();
+        if (tableProvider != tableFilter) {
+            FilterCriteria[] filterCriteria = tableFilter.getFilterCriteria();
+            if (filterCriteria != null && filterCriteria.length > 0) {
+                return null;
+            }
+        }
+        TableDataSorter tableSorter = getTableDataSorter();
+        if (tableProvider != tableSorter) {
+            SortCriteria[] sortCriteria = tableSorter.getSortCriteria();
+            if (sortCriteria != null && sortCriteria.length > 0) {
+                return null;
+            }
+        }
+        return (PagedTableDataProvider) tableProvider;
+    }
+
+    /**
+     * Helper method to get the RowKey objects of the current page from a
+     * PagedTableDataProvider.
+     *
+     * @param pagedProvider The PagedTableDataProvider.
+     * @return An array of RowKey objects.
+     */
+    private RowKey[] getPagedRowKeys(
+            final PagedTableDataProvider pagedProvider) {
+
+        int firstRow = getFirst();
+        if (pagedRowKeys != null && pagedFirst == firstRow) {
+            return pagedRowKeys;
+        }
+        int count = getRowCount() - firstRow;
+        if (isPaginated()) {
+            count = Math.min(count, getRows());
+        }
+        RowKey[] rowKeys = null;
+        if (count > 0) {
+            rowKeys = pagedProvider.getPageRowKeys(firstRow, count);
+        }
+        if (rowKeys == null) {
+            rowKeys = new RowKey[0];
+        }
+        pagedRowKeys = rowKeys;
+        pagedFirst = firstRow;
+        return pagedRowKeys;
+    }
+
+    /**
+     * Helper method to get the selected RowKey objects from a
+     * TableSelectionIndex. The selected property of this component is not
+     * evaluated for each row.
+     * <p>
+     * The selected rows are resolved directly from their row ids if the rows
+     * are obtained from a PagedTableDataProvider, or if they are filtered by
+     * the default filter and their sort is not cached across requests. The
+     * rows of the current page are then returned first. Otherwise, the rows
+     * are looked up in a map of the sorted row positions, which is shared
+     * with the cached sort when available, or built once per request.
+     * </p>
+     *
+     * @param index The TableSelectionIndex.
+     * @param rendered Include the selected rows currently rendered.
+     * @param hidden Include the selected rows currently hidden from view.
+     * @return An array of RowKey objects.
+     */
+    private RowKey[] getIndexedSelectedRowKeys(
+            final TableSelectionIndex index, final boolean rendered,
+            final boolean hidden) {
+
+        PagedTableDataProvider pagedProvider = getPagedDataProvider();
+        if (pagedProvider != null) {
+            return getDirectSelectedRowKeys(pagedProvider,
+                    getPagedRowKeys(pagedProvider), null, index, rendered,
+                    hidden);
+        }
+
+        TableDataProvider tableProvider = getTableRowDataProvider()
+                .getTableDataProvider();
+        TableDataFilter tableFilter = getTableDataFilter();
+        if (tableProvider != null
+                && tableFilter.getClass() == BasicTableDataFilter.class
+                && !isSortCached(tableProvider)
+                && (isPaginated() || getFirst() == 0)) {
+            RowKey[] pageRowKeys = null;
+            if (isPaginated()) {
+                pageRowKeys = getRenderedRowKeys();
+            }
+            return getDirectSelectedRowKeys(tableProvider, pageRowKeys,
+                    tableFilter, index, rendered, hidden);
+        }
+
+        // Get sorted RowKey objects.
+        RowKey[] rowKeys = getSortedRowKeys();
+        if (rowKeys == null) {
+            return rowKeys;
+        }
+
+        // Find the sorted position of the selected rows.
+        String[] rowIds = index.getSelectedRowIds();
+        int[] positions = new int[rowIds.length];
+        int count = getSortedPositions(getSortedRowIndex(rowKeys, true),
+                rowKeys, rowIds, positions);
+        if (count < 0) {
+            // The shared sort does not match the sorted rows.
+            count = getSortedPositions(getSortedRowIndex(rowKeys, false),
+                    rowKeys, rowIds, positions);
+        }
+        Arrays.sort(positions, 0, count);
+
+        int firstRow = getFirst();
+        int lastRow = rowKeys.length;
+        if (isPaginated()) {
+            lastRow = Math.min(lastRow, firstRow + getRows());
+        }
+        ArrayList<RowKey> list = new ArrayList<RowKey>(count);
+        for (int i = 0; i < count; i++) {
+            boolean inView = positions[i] >= firstRow
+                    && positions[i] < lastRow;
+            if ((inView && rendered) || (!inView && hidden)) {
+                list.add(rowKeys[positions[i]]);
+            }
+        }
+        return list.toArray(new RowKey[list.size()]);
+    }
+
+    /**
+     * Helper method to determine if the rows are sorted by the default
+     * sorter with a sort that is cached across requests, i.e. if the
+     * TableDataProvider implements VersionedTableDataProvider.
+     *
+     * @param tableProvider The TableDataProvider.
+     * @return true if the sort is cached across requests, else false.
+     */
+    private boolean isSortCached(final TableDataProvider tableProvider) {
+        TableDataSorter tableSorter = getTableDataSorter();
+        if (tableProvider == tableSorter
+                || tableSorter.getClass() != BasicTableDataSorter.class
+                || !(tableProvider instanceof VersionedTableDataProvider)) {
+            return false;
+        }
+        SortCriteria[] criteria = tableSorter.getSortCriteria();
+        return criteria != null && criteria.length > 0;
+    }
+
+    /**
+     * Helper method to get the map of row ids to the position of the row in
+     * the sorted RowKey objects. When the rows are sorted by the default
+     * sorter, the map cached with the sort is used if allowed, so that it is
+     * not built for every request.
+     *
+     * @param rowKeys The sorted RowKey objects.
+     * @param shared Use the map cached with the sort, if any.
+     * @return A map of row ids to sorted positions.
+     */
+    private Map<String, Integer> getSortedRowIndex(final RowKey[] rowKeys,
+            final boolean shared) {
+
+        if (sortedRowIndex != null && sortedRowIndexKeys == rowKeys
+                && (shared || !sortedRowIndexShared)) {
+            return sortedRowIndex;
+        }
+        sortedRowIndex = null;
+        if (shared) {
+            TableDataProvider tableProvider = getTableRowDataProvider()
+                    .getTableDataProvider();
+            TableDataSorter tableSorter = getTableDataSorter();
+            if (tableProvider != null && tableProvider != tableSorter
+                    && tableSorter.getClass() == BasicTableDataSorter.class) {
+                sortedRowIndex = TableRowSorter.getInstance(tableProvider)
+                        .getRowIndex(tableProvider,
+                                tableSorter.getSortCriteria(),
+                                ((BasicTableDataSorter) tableSorter)
+                                        .getSortLocale());
+            }
+        }
+        sortedRowIndexShared = sortedRowIndex != null
+                && sortedRowIndex.size() == rowKeys.length;
+        if (!sortedRowIndexShared) {
+            sortedRowIndex = new HashMap<String, Integer>(rowKeys.length * 2);
+            for (int i = 0; i < rowKeys.length; i++) {
+                sortedRowIndex.put(rowKeys[i].getRowId(), i);
+            }
+        }
+        sortedRowIndexKeys = rowKeys;
+        return sortedRowIndex;
+    }
+
+    /**
+     * Helper method to find the sorted position of the given rows. Each
+     * position found is checked against the sorted RowKey objects.
+     *
+     * @param rowIndex Map of row ids to sorted positions.
+     * @param rowKeys The sorted RowKey objects.
+     * @param rowIds The ids of the rows to find.
+     * @param positions Array receiving the positions of the rows found.
+     * @return The number of rows found, or -1 if a position does not match
+     * the sorted RowKey objects.
+     */
+    private static int getSortedPositions(final Map<String, Integer> rowIndex,
+            final RowKey[] rowKeys, final String[] rowIds,
+            final int[] positions) {
+
+        int count = 0;
+        for (String rowId : rowIds) {
+            Integer position = rowIndex.get(rowId);
+            if (position == null) {
+                continue;
+            }
+            if (position >= rowKeys.length
+                    || !rowId.equals(rowKeys[position].getRowId())) {
+                return -1;
+            }
+            positions[count++] = position;
+        }
+        return count;
+    }
+
+    /**
+     * Helper method to get the selected RowKey objects from a
+     * TableSelectionIndex by resolving their row ids with the
+     * TableDataProvider. The selected rows of the current page are returned
+     * first, followed by the other selected rows in selection order.
+     *
+     * @param tableProvider The TableDataProvider.
+     * @param pageRowKeys The RowKey objects of the current page, or null if
+     * all the rows are rendered.
+     * @param tableFilter The TableDataFilter applied to the selected rows
+     * that are not on the current page, or null.
+     * @param index The TableSelectionIndex.
+     * @param rendered Include the selected rows currently rendered.
+     * @param hidden Include the selected rows currently hidden from view.
+     * @return An array of RowKey objects.
+     */
+    private RowKey[] getDirectSelectedRowKeys(
+            final TableDataProvider tableProvider,
+            final RowKey[] pageRowKeys, final TableDataFilter tableFilter,
+            final TableSelectionIndex index, final boolean rendered,
+            final boolean hidden) {
+
+        ArrayList<RowKey> list = new ArrayList<RowKey>();
+        HashSet<String> pageRowIds = new HashSet<String>();
+        if (pageRowKeys != null) {
+            for (RowKey rowKey : pageRowKeys) {
+                pageRowIds.add(rowKey.getRowId());
+                if (rendered && index.isSelected(rowKey)) {
+                    list.add(rowKey);
+                }
+            }
+        }
+        // Without a page, the other selected rows are rendered.
+        boolean include = hidden;
+        if (pageRowKeys == null) {
+            include = rendered;
+        }
+        if (!include) {
+            return list.toArray(new RowKey[list.size()]);
+        }
+
+        ArrayList<RowKey> others = new ArrayList<RowKey>();
+        for (String rowId : index.getSelectedRowIds()) {
+            if (pageRowIds.contains(rowId)) {
+                continue;
+            }
+            RowKey rowKey = tableProvider.getRowKey(rowId);
+            if (rowKey != null && tableProvider.isRowAvailable(rowKey)) {
+                others.add(rowKey);
+            }
+        }
+        RowKey[] rowKeys = others.toArray(new RowKey[others.size()]);
+        if (tableFilter != null && rowKeys.length > 0) {
+            rowKeys = tableFilter.filter(tableProvider, rowKeys);
+        }
+        list.addAll(Arrays.asList(rowKeys));
+        return list.toArray(new RowKey[list.size()]);
+    }
+
     /**
      * Helper method to determine if this component is nested within another
      * TableRowGroup component.
@@ -4051,10 +4622,9 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
      * @return true if state should be saved, else false.
      */
     private boolean keepSaved(final FacesContext context) {
-        for (String clientId : saved.keySet()) {
+        for (RowState state : saved.values()) {
             // Fix for immediate property -- see CR #6269737.
-            SavedState state = (SavedState) saved.get(clientId);
-            if (state != null && state.getSubmittedValue() != null) {
+            if (state != null && state.hasSubmittedValue()) {
                 return (true);
             }
         }
@@ -4088,222 +4658,477 @@ public class TableRowGroup extends UIComponentBase implements NamingContainer {
         }
     }
 
+    /**
+     * Helper method to get the flat descriptor of the descendants of the
+     * TableColumn children, building it if not cached already. Saved per-row
+     * state is discarded if it was indexed with different descendants.
+     *
+     * @return The DescendantIndex.
+     */
+    private DescendantIndex getDescendantIndex() {
+        if (descendants == null) {
+            descendants = new DescendantIndex(getTableColumnChildren());
+            if (!saved.isEmpty() && !Arrays.equals(savedHolderPaths,
+                    descendants.getHolderPaths())) {
+                log("getDescendantIndex",
+                        "Discarding saved state, descendants have changed");
+                saved.clear();
+            }
+        }
+        return descendants;
+    }
+
     /**
      * Helper method to restore state information for all descendant components,
      * as described for setRowKey().
      */
     private void restoreDescendantState() {
         FacesContext context = getFacesContext();
-        Iterator kids = getTableColumnChildren();
-        while (kids.hasNext()) {
-            TableColumn kid = (TableColumn) kids.next();
-            if (!kid.isRendered()) {
+        DescendantIndex index = getDescendantIndex();
+        TableColumn[] columns = index.getColumns();
+        UIComponent[] components = index.getComponents();
+        String[] ids = index.getIds();
+        UIComponent[] holders = index.getHolders();
+
+        // Saved state is keyed by the client id of this component, which is
+        // cheap to derive from the cached base client id and the row id.
+        RowState state = null;
+        if (!saved.isEmpty()) {
+            state = saved.get(getClientId(context));
+        }
+        for (int col = 0; col < columns.length; col++) {
+            if (!columns[col].isRendered()) {
                 continue;
             }
-            restoreDescendantState(kid, context);
-        }
-    }
-
-    /**
-     * Helper method to restore state information for the specified component
-     * and its descendants.
-     *
-     * @param component Component for which to restore state information.
-     * @param context FacesContext for the current request.
-     */
-    private void restoreDescendantState(final UIComponent component,
-            final FacesContext context) {
-
-        // Reset the client identifier for this component
-        String id = component.getId();
-        component.setId(id); // Forces client id to be reset
 
-        // Restore state for this component (if it is a EditableValueHolder)
-        if (component instanceof EditableValueHolder) {
-            EditableValueHolder input = (EditableValueHolder) component;
-            String clientId = component.getClientId(context);
-            SavedState state = (SavedState) saved.get(clientId);
-            if (state == null) {
-                state = new SavedState();
+            // Reset the client identifiers of the column and its descendants.
+            int end = index.getComponentEnd(col);
+            for (int i = index.getComponentStart(col); i < end; i++) {
+                components[i].setId(ids[i]); // Forces client id to be reset
             }
-            input.setValue(state.getValue());
-            input.setValid(state.isValid());
-            input.setSubmittedValue(state.getSubmittedValue());
-            // This *must* be set after the call to setValue(), since
-            // calling setValue() always resets "localValueSet" to true.
-            input.setLocalValueSet(state.isLocalValueSet());
 
-            ConversionUtilities.restoreRenderedValueState(context, component);
-        }
-
-        // Restore state for children of this component
-        Iterator kids = component.getChildren().iterator();
-        while (kids.hasNext()) {
-            restoreDescendantState((UIComponent) kids.next(), context);
+            // Restore state for the EditableValueHolder descendants.
+            end = index.getHolderEnd(col);
+            for (int slot = index.getHolderStart(col); slot < end; slot++) {
+                EditableValueHolder input = (EditableValueHolder) holders[slot];
+                if (state != null) {
+                    input.setValue(state.getValue(slot));
+                    input.setValid(state.isValid(slot));
+                    input.setSubmittedValue(state.getSubmittedValue(slot));
+                    // This *must* be set after the call to setValue(), since
+                    // calling setValue() always resets "localValueSet" to
+                    // true.
+                    input.setLocalValueSet(state.isLocalValueSet(slot));
+                } else if (!RowState.isDefault(input)) {
+                    input.setValue(null);
+                    input.setValid(true);
+                    input.setSubmittedValue(null);
+                    input.setLocalValueSet(false);
+                }
+                ConversionUtilities.restoreRenderedValueState(context,
+                        holders[slot]);
+            }
         }
     }
 
     /**
      * Helper method to save state information for all descendant components, as
      * described for setRowKey().
+     * <p>
+     * Per-row state is only stored if it differs from the default state of an
+     * EditableValueHolder, no objects are allocated otherwise.
+     * </p>
      */
     private void saveDescendantState() {
         FacesContext context = getFacesContext();
-        Iterator kids = getTableColumnChildren();
-        while (kids.hasNext()) {
-            TableColumn kid = (TableColumn) kids.next();
-            if (!kid.isRendered()) {
+        DescendantIndex index = getDescendantIndex();
+        TableColumn[] columns = index.getColumns();
+        UIComponent[] holders = index.getHolders();
+
+        String clientId = null;
+        RowState state = null;
+        if (!saved.isEmpty()) {
+            clientId = getClientId(context);
+            state = saved.get(clientId);
+        }
+        for (int col = 0; col < columns.length; col++) {
+            if (!columns[col].isRendered()) {
                 log("saveDescendantState",
                         "Cannot save descendant state,"
                         + " TableColumn not rendered");
                 continue;
             }
-            saveDescendantState(kid, context);
+            int end = index.getHolderEnd(col);
+            for (int slot = index.getHolderStart(col); slot < end; slot++) {
+                EditableValueHolder input = (EditableValueHolder) holders[slot];
+                if (state == null && !RowState.isDefault(input)) {
+                    if (clientId == null) {
+                        clientId = getClientId(context);
+                    }
+                    state = new RowState(holders.length);
+                    saved.put(clientId, state);
+                    savedHolderPaths = index.getHolderPaths();
+                }
+                if (state != null) {
+                    state.save(slot, input);
+                }
+                ConversionUtilities.saveRenderedValueState(context,
+                        holders[slot]);
+            }
+        }
+
+        // Drop the state of a row reverted to the default state.
+        if (state != null && state.isDefault()) {
+            saved.remove(clientId);
         }
     }
 
     /**
-     * Helper method to save state information for the specified component and
-     * its descendants.
-     *
-     * @param component Component for which to save state information.
-     * @param context FacesContext for the current request.
+     * Flat descriptor of the descendants of the TableColumn children of this
+     * component, in the order they are visited by a depth-first traversal.
+     * Descendants of each TableColumn are stored in a contiguous range, so
+     * that the descendants of columns which are not rendered can be skipped.
      */
-    private void saveDescendantState(final UIComponent component,
-            final FacesContext context) {
-
-        // Save state for this component (if it is a EditableValueHolder)
-        if (component instanceof EditableValueHolder) {
-            EditableValueHolder input = (EditableValueHolder) component;
-            String clientId = component.getClientId(context);
-            SavedState state = (SavedState) saved.get(clientId);
-            if (state == null) {
-                state = new SavedState();
-                saved.put(clientId, state);
+    private static final class DescendantIndex {
+
+        /**
+         * TableColumn children.
+         */
+        private final TableColumn[] columns;
+
+        /**
+         * Start of the range of each column in components, the last element is
+         * the number of components.
+         */
+        private final int[] componentStart;
+
+        /**
+         * Start of the range of each column in holders, the last element is
+         * the number of holders.
+         */
+        private final int[] holderStart;
+
+        /**
+         * TableColumn children and all their descendants.
+         */
+        private final UIComponent[] components;
+
+        /**
+         * Ids of the components.
+         */
+        private final String[] ids;
+
+        /**
+         * EditableValueHolder descendants, the index in this array is the slot
+         * of the holder in a RowState.
+         */
+        private final UIComponent[] holders;
+
+        /**
+         * Id paths of the holders relative to the TableRowGroup.
+         */
+        private final String[] holderPaths;
+
+        /**
+         * Create a new instance.
+         *
+         * @param kids TableColumn children
+         */
+        DescendantIndex(final Iterator<TableColumn> kids) {
+            List<TableColumn> columnList = new ArrayList<TableColumn>();
+            List<Integer> componentStartList = new ArrayList<Integer>();
+            List<Integer> holderStartList = new ArrayList<Integer>();
+            List<UIComponent> componentList = new ArrayList<UIComponent>();
+            List<UIComponent> holderList = new ArrayList<UIComponent>();
+            List<String> holderPathList = new ArrayList<String>();
+            while (kids.hasNext()) {
+                TableColumn kid = kids.next();
+                columnList.add(kid);
+                componentStartList.add(componentList.size());
+                holderStartList.add(holderList.size());
+                add(kid, "", componentList, holderList, holderPathList);
+            }
+            componentStartList.add(componentList.size());
+            holderStartList.add(holderList.size());
+
+            columns = columnList.toArray(new TableColumn[columnList.size()]);
+            componentStart = toIntArray(componentStartList);
+            holderStart = toIntArray(holderStartList);
+            components = componentList.toArray(
+                    new UIComponent[componentList.size()]);
+            ids = new String[components.length];
+            for (int i = 0; i < components.length; i++) {
+                ids[i] = components[i].getId();
             }
-            state.setValue(input.getLocalValue());
-            state.setValid(input.isValid());
-            state.setSubmittedValue(input.getSubmittedValue());
-            state.setLocalValueSet(input.isLocalValueSet());
+            holders = holderList.toArray(new UIComponent[holderList.size()]);
+            holderPaths = holderPathList.toArray(
+                    new String[holderPathList.size()]);
+        }
 
-            ConversionUtilities.saveRenderedValueState(context, component);
+        /**
+         * Add the given component and its descendants.
+         *
+         * @param component component to add
+         * @param parentPath id path of the parent component
+         * @param componentList list of components
+         * @param holderList list of EditableValueHolder components
+         * @param holderPathList list of EditableValueHolder id paths
+         */
+        private static void add(final UIComponent component,
+                final String parentPath, final List<UIComponent> componentList,
+                final List<UIComponent> holderList,
+                final List<String> holderPathList) {
+
+            String path = parentPath + "/" + component.getId();
+            componentList.add(component);
+            if (component instanceof EditableValueHolder) {
+                holderList.add(component);
+                holderPathList.add(path);
+            }
+            Iterator<UIComponent> kids = component.getChildren().iterator();
+            while (kids.hasNext()) {
+                add(kids.next(), path, componentList, holderList,
+                        holderPathList);
+            }
         }
 
-        // Note: Don't bother logging messages here -- too many messages.
-        // For example, staticText is not an EditableValueHolder.
-        // Save state for children of this component
-        Iterator kids = component.getChildren().iterator();
-        while (kids.hasNext()) {
-            saveDescendantState((UIComponent) kids.next(), context);
+        /**
+         * Convert a list of integers to an array.
+         *
+         * @param list list to convert
+         * @return int[]
+         */
+        private static int[] toIntArray(final List<Integer> list) {
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+
+        /**
+         * Get the TableColumn children.
+         *
+         * @return TableColumn[]
+         */
+        TableColumn[] getColumns() {
+            return columns;
+        }
+
+        /**
+         * Get the TableColumn children and all their descendants.
+         *
+         * @return UIComponent[]
+         */
+        UIComponent[] getComponents() {
+            return components;
+        }
+
+        /**
+         * Get the ids of the components.
+         *
+         * @return String[]
+         */
+        String[] getIds() {
+            return ids;
+        }
+
+        /**
+         * Get the EditableValueHolder descendants.
+         *
+         * @return UIComponent[]
+         */
+        UIComponent[] getHolders() {
+            return holders;
+        }
+
+        /**
+         * Get the id paths of the EditableValueHolder descendants.
+         *
+         * @return String[]
+         */
+        String[] getHolderPaths() {
+            return holderPaths;
+        }
+
+        /**
+         * Get the index of the first component of a column.
+         *
+         * @param col column index
+         * @return int
+         */
+        int getComponentStart(final int col) {
+            return componentStart[col];
+        }
+
+        /**
+         * Get the index following the last component of a column.
+         *
+         * @param col column index
+         * @return int
+         */
+        int getComponentEnd(final int col) {
+            return componentStart[col + 1];
+        }
+
+        /**
+         * Get the slot of the first EditableValueHolder of a column.
+         *
+         * @param col column index
+         * @return int
+         */
+        int getHolderStart(final int col) {
+            return holderStart[col];
+        }
+
+        /**
+         * Get the slot following the last EditableValueHolder of a column.
+         *
+         * @param col column index
+         * @return int
+         */
+        int getHolderEnd(final int col) {
+            return holderStart[col + 1];
         }
     }
 
     /**
-     * Represent saved state information.
+     * Represent the saved state information of the EditableValueHolder
+     * descendants for one row, indexed by holder slot.
      */
-    private static final class SavedState implements Serializable {
+    private static final class RowState implements Serializable {
 
         /**
          * Serialization UID.
          */
-        private static final long serialVersionUID = -5042211238247402956L;
+        private static final long serialVersionUID = 3581245601179384825L;
 
         /**
-         * Submitted value.
+         * Submitted values.
          */
-        private Object submittedValue;
+        private final Object[] submittedValues;
 
         /**
-         * Valid flag.
+         * Invalid flags.
          */
-        private boolean valid = true;
+        private final boolean[] invalid;
 
         /**
-         * Local value.
+         * Local values.
          */
-        private Object value;
+        private final Object[] values;
 
         /**
-         * Local value set flag.
+         * Local value set flags.
          */
-        private boolean localValueSet;
+        private final boolean[] localValueSet;
 
         /**
-         * Get the submitted value.
+         * Create a new instance.
          *
-         * @return Object
+         * @param size number of holder slots
          */
-        public Object getSubmittedValue() {
-            return (this.submittedValue);
+        RowState(final int size) {
+            submittedValues = new Object[size];
+            invalid = new boolean[size];
+            values = new Object[size];
+            localValueSet = new boolean[size];
         }
 
         /**
-         * Set the submitted value.
+         * Test if an EditableValueHolder is in the default state, i.e. the
+         * state restored for a row without saved state.
          *
-         * @param newSubmittedValue submittedValue
+         * @param input EditableValueHolder to test
+         * @return {@code boolean}
          */
-        public void setSubmittedValue(final Object newSubmittedValue) {
-            this.submittedValue = newSubmittedValue;
+        static boolean isDefault(final EditableValueHolder input) {
+            return input.getLocalValue() == null
+                    && input.isValid()
+                    && input.getSubmittedValue() == null
+                    && !input.isLocalValueSet();
         }
 
         /**
-         * Get the valid flag value.
+         * Test if all slots are in the default state.
          *
          * @return {@code boolean}
          */
-        public boolean isValid() {
-            return (this.valid);
+        boolean isDefault() {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null || invalid[i]
+                        || submittedValues[i] != null || localValueSet[i]) {
+                    return false;
+                }
+            }
+            return true;
         }
 
         /**
-         * Set the valid flag value.
+         * Test if any slot has a submitted value.
          *
-         * @param newValid valid
+         * @return {@code boolean}
          */
-        public void setValid(final boolean newValid) {
-            this.valid = newValid;
+        boolean hasSubmittedValue() {
+            for (Object submittedValue : submittedValues) {
+                if (submittedValue != null) {
+                    return true;
+                }
+            }
+            return false;
         }
 
         /**
-         * Get the local value.
+         * Save the state of an EditableValueHolder.
          *
-         * @return Object
+         * @param slot holder slot
+         * @param input EditableValueHolder to save
          */
-        public Object getValue() {
-            return (this.value);
+        void save(final int slot, final EditableValueHolder input) {
+            values[slot] = input.getLocalValue();
+            invalid[slot] = !input.isValid();
+            submittedValues[slot] = input.getSubmittedValue();
+            localValueSet[slot] = input.isLocalValueSet();
         }
 
         /**
-         * Set the local value.
+         * Get the submitted value of a slot.
          *
-         * @param newValue value
+         * @param slot holder slot
+         * @return Object
          */
-        public void setValue(final Object newValue) {
-            this.value = newValue;
+        Object getSubmittedValue(final int slot) {
+            return submittedValues[slot];
         }
 
         /**
-         * Get the local value set flag.
+         * Get the valid flag of a slot.
          *
+         * @param slot holder slot
          * @return {@code boolean}
          */
-        public boolean isLocalValueSet() {
-            return (this.localValueSet);
+        boolean isValid(final int slot) {
+            return !invalid[slot];
         }
 
         /**
-         * Set the local value set flag.
+         * Get the local value of a slot.
          *
-         * @param newLocalValueSet localValueSet
+         * @param slot holder slot
+         * @return Object
          */
-        public void setLocalValueSet(final boolean newLocalValueSet) {
-            this.localValueSet = newLocalValueSet;
+        Object getValue(final int slot) {
+            return values[slot];
         }
 
-        @Override
-        public String toString() {
-            return ("submittedValue: " + submittedValue + " value: " + value
-                    + " localValueSet: " + localValueSet);
+        /**
+         * Get the local value set flag of a slot.
+         *
+         * @param slot holder slot
+         * @return {@code boolean}
+         */
+        boolean isLocalValueSet(final int slot) {
+            return localValueSet[slot];
         }
     }
 
@@ -0,0 +1,695 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.jsf.component;
+
+import com.sun.data.provider.RowKey;
+import com.sun.data.provider.SortCriteria;
+import com.sun.data.provider.TableDataProvider;
+import com.sun.webui.jsf.model.VersionedTableDataProvider;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import jakarta.faces.context.FacesContext;
+
+/**
+ * Sort engine used by {@link TableRowGroup} in place of the default
+ * {@code BasicTableDataSorter}.
+ * <p>
+ * The sort value of each row is obtained exactly once per sort criteria and
+ * stored in a key array, using primitive values where possible. The row
+ * indexes are then sorted against these keys, in parallel for large inputs.
+ * The resulting permutations are cached per provider, keyed on the data
+ * version and the sort criteria, so that re-paginating or toggling the sort
+ * order of a column does not sort again. The position of each row in a
+ * permutation is indexed by row id on demand, and cached with it.
+ * </p><p>
+ * The data version is obtained from providers that implement
+ * {@link VersionedTableDataProvider}. For other providers the cached keys are
+ * only valid for the current request.
+ * </p>
+ */
+final class TableRowSorter {
+
+    /**
+     * Number of rows above which row indexes are sorted in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 10000;
+
+    /**
+     * Maximum number of permutations cached per provider.
+     */
+    private static final int MAX_PERMUTATIONS = 8;
+
+    /**
+     * Separator used to build the criteria signatures.
+     */
+    private static final char SIGNATURE_SEPARATOR = '\u0000';
+
+    /**
+     * Faces context attribute key for the request serial number.
+     */
+    private static final String REQUEST_SERIAL_KEY =
+            TableRowSorter.class.getName() + ".requestSerial";
+
+    /**
+     * Generator for request serial numbers.
+     */
+    private static final AtomicLong REQUEST_SERIAL = new AtomicLong();
+
+    /**
+     * Sorters keyed by provider, the providers are weakly referenced.
+     */
+    private static final Map<TableDataProvider, TableRowSorter> SORTERS =
+            Collections.synchronizedMap(
+                    new WeakHashMap<TableDataProvider, TableRowSorter>());
+
+    /**
+     * Data version the cached keys were obtained for.
+     */
+    private long version;
+
+    /**
+     * Locale the cached keys were obtained for.
+     */
+    private Locale locale;
+
+    /**
+     * Row keys the cached keys were obtained for.
+     */
+    private RowKey[] rows;
+
+    /**
+     * Cached sort keys, keyed by criteria key.
+     */
+    private final Map<String, SortKeys> keys =
+            new HashMap<String, SortKeys>();
+
+    /**
+     * Cached permutations, keyed by criteria signature.
+     */
+    private final Map<String, int[]> permutations =
+            new LinkedHashMap<String, int[]>();
+
+    /**
+     * Cached positions of the rows in the permutations, keyed by criteria
+     * signature.
+     */
+    private final Map<String, Map<String, Integer>> rowIndexes =
+            new HashMap<String, Map<String, Integer>>();
+
+    /**
+     * Create a new instance.
+     */
+    private TableRowSorter() {
+    }
+
+    /**
+     * Get the sorter for the given provider.
+     *
+     * @param provider table data provider
+     * @return TableRowSorter
+     */
+    static TableRowSorter getInstance(final TableDataProvider provider) {
+        synchronized (SORTERS) {
+            TableRowSorter sorter = SORTERS.get(provider);
+            if (sorter == null) {
+                sorter = new TableRowSorter();
+                SORTERS.put(provider, sorter);
+            }
+            return sorter;
+        }
+    }
+
+    /**
+     * Discard the cached sort of the given provider. This must be invoked
+     * when row data may have changed without a new data version, e.g. when
+     * model values are updated.
+     *
+     * @param provider table data provider
+     */
+    static void invalidate(final TableDataProvider provider) {
+        if (provider != null) {
+            SORTERS.remove(provider);
+        }
+    }
+
+    /**
+     * Sort the given rows.
+     *
+     * @param provider table data provider
+     * @param input rows to sort
+     * @param criteria sort criteria, the first criteria is the primary sort
+     * @param sortLocale locale used to compare strings, may be {@code null}
+     * @return sorted rows
+     */
+    synchronized RowKey[] sort(final TableDataProvider provider,
+            final RowKey[] input, final SortCriteria[] criteria,
+            final Locale sortLocale) {
+
+        SortCriteria[] levels = getLevels(criteria);
+        if (input == null || levels.length == 0) {
+            return input;
+        }
+
+        // Discard the cached keys if the rows or data have changed.
+        long dataVersion = getDataVersion(provider);
+        if (rows == null
+                || version != dataVersion
+                || !Objects.equals(locale, sortLocale)
+                || !Arrays.equals(rows, input)) {
+            keys.clear();
+            permutations.clear();
+            rowIndexes.clear();
+            rows = input;
+            version = dataVersion;
+            locale = sortLocale;
+        }
+
+        String signature = getSignature(levels, false);
+        int[] permutation = permutations.get(signature);
+        if (permutation == null) {
+            SortKeys[] sortKeys = getSortKeys(provider, levels);
+            int[] mirror = permutations.get(getSignature(levels, true));
+            if (mirror != null) {
+                // Only the sort order was toggled.
+                permutation = reverse(mirror, sortKeys);
+            } else {
+                permutation = sort(sortKeys, levels);
+            }
+            if (permutations.size() >= MAX_PERMUTATIONS) {
+                Iterator<String> it = permutations.keySet().iterator();
+                rowIndexes.remove(it.next());
+                it.remove();
+            }
+            permutations.put(signature, permutation);
+        }
+
+        RowKey[] result = new RowKey[permutation.length];
+        for (int i = 0; i < permutation.length; i++) {
+            result[i] = rows[permutation[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Get the position of each row in the cached sort for the given criteria,
+     * keyed by row id. The map is built once per cached permutation, i.e.
+     * once per request if the provider does not implement
+     * VersionedTableDataProvider.
+     *
+     * @param provider table data provider
+     * @param criteria sort criteria, the first criteria is the primary sort
+     * @param sortLocale locale used to compare strings, may be {@code null}
+     * @return map of row ids to sorted positions, or {@code null} if no sort
+     * is cached for the criteria and the current data
+     */
+    synchronized Map<String, Integer> getRowIndex(
+            final TableDataProvider provider, final SortCriteria[] criteria,
+            final Locale sortLocale) {
+
+        SortCriteria[] levels = getLevels(criteria);
+        if (rows == null
+                || levels.length == 0
+                || version != getDataVersion(provider)
+                || !Objects.equals(locale, sortLocale)) {
+            return null;
+        }
+        String signature = getSignature(levels, false);
+        int[] permutation = permutations.get(signature);
+        if (permutation == null) {
+            return null;
+        }
+        Map<String, Integer> rowIndex = rowIndexes.get(signature);
+        if (rowIndex == null) {
+            rowIndex = new HashMap<String, Integer>(permutation.length * 2);
+            for (int i = 0; i < permutation.length; i++) {
+                rowIndex.put(rows[permutation[i]].getRowId(), i);
+            }
+            rowIndex = Collections.unmodifiableMap(rowIndex);
+            rowIndexes.put(signature, rowIndex);
+        }
+        return rowIndex;
+    }
+
+    /**
+     * Get the sort keys for the given criteria, reading the sort values of
+     * criteria that are not cached yet.
+     *
+     * @param provider table data provider
+     * @param levels sort criteria
+     * @return SortKeys[]
+     */
+    private SortKeys[] getSortKeys(final TableDataProvider provider,
+            final SortCriteria[] levels) {
+
+        Collator collator = null;
+        SortKeys[] result = new SortKeys[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            String key = String.valueOf(levels[i].getCriteriaKey());
+            SortKeys sortKeys = keys.get(key);
+            if (sortKeys == null) {
+                if (collator == null) {
+                    if (locale != null) {
+                        collator = Collator.getInstance(locale);
+                    } else {
+                        collator = Collator.getInstance();
+                    }
+                }
+                Object[] values = new Object[rows.length];
+                for (int j = 0; j < rows.length; j++) {
+                    values[j] = levels[i].getSortValue(provider, rows[j]);
+                }
+                sortKeys = SortKeys.create(values, collator);
+                keys.put(key, sortKeys);
+            }
+            result[i] = sortKeys;
+        }
+        return result;
+    }
+
+    /**
+     * Sort the row indexes.
+     *
+     * @param sortKeys sort keys for each level
+     * @param levels sort criteria
+     * @return permutation of the row indexes
+     */
+    private static int[] sort(final SortKeys[] sortKeys,
+            final SortCriteria[] levels) {
+
+        boolean[] ascending = new boolean[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            ascending[i] = levels[i].isAscending();
+        }
+        int length = sortKeys[0].size();
+        Integer[] indexes = new Integer[length];
+        for (int i = 0; i < length; i++) {
+            indexes[i] = i;
+        }
+
+        // Both sorts are stable.
+        Comparator<Integer> comparator = new RowComparator(sortKeys,
+                ascending);
+        if (length > PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(indexes, comparator);
+        } else {
+            Arrays.sort(indexes, comparator);
+        }
+        int[] result = new int[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = indexes[i];
+        }
+        return result;
+    }
+
+    /**
+     * Reverse a permutation sorted in the opposite order. Rows that have
+     * equal keys keep their relative order, in the same way as a stable sort
+     * would.
+     *
+     * @param mirror permutation sorted in the opposite order
+     * @param sortKeys sort keys for each level
+     * @return permutation of the row indexes
+     */
+    private static int[] reverse(final int[] mirror,
+            final SortKeys[] sortKeys) {
+
+        int[] result = new int[mirror.length];
+        int pos = 0;
+        int end = mirror.length;
+        while (end > 0) {
+            int start = end - 1;
+            while (start > 0 && isTie(sortKeys, mirror[start - 1],
+                    mirror[start])) {
+                start--;
+            }
+            System.arraycopy(mirror, start, result, pos, end - start);
+            pos += end - start;
+            end = start;
+        }
+        return result;
+    }
+
+    /**
+     * Test if two rows have equal keys for all levels.
+     *
+     * @param sortKeys sort keys for each level
+     * @param row1 first row index
+     * @param row2 second row index
+     * @return {@code true} if the rows are equal, {@code false} otherwise
+     */
+    private static boolean isTie(final SortKeys[] sortKeys, final int row1,
+            final int row2) {
+
+        for (SortKeys sortKey : sortKeys) {
+            if (sortKey.compare(row1, row2) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the non {@code null} sort criteria.
+     *
+     * @param criteria sort criteria
+     * @return SortCriteria[]
+     */
+    private static SortCriteria[] getLevels(final SortCriteria[] criteria) {
+        if (criteria == null) {
+            return new SortCriteria[0];
+        }
+        List<SortCriteria> levels = new ArrayList<SortCriteria>();
+        for (SortCriteria level : criteria) {
+            if (level != null) {
+                levels.add(level);
+            }
+        }
+        return levels.toArray(new SortCriteria[levels.size()]);
+    }
+
+    /**
+     * Build the signature of the given sort criteria.
+     *
+     * @param levels sort criteria
+     * @param toggle if {@code true} the sort order of all levels is reversed
+     * @return String
+     */
+    private static String getSignature(final SortCriteria[] levels,
+            final boolean toggle) {
+
+        StringBuilder sb = new StringBuilder();
+        for (SortCriteria level : levels) {
+            sb.append(level.getCriteriaKey())
+                    .append(SIGNATURE_SEPARATOR);
+            if (level.isAscending() != toggle) {
+                sb.append('+');
+            } else {
+                sb.append('-');
+            }
+            sb.append(SIGNATURE_SEPARATOR);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Get the data version of the given provider.
+     *
+     * @param provider table data provider
+     * @return long
+     */
+    private static long getDataVersion(final TableDataProvider provider) {
+        if (provider instanceof VersionedTableDataProvider) {
+            return ((VersionedTableDataProvider) provider).getDataVersion();
+        }
+
+        // Only valid for the current request.
+        FacesContext context = FacesContext.getCurrentInstance();
+        if (context == null) {
+            return REQUEST_SERIAL.incrementAndGet();
+        }
+        Map<Object, Object> attributes = context.getAttributes();
+        Long serial = (Long) attributes.get(REQUEST_SERIAL_KEY);
+        if (serial == null) {
+            serial = REQUEST_SERIAL.incrementAndGet();
+            attributes.put(REQUEST_SERIAL_KEY, serial);
+        }
+        return serial;
+    }
+
+    /**
+     * Compare two row indexes using the sort keys of each level.
+     */
+    private static final class RowComparator implements Comparator<Integer> {
+
+        /**
+         * Sort keys for each level.
+         */
+        private final SortKeys[] sortKeys;
+
+        /**
+         * Sort order for each level.
+         */
+        private final boolean[] ascending;
+
+        /**
+         * Create a new instance.
+         *
+         * @param newSortKeys sort keys for each level
+         * @param newAscending sort order for each level
+         */
+        RowComparator(final SortKeys[] newSortKeys,
+                final boolean[] newAscending) {
+
+            this.sortKeys = newSortKeys;
+            this.ascending = newAscending;
+        }
+
+        @Override
+        public int compare(final Integer row1, final Integer row2) {
+            for (int i = 0; i < sortKeys.length; i++) {
+                int result = sortKeys[i].compare(row1, row2);
+                if (result != 0) {
+                    if (ascending[i]) {
+                        return result;
+                    }
+                    return -result;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Sort keys of one sort criteria, in ascending order. {@code null} values
+     * are sorted first.
+     */
+    private abstract static class SortKeys {
+
+        /**
+         * Null value flags.
+         */
+        private final boolean[] nulls;
+
+        /**
+         * Create a new instance.
+         *
+         * @param values sort values
+         */
+        SortKeys(final Object[] values) {
+            nulls = new boolean[values.length];
+            for (int i = 0; i < values.length; i++) {
+                nulls[i] = values[i] == null;
+            }
+        }
+
+        /**
+         * Get the number of rows.
+         *
+         * @return int
+         */
+        final int size() {
+            return nulls.length;
+        }
+
+        /**
+         * Compare two rows.
+         *
+         * @param row1 first row index
+         * @param row2 second row index
+         * @return negative, zero or positive integer
+         */
+        final int compare(final int row1, final int row2) {
+            if (nulls[row1]) {
+                if (nulls[row2]) {
+                    return 0;
+                }
+                return -1;
+            }
+            if (nulls[row2]) {
+                return 1;
+            }
+            return compareValues(row1, row2);
+        }
+
+        /**
+         * Compare the non {@code null} values of two rows.
+         *
+         * @param row1 first row index
+         * @param row2 second row index
+         * @return negative, zero or positive integer
+         */
+        abstract int compareValues(int row1, int row2);
+
+        /**
+         * Create the sort keys for the given values. Integral numbers and
+         * dates are stored as {@code long}, other numbers as {@code double},
+         * strings as collation keys.
+         *
+         * @param values sort values
+         * @param collator collator used for strings
+         * @return SortKeys
+         */
+        static SortKeys create(final Object[] values,
+                final Collator collator) {
+
+            boolean integral = true;
+            boolean numeric = true;
+            boolean dates = true;
+            for (Object value : values) {
+                if (value == null) {
+                    continue;
+                }
+                Class<?> type = value.getClass();
+                if (type != Long.class
+                        && type != Integer.class
+                        && type != Short.class
+                        && type != Byte.class) {
+                    integral = false;
+                    if (type != Double.class && type != Float.class) {
+                        numeric = false;
+                    }
+                }
+                if (type != Date.class) {
+                    dates = false;
+                }
+            }
+            if (integral || dates) {
+                return new LongKeys(values);
+            }
+            if (numeric) {
+                return new DoubleKeys(values);
+            }
+            return new ObjectKeys(values, collator);
+        }
+    }
+
+    /**
+     * Sort keys stored as {@code long}.
+     */
+    private static final class LongKeys extends SortKeys {
+
+        /**
+         * Key values.
+         */
+        private final long[] longs;
+
+        /**
+         * Create a new instance.
+         *
+         * @param values integral numbers or dates
+         */
+        LongKeys(final Object[] values) {
+            super(values);
+            longs = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] instanceof Date) {
+                    longs[i] = ((Date) values[i]).getTime();
+                } else if (values[i] != null) {
+                    longs[i] = ((Number) values[i]).longValue();
+                }
+            }
+        }
+
+        @Override
+        int compareValues(final int row1, final int row2) {
+            return Long.compare(longs[row1], longs[row2]);
+        }
+    }
+
+    /**
+     * Sort keys stored as {@code double}.
+     */
+    private static final class DoubleKeys extends SortKeys {
+
+        /**
+         * Key values.
+         */
+        private final double[] doubles;
+
+        /**
+         * Create a new instance.
+         *
+         * @param values numbers
+         */
+        DoubleKeys(final Object[] values) {
+            super(values);
+            doubles = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    doubles[i] = ((Number) values[i]).doubleValue();
+                }
+            }
+        }
+
+        @Override
+        int compareValues(final int row1, final int row2) {
+            return Double.compare(doubles[row1], doubles[row2]);
+        }
+    }
+
+    /**
+     * Sort keys stored as {@code Comparable}. Strings and values that are not
+     * comparable are converted to collation keys.
+     */
+    private static final class ObjectKeys extends SortKeys {
+
+        /**
+         * Key values.
+         */
+        private final Comparable[] comparables;
+
+        /**
+         * Create a new instance.
+         *
+         * @param values sort values
+         * @param collator collator used for strings
+         */
+        ObjectKeys(final Object[] values, final Collator collator) {
+            super(values);
+            comparables = new Comparable[values.length];
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                if (value instanceof String) {
+                    comparables[i] = collator.getCollationKey((String) value);
+                } else if (value instanceof Comparable) {
+                    comparables[i] = (Comparable) value;
+                } else if (value != null) {
+                    comparables[i] = collator.getCollationKey(
+                            value.toString());
+                }
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        int compareValues(final int row1, final int row2) {
+            return comparables[row1].compareTo(comparables[row2]);
+        }
+    }
+}
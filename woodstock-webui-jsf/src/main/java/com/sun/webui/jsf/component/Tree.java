@@ -17,12 +17,14 @@ package com.sun.webui.jsf.component;
 
 import com.sun.faces.annotation.Component;
 import com.sun.faces.annotation.Property;
+import com.sun.webui.jsf.model.TreeNodeProvider;
 import com.sun.webui.jsf.util.CookieUtils;
 import com.sun.webui.jsf.util.LogUtil;
 import com.sun.webui.jsf.util.RenderingUtilities;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import jakarta.el.MethodExpression;
 import jakarta.el.ValueExpression;
 import jakarta.faces.application.FacesMessage;
@@ -99,6 +101,11 @@ public final class Tree extends TreeNode implements EditableValueHolder {
      */
     public static final String TREE_IMAGE_FACET_NAME = "image";
 
+    /**
+     * Request attribute value marking a tree without node provider.
+     */
+    private static final Object NO_NODE_PROVIDER = new Object();
+
     /**
      * Converter.
      */
@@ -193,6 +200,18 @@ public final class Tree extends TreeNode implements EditableValueHolder {
      */
     private boolean immediateSet = false;
 
+    /**
+     * The {@code nodeProvider} property is a value binding that resolves to
+     * an instance of {@code TreeNodeProvider}, used to create the child nodes
+     * of the nodes on demand when they are expanded, instead of declaring all
+     * the nodes in the page.
+     */
+    @Property(name = "nodeProvider",
+            displayName = "Node Provider",
+            category = "Data",
+            isHidden = true)
+    private TreeNodeProvider nodeProvider = null;
+
     /**
      * Flag indicating that the user must select a value for this tree. Default
      * value is false.
@@ -407,6 +426,68 @@ public final class Tree extends TreeNode implements EditableValueHolder {
         this.expandOnSelectSet = true;
     }
 
+    /**
+     * The {@code nodeProvider} property is a value binding that resolves to
+     * an instance of {@code TreeNodeProvider}, used to create the child nodes
+     * of the nodes on demand when they are expanded, instead of declaring all
+     * the nodes in the page.
+     * @return TreeNodeProvider
+     */
+    public TreeNodeProvider getNodeProvider() {
+        if (this.nodeProvider != null) {
+            return this.nodeProvider;
+        }
+        ValueExpression vb = getValueExpression("nodeProvider");
+        if (vb != null) {
+            return (TreeNodeProvider) vb.getValue(
+                    getFacesContext().getELContext());
+        }
+        return null;
+    }
+
+    /**
+     * Set the node provider used to create the child nodes of the nodes on
+     * demand.
+     *
+     * @param newNodeProvider nodeProvider
+     * @see #getNodeProvider()
+     */
+    public void setNodeProvider(final TreeNodeProvider newNodeProvider) {
+        this.nodeProvider = newNodeProvider;
+        FacesContext context = getFacesContext();
+        if (context != null) {
+            context.getAttributes().remove(this);
+        }
+    }
+
+    /**
+     * Get the node provider of this tree, resolved once per request. The
+     * nodes of the tree use this method, so that the {@code nodeProvider}
+     * expression is not evaluated again for every node.
+     *
+     * @return TreeNodeProvider or {@code null}
+     * @see #getNodeProvider()
+     */
+    public TreeNodeProvider getRequestNodeProvider() {
+        FacesContext context = getFacesContext();
+        if (context == null) {
+            return getNodeProvider();
+        }
+        Map<Object, Object> attributes = context.getAttributes();
+        Object provider = attributes.get(this);
+        if (provider == null) {
+            provider = getNodeProvider();
+            if (provider == null) {
+                provider = NO_NODE_PROVIDER;
+            }
+            attributes.put(this, provider);
+        }
+        if (provider == NO_NODE_PROVIDER) {
+            return null;
+        }
+        return (TreeNodeProvider) provider;
+    }
+
     @Override
     public boolean isImmediate() {
         if (this.immediateSet) {
@@ -1007,7 +1088,7 @@ public final class Tree extends TreeNode implements EditableValueHolder {
     @Override
     @SuppressWarnings("checkstyle:magicnumber")
     public Object saveState(final FacesContext context) {
-        Object[] values = new Object[20];
+        Object[] values = new Object[21];
         values[0] = super.saveState(context);
         if (this.clientSide) {
             values[1] = Boolean.TRUE;
@@ -1076,6 +1157,7 @@ public final class Tree extends TreeNode implements EditableValueHolder {
         values[17] = saveAttachedState(context, validators);
         values[18] = saveAttachedState(context, validatorBinding);
         values[19] = saveAttachedState(context, valueChangeMethod);
+        values[20] = saveAttachedState(context, nodeProvider);
         return (values);
     }
 
@@ -1122,6 +1204,8 @@ public final class Tree extends TreeNode implements EditableValueHolder {
                 values[18]);
         valueChangeMethod = (MethodBinding) restoreAttachedState(context,
                 values[19]);
+        nodeProvider = (TreeNodeProvider) restoreAttachedState(context,
+                values[20]);
     }
 
     @Override
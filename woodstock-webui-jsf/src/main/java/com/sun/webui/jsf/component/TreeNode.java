@@ -17,6 +17,8 @@ package com.sun.webui.jsf.component;
 
 import com.sun.faces.annotation.Component;
 import com.sun.faces.annotation.Property;
+import com.sun.faces.extensions.avatar.lifecycle.AsyncResponse;
+import com.sun.webui.jsf.model.TreeNodeProvider;
 import com.sun.webui.jsf.theme.ThemeImages;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -279,6 +281,12 @@ public class TreeNode extends UIComponentBase
      */
     private boolean visibleSet = false;
 
+    /**
+     * {@code true} if the child nodes of this node have been created by the
+     * node provider of the tree.
+     */
+    private boolean childNodesLoaded = false;
+
     /**
      * Constructor.
      */
@@ -296,6 +304,20 @@ public class TreeNode extends UIComponentBase
         return "com.sun.webui.jsf.TreeNode";
     }
 
+    /**
+     * This implementation returns the Ajax renderer type for the Ajax
+     * requests, if the child nodes are created by a node provider.
+     * @return String
+     */
+    @Override
+    public String getRendererType() {
+        if (!(this instanceof Tree) && AsyncResponse.isAjaxRequest()
+                && getNodeProvider() != null) {
+            return "com.sun.webui.jsf.ajax.TreeNode";
+        }
+        return super.getRendererType();
+    }
+
     /**
      * The component identifier for this component. This value must be unique
      * within the closest parent component that is a naming container.
@@ -825,41 +847,16 @@ public class TreeNode extends UIComponentBase
                 first = false;
                 TreeNode[] list = getChildTreeNodes(this);
                 if (list != null && list.length > 0) {
-                    String imageIcon;
-                    // For this property, we use 'this' for attributes
-                    if (((Boolean) getAttributes().get("expanded"))) {
-                        if (bottomNode) {
-                            imageIcon = ThemeImages.TREE_HANDLE_DOWN_LAST;
-                        } else {
-                            imageIcon = ThemeImages.TREE_HANDLE_DOWN_MIDDLE;
-                        }
-                    } else {
-                        if (bottomNode) {
-                            imageIcon = ThemeImages.TREE_HANDLE_RIGHT_LAST;
-                        } else {
-                            imageIcon = ThemeImages.TREE_HANDLE_RIGHT_MIDDLE;
-                        }
-                    }
+                    String imageIcon = getHandleImageKey(true, bottomNode,
+                            false);
                     stack.push(imageIcon);
-                    IconHyperlink ihl = getTurnerImageHyperlink();
-                    ihl.setIcon(imageIcon);
-                    ihl.setToolTip("Toggle " + getText() + " node");
-                    ihl.setAlt("Toggle " + getText() + " node icon");
                     Tree rootNode = getAbsoluteRoot(this);
-                    if (rootNode != null) {
-                        if (rootNode.isClientSide()) {
-                            ihl.setOnClick("return false;");
-                        }
-                    }
-                    ihl.setBorder(0);
+                    IconHyperlink ihl = getTurnerImageHyperlink(imageIcon,
+                            rootNode != null && rootNode.isClientSide());
                     tempStack.push(ihl);
                 } else {
-                    String imageIcon;
-                    if (bottomNode) {
-                        imageIcon = ThemeImages.TREE_LINE_LAST_NODE;
-                    } else {
-                        imageIcon = ThemeImages.TREE_LINE_MIDDLE_NODE;
-                    }
+                    String imageIcon = getHandleImageKey(false, bottomNode,
+                            false);
                     stack.push(imageIcon);
                     String id = "icon" + count++;
                     ImageComponent ic = (ImageComponent) ComponentUtilities
@@ -963,6 +960,47 @@ public class TreeNode extends UIComponentBase
         return list;
     }
 
+    /**
+     * This method determines the theme image drawn immediately before the
+     * text of this node: the turner if the node has child nodes, or a line
+     * otherwise.
+     *
+     * @param hasChildNodes {@code true} if this node has child nodes
+     * @param bottomNode {@code true} if this node is the last child node of
+     * its parent
+     * @param topNode {@code true} if this node is the first child node of a
+     * root without image, in which case no line is drawn up to the root
+     * @return The theme key of the image
+     */
+    public String getHandleImageKey(final boolean hasChildNodes,
+            final boolean bottomNode, final boolean topNode) {
+
+        String imageIcon;
+        if (!hasChildNodes) {
+            if (bottomNode) {
+                imageIcon = ThemeImages.TREE_LINE_LAST_NODE;
+            } else {
+                imageIcon = ThemeImages.TREE_LINE_MIDDLE_NODE;
+            }
+        } else if (isExpanded()) {
+            if (bottomNode) {
+                imageIcon = ThemeImages.TREE_HANDLE_DOWN_LAST;
+            } else {
+                imageIcon = ThemeImages.TREE_HANDLE_DOWN_MIDDLE;
+            }
+        } else {
+            if (bottomNode) {
+                imageIcon = ThemeImages.TREE_HANDLE_RIGHT_LAST;
+            } else {
+                imageIcon = ThemeImages.TREE_HANDLE_RIGHT_MIDDLE;
+            }
+        }
+        if (topNode) {
+            return TOP_LINE_IMAGE_MAPPING.get(imageIcon);
+        }
+        return imageIcon;
+    }
+
     /**
      * Given the ID of a child of this node this method returns the TreeNode
      * component corresponding to this ID.
@@ -997,6 +1035,82 @@ public class TreeNode extends UIComponentBase
         }
     }
 
+    /**
+     * Test if this node has child nodes. The child nodes provided by the node
+     * provider of the tree are not created.
+     *
+     * @return {@code true} if this node has child nodes
+     */
+    public boolean hasChildNodes() {
+        for (UIComponent kid : getChildren()) {
+            if (kid instanceof TreeNode) {
+                return true;
+            }
+        }
+        if (childNodesLoaded) {
+            return false;
+        }
+        TreeNodeProvider provider = getNodeProvider();
+        return provider != null && provider.hasChildNodes(getId());
+    }
+
+    /**
+     * Create the child nodes of this node with the node provider of the tree,
+     * unless they have been created already or this node has child nodes
+     * declared in the page.
+     */
+    public void loadChildNodes() {
+        if (childNodesLoaded) {
+            return;
+        }
+        TreeNodeProvider provider = getNodeProvider();
+        if (provider == null) {
+            return;
+        }
+        for (UIComponent kid : getChildren()) {
+            if (kid instanceof TreeNode) {
+                return;
+            }
+        }
+        List<TreeNode> nodes = provider.getChildNodes(getId());
+        if (nodes != null) {
+            getChildren().addAll(nodes);
+        }
+        childNodesLoaded = true;
+    }
+
+    /**
+     * Remove the child nodes created by the node provider of the tree, so
+     * that they are not kept in the view state while this node is collapsed.
+     * This is only done for server-side trees, the server is not told when
+     * a node of a client-side tree is collapsed.
+     */
+    public void unloadChildNodes() {
+        if (!childNodesLoaded) {
+            return;
+        }
+        Iterator<UIComponent> kids = getChildren().iterator();
+        while (kids.hasNext()) {
+            if (kids.next() instanceof TreeNode) {
+                kids.remove();
+            }
+        }
+        childNodesLoaded = false;
+    }
+
+    /**
+     * Get the node provider of the tree of this node.
+     *
+     * @return TreeNodeProvider or {@code null}
+     */
+    private TreeNodeProvider getNodeProvider() {
+        Tree root = getAbsoluteRoot(this);
+        if (root == null) {
+            return null;
+        }
+        return root.getRequestNodeProvider();
+    }
+
     /**
      * This method returns the closest parent that is a TreeNode, or null if not
      * found.
@@ -1221,6 +1335,27 @@ public class TreeNode extends UIComponentBase
         return ihl;
     }
 
+    /**
+     * Get the turner image hyperlink, set up to display the given image.
+     * @param imageIcon The theme key of the turner image
+     * @param clientSide {@code true} if the tree is expanded and collapsed on
+     * the client side
+     * @return IconHyperlink
+     */
+    public IconHyperlink getTurnerImageHyperlink(final String imageIcon,
+            final boolean clientSide) {
+
+        IconHyperlink ihl = getTurnerImageHyperlink();
+        ihl.setIcon(imageIcon);
+        ihl.setToolTip("Toggle " + getText() + " node");
+        ihl.setAlt("Toggle " + getText() + " node icon");
+        if (clientSide) {
+            ihl.setOnClick("return false;");
+        }
+        ihl.setBorder(0);
+        return ihl;
+    }
+
     /**
      * This implementation restores the state of all properties.
      * @param context faces context
@@ -1245,6 +1380,7 @@ public class TreeNode extends UIComponentBase
         this.url = (String) values[11];
         this.visible = ((Boolean) values[12]);
         this.visibleSet = ((Boolean) values[13]);
+        this.childNodesLoaded = ((Boolean) values[14]);
     }
 
     /**
@@ -1255,7 +1391,7 @@ public class TreeNode extends UIComponentBase
     @Override
     @SuppressWarnings("checkstyle:magicnumber")
     public Object saveState(final FacesContext context) {
-        Object[] values = new Object[14];
+        Object[] values = new Object[15];
         values[0] = super.saveState(context);
         values[1] = saveAttachedState(context, actionExpression);
         values[2] = this.actionListenerExpression;
@@ -1286,6 +1422,11 @@ public class TreeNode extends UIComponentBase
         } else {
             values[13] = Boolean.FALSE;
         }
+        if (this.childNodesLoaded) {
+            values[14] = Boolean.TRUE;
+        } else {
+            values[14] = Boolean.FALSE;
+        }
         return values;
     }
 }
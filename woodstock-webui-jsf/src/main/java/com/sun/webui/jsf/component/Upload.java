@@ -92,6 +92,11 @@ public final class Upload extends Field implements Serializable {
      */
     public static final String FILE_SIZE_KEY = "file_size_key";
 
+    /**
+     * Upload progress key.
+     */
+    public static final String UPLOAD_PROGRESS_KEY = "upload_progress_key";
+
     /**
      * Debug flag.
      */
@@ -0,0 +1,475 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.jsf.component;
+
+import com.sun.webui.jsf.component.Form.VirtualFormDescriptor;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import jakarta.faces.component.NamingContainer;
+
+/**
+ * Participation index used by {@link Form} to resolve its virtual forms.
+ * <p>
+ * The participating and submitting ids of the virtual forms are compiled
+ * into tries keyed by the segments of the ids, so that matching a fully
+ * qualified id costs a walk over its segments instead of a call to
+ * {@link Form#fQIdMatchesPattern(String, String)} for every id of every
+ * virtual form. The matches are the same as the ones of
+ * {@code fQIdMatchesPattern}.
+ * </p><p>
+ * An index is built for the descriptor arrays of a form and is not
+ * updated when a descriptor is modified, the form discards it instead.
+ * </p>
+ */
+final class VirtualFormIndex {
+
+    /**
+     * Order of a pattern that does not match.
+     */
+    private static final int NONE = Integer.MAX_VALUE;
+
+    /**
+     * Id separator.
+     */
+    private static final String ID_SEP =
+            String.valueOf(NamingContainer.SEPARATOR_CHAR);
+
+    /**
+     * Id wildcard suffix.
+     */
+    private static final String WILD_SUFFIX = ID_SEP + Form.ID_WILD_CHAR;
+
+    /**
+     * Virtual forms the index was built for.
+     */
+    private final VirtualFormDescriptor[] virtualForms;
+
+    /**
+     * Internal virtual forms the index was built for.
+     */
+    private final VirtualFormDescriptor[] internalVirtualForms;
+
+    /**
+     * Submitting ids of the virtual forms.
+     */
+    private final PatternTrie submitters;
+
+    /**
+     * Submitting ids of the internal virtual forms.
+     */
+    private final PatternTrie internalSubmitters;
+
+    /**
+     * Participating ids, compiled on demand per descriptor.
+     */
+    private final Map<VirtualFormDescriptor, Participants> participants =
+            new IdentityHashMap<VirtualFormDescriptor, Participants>();
+
+    /**
+     * Create a new index.
+     * @param newVirtualForms virtual forms, may be {@code null}
+     * @param newInternalVirtualForms internal virtual forms, may be
+     * {@code null}
+     */
+    VirtualFormIndex(final VirtualFormDescriptor[] newVirtualForms,
+            final VirtualFormDescriptor[] newInternalVirtualForms) {
+
+        this.virtualForms = newVirtualForms;
+        this.internalVirtualForms = newInternalVirtualForms;
+        this.submitters = compileSubmitters(newVirtualForms);
+        this.internalSubmitters = compileSubmitters(newInternalVirtualForms);
+    }
+
+    /**
+     * Test if this index was built for the given descriptor arrays.
+     * @param vfds virtual forms
+     * @param ivfds internal virtual forms
+     * @return {@code boolean}
+     */
+    boolean isBuiltFrom(final VirtualFormDescriptor[] vfds,
+            final VirtualFormDescriptor[] ivfds) {
+
+        return vfds == virtualForms && ivfds == internalVirtualForms;
+    }
+
+    /**
+     * Get the virtual form submitted by the component with the given fully
+     * qualified id, or by its nearest ancestor that submits a virtual form.
+     * The virtual forms are consulted before the internal virtual forms and
+     * the first virtual form in the array order wins.
+     * @param fqId fully qualified id
+     * @return VirtualFormDescriptor or {@code null}
+     */
+    VirtualFormDescriptor getSubmitted(final String fqId) {
+        if (!Form.isValidFullyQualifiedId(fqId)) {
+            return null;
+        }
+        String[] segments = split(fqId);
+        VirtualFormDescriptor vfd = getSubmitted(segments, submitters,
+                virtualForms);
+        if (vfd != null) {
+            return vfd;
+        }
+        return getSubmitted(segments, internalSubmitters,
+                internalVirtualForms);
+    }
+
+    /**
+     * Test if the component with the given fully qualified id participates
+     * in the given virtual form.
+     * @param vfd virtual form
+     * @param fqId fully qualified id
+     * @return {@code boolean}
+     */
+    boolean hasParticipant(final VirtualFormDescriptor vfd,
+            final String fqId) {
+
+        if (vfd == null || !Form.isValidFullyQualifiedId(fqId)) {
+            return false;
+        }
+        String[] segments = split(fqId);
+        return getParticipants(vfd).all.match(segments, segments.length)
+                != NONE;
+    }
+
+    /**
+     * Test if the children of the component with the given fully qualified
+     * id are known to participate in the given virtual form, that is if a
+     * participating id ending with the wildcard matches the component.
+     * @param vfd virtual form
+     * @param fqId fully qualified id
+     * @return {@code boolean}
+     */
+    boolean childrenParticipate(final VirtualFormDescriptor vfd,
+            final String fqId) {
+
+        if (vfd == null || !Form.isValidFullyQualifiedId(fqId)) {
+            return false;
+        }
+        String[] segments = split(fqId);
+        return getParticipants(vfd).wild.match(segments, segments.length)
+                != NONE;
+    }
+
+    /**
+     * Get the compiled participating ids of a virtual form.
+     * @param vfd virtual form
+     * @return Participants
+     */
+    private synchronized Participants getParticipants(
+            final VirtualFormDescriptor vfd) {
+
+        Participants result = participants.get(vfd);
+        if (result == null) {
+            result = new Participants(vfd.getParticipatingIds());
+            participants.put(vfd, result);
+        }
+        return result;
+    }
+
+    /**
+     * Look for the submitted virtual form at each level of the id, starting
+     * with the id itself.
+     * @param segments id segments
+     * @param trie submitting ids
+     * @param vfds virtual forms
+     * @return VirtualFormDescriptor or {@code null}
+     */
+    private static VirtualFormDescriptor getSubmitted(final String[] segments,
+            final PatternTrie trie, final VirtualFormDescriptor[] vfds) {
+
+        if (trie == null) {
+            return null;
+        }
+        int length = segments.length;
+        do {
+            if (isValidPrefix(segments, length)) {
+                int order = trie.match(segments, length);
+                if (order != NONE) {
+                    return vfds[order];
+                }
+            }
+            length--;
+        } while (length > 0);
+        return null;
+    }
+
+    /**
+     * Compile the submitting ids of virtual forms, without the trailing
+     * wildcards.
+     * @param vfds virtual forms
+     * @return PatternTrie or {@code null} if there are no virtual forms
+     */
+    private static PatternTrie compileSubmitters(
+            final VirtualFormDescriptor[] vfds) {
+
+        if (vfds == null || vfds.length < 1) {
+            return null;
+        }
+        PatternTrie trie = new PatternTrie();
+        for (int v = 0; v < vfds.length; v++) {
+            String[] ids = vfds[v].getSubmittingIds();
+            for (int s = 0; ids != null && s < ids.length; s++) {
+                String submitter = ids[s];
+                if (submitter == null) {
+                    continue;
+                }
+                if (submitter.endsWith(WILD_SUFFIX)) {
+                    submitter = submitter.substring(0, submitter.length()
+                            - WILD_SUFFIX.length());
+                }
+                trie.add(submitter, v);
+            }
+        }
+        return trie;
+    }
+
+    /**
+     * Test if the first segments of a valid fully qualified id are a valid
+     * fully qualified id.
+     * @param segments id segments
+     * @param length number of segments
+     * @return {@code boolean}
+     */
+    private static boolean isValidPrefix(final String[] segments,
+            final int length) {
+
+        if (length == 0) {
+            return true;
+        }
+        String last = segments[length - 1];
+        return last.length() > 0 && last.charAt(last.length() - 1)
+                != Form.ID_WILD_CHAR;
+    }
+
+    /**
+     * Split a fully qualified id in segments.
+     * @param fqId fully qualified id
+     * @return String[]
+     */
+    private static String[] split(final String fqId) {
+        if (fqId.length() == 1) {
+            return new String[0];
+        }
+        return fqId.substring(1).split(ID_SEP, -1);
+    }
+
+    /**
+     * Compiled participating ids of a virtual form.
+     */
+    private static final class Participants {
+
+        /**
+         * All the participating ids.
+         */
+        private final PatternTrie all = new PatternTrie();
+
+        /**
+         * The participating ids ending with the wildcard.
+         */
+        private final PatternTrie wild = new PatternTrie();
+
+        /**
+         * Compile participating ids.
+         * @param ids participating ids
+         */
+        Participants(final String[] ids) {
+            for (int i = 0; ids != null && i < ids.length; i++) {
+                String id = ids[i];
+                if (id == null) {
+                    continue;
+                }
+                all.add(id, 0);
+                if (id.endsWith(WILD_SUFFIX)) {
+                    wild.add(id, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tries of id patterns, each pattern is associated with an order and a
+     * match returns the lowest order of the matching patterns.
+     */
+    private static final class PatternTrie {
+
+        /**
+         * Fully qualified patterns, keyed by their segments.
+         */
+        private final Node absolute = new Node();
+
+        /**
+         * Bare or partially qualified patterns, keyed by their segments in
+         * reverse order.
+         */
+        private final Node relative = new Node();
+
+        /**
+         * Bare or partially qualified patterns ending with the wildcard,
+         * keyed by their segments.
+         */
+        private final Node relativeWild = new Node();
+
+        /**
+         * Add a pattern, invalid patterns are ignored.
+         * @param pattern pattern to add
+         * @param order pattern order
+         */
+        void add(final String pattern, final int order) {
+            if (pattern.length() < 1 || pattern.indexOf(' ') != -1) {
+                return;
+            }
+            if (pattern.endsWith(ID_SEP) && !pattern.equals(ID_SEP)) {
+                return;
+            }
+            String prefix = pattern;
+            boolean wildcard = false;
+            int wildIndex = pattern.indexOf(Form.ID_WILD_CHAR);
+            if (wildIndex != -1) {
+                if (wildIndex != pattern.length() - 1
+                        || !pattern.endsWith(WILD_SUFFIX)) {
+                    return;
+                }
+                prefix = pattern.substring(0, pattern.length()
+                        - WILD_SUFFIX.length());
+                wildcard = true;
+            }
+            if (prefix.length() == 0 || prefix.startsWith(ID_SEP)) {
+                Node node = absolute;
+                if (prefix.length() > 1) {
+                    node = absolute.put(split(prefix), false);
+                }
+                if (wildcard) {
+                    node.wild = Math.min(node.wild, order);
+                } else {
+                    node.exact = Math.min(node.exact, order);
+                }
+            } else if (wildcard) {
+                Node node = relativeWild.put(prefix.split(ID_SEP, -1),
+                        false);
+                node.wild = Math.min(node.wild, order);
+            } else {
+                Node node = relative.put(prefix.split(ID_SEP, -1), true);
+                node.exact = Math.min(node.exact, order);
+            }
+        }
+
+        /**
+         * Match the first segments of a fully qualified id.
+         * @param segments id segments
+         * @param length number of segments
+         * @return lowest order of the matching patterns, or {@code NONE}
+         */
+        int match(final String[] segments, final int length) {
+            // Fully qualified patterns match the id or one of its ancestors
+            // for wildcards.
+            Node node = absolute;
+            int order = node.wild;
+            for (int i = 0; i < length && node != null; i++) {
+                node = node.get(segments[i]);
+                if (node != null) {
+                    order = Math.min(order, node.wild);
+                }
+            }
+            if (node != null) {
+                order = Math.min(order, node.exact);
+            }
+
+            // Other patterns match the last segments of the id.
+            node = relative;
+            for (int i = length - 1; i >= 0 && node != null; i--) {
+                node = node.get(segments[i]);
+                if (node != null) {
+                    order = Math.min(order, node.exact);
+                }
+            }
+
+            // Or any segments for wildcards.
+            for (int start = 0; start < length; start++) {
+                node = relativeWild;
+                for (int i = start; i < length && node != null; i++) {
+                    node = node.get(segments[i]);
+                    if (node != null) {
+                        order = Math.min(order, node.wild);
+                    }
+                }
+            }
+            return order;
+        }
+    }
+
+    /**
+     * Trie node.
+     */
+    private static final class Node {
+
+        /**
+         * Lowest order of the patterns ending at this node.
+         */
+        private int exact = NONE;
+
+        /**
+         * Lowest order of the wildcard patterns ending at this node.
+         */
+        private int wild = NONE;
+
+        /**
+         * Child nodes keyed by segment, created on demand.
+         */
+        private Map<String, Node> children;
+
+        /**
+         * Get a child node.
+         * @param segment segment
+         * @return Node or {@code null}
+         */
+        Node get(final String segment) {
+            if (children == null) {
+                return null;
+            }
+            return children.get(segment);
+        }
+
+        /**
+         * Get or create the node of a path.
+         * @param segments path segments
+         * @param reverse {@code true} to follow the segments in reverse order
+         * @return Node
+         */
+        Node put(final String[] segments, final boolean reverse) {
+            Node node = this;
+            for (int i = 0; i < segments.length; i++) {
+                String segment;
+                if (reverse) {
+                    segment = segments[segments.length - 1 - i];
+                } else {
+                    segment = segments[i];
+                }
+                if (node.children == null) {
+                    node.children = new HashMap<String, Node>();
+                }
+                Node child = node.children.get(segment);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(segment, child);
+                }
+                node = child;
+            }
+            return node;
+        }
+    }
+}
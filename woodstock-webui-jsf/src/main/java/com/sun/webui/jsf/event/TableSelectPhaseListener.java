@@ -16,8 +16,10 @@
 package com.sun.webui.jsf.event;
 
 import com.sun.data.provider.RowKey;
+import com.sun.webui.jsf.model.TableSelectionIndex;
 import com.sun.webui.jsf.util.LogUtil;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import jakarta.faces.FactoryFinder;
 import jakarta.faces.lifecycle.Lifecycle;
 import jakarta.faces.lifecycle.LifecycleFactory;
@@ -41,13 +43,19 @@ import jakarta.faces.event.PhaseListener;
  * prevent state from being cleared by this instance.
  * </p>
  * <p>
+ * This class also keeps an index of the selected rows. Give this instance to
+ * the selectionIndex property of the TableRowGroup component so that the
+ * selected rows can be counted without iterating over all the rows.
+ * </p>
+ * <p>
  * <pre>
  * java.util.logging.ConsoleHandler.level = FINE
  * com.sun.webui.jsf.event.TableSelectPhaseListener.level = FINE
  * </pre>
  * </p>
  */
-public final class TableSelectPhaseListener implements PhaseListener {
+public final class TableSelectPhaseListener implements PhaseListener,
+        TableSelectionIndex {
 
     /**
      * Serialization UID.
@@ -65,6 +73,12 @@ public final class TableSelectPhaseListener implements PhaseListener {
     private final HashMap<String, Object> selected =
             new HashMap<String, Object>();
 
+    /**
+     * Row ids of the selected values, in selection order.
+     */
+    private final LinkedHashSet<String> selectedRowIds =
+            new LinkedHashSet<String>();
+
     /**
      *  Do not clear selected flag.
      */
@@ -120,7 +134,7 @@ public final class TableSelectPhaseListener implements PhaseListener {
     @Override
     public void afterPhase(final PhaseEvent event) {
         if (!keepSelected) {
-            selected.clear();
+            clear();
         } else {
             log("afterPhase",
                     "Selected values not cleared, keepSelected is false");
@@ -150,6 +164,7 @@ public final class TableSelectPhaseListener implements PhaseListener {
      */
     public void clear() {
         selected.clear();
+        selectedRowIds.clear();
     }
 
     /**
@@ -169,6 +184,16 @@ public final class TableSelectPhaseListener implements PhaseListener {
         return unselected;
     }
 
+    /**
+     * Get the row ids of the selected objects, in selection order.
+     *
+     * @return String[]
+     */
+    @Override
+    public String[] getSelectedRowIds() {
+        return selectedRowIds.toArray(new String[selectedRowIds.size()]);
+    }
+
     /**
      * Test if the flag indicating that selected objects should be cleared after
      * the render response phase.
@@ -185,6 +210,7 @@ public final class TableSelectPhaseListener implements PhaseListener {
      * @param rowKey The current RowKey.
      * @return A true or false value.
      */
+    @Override
     public boolean isSelected(final RowKey rowKey) {
         Object object = getSelected(rowKey);
         return (object != null && object != unselected);
@@ -213,6 +239,11 @@ public final class TableSelectPhaseListener implements PhaseListener {
     public void setSelected(final RowKey rowKey, final Object object) {
         if (rowKey != null) {
             selected.put(rowKey.getRowId(), object);
+            if (object != null && object != unselected) {
+                selectedRowIds.add(rowKey.getRowId());
+            } else {
+                selectedRowIds.remove(rowKey.getRowId());
+            }
         }
     }
 
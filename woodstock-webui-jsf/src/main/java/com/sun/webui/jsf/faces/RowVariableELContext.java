@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.jsf.faces;
+
+import com.sun.data.provider.RowKey;
+import com.sun.data.provider.TableDataProvider;
+import com.sun.data.provider.impl.TableRowDataProvider;
+import java.beans.FeatureDescriptor;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import jakarta.el.ELContext;
+import jakarta.el.ELResolver;
+import jakarta.el.FunctionMapper;
+import jakarta.el.ImportHandler;
+import jakarta.el.ValueExpression;
+import jakarta.el.VariableMapper;
+import jakarta.faces.context.FacesContext;
+
+/**
+ * {@code ELContext} used to evaluate sort and filter expressions against a
+ * single row of a {@link TableDataProvider}.
+ * <p>
+ * The row is exposed as a variable that is resolved before delegating to the
+ * {@code ELResolver} of the current {@code FacesContext}, the request map is
+ * never modified. An instance is bound to the current {@code FacesContext}
+ * and is therefore never shared between threads, no locking is required.
+ * </p>
+ */
+final class RowVariableELContext extends ELContext {
+
+    /**
+     * Faces context attribute key prefix.
+     */
+    private static final String ATTRIBUTE_KEY_PREFIX =
+            RowVariableELContext.class.getName() + ".";
+
+    /**
+     * Delegate EL context.
+     */
+    private final ELContext delegate;
+
+    /**
+     * Variable name.
+     */
+    private final String name;
+
+    /**
+     * Row provider exposed as the variable.
+     */
+    private final TableRowDataProvider rowProvider =
+            new TableRowDataProvider();
+
+    /**
+     * EL resolver.
+     */
+    private final ELResolver resolver = new RowVariableELResolver();
+
+    /**
+     * Create a new instance.
+     *
+     * @param newDelegate delegate EL context
+     * @param newName variable name
+     */
+    private RowVariableELContext(final ELContext newDelegate,
+            final String newName) {
+
+        this.delegate = newDelegate;
+        this.name = newName;
+    }
+
+    /**
+     * Get the row context for the given variable name bound to the given
+     * faces context.
+     *
+     * @param context faces context
+     * @param variableName variable name
+     * @return RowVariableELContext
+     */
+    static RowVariableELContext getInstance(final FacesContext context,
+            final String variableName) {
+
+        Map<Object, Object> attributes = context.getAttributes();
+        String key = ATTRIBUTE_KEY_PREFIX + variableName;
+        RowVariableELContext rowContext =
+                (RowVariableELContext) attributes.get(key);
+        if (rowContext == null
+                || rowContext.delegate != context.getELContext()) {
+            rowContext = new RowVariableELContext(context.getELContext(),
+                    variableName);
+            attributes.put(key, rowContext);
+        }
+        return rowContext;
+    }
+
+    /**
+     * Evaluate an expression for the given row. If the variable name is empty,
+     * the expression is evaluated with the EL context of the current
+     * {@code FacesContext}.
+     *
+     * @param context faces context
+     * @param variableName variable name
+     * @param expression expression to evaluate
+     * @param provider table data provider
+     * @param row row key
+     * @return Object
+     */
+    static Object getValue(final FacesContext context,
+            final String variableName, final ValueExpression expression,
+            final TableDataProvider provider, final RowKey row) {
+
+        if (variableName == null || "".equals(variableName)) {
+            return expression.getValue(context.getELContext());
+        }
+        return getInstance(context, variableName)
+                .getValue(expression, provider, row);
+    }
+
+    /**
+     * Evaluate an expression for the given row.
+     *
+     * @param expression expression to evaluate
+     * @param provider table data provider
+     * @param row row key
+     * @return Object
+     */
+    Object getValue(final ValueExpression expression,
+            final TableDataProvider provider, final RowKey row) {
+
+        // Save the current row in case of nested evaluations.
+        TableDataProvider oldProvider = rowProvider.getTableDataProvider();
+        RowKey oldRow = rowProvider.getTableRow();
+        rowProvider.setTableDataProvider(provider);
+        rowProvider.setTableRow(row);
+        try {
+            return expression.getValue(this);
+        } finally {
+            rowProvider.setTableDataProvider(oldProvider);
+            rowProvider.setTableRow(oldRow);
+        }
+    }
+
+    @Override
+    public ELResolver getELResolver() {
+        return resolver;
+    }
+
+    @Override
+    public FunctionMapper getFunctionMapper() {
+        return delegate.getFunctionMapper();
+    }
+
+    @Override
+    public VariableMapper getVariableMapper() {
+        return delegate.getVariableMapper();
+    }
+
+    @Override
+    public ImportHandler getImportHandler() {
+        return delegate.getImportHandler();
+    }
+
+    @Override
+    public Object getContext(final Class<?> key) {
+        Object value = super.getContext(key);
+        if (value == null) {
+            value = delegate.getContext(key);
+        }
+        return value;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return delegate.getLocale();
+    }
+
+    /**
+     * Resolves the row variable, delegates everything else.
+     */
+    private final class RowVariableELResolver extends ELResolver {
+
+        /**
+         * Test if the given base and property denote the row variable.
+         *
+         * @param base base object
+         * @param property property
+         * @return {@code true} if the row variable is denoted
+         */
+        private boolean isVariable(final Object base, final Object property) {
+            return base == null && name.equals(property);
+        }
+
+        @Override
+        public Object getValue(final ELContext context, final Object base,
+                final Object property) {
+
+            if (isVariable(base, property)) {
+                context.setPropertyResolved(true);
+                return rowProvider;
+            }
+            return delegate.getELResolver().getValue(context, base,
+                    property);
+        }
+
+        @Override
+        public Class<?> getType(final ELContext context, final Object base,
+                final Object property) {
+
+            if (isVariable(base, property)) {
+                context.setPropertyResolved(true);
+                return TableRowDataProvider.class;
+            }
+            return delegate.getELResolver().getType(context, base, property);
+        }
+
+        @Override
+        public void setValue(final ELContext context, final Object base,
+                final Object property, final Object value) {
+
+            if (isVariable(base, property)) {
+                context.setPropertyResolved(true);
+                return;
+            }
+            delegate.getELResolver().setValue(context, base, property, value);
+        }
+
+        @Override
+        public boolean isReadOnly(final ELContext context, final Object base,
+                final Object property) {
+
+            if (isVariable(base, property)) {
+                context.setPropertyResolved(true);
+                return true;
+            }
+            return delegate.getELResolver().isReadOnly(context, base,
+                    property);
+        }
+
+        @Override
+        public Object invoke(final ELContext context, final Object base,
+                final Object method, final Class<?>[] paramTypes,
+                final Object[] params) {
+
+            return delegate.getELResolver().invoke(context, base, method,
+                    paramTypes, params);
+        }
+
+        @Override
+        public Iterator<FeatureDescriptor> getFeatureDescriptors(
+                final ELContext context, final Object base) {
+
+            return delegate.getELResolver().getFeatureDescriptors(context,
+                    base);
+        }
+
+        @Override
+        public Class<?> getCommonPropertyType(final ELContext context,
+                final Object base) {
+
+            return delegate.getELResolver().getCommonPropertyType(context,
+                    base);
+        }
+    }
+}
@@ -19,12 +19,15 @@ package com.sun.webui.jsf.faces;
 import com.sun.data.provider.FieldKey;
 import com.sun.data.provider.RowKey;
 import com.sun.data.provider.TableDataProvider;
-import java.util.AbstractCollection;
+import com.sun.webui.jsf.model.PagedTableDataProvider;
+import com.sun.webui.jsf.model.VersionedTableDataProvider;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import jakarta.faces.model.DataModel;
 import jakarta.faces.model.DataModelEvent;
@@ -36,15 +39,35 @@ import jakarta.faces.model.DataModelListener;
  * Note that setting the {@code rowIndex} property of this
  * {@code DataModel} does <strong>NOT</strong> cause the cursor of
  * the wrapped {@link TableDataProvider} to be repositioned.
+ * <p>
+ * Row keys are read in windows of {@value #WINDOW_SIZE} rows and cached, so
+ * that iterating over the rows is linear. The window is an aligned page if
+ * the wrapped provider is a {@link PagedTableDataProvider}, otherwise it holds
+ * all the keys read from the first row. The cached keys are discarded when
+ * the {@code rowIndex} is reset to -1, as done by {@code UIData} at the start
+ * and at the end of each phase, when the version of a
+ * {@link VersionedTableDataProvider} changes, or when {@link #invalidate()}
+ * is called.
+ * </p>
  */
 public final class TableDataProviderDataModel extends DataModel {
 
+    /**
+     * Number of row keys read at once.
+     */
+    public static final int WINDOW_SIZE = 100;
+
     /**
      * The set of {@link FieldKey}s for the currently wrapped
      * {@link TableDataProvider}.
      */
     private FieldKey[] fieldKeys = null;
 
+    /**
+     * Indexes of the field keys, keyed by field id.
+     */
+    private Map<String, Integer> fieldIndexes = null;
+
     /**
      * The row index to which this {@code DataModel} is positioned.
      */
@@ -55,6 +78,31 @@ public final class TableDataProviderDataModel extends DataModel {
      */
     private TableDataProvider tdp = null;
 
+    /**
+     * Cached row keys, or {@code null}.
+     */
+    private RowKey[] window = null;
+
+    /**
+     * Row index of the first cached row key.
+     */
+    private int windowStart = 0;
+
+    /**
+     * Number of cached row keys.
+     */
+    private int windowLength = 0;
+
+    /**
+     * Flag indicating that there are no rows after the cached row keys.
+     */
+    private boolean windowLast = false;
+
+    /**
+     * Version of the provider when the row keys were cached.
+     */
+    private long windowVersion = 0;
+
     /**
      * Construct an uninitialized {@link TableDataProviderDataModel}.
      */
@@ -86,6 +134,8 @@ public final class TableDataProviderDataModel extends DataModel {
      */
     public void setTableDataProvider(final TableDataProvider newTdp) {
         this.tdp = newTdp;
+        this.fieldIndexes = null;
+        invalidate();
         if (newTdp == null) {
             this.fieldKeys = null;
             this.rowIndex = -1;
@@ -94,6 +144,18 @@ public final class TableDataProviderDataModel extends DataModel {
         }
     }
 
+    /**
+     * Discard the cached row keys, so that they are read again from the
+     * wrapped {@link TableDataProvider}. This method should be called if rows
+     * are added, removed or reordered while the {@code rowIndex} is set.
+     */
+    public void invalidate() {
+        this.window = null;
+        this.windowStart = 0;
+        this.windowLength = 0;
+        this.windowLast = false;
+    }
+
     /**
      * Return {@code true} if the wrapped {@link TableDataProvider}
      * has an available row at the currently specified {@code rowIndex}.
@@ -105,7 +167,11 @@ public final class TableDataProviderDataModel extends DataModel {
         if (getTableDataProvider() == null) {
             return false;
         }
-        return getTableDataProvider().isRowAvailable(getRowKey());
+        RowKey rowKey = getRowKey();
+        if (rowKey == null) {
+            return false;
+        }
+        return getTableDataProvider().isRowAvailable(rowKey);
     }
 
     /**
@@ -129,23 +195,22 @@ public final class TableDataProviderDataModel extends DataModel {
      * {@code getValue()} and {@code setValue()} calls on the
      * wrapped {@link TableDataProvider}.  Operations that attempt to add,
      * delete, or replace keys will be rejected.
+     * <p>
+     * The map is a view of the row, values are only read when they are
+     * requested.
+     * </p>
      * @return Object
      */
-    @SuppressWarnings("unchecked")
     @Override
     public Object getRowData() {
         if (getTableDataProvider() == null) {
             return null;
         }
-        if (!getTableDataProvider().isRowAvailable(getRowKey())) {
+        RowKey rowKey = getRowKey();
+        if (rowKey == null || !getTableDataProvider().isRowAvailable(rowKey)) {
             throw new IllegalArgumentException("" + getRowIndex());
         }
-        Map map = new TableDataProviderMap();
-        for (FieldKey fieldKey : fieldKeys) {
-            map.put(fieldKey.getFieldId(), tdp.getValue(fieldKey,
-                    getRowKey()));
-        }
-        return map;
+        return new TableDataProviderMap(rowKey);
     }
 
     /**
@@ -164,17 +229,89 @@ public final class TableDataProviderDataModel extends DataModel {
      */
     public RowKey getRowKey() {
         int i = getRowIndex();
-        RowKey[] rks = tdp.getRowKeys(i + 1, null);
-        if (rks.length > i) {
-            return rks[i];
+        if (tdp == null || i < 0) {
+            return null;
+        }
+        if (tdp instanceof VersionedTableDataProvider) {
+            long version = ((VersionedTableDataProvider) tdp)
+                    .getDataVersion();
+            if (window != null && version != windowVersion) {
+                invalidate();
+            }
+            windowVersion = version;
+        }
+        if (i < windowStart || i >= windowStart + windowLength) {
+            if (tdp instanceof PagedTableDataProvider) {
+                loadPage(i);
+            } else {
+                loadKeys(i);
+            }
+        }
+        if (i >= windowStart && i < windowStart + windowLength) {
+            return window[i - windowStart];
         }
         return null;
     }
 
+    /**
+     * Cache the page of row keys containing the given row index.
+     *
+     * @param index row index
+     */
+    private void loadPage(final int index) {
+        int first = index - (index % WINDOW_SIZE);
+        RowKey[] keys = ((PagedTableDataProvider) tdp)
+                .getPageRowKeys(first, WINDOW_SIZE);
+        if (keys == null) {
+            keys = new RowKey[0];
+        }
+        window = keys;
+        windowStart = first;
+        windowLength = keys.length;
+        windowLast = keys.length < WINDOW_SIZE;
+    }
+
+    /**
+     * Cache the row keys up to the given row index, reading the keys
+     * following the cached keys in windows of {@link #WINDOW_SIZE} rows.
+     *
+     * @param index row index
+     */
+    private void loadKeys(final int index) {
+        if (window == null) {
+            window = new RowKey[WINDOW_SIZE];
+            windowStart = 0;
+            windowLength = 0;
+            windowLast = false;
+        }
+        while (!windowLast && index >= windowLength) {
+            RowKey afterRow = null;
+            if (windowLength > 0) {
+                afterRow = window[windowLength - 1];
+            }
+            int count = Math.max(WINDOW_SIZE, index + 1 - windowLength);
+            RowKey[] keys = tdp.getRowKeys(count, afterRow);
+            if (keys == null || keys.length == 0) {
+                windowLast = true;
+                break;
+            }
+            if (windowLength + keys.length > window.length) {
+                window = Arrays.copyOf(window, Math.max(window.length * 2,
+                        windowLength + keys.length));
+            }
+            System.arraycopy(keys, 0, window, windowLength, keys.length);
+            windowLength += keys.length;
+            if (keys.length < count) {
+                windowLast = true;
+            }
+        }
+    }
+
     /**
      * Set the currently selected {@code rowIndex}.  The cursor
      * position of the wrapped {@link TableDataProvider} is <strong>NOT</strong>
-     * updated.
+     * updated. Setting the {@code rowIndex} to -1 discards the cached row
+     * keys.
      *
      * @param newRowIndex The new selected row index, or -1 for no selection
      */
@@ -185,6 +322,9 @@ public final class TableDataProviderDataModel extends DataModel {
         }
         int oldIndex = this.rowIndex;
         this.rowIndex = newRowIndex;
+        if (newRowIndex == -1) {
+            invalidate();
+        }
         if (getTableDataProvider() == null) {
             return;
         }
@@ -222,18 +362,35 @@ public final class TableDataProviderDataModel extends DataModel {
         setTableDataProvider((TableDataProvider) data);
     }
 
+    /**
+     * Get the index of the field key with the given field id.
+     *
+     * @param key field id
+     * @return int, or -1 if there is no such field key
+     */
+    private int index(final Object key) {
+        if (fieldIndexes == null) {
+            Map<String, Integer> indexes = new HashMap<String, Integer>();
+            for (int i = fieldKeys.length - 1; i >= 0; i--) {
+                indexes.put(fieldKeys[i].getFieldId(), i);
+            }
+            fieldIndexes = indexes;
+        }
+        Integer index = fieldIndexes.get(key);
+        if (index == null) {
+            return -1;
+        }
+        return index;
+    }
+
     /**
      * Private implementation of {@code Map} that delegates
      * {@code get()} and {@code put()} operations to
      * {@code getValue()} and {@code setValue()} calls on the
      * underlying {@link TableDataProvider}.
      */
-    private final class TableDataProviderMap extends AbstractMap {
-
-        /**
-         * Row index.
-         */
-        private final int rowIndex;
+    private final class TableDataProviderMap
+            extends AbstractMap<String, Object> {
 
         /**
          * Row key.
@@ -254,10 +411,10 @@ public final class TableDataProviderDataModel extends DataModel {
 
         /**
          * Create a new instance.
+         * @param newRowKey row key
          */
-        TableDataProviderMap() {
-            this.rowIndex = TableDataProviderDataModel.this.getRowIndex();
-            this.rowKey = TableDataProviderDataModel.this.getRowKey();
+        TableDataProviderMap(final RowKey newRowKey) {
+            this.rowKey = newRowKey;
         }
 
         @Override
@@ -266,26 +423,12 @@ public final class TableDataProviderDataModel extends DataModel {
         }
 
         @Override
-        public boolean containsValue(final Object value) {
-            Iterator keys = keySet().iterator();
-            while (keys.hasNext()) {
-                Object key = keys.next();
-                Object contained = get(key);
-                if (value == null) {
-                    if (contained == null) {
-                        return true;
-                    }
-                } else {
-                    if (value.equals(contained)) {
-                        return true;
-                    }
-                }
-            }
-            return false;
+        public boolean containsKey(final Object key) {
+            return index(key) >= 0;
         }
 
         @Override
-        public Set entrySet() {
+        public Set<Map.Entry<String, Object>> entrySet() {
             return new TableDataProviderEntries(this);
         }
 
@@ -299,12 +442,7 @@ public final class TableDataProviderDataModel extends DataModel {
         }
 
         @Override
-        public Set keySet() {
-            return new TableDataProviderKeys(this);
-        }
-
-        @Override
-        public Object put(final Object key, final Object value) {
+        public Object put(final String key, final Object value) {
             int columnIndex = index(key);
             if (columnIndex < 0) {
                 return null;
@@ -314,56 +452,22 @@ public final class TableDataProviderDataModel extends DataModel {
             return previous;
         }
 
-        @Override
-        public void putAll(final Map map) {
-            Iterator keys = map.keySet().iterator();
-            while (keys.hasNext()) {
-                Object key = keys.next();
-                put(key, map.get(key));
-            }
-        }
-
         @Override
         public Object remove(final Object key) {
             throw new UnsupportedOperationException();
         }
 
         @Override
-        public Collection values() {
-            return new TableDataProviderValues(this);
-        }
-
-        /**
-         * Get the index for the given key.
-         * @param key mapped key
-         * @return int
-         */
-        private int index(final Object key) {
-            int index = -1;
-            for (int i = 0; i < fieldKeys.length; i++) {
-                if (key.equals(fieldKeys[i].getFieldId())) {
-                    index = i;
-                    break;
-                }
-            }
-            return index;
-        }
-
-        /**
-         * Get the real key.
-         * @param key mapped key
-         * @return Object
-         */
-        Object realKey(final Object key) {
-            return super.get(key);
+        public int size() {
+            return fieldKeys.length;
         }
 
         /**
-         * Get the real keys.
-         * @return Iterator
+         * Get the field keys.
+         * @return FieldKey[]
          */
-        Iterator realKeys() {
-            return super.keySet().iterator();
+        FieldKey[] getFieldKeys() {
+            return fieldKeys;
         }
     }
 
@@ -371,12 +475,13 @@ public final class TableDataProviderDataModel extends DataModel {
      * Private implementation of {@code Set} for implementing the
      * {@code entrySet()} behavior of {@code TableDataProviderMap}.
      */
-    private final class TableDataProviderEntries extends AbstractSet {
+    private static final class TableDataProviderEntries
+            extends AbstractSet<Map.Entry<String, Object>> {
 
         /**
          * Underlying map.
          */
-        private TableDataProviderMap map = null;
+        private final TableDataProviderMap map;
 
         /**
          * Create a new instance.
@@ -387,66 +492,10 @@ public final class TableDataProviderDataModel extends DataModel {
         }
 
         @Override
-        public boolean add(final Object o) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public boolean addAll(final Collection c) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public void clear() {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public boolean contains(final Object o) {
-            if (o == null) {
-                throw new NullPointerException();
-            }
-            if (!(o instanceof Map.Entry)) {
-                return false;
-            }
-            Map.Entry e = (Map.Entry) o;
-            Object k = e.getKey();
-            Object v = e.getValue();
-            if (!map.containsKey(k)) {
-                return false;
-            }
-            if (v == null) {
-                return map.get(k) == null;
-            } else {
-                return v.equals(map.get(k));
-            }
-        }
-
-        @Override
-        public boolean isEmpty() {
-            return map.isEmpty();
-        }
-
-        @Override
-        public Iterator iterator() {
+        public Iterator<Map.Entry<String, Object>> iterator() {
             return new TableDataProviderIterator(map);
         }
 
-        @Override
-        public boolean remove(final Object o) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public boolean removeAll(final Collection c) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public boolean retainAll(final Collection c) {
-            throw new UnsupportedOperationException();
-        }
-
         @Override
         public int size() {
             return map.size();
@@ -457,17 +506,18 @@ public final class TableDataProviderDataModel extends DataModel {
      * Private implementation of {@code Iterator} for the
      * {@code Set} returned by {@code entrySet()}.
      */
-    private final class TableDataProviderIterator implements Iterator {
+    private static final class TableDataProviderIterator
+            implements Iterator<Map.Entry<String, Object>> {
 
         /**
          * Underlying map.
          */
-        private TableDataProviderMap map = null;
+        private final TableDataProviderMap map;
 
         /**
-         * Map keys.
+         * Index of the next field key.
          */
-        private Iterator keys = null;
+        private int next = 0;
 
         /**
          * Create a new instance.
@@ -475,18 +525,20 @@ public final class TableDataProviderDataModel extends DataModel {
          */
         TableDataProviderIterator(final TableDataProviderMap newMap) {
             this.map = newMap;
-            this.keys = newMap.keySet().iterator();
         }
 
         @Override
         public boolean hasNext() {
-            return keys.hasNext();
+            return next < map.getFieldKeys().length;
         }
 
         @Override
-        public Object next() {
-            Object key = keys.next();
-            return (new TableDataProviderEntry(map, key));
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String key = map.getFieldKeys()[next++].getFieldId();
+            return new TableDataProviderEntry(map, key);
         }
 
         @Override
@@ -498,27 +550,29 @@ public final class TableDataProviderDataModel extends DataModel {
     /**
      * Private implementation of {@code Map.Entry} that implements
      * the behavior for a single entry from the {@code Set} that is
-     * returned by {@code entrySet()}.
+     * returned by {@code entrySet()}. The value is read when it is
+     * requested.
      */
-    private final class TableDataProviderEntry implements Map.Entry {
+    private static final class TableDataProviderEntry
+            implements Map.Entry<String, Object> {
 
         /**
-         * Value.
+         * Underlying map.
          */
-        private TableDataProviderMap map = null;
+        private final TableDataProviderMap map;
 
         /**
          * Key.
          */
-        private Object key = null;
+        private final String key;
 
         /**
          * Create a new instance.
-         * @param newMap value
+         * @param newMap underlying map
          * @param newKey key
          */
         TableDataProviderEntry(final TableDataProviderMap newMap,
-                final Object newKey) {
+                final String newKey) {
 
             this.map = newMap;
             this.key = newKey;
@@ -526,37 +580,22 @@ public final class TableDataProviderDataModel extends DataModel {
 
         @Override
         public boolean equals(final Object o) {
-            if (o == null) {
-                return false;
-            }
             if (!(o instanceof Map.Entry)) {
                 return false;
             }
             Map.Entry e = (Map.Entry) o;
-            if (key == null) {
-                if (e.getKey() != null) {
-                    return false;
-                }
-            } else {
-                if (!key.equals(e.getKey())) {
-                    return false;
-                }
+            if (!key.equals(e.getKey())) {
+                return false;
             }
             Object v = map.get(key);
             if (v == null) {
-                if (e.getValue() != null) {
-                    return false;
-                }
-            } else {
-                if (!v.equals(e.getValue())) {
-                    return false;
-                }
+                return e.getValue() == null;
             }
-            return true;
+            return v.equals(e.getValue());
         }
 
         @Override
-        public Object getKey() {
+        public String getKey() {
             return this.key;
         }
 
@@ -568,9 +607,6 @@ public final class TableDataProviderDataModel extends DataModel {
         @Override
         public int hashCode() {
             Object value = map.get(key);
-            if (key == null) {
-                return 0;
-            }
             if (value == null) {
                 return key.hashCode();
             }
@@ -579,230 +615,7 @@ public final class TableDataProviderDataModel extends DataModel {
 
         @Override
         public Object setValue(final Object value) {
-            Object previous = map.get(key);
-            map.put(key, value);
-            return previous;
-        }
-    }
-
-    /**
-     * Private implementation of {@code Set} that implements the
-     * {@code keySet()} behavior.
-     */
-    private final class TableDataProviderKeys extends AbstractSet {
-
-        /**
-         * Underlying map.
-         */
-        private TableDataProviderMap map = null;
-
-        /**
-         * Create a new instance.
-         * @param newMap table data provider map
-         */
-        TableDataProviderKeys(final TableDataProviderMap newMap) {
-            this.map = newMap;
-        }
-
-        @Override
-        public boolean add(final Object o) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public boolean addAll(final Collection c) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public void clear() {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public boolean contains(final Object o) {
-            return map.containsKey(o);
-        }
-
-        @Override
-        public boolean isEmpty() {
-            return map.isEmpty();
-        }
-
-        @Override
-        public Iterator iterator() {
-            return new TableDataProviderKeysIterator(map);
-        }
-
-        @Override
-        public boolean remove(final Object o) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public boolean removeAll(final Collection c) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public boolean retainAll(final Collection c) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public int size() {
-            return map.size();
-        }
-    }
-
-    /**
-     * Private implementation of {@code Iterator} that implements the
-     * {@code iterator()} method returned by {@code keySet()}.
-     */
-    private final class TableDataProviderKeysIterator implements Iterator {
-
-        /**
-         * Underlying map.
-         */
-        private TableDataProviderMap map = null;
-
-        /**
-         * Keys.
-         */
-        private Iterator keys = null;
-
-        /**
-         * Create a new instance.
-         * @param newMap table data provider map
-         */
-        TableDataProviderKeysIterator(
-                final TableDataProviderMap newMap) {
-
-            this.map = newMap;
-            this.keys = newMap.realKeys();
-        }
-
-        @Override
-        public boolean hasNext() {
-            return keys.hasNext();
-        }
-
-        @Override
-        public Object next() {
-            return keys.next();
-        }
-
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException();
-        }
-    }
-
-    /**
-     * Private implementation of {@code Collection} that implements
-     * the {@code values()} method.
-     */
-    private final class TableDataProviderValues extends AbstractCollection {
-
-        /**
-         * Underlying map.
-         */
-        private TableDataProviderMap map = null;
-
-        /**
-         * Create a new instance.
-         * @param newMap table data provider map
-         */
-        TableDataProviderValues(final TableDataProviderMap newMap) {
-            this.map = newMap;
-        }
-
-        @Override
-        public boolean add(final Object o) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public boolean addAll(final Collection c) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public void clear() {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public boolean contains(final Object value) {
-            return map.containsValue(value);
-        }
-
-        @Override
-        public Iterator iterator() {
-            return new TableDataProviderValuesIterator(map);
-        }
-
-        @Override
-        public boolean remove(final Object o) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public boolean removeAll(final Collection c) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public boolean retainAll(final Collection c) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public int size() {
-            return map.size();
-        }
-    }
-
-    /**
-     * Private implementation of {@code Iterator} that implements the
-     * {@code behavior for the {@code Iterator} returned by
-     * {@code values().iterator()}.
-     */
-    private final class TableDataProviderValuesIterator implements Iterator {
-
-        /**
-         * Underlying map.
-         */
-        private TableDataProviderMap map = null;
-
-        /**
-         * Keys.
-         */
-        private Iterator keys = null;
-
-        /**
-         * Create a new instance.
-         * @param newMap table data provider map
-         */
-        TableDataProviderValuesIterator(
-                final TableDataProviderMap newMap) {
-
-            this.map = newMap;
-            this.keys = newMap.keySet().iterator();
-        }
-        @Override
-        public boolean hasNext() {
-            return keys.hasNext();
-        }
-
-        @Override
-        public Object next() {
-            return map.get(keys.next());
-        }
-
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException();
+            return map.put(key, value);
         }
     }
 }
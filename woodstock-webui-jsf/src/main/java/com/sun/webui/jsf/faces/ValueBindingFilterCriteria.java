@@ -20,7 +20,6 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.Locale;
-import java.util.Map;
 import jakarta.faces.context.FacesContext;
 import jakarta.el.ValueExpression;
 import com.sun.data.provider.FilterCriteria;
@@ -85,14 +84,10 @@ public final class ValueBindingFilterCriteria extends FilterCriteria {
     private String requestMapKey = "currentRow";
 
     /**
-     * Row provider.
+     * Placeholder written in place of the former row provider lock, kept for
+     * serialization compatibility.
      */
-    private transient TableRowDataProvider rowProvider;
-
-    /**
-     * This is a monitor lock for rowProvider.
-     */
-    private String rowProviderLock = "rowProviderLock";
+    private static final String ROW_PROVIDER_LOCK = "rowProviderLock";
 
     /**
      * Storage for the compare locale.
@@ -337,35 +332,9 @@ public final class ValueBindingFilterCriteria extends FilterCriteria {
             return true;
         }
 
-        FacesContext facesContext = FacesContext.getCurrentInstance();
-        Map<String, Object> requestMap = facesContext.getExternalContext()
-                .getRequestMap();
-        Object value;
-
-        //FIXME synchronization on a non-final field
-        synchronized (rowProviderLock) {
-
-            Object storedRequestMapValue = null;
-            if (requestMapKey != null && !"".equals(requestMapKey)) {
-                storedRequestMapValue = requestMap.get(requestMapKey);
-                if (rowProvider == null) {
-                    rowProvider = new TableRowDataProvider();
-                }
-                rowProvider.setTableDataProvider(provider);
-                rowProvider.setTableRow(row);
-                requestMap.put(requestMapKey, rowProvider);
-            }
-
-            value = valueExpression.getValue(facesContext.getELContext());
-
-            if (requestMapKey != null && !"".equals(requestMapKey)) {
-                if (rowProvider != null) {
-                    rowProvider.setTableDataProvider(null);
-                    rowProvider.setTableRow(null);
-                }
-                requestMap.put(requestMapKey, storedRequestMapValue);
-            }
-        }
+        Object value = RowVariableELContext.getValue(
+                FacesContext.getCurrentInstance(), requestMapKey,
+                valueExpression, provider, row);
 
         int compare = CompareFilterCriteria.compare(value, compareValue,
                 compareLocale);
@@ -391,7 +360,7 @@ public final class ValueBindingFilterCriteria extends FilterCriteria {
         // Serialize simple objects first
         out.writeObject(compareValue);
         out.writeObject(requestMapKey);
-        out.writeObject(rowProviderLock);
+        out.writeObject(ROW_PROVIDER_LOCK);
 
         // Serialize valueExpression specially
         if (valueExpression != null) {
@@ -400,8 +369,6 @@ public final class ValueBindingFilterCriteria extends FilterCriteria {
             out.writeObject((String) null);
         }
 
-        // NOTE - rowProvider is reconstituted on demand,
-        // so we don't need to serialize it
         if (valueExpression != null) {
             out.writeObject(valueExpression.getExpressionString());
         }
@@ -420,7 +387,8 @@ public final class ValueBindingFilterCriteria extends FilterCriteria {
         // Deserialize simple objects first
         compareValue = in.readObject();
         requestMapKey = (String) in.readObject();
-        rowProviderLock = (String) in.readObject();
+        // Former row provider lock, not used anymore.
+        in.readObject();
 
         // Deserialize valueExpression specially
         String s = (String) in.readObject();
@@ -18,7 +18,6 @@ package com.sun.webui.jsf.faces;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.Map;
 import jakarta.faces.context.FacesContext;
 import jakarta.el.ValueExpression;
 import jakarta.el.ELContext;
@@ -54,14 +53,10 @@ public final class ValueBindingSortCriteria extends SortCriteria {
     private String requestMapKey = "currentRow";
 
     /**
-     * Row provider.
+     * Placeholder written in place of the former row provider lock, kept for
+     * serialization compatibility.
      */
-    private transient TableRowDataProvider rowProvider;
-
-    /**
-     * Lock.
-     */
-    private String rowProviderLock = "rowProviderLock";
+    private static final String ROW_PROVIDER_LOCK = "rowProviderLock";
 
     /**
      * Constructs a ValueBindingSortCriteria with no associated
@@ -180,36 +175,9 @@ public final class ValueBindingSortCriteria extends SortCriteria {
             return null;
         }
 
-        FacesContext facesContext = FacesContext.getCurrentInstance();
-        Map<String, Object> requestMap = facesContext
-                .getExternalContext()
-                .getRequestMap();
-        Object value;
-        //FIXME synchronization on a non-final field
-        synchronized (rowProviderLock) {
-
-            Object storedRequestMapValue = null;
-            if (requestMapKey != null && !"".equals(requestMapKey)) {
-                storedRequestMapValue = requestMap.get(requestMapKey);
-                if (rowProvider == null) {
-                    rowProvider = new TableRowDataProvider();
-                }
-                rowProvider.setTableDataProvider(provider);
-                rowProvider.setTableRow(row);
-                requestMap.put(requestMapKey, rowProvider);
-            }
-
-            value = valueExpression.getValue(facesContext.getELContext());
-            if (requestMapKey != null && !"".equals(requestMapKey)) {
-                if (rowProvider != null) {
-                    rowProvider.setTableDataProvider(null);
-                    rowProvider.setTableRow(null);
-                }
-                requestMap.put(requestMapKey, storedRequestMapValue);
-            }
-        }
-
-        return value;
+        return RowVariableELContext.getValue(
+                FacesContext.getCurrentInstance(), requestMapKey,
+                valueExpression, provider, row);
     }
 
     /**
@@ -221,7 +189,7 @@ public final class ValueBindingSortCriteria extends SortCriteria {
 
         // Serialize simple objects first
         out.writeObject(requestMapKey);
-        out.writeObject(rowProviderLock);
+        out.writeObject(ROW_PROVIDER_LOCK);
 
         // Serialize valueExpression specially
         if (valueExpression != null) {
@@ -229,9 +197,6 @@ public final class ValueBindingSortCriteria extends SortCriteria {
         } else {
             out.writeObject((String) null);
         }
-
-        // NOTE - rowProvider is reconstituted on demand,
-        // so we don't need to serialize it
     }
 
     /**
@@ -246,7 +211,8 @@ public final class ValueBindingSortCriteria extends SortCriteria {
 
         // Deserialize simple objects first
         requestMapKey = (String) in.readObject();
-        rowProviderLock = (String) in.readObject();
+        // Former row provider lock, not used anymore.
+        in.readObject();
 
         // Deserialize valueExpression specially
         String s = (String) in.readObject();
@@ -17,7 +17,6 @@
 package com.sun.webui.jsf.faces;
 
 import java.util.Locale;
-import java.util.Map;
 import jakarta.faces.context.FacesContext;
 import jakarta.el.ValueExpression;
 import com.sun.data.provider.FilterCriteria;
@@ -86,14 +85,9 @@ public final class ValueExpressionFilterCriteria extends FilterCriteria {
     private String requestMapKey = "currentRow";
 
     /**
-     * Row provider.
+     * Compiled value expression, created on first use.
      */
-    private transient TableRowDataProvider rowProvider;
-
-    /**
-     * This is a monitor lock for rowProvider.
-     */
-    private final String rowProviderLock = "rowProviderLock";
+    private transient ValueExpression compiledExpression;
 
     /**
      * Create a new instance with no value expression.
@@ -202,6 +196,7 @@ public final class ValueExpressionFilterCriteria extends FilterCriteria {
      */
     public void setValueExpression(final String newValueExpression) {
         this.valueExpression = newValueExpression;
+        this.compiledExpression = null;
     }
 
     /**
@@ -325,6 +320,9 @@ public final class ValueExpressionFilterCriteria extends FilterCriteria {
      * <code>matchGreaterThan</code> properties  are used to determine if a
      * match was found.  The <code>compareLocale</code> is used for String
      * comparisons.</p>
+     * <p>The value expression is parsed once, the row is exposed under the
+     * request map key to the expression only, the request map itself is not
+     * modified.</p>
      *
      * {@inheritDoc}
      */
@@ -335,45 +333,20 @@ public final class ValueExpressionFilterCriteria extends FilterCriteria {
         }
 
         FacesContext facesContext = FacesContext.getCurrentInstance();
-        ValueExpression valueBinding = facesContext
-                .getApplication()
-                .getExpressionFactory()
-                .createValueExpression(
-                facesContext.getELContext(), valueExpression, Object.class);
-
-        if (valueBinding == null) {
-            return true;
-        }
-
-        Map<String, Object> requestMap = facesContext
-                .getExternalContext()
-                .getRequestMap();
-        Object value;
-
-        //FIXME synchronization on a non-final field
-        synchronized (rowProviderLock) {
-
-            Object storedRequestMapValue = null;
-            if (requestMapKey != null && !"".equals(requestMapKey)) {
-                storedRequestMapValue = requestMap.get(requestMapKey);
-                if (rowProvider == null) {
-                    rowProvider = new TableRowDataProvider();
-                }
-                rowProvider.setTableDataProvider(provider);
-                rowProvider.setTableRow(row);
-                requestMap.put(requestMapKey, rowProvider);
-            }
-
-            value = valueBinding.getValue(facesContext.getELContext());
-
-            if (requestMapKey != null && !"".equals(requestMapKey)) {
-                if (rowProvider != null) {
-                    rowProvider.setTableDataProvider(null);
-                    rowProvider.setTableRow(null);
-                }
-                requestMap.put(requestMapKey, storedRequestMapValue);
+        ValueExpression expr = compiledExpression;
+        if (expr == null) {
+            expr = facesContext
+                    .getApplication()
+                    .getExpressionFactory()
+                    .createValueExpression(facesContext.getELContext(),
+                            valueExpression, Object.class);
+            if (expr == null) {
+                return true;
             }
+            compiledExpression = expr;
         }
+        Object value = RowVariableELContext.getValue(facesContext,
+                requestMapKey, expr, provider, row);
 
         int compare = CompareFilterCriteria.compare(value, compareValue,
                 compareLocale);
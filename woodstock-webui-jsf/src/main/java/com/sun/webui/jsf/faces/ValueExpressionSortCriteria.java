@@ -16,7 +16,6 @@
 
 package com.sun.webui.jsf.faces;
 
-import java.util.Map;
 import jakarta.faces.context.FacesContext;
 import jakarta.el.ValueExpression;
 import com.sun.data.provider.RowKey;
@@ -52,14 +51,9 @@ public final class ValueExpressionSortCriteria extends SortCriteria {
     private String requestMapKey = "currentRow";
 
     /**
-     * Row provider.
+     * Compiled value expression, created on first use.
      */
-    private transient TableRowDataProvider rowProvider;
-
-    /**
-     * This is a monitor lock for rowProvider.
-     */
-    private final String rowProviderLock = "rowProviderLock";
+    private transient ValueExpression compiledExpression;
 
     /**
      * Constructs a ValueExpressionSortCriteria with no value expression.
@@ -108,6 +102,7 @@ public final class ValueExpressionSortCriteria extends SortCriteria {
      */
     public void setValueExpression(final String newValueExpression) {
         this.valueExpression = newValueExpression;
+        this.compiledExpression = null;
     }
 
     /**
@@ -159,6 +154,13 @@ public final class ValueExpressionSortCriteria extends SortCriteria {
         return "";
     }
 
+    /**
+     * Returns the value of the value expression for the given row. The
+     * expression is parsed once, the row is exposed under the request map key
+     * to the expression only, the request map itself is not modified.
+     *
+     * {@inheritDoc}
+     */
     @Override
     public Object getSortValue(final TableDataProvider provider,
             final RowKey row) {
@@ -168,43 +170,19 @@ public final class ValueExpressionSortCriteria extends SortCriteria {
         }
 
         FacesContext facesContext = FacesContext.getCurrentInstance();
-        ValueExpression valueBinding = facesContext
-                .getApplication()
-                .getExpressionFactory()
-                .createValueExpression(facesContext.getELContext(),
-                        valueExpression, Object.class);
-
-        if (valueBinding == null) {
-            return null;
-        }
-
-        Map<String, Object> requestMap = facesContext
-                .getExternalContext()
-                .getRequestMap();
-        Object value;
-
-        synchronized (rowProviderLock) {
-
-            Object storedRequestMapValue = null;
-            if (requestMapKey != null && !"".equals(requestMapKey)) {
-                storedRequestMapValue = requestMap.get(requestMapKey);
-                if (rowProvider == null) {
-                    rowProvider = new TableRowDataProvider();
-                }
-                rowProvider.setTableDataProvider(provider);
-                rowProvider.setTableRow(row);
-                requestMap.put(requestMapKey, rowProvider);
-            }
-
-            value = valueBinding.getValue(facesContext.getELContext());
-            if (requestMapKey != null && !"".equals(requestMapKey)) {
-                if (rowProvider != null) {
-                    rowProvider.setTableDataProvider(null);
-                    rowProvider.setTableRow(null);
-                }
-                requestMap.put(requestMapKey, storedRequestMapValue);
+        ValueExpression expr = compiledExpression;
+        if (expr == null) {
+            expr = facesContext
+                    .getApplication()
+                    .getExpressionFactory()
+                    .createValueExpression(facesContext.getELContext(),
+                            valueExpression, Object.class);
+            if (expr == null) {
+                return null;
             }
+            compiledExpression = expr;
         }
-        return value;
+        return RowVariableELContext.getValue(facesContext, requestMapKey,
+                expr, provider, row);
     }
 }
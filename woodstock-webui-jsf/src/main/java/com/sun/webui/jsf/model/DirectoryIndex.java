@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.jsf.model;
+
+import com.sun.webui.jsf.component.FileChooser;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the content of a directory, used by {@link FileChooserModel}. The
+ * attributes of the entries are read once when the index is created, and the
+ * sorted listings are cached per sort field and locale.
+ * <p>
+ * An index is current as long as the modification time of the directory is
+ * unchanged, i.e. no entry was added, removed or renamed, and the index is
+ * not older than {@link #MAX_AGE}, so that the size and date of the files are
+ * refreshed periodically.
+ * </p>
+ */
+final class DirectoryIndex {
+
+    /**
+     * Maximum age of an index in milliseconds.
+     */
+    static final long MAX_AGE = 5000L;
+
+    /**
+     * The directory.
+     */
+    private final Path dir;
+
+    /**
+     * Modification time of the directory when the index was created.
+     */
+    private final long dirLastModified;
+
+    /**
+     * Creation time of the index.
+     */
+    private final long created;
+
+    /**
+     * Entries of the directory, in directory order.
+     */
+    private final Entry[] entries;
+
+    /**
+     * Sorted entries, keyed by sort field and locale.
+     */
+    private final Map<String, Entry[]> sorted;
+
+    /**
+     * Entries with the collation keys of their names, keyed by locale.
+     */
+    private final Map<Locale, SortKey[]> sortKeys;
+
+    /**
+     * Create a new instance.
+     * @param newDir directory
+     * @param newDirLastModified modification time of the directory
+     * @param newEntries entries of the directory
+     */
+    private DirectoryIndex(final Path newDir, final long newDirLastModified,
+            final Entry[] newEntries) {
+
+        this.dir = newDir;
+        this.dirLastModified = newDirLastModified;
+        this.created = System.currentTimeMillis();
+        this.entries = newEntries;
+        this.sorted = new ConcurrentHashMap<String, Entry[]>();
+        this.sortKeys = new ConcurrentHashMap<Locale, SortKey[]>();
+    }
+
+    /**
+     * Read the content of a directory.
+     * @param dir directory to read
+     * @return DirectoryIndex
+     * @throws IOException if the directory cannot be read
+     */
+    static DirectoryIndex read(final Path dir) throws IOException {
+        long lastModified = Files.getLastModifiedTime(dir).toMillis();
+        List<Entry> list = new ArrayList<Entry>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                list.add(new Entry(path, readAttributes(path)));
+            }
+        }
+        return new DirectoryIndex(dir, lastModified,
+                list.toArray(new Entry[list.size()]));
+    }
+
+    /**
+     * Read the attributes of a path, following symbolic links. The
+     * attributes of the link itself are returned for a broken link.
+     * @param path path to read
+     * @return BasicFileAttributes, or {@code null} if they cannot be read
+     */
+    private static BasicFileAttributes readAttributes(final Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException ex) {
+            try {
+                return Files.readAttributes(path, BasicFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException ex2) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Get the directory of this index.
+     * @return Path
+     */
+    Path getDir() {
+        return dir;
+    }
+
+    /**
+     * Test if this index reflects the current content of the directory.
+     * @return {@code boolean}
+     */
+    boolean isCurrent() {
+        if (System.currentTimeMillis() - created > MAX_AGE) {
+            return false;
+        }
+        try {
+            return Files.getLastModifiedTime(dir).toMillis()
+                    == dirLastModified;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the entries sorted according to a sort field. Folders are listed
+     * before files. By default the entries are sorted alphabetically, if the
+     * sort field is a size or a time, entries with the same size or time are
+     * sorted alphabetically.
+     * @param sortValue sort field, one of the sort constants of
+     * {@link FileChooser}
+     * @param locale locale used to compare the names
+     * @return the sorted entries, must not be modified
+     */
+    Entry[] getEntries(final String sortValue, final Locale locale) {
+        String zSortValue = sortValue;
+        if (zSortValue == null) {
+            zSortValue = FileChooser.ALPHABETIC_ASC;
+        }
+        String key = zSortValue + "|" + locale;
+        Entry[] result = sorted.get(key);
+        if (result == null) {
+            result = sort(zSortValue, locale);
+            sorted.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Sort the entries.
+     * @param sortValue sort field
+     * @param locale locale used to compare the names
+     * @return the sorted entries
+     */
+    private Entry[] sort(final String sortValue, final Locale locale) {
+        SortKey[] keys = getSortKeys(locale).clone();
+        Arrays.sort(keys, new SortComparator(sortValue));
+
+        Entry[] result = new Entry[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = keys[i].entry;
+        }
+        return result;
+    }
+
+    /**
+     * Entry of a directory.
+     */
+    static final class Entry {
+
+        /**
+         * The file.
+         */
+        private final File file;
+
+        /**
+         * The file name.
+         */
+        private final String name;
+
+        /**
+         * Directory flag.
+         */
+        private final boolean directory;
+
+        /**
+         * The file size.
+         */
+        private final long size;
+
+        /**
+         * The modification time.
+         */
+        private final long lastModified;
+
+        /**
+         * Create a new instance.
+         * @param path path of the entry
+         * @param attrs attributes of the entry, may be {@code null}
+         */
+        Entry(final Path path, final BasicFileAttributes attrs) {
+            this.file = path.toFile();
+            this.name = path.getFileName().toString();
+            if (attrs != null) {
+                this.directory = attrs.isDirectory();
+                this.size = attrs.size();
+                this.lastModified = attrs.lastModifiedTime().toMillis();
+            } else {
+                this.directory = false;
+                this.size = 0;
+                this.lastModified = 0;
+            }
+        }
+
+        /**
+         * Get the file.
+         * @return File
+         */
+        File getFile() {
+            return file;
+        }
+
+        /**
+         * Get the file name.
+         * @return String
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Test if the entry is a directory.
+         * @return {@code boolean}
+         */
+        boolean isDirectory() {
+            return directory;
+        }
+
+        /**
+         * Get the file size.
+         * @return long
+         */
+        long getSize() {
+            return size;
+        }
+
+        /**
+         * Get the modification time.
+         * @return long
+         */
+        long getLastModified() {
+            return lastModified;
+        }
+    }
+
+    /**
+     * Entry with the collation key of its name.
+     */
+    private static final class SortKey {
+
+        /**
+         * The entry.
+         */
+        private final Entry entry;
+
+        /**
+         * The collation key of the name.
+         */
+        private final CollationKey name;
+
+        /**
+         * Create a new instance.
+         * @param newEntry entry
+         * @param newName collation key of the name
+         */
+        SortKey(final Entry newEntry, final CollationKey newName) {
+            this.entry = newEntry;
+            this.name = newName;
+        }
+    }
+
+    /**
+     * Get the entries with the collation keys of their names. The collation
+     * keys are computed once per entry and locale, instead of once per
+     * comparison.
+     * @param locale locale used to compare the names
+     * @return SortKey[], must not be modified
+     */
+    private SortKey[] getSortKeys(final Locale locale) {
+        SortKey[] keys = sortKeys.get(locale);
+        if (keys == null) {
+            Collator collator = Collator.getInstance(locale);
+            collator.setStrength(Collator.SECONDARY);
+            keys = new SortKey[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                keys[i] = new SortKey(entries[i],
+                        collator.getCollationKey(entries[i].getName()));
+            }
+            sortKeys.put(locale, keys);
+        }
+        return keys;
+    }
+
+    /**
+     * Comparator of entries for a sort field, folders are sorted before
+     * files.
+     */
+    private static final class SortComparator
+            implements Comparator<SortKey> {
+
+        /**
+         * Sort field.
+         */
+        private final String sortValue;
+
+        /**
+         * Create a new instance.
+         * @param newSortValue sort field
+         */
+        SortComparator(final String newSortValue) {
+            this.sortValue = newSortValue;
+        }
+
+        @Override
+        public int compare(final SortKey key1, final SortKey key2) {
+            Entry entry1 = key1.entry;
+            Entry entry2 = key2.entry;
+            if (entry1.isDirectory() != entry2.isDirectory()) {
+                if (entry1.isDirectory()) {
+                    return -1;
+                }
+                return 1;
+            }
+            int result = 0;
+            if (sortValue.equals(FileChooser.ALPHABETIC_DSC)) {
+                return key2.name.compareTo(key1.name);
+            } else if (sortValue.equals(FileChooser.SIZE_ASC)) {
+                result = Long.compare(entry1.getSize(), entry2.getSize());
+            } else if (sortValue.equals(FileChooser.SIZE_DSC)) {
+                result = Long.compare(entry2.getSize(), entry1.getSize());
+            } else if (sortValue.equals(FileChooser.LASTMODIFIED_ASC)) {
+                result = Long.compare(entry1.getLastModified(),
+                        entry2.getLastModified());
+            } else if (sortValue.equals(FileChooser.LASTMODIFIED_DSC)) {
+                result = Long.compare(entry2.getLastModified(),
+                        entry1.getLastModified());
+            }
+            if (result != 0) {
+                return result;
+            }
+            return key1.name.compareTo(key2.name);
+        }
+    }
+}
@@ -48,14 +48,30 @@ public final class FileChooserItem implements ResourceItem, Serializable {
      */
     private boolean itemDisabled = true;
 
+    /**
+     * Directory flag.
+     */
+    private boolean directory = false;
+
     /**
      * Creates a new instance of FileChooserItem.
      * @param file file
      */
     public FileChooserItem(final File file) {
+        this(file, file.isDirectory());
+    }
+
+    /**
+     * Creates a new instance of FileChooserItem for a file known to be a
+     * directory or not.
+     * @param file file
+     * @param isDirectory {@code true} if the file is a directory
+     */
+    FileChooserItem(final File file, final boolean isDirectory) {
         this.item = file;
+        this.directory = isDirectory;
         StringBuilder buffer = new StringBuilder();
-        if (item.isDirectory()) {
+        if (directory) {
             buffer.append("folder=");
         } else {
             buffer.append("file=");
@@ -147,7 +163,7 @@ public final class FileChooserItem implements ResourceItem, Serializable {
      */
     @Override
     public boolean isContainerItem() {
-        return item.isDirectory();
+        return directory;
     }
 
     @Override
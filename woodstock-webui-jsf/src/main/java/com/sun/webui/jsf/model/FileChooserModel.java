@@ -15,9 +15,12 @@
  */
 package com.sun.webui.jsf.model;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.io.File;
-import java.text.Collator;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.net.InetAddress;
@@ -28,7 +31,6 @@ import java.util.Locale;
 import java.util.MissingResourceException;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.context.FacesContext;
-import com.sun.webui.jsf.component.FileChooser;
 import com.sun.webui.theme.Theme;
 import com.sun.webui.jsf.util.ThemeUtilities;
 import com.sun.webui.jsf.util.FilterUtil;
@@ -112,9 +114,9 @@ public final class FileChooserModel implements ResourceModel, Serializable {
     private String serverName = null;
 
     /**
-     * Collator.
+     * Index of the last folder listed.
      */
-    private transient Collator collator = null;
+    private transient DirectoryIndex index = null;
 
     /**
      * Creates a new instance of FileChooserModel.
@@ -321,99 +323,122 @@ public final class FileChooserModel implements ResourceModel, Serializable {
     public ResourceItem[] getFolderContent(final String folder,
             final boolean disableFiles, final boolean disableFolders) {
 
-        FacesContext context = FacesContext.getCurrentInstance();
-        ArrayList<FileChooserItem> optList = new ArrayList<FileChooserItem>();
-        FileChooserItem[] fileEntries;
-        FilterUtil filter = new FilterUtil(getFilterValue());
-        boolean filesExist = false;
+        return getFolderContent(folder, disableFiles, disableFolders, 0,
+                Integer.MAX_VALUE);
+    }
 
-        String zFolder;
-        if (folder == null) {
-            zFolder = getCurrentDir();
-        } else {
-            zFolder = folder;
-        }
-        if (zFolder == null) {
-            return null;
-        }
+    /**
+     * Returns a page of the list of files in the directory represented by the
+     * {@code folder} parameter. The content of the directory is read once
+     * and cached, and the items are only created for the requested page.
+     *
+     * @return returns a page of the contents of folder or the current
+     * directory.
+     */
+    @Override
+    public ResourceItem[] getFolderContent(final String folder,
+            final boolean disableFiles, final boolean disableFolders,
+            final int first, final int max) {
 
-        File file = new File(zFolder);
-        File[] fileList = file.listFiles();
-        if ((fileList == null) || (fileList.length == 0)) {
+        FacesContext context = FacesContext.getCurrentInstance();
+        DirectoryIndex.Entry[] entries = getEntries(folder, context);
+        if (entries == null || entries.length == 0 || max <= 0) {
             return null;
         }
 
         // As per SWAED guidelines the list of folders should appear before the
-        // list of files. Hence, we need to sort the dirs followed by the files
-        // and then append the two arrays.
-        // read each entry from the array and store it in one
-        // of the two arraylists based on whether its a file or dir
-        ArrayList<File> justFiles = new ArrayList<File>();
-        ArrayList<File> justDirs = new ArrayList<File>();
-        for (File fileList1 : fileList) {
-            if (fileList1.isDirectory()) {
-                justDirs.add(fileList1);
-            } else {
-                justFiles.add(fileList1);
+        // list of files, the entries are sorted accordingly.
+        FilterUtil filter = new FilterUtil(getFilterValue());
+        ItemFormat format = null;
+        ArrayList<FileChooserItem> optList = new ArrayList<FileChooserItem>();
+        int count = 0;
+        for (DirectoryIndex.Entry entry : entries) {
+            boolean disabled = false;
+            if (!entry.isDirectory()) {
+                if (!filter.accept(entry.getName())) {
+                    continue;
+                }
+                // if folderchooser then files should look as
+                // if they are disabled.
+                disabled = disableFiles;
+            }
+            if (count++ < first) {
+                continue;
+            }
+            if (format == null) {
+                format = new ItemFormat(context);
+            }
+            optList.add(format.createItem(entry.getFile(),
+                    entry.isDirectory(), entry.getSize(),
+                    entry.getLastModified(), disabled));
+            if (optList.size() == max) {
+                break;
             }
         }
-
-        File[] fileArray = new File[justFiles.size()];
-        for (int i = 0; i < justFiles.size(); i++) {
-            fileArray[i] = (File) justFiles.get(i);
-
+        if (optList.isEmpty()) {
+            return null;
         }
+        return optList.toArray(new FileChooserItem[optList.size()]);
+    }
 
-        File[] dirArray = new File[justDirs.size()];
-        for (int i = 0; i < justDirs.size(); i++) {
-            dirArray[i] = (File) justDirs.get(i);
+    /**
+     * Returns the number of files in the directory represented by the
+     * {@code folder} parameter that are accepted by the filter.
+     *
+     * @param folder folder, or {@code null} for the current directory
+     * @return number of files
+     */
+    @Override
+    public int getFolderContentCount(final String folder) {
+        FacesContext context = FacesContext.getCurrentInstance();
+        DirectoryIndex.Entry[] entries = getEntries(folder, context);
+        if (entries == null) {
+            return 0;
         }
-
-        // sort the two files arrays
-        sort(fileArray, getSortValue());
-        sort(dirArray, getSortValue());
-
-        // merge the two files
+        FilterUtil filter = new FilterUtil(getFilterValue());
         int count = 0;
-        for (; count < justDirs.size(); count++) {
-            fileList[count] = dirArray[count];
+        for (DirectoryIndex.Entry entry : entries) {
+            if (entry.isDirectory() || filter.accept(entry.getName())) {
+                count++;
+            }
         }
-        System.arraycopy(fileArray, 0, fileList, count, justFiles.size());
+        return count;
+    }
 
-        // end of code change to list of sorted dirs before files.
-        for (File fileList1 : fileList) {
-            String name = fileList1.getName();
-            boolean bSelectable = false;
-            boolean bIsDirectory = fileList1.isDirectory();
-            boolean disabled = false;
-            if (!bIsDirectory) {
-                if (filter.accept(fileList1)) {
-                    bSelectable = true;
-                    // if folderchooser then files should look as
-                    // if they are disabled.
-                    if (disableFiles) {
-                        disabled = true;
-                    }
-                } else {
-                    continue;
-                }
-            } else {
-                // all folders are selectable
-                bSelectable = true;
-            }
-            FileChooserItem item = getItem(fileList1, context, disabled);
-            optList.add(item);
-            filesExist = true;
+    /**
+     * Get the sorted entries of a folder. The index of the folder is reused
+     * if it is current.
+     *
+     * @param folder folder, or {@code null} for the current directory
+     * @param context faces context
+     * @return the sorted entries, or {@code null} if the folder cannot be read
+     */
+    private DirectoryIndex.Entry[] getEntries(final String folder,
+            final FacesContext context) {
+
+        String zFolder;
+        if (folder == null) {
+            zFolder = getCurrentDir();
+        } else {
+            zFolder = folder;
         }
-        if (filesExist) {
-            fileEntries = new FileChooserItem[optList.size()];
-            for (int i = 0; i < optList.size(); i++) {
-                fileEntries[i] = optList.get(i);
+        if (zFolder == null) {
+            return null;
+        }
+
+        DirectoryIndex dirIndex = index;
+        try {
+            Path dir = Paths.get(zFolder);
+            if (dirIndex == null || !dirIndex.getDir().equals(dir)
+                    || !dirIndex.isCurrent()) {
+                dirIndex = DirectoryIndex.read(dir);
+                index = dirIndex;
             }
-            return fileEntries;
-        } else {
+        } catch (IOException | InvalidPathException ex) {
             return null;
         }
+        return dirIndex.getEntries(getSortValue(),
+                context.getViewRoot().getLocale());
     }
 
     /**
@@ -438,7 +463,8 @@ public final class FileChooserModel implements ResourceModel, Serializable {
             resource = strArray[0];
         }
         File f = new File(resource);
-        return getItem(f, context, false);
+        return new ItemFormat(context).createItem(f, f.isDirectory(),
+                f.length(), f.lastModified(), false);
     }
 
     // FIXME: Don't need "Type" should be just "isFolder".
@@ -485,247 +511,6 @@ public final class FileChooserModel implements ResourceModel, Serializable {
         return f.canWrite();
     }
 
-    /**
-     * Create and return an Option object representing en entry for the list
-     * box.
-     *
-     * @param file file
-     * @param context faces context
-     * @param disabled disabled flag
-     * @return FileChooserItem
-     */
-    private static FileChooserItem getItem(final File file,
-            final FacesContext context, final boolean disabled) {
-
-        Theme theme = ThemeUtilities.getTheme(context);
-
-        int fileNameLen = Integer.parseInt(
-                theme.getMessage("filechooser.fileNameLen"));
-        int fileSizeLen = Integer.parseInt(
-                theme.getMessage("filechooser.fileSizeLen"));
-        int fileDateLen = Integer.parseInt(
-                theme.getMessage("filechooser.fileDateLen"));
-
-        Locale locale = context.getViewRoot().getLocale();
-
-        DateFormat dateFormat
-                = SimpleDateFormat.getDateInstance(DateFormat.SHORT, locale);
-        String defaultPattern
-                = ((SimpleDateFormat) dateFormat).toLocalizedPattern();
-        if (!defaultPattern.contains("yyyy")) {
-            defaultPattern = defaultPattern.replaceFirst("yy", "yyyy");
-        }
-        if (!defaultPattern.contains("MM")) {
-            defaultPattern = defaultPattern.replaceFirst("M", "MM");
-        }
-        if (!defaultPattern.contains("dd")) {
-            defaultPattern = defaultPattern.replaceFirst("d", "dd");
-        }
-
-        try {
-            defaultPattern = ThemeUtilities.getTheme(context)
-                    .getMessage("filechooser.".concat(defaultPattern));
-        } catch (MissingResourceException mre) {
-            defaultPattern = "MM/dd/yyyy";
-        }
-
-        ((SimpleDateFormat) dateFormat).applyPattern(defaultPattern);
-
-        SimpleDateFormat timeFormat = new SimpleDateFormat(
-                theme.getMessage("filechooser.timeFormat"), locale);
-
-        String name = file.getName();
-        String value;
-        if (file.isDirectory()) {
-            name += File.separator;
-            value = "folder" + "=" + file.getAbsolutePath();
-        } else {
-            value = "file" + "=" + file.getAbsolutePath();
-        }
-        name = getDisplayString(name, fileNameLen);
-        String size = Long.toString(file.length());
-        size = getDisplayString(size, fileSizeLen);
-        Date modifiedDate = new Date(file.lastModified());
-        String date = dateFormat.format(modifiedDate);
-        String time = timeFormat.format(modifiedDate);
-        StringBuilder buffer = new StringBuilder();
-        buffer.append(name)
-                .append(SPACE)
-                .append(SPACE)
-                .append(SPACE)
-                .append(size)
-                .append(SPACE)
-                .append(SPACE)
-                .append(date)
-                .append(SPACE)
-                .append(time);
-        FileChooserItem item = new FileChooserItem(file);
-        item.setItemKey(value);
-        item.setItemLabel(buffer.toString());
-        item.setItemDisabled(disabled);
-        return item;
-    }
-
-    /**
-     * This method returns the string of size maxLen by padding the appropriate
-     * amount of spaces next to str.
-     * @param str input string
-     * @param maxLen maximum length
-     * @return String
-     */
-    @SuppressWarnings("checkstyle:magicnumber")
-    private static String getDisplayString(final String str, final int maxLen) {
-
-        String res = str;
-        int length = res.length();
-        if (length < maxLen) {
-            int spaceCount = maxLen - length;
-            for (int j = 0; j < spaceCount; j++) {
-                res += SPACE;
-            }
-        } else if (length > maxLen) {
-            int shownLen = maxLen - 3;
-            res = res.substring(0, shownLen);
-            res += "...";
-        }
-        return res;
-    }
-
-    /**
-     * Sort rule interface.
-     */
-    private interface SortRule {
-
-        /**
-         * Compare two files.
-         * @param f1 first file
-         * @param f2 second file
-         * @return boolean
-         */
-        boolean compare(File f1, File f2);
-    }
-
-    /**
-     * This module sorts the files and directories in a given directory
-     * according to the sort field selected by the user. By default the files
-     * will be sorted alphabetically with all folders first, followed by all
-     * files in alphabetical order. If the sort field is TIME the file will be
-     * sorted in ascending order with the earliest modified file first. if the
-     * sort field is SIZE, the files will be sorted by size with the smallest
-     * first. The bubble sort algorithm is being used here.
-     *
-     * @param fileList array of files to be sorted
-     * @param newSortValue the field to be sorted in
-     */
-    private void sort(final File[] fileList, final String newSortValue) {
-
-        if ((fileList == null) || (fileList.length == 0)) {
-            return;
-        }
-
-        if (fileList.length == 1) {
-            return;
-        }
-
-        FacesContext context = FacesContext.getCurrentInstance();
-        Locale locale = context.getViewRoot().getLocale();
-        collator = Collator.getInstance(locale);
-        collator.setStrength(Collator.SECONDARY);
-
-        String zSortValue = newSortValue;
-        if (zSortValue == null) {
-            zSortValue = FileChooser.ALPHABETIC_ASC;
-        }
-
-        // check if the two files being compared are already
-        // in the desired order
-        SortRule sr = null;
-        if (zSortValue.equals(FileChooser.ALPHABETIC_ASC)) {
-            sr = new SortRule() {
-
-                @Override
-                public boolean compare(final File file1, final File file2) {
-                    return (collator.compare(file1.getName(),
-                            file2.getName()) >= 0);
-                }
-            };
-        } else if (zSortValue.equals(FileChooser.ALPHABETIC_DSC)) {
-            sr = new SortRule() {
-
-                @Override
-                public boolean compare(final File file1, final File file2) {
-                    return (collator.compare(file2.getName(),
-                            file1.getName()) >= 0);
-                }
-            };
-        } else if (zSortValue.equals(FileChooser.SIZE_ASC)) {
-            sr = new SortRule() {
-
-                @Override
-                public boolean compare(final File file1, final File file2) {
-                    if (file1.length() == file2.length()) {
-                        return (collator.compare(file1.getName(),
-                                file2.getName()) >= 0);
-                    } else {
-                        return (file1.length() > file2.length());
-                    }
-                }
-            };
-        } else if (zSortValue.equals(FileChooser.SIZE_DSC)) {
-            sr = new SortRule() {
-
-                @Override
-                public boolean compare(final File file1, final File file2) {
-                    if (file1.length() == file2.length()) {
-                        return (collator.compare(file1.getName(),
-                                file2.getName()) >= 0);
-                    } else {
-                        return (file1.length() < file2.length());
-                    }
-                }
-            };
-        } else if (zSortValue.equals(FileChooser.LASTMODIFIED_ASC)) {
-            sr = new SortRule() {
-
-                @Override
-                public boolean compare(final File file1, final File file2) {
-                    if (file1.lastModified() == file2.lastModified()) {
-                        return (collator.compare(file1.getName(),
-                                file2.getName()) >= 0);
-                    } else {
-                        return (file1.lastModified() > file2.lastModified());
-                    }
-                }
-            };
-        } else if (zSortValue.equals(FileChooser.LASTMODIFIED_DSC)) {
-            sr = new SortRule() {
-
-                @Override
-                public boolean compare(final File file1, final File file2) {
-                    if (file1.lastModified() == file2.lastModified()) {
-                        return (collator.compare(file1.getName(),
-                                file2.getName()) >= 0);
-                    } else {
-                        return (file1.lastModified() < file2.lastModified());
-                    }
-                }
-            };
-        }
-
-        // sort the file using bubble sort
-        for (int i = fileList.length - 1; i >= 0; i--) {
-            for (int j = 0; j < i; j++) {
-
-                // if not swap them
-                if (sr.compare(fileList[j], fileList[j + 1])) {
-                    File tmp = fileList[j];
-                    fileList[j] = fileList[j + 1];
-                    fileList[j + 1] = tmp;
-                }
-            }
-        }
-    }
-
     // This was returning "getCurrentDir" on exception and if there
     // was no parent. This can result in an infinite loop
     // if this method is naviget up the hierarchy.
@@ -1059,4 +844,138 @@ public final class FileChooserModel implements ResourceModel, Serializable {
                 summaryMsg, detailMsg);
         return fmsg;
     }
+
+    /**
+     * Format of the labels of the items, created once per listing.
+     */
+    private static final class ItemFormat {
+
+        /**
+         * Length of the name column.
+         */
+        private final int fileNameLen;
+
+        /**
+         * Length of the size column.
+         */
+        private final int fileSizeLen;
+
+        /**
+         * Date format.
+         */
+        private final DateFormat dateFormat;
+
+        /**
+         * Time format.
+         */
+        private final DateFormat timeFormat;
+
+        /**
+         * Create a new instance.
+         * @param context faces context
+         */
+        ItemFormat(final FacesContext context) {
+            Theme theme = ThemeUtilities.getTheme(context);
+
+            fileNameLen = Integer.parseInt(
+                    theme.getMessage("filechooser.fileNameLen"));
+            fileSizeLen = Integer.parseInt(
+                    theme.getMessage("filechooser.fileSizeLen"));
+
+            Locale locale = context.getViewRoot().getLocale();
+
+            dateFormat = SimpleDateFormat.getDateInstance(DateFormat.SHORT,
+                    locale);
+            String defaultPattern
+                    = ((SimpleDateFormat) dateFormat).toLocalizedPattern();
+            if (!defaultPattern.contains("yyyy")) {
+                defaultPattern = defaultPattern.replaceFirst("yy", "yyyy");
+            }
+            if (!defaultPattern.contains("MM")) {
+                defaultPattern = defaultPattern.replaceFirst("M", "MM");
+            }
+            if (!defaultPattern.contains("dd")) {
+                defaultPattern = defaultPattern.replaceFirst("d", "dd");
+            }
+
+            try {
+                defaultPattern = theme.getMessage(
+                        "filechooser.".concat(defaultPattern));
+            } catch (MissingResourceException mre) {
+                defaultPattern = "MM/dd/yyyy";
+            }
+
+            ((SimpleDateFormat) dateFormat).applyPattern(defaultPattern);
+
+            timeFormat = new SimpleDateFormat(
+                    theme.getMessage("filechooser.timeFormat"), locale);
+        }
+
+        /**
+         * Create and return an item representing an entry for the list box.
+         *
+         * @param file file
+         * @param isDirectory {@code true} if the file is a directory
+         * @param size file size
+         * @param lastModified modification time of the file
+         * @param disabled disabled flag
+         * @return FileChooserItem
+         */
+        FileChooserItem createItem(final File file, final boolean isDirectory,
+                final long size, final long lastModified,
+                final boolean disabled) {
+
+            String name = file.getName();
+            String value;
+            if (isDirectory) {
+                name += File.separator;
+                value = "folder" + "=" + file.getAbsolutePath();
+            } else {
+                value = "file" + "=" + file.getAbsolutePath();
+            }
+            Date modifiedDate = new Date(lastModified);
+            StringBuilder buffer = new StringBuilder();
+            appendDisplayString(buffer, name, fileNameLen);
+            buffer.append(SPACE)
+                    .append(SPACE)
+                    .append(SPACE);
+            appendDisplayString(buffer, Long.toString(size), fileSizeLen);
+            buffer.append(SPACE)
+                    .append(SPACE)
+                    .append(dateFormat.format(modifiedDate))
+                    .append(SPACE)
+                    .append(timeFormat.format(modifiedDate));
+            FileChooserItem item = new FileChooserItem(file, isDirectory);
+            item.setItemKey(value);
+            item.setItemLabel(buffer.toString());
+            item.setItemDisabled(disabled);
+            return item;
+        }
+
+        /**
+         * Append the string of size maxLen by padding the appropriate amount
+         * of spaces next to str.
+         * @param buffer buffer to append to
+         * @param str input string
+         * @param maxLen maximum length
+         */
+        @SuppressWarnings("checkstyle:magicnumber")
+        private static void appendDisplayString(final StringBuilder buffer,
+                final String str, final int maxLen) {
+
+            int length = str.length();
+            if (length < maxLen) {
+                buffer.append(str);
+                for (int j = length; j < maxLen; j++) {
+                    buffer.append(SPACE);
+                }
+            } else if (length > maxLen) {
+                int shownLen = maxLen - 3;
+                buffer.append(str, 0, shownLen)
+                        .append("...");
+            } else {
+                buffer.append(str);
+            }
+        }
+    }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.jsf.model;
+
+import com.sun.data.provider.RowKey;
+import com.sun.data.provider.TableDataProvider;
+
+/**
+ * Optional interface for a {@code TableDataProvider} that can return the rows
+ * of a single page.
+ * <p>
+ * When the source data of a {@code TableRowGroup} component implements this
+ * interface, and filtering and sorting are either not used or applied by the
+ * provider itself (i.e. the provider is also the {@code TableDataFilter} and
+ * {@code TableDataSorter} of the component), only the rows of the current page
+ * are obtained instead of all the rows of the provider.
+ * </p><p>
+ * Implementations must return the exact number of rows from
+ * {@code getRowCount()}, this method is expected to be cheap (e.g. a count
+ * query).
+ * </p>
+ */
+public interface PagedTableDataProvider extends TableDataProvider {
+
+    /**
+     * Get the row keys of a page.
+     *
+     * @param first zero-relative index of the first row
+     * @param count maximum number of rows to return
+     * @return RowKey[]
+     */
+    RowKey[] getPageRowKeys(int first, int count);
+}
@@ -15,6 +15,8 @@
  */
 package com.sun.webui.jsf.model;
 
+import java.util.Arrays;
+
 /**
  * Resource model.
  */
@@ -117,6 +119,47 @@ public interface ResourceModel {
     ResourceItem[] getFolderContent(String folder,
             boolean disableFiles, boolean disableFolders);
 
+    /**
+     * Returns a page of the list of objects in the container represented by
+     * the given folder. The default implementation returns a copy of a range
+     * of the array returned by
+     * {@link #getFolderContent(String, boolean, boolean)}.
+     *
+     * @param folder folder
+     * @param disableFiles flag
+     * @param disableFolders flag
+     * @param first index of the first object to return
+     * @param max maximum number of objects to return
+     * @return ResourceItem[], or {@code null} if the page is empty
+     */
+    default ResourceItem[] getFolderContent(final String folder,
+            final boolean disableFiles, final boolean disableFolders,
+            final int first, final int max) {
+
+        ResourceItem[] items = getFolderContent(folder, disableFiles,
+                disableFolders);
+        if (items == null || first >= items.length || max <= 0) {
+            return null;
+        }
+        int end = (int) Math.min((long) first + max, items.length);
+        return Arrays.copyOfRange(items, first, end);
+    }
+
+    /**
+     * Returns the number of objects in the container represented by the given
+     * folder.
+     *
+     * @param folder folder
+     * @return number of objects
+     */
+    default int getFolderContentCount(final String folder) {
+        ResourceItem[] items = getFolderContent(folder, false, false);
+        if (items == null) {
+            return 0;
+        }
+        return items.length;
+    }
+
     /**
      * Given a ResourceItem key return the ResourceItem.
      *
@@ -16,10 +16,11 @@
 package com.sun.webui.jsf.model;
 
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Calendar;
 import java.util.Iterator;
+import com.sun.webui.jsf.model.scheduler.Recurrence;
 import com.sun.webui.jsf.model.scheduler.RepeatInterval;
 import com.sun.webui.jsf.model.scheduler.RepeatUnit;
 import com.sun.webui.jsf.util.LogUtil;
@@ -45,9 +46,9 @@ public final class ScheduledEvent implements Serializable {
     private Date endTime = null;
 
     /**
-     * Date list.
+     * Recurrence of this event, computed on demand.
      */
-    private ArrayList<Object> dateList = null;
+    private transient Recurrence recurrence = null;
 
     /**
      * Whether the event is repeating or not.
@@ -93,7 +94,7 @@ public final class ScheduledEvent implements Serializable {
      * @param newStartTime The start time, as a {@link java.util.Date}
      */
     public void setStartTime(final Date newStartTime) {
-        dateList = null;
+        recurrence = null;
         this.startTime = newStartTime;
     }
 
@@ -113,7 +114,7 @@ public final class ScheduledEvent implements Serializable {
      */
     public void setEndTime(final Date newEndTime) {
         this.endTime = newEndTime;
-        dateList = null;
+        recurrence = null;
     }
 
     @Override
@@ -167,6 +168,7 @@ public final class ScheduledEvent implements Serializable {
      */
     public void setRepeatingEvent(final boolean newRepeatingEvent) {
         this.repeatingEvent = newRepeatingEvent;
+        recurrence = null;
     }
 
     /**
@@ -194,7 +196,7 @@ public final class ScheduledEvent implements Serializable {
      */
     public void setRepeatInterval(final RepeatInterval newFrequency) {
         this.frequency = newFrequency;
-        dateList = null;
+        recurrence = null;
     }
 
     /**
@@ -221,7 +223,7 @@ public final class ScheduledEvent implements Serializable {
      */
     public void setDurationUnit(final RepeatUnit newDurationUnit) {
         this.durationUnit = newDurationUnit;
-        dateList = null;
+        recurrence = null;
     }
 
     /**
@@ -246,7 +248,7 @@ public final class ScheduledEvent implements Serializable {
      */
     public void setDuration(final Integer newDuration) {
         this.duration = newDuration;
-        dateList = null;
+        recurrence = null;
     }
 
     @Override
@@ -309,10 +311,6 @@ public final class ScheduledEvent implements Serializable {
             hash = hash + this.endTime.hashCode();
         }
         hash = 23 * hash;
-        if (this.dateList != null) {
-            hash = hash + this.dateList.hashCode();
-        }
-        hash = 23 * hash;
         if (this.repeatingEvent) {
             hash = hash + 1;
         }
@@ -331,6 +329,44 @@ public final class ScheduledEvent implements Serializable {
         return hash;
     }
 
+    /**
+     * Get the recurrence of this event, i.e. the occurrences computed from
+     * the start time, the repeat interval and the duration. The recurrence
+     * is cached until a property of the event is changed.
+     *
+     * @param calendar calendar providing the time zone and locale used to
+     * compute the occurrences
+     * @return the recurrence, or {@code null} if no start time has been set
+     */
+    public Recurrence getRecurrence(final Calendar calendar) {
+        Date date = getStartTime();
+        if (date == null) {
+            return null;
+        }
+        Recurrence current = recurrence;
+        if (current == null || !current.isCompatible(calendar)) {
+            RepeatInterval interval = null;
+            if (isRepeatingEvent()) {
+                interval = getRepeatInterval();
+            }
+            current = new Recurrence(calendar, date, interval, getDuration(),
+                    getDurationUnit());
+            recurrence = current;
+        }
+        return current;
+    }
+
+    /**
+     * Test if the event occurs on the day of the given calendar.
+     *
+     * @param day calendar set to any time of the day to test
+     * @return {@code true} if the event occurs on that day
+     */
+    public boolean occursOn(final Calendar day) {
+        Recurrence rec = getRecurrence(day);
+        return rec != null && rec.occursOn(day);
+    }
+
     /**
      * Returns an iterator of dates which mark the start of scheduled event.If
      * no time has been set, an empty iterator is returned. If a time has been
@@ -343,116 +379,30 @@ public final class ScheduledEvent implements Serializable {
      * @return a {@link java.util.Iterator} whose items are
      * {@link java.util.Calendar}
      */
-    public Iterator getDates(final Calendar untilDate) {
+    public Iterator<Calendar> getDates(final Calendar untilDate) {
         return getDates(null, untilDate);
     }
 
     /**
-     * Get an iterator of dates between the specified dates.
+     * Get an iterator of dates between the specified dates. The dates are
+     * computed when iterating.
      *
-     * @param fromDate date filter from
-     * @param untilDate date filter until
-     * @return Iterator
+     * @param fromDate date filter from, inclusive, may be {@code null}
+     * @param untilDate date filter until, exclusive
+     * @return a {@link java.util.Iterator} whose items are
+     * {@link java.util.Calendar}
      */
-    public Iterator getDates(final Calendar fromDate,
+    public Iterator<Calendar> getDates(final Calendar fromDate,
             final Calendar untilDate) {
 
-        if (dateList != null) {
-            return dateList.iterator();
-        }
-
-        dateList = new ArrayList<Object>();
-        Date date = getStartTime();
-
-        if (DEBUG) {
-            if (date != null) {
-                log("First event on " + date.toString());
-            } else {
-                log("No events scheduled");
-            }
-        }
-
-        Date from = null;
-        if (fromDate != null) {
-            if (DEBUG) {
-                log("Start date is " + fromDate.getTime().toString());
-            }
-            from = fromDate.getTime();
-        } else if (DEBUG) {
-            log("No start date");
-        }
-
-        if (DEBUG) {
-            log("End date is " + untilDate.getTime().toString());
-        }
-
-        if (date != null && date.before(untilDate.getTime())) {
-
-            Calendar startDate = (Calendar) (untilDate.clone());
-            startDate.setTime(date);
-
-            dateList.add((Calendar) startDate.clone());
+        Recurrence rec = getRecurrence(untilDate);
+        if (rec == null) {
             if (DEBUG) {
-                log("Added date " + date.toString());
-            }
-
-            if (isRepeatingEvent()) {
-
-                int interval = getRepeatInterval().getCalendarField();
-                if (interval > -1) {
-
-                    if (DEBUG) {
-                        log("Repeating event");
-                    }
-
-                    Calendar endCalendar = (Calendar) (untilDate.clone());
-
-                    Integer dur = getDuration();
-                    RepeatUnit repeatUnit = getDurationUnit();
-                    Integer durUnit = null;
-                    if (repeatUnit != null) {
-                        durUnit = repeatUnit.getCalendarField();
-                    }
-                    if (dur != null && durUnit != null) {
-                        int durationValue = dur;
-                        int durationField = durUnit;
-                        if (durationValue > 0) {
-                            endCalendar = (Calendar) (startDate.clone());
-                            endCalendar.add(durationField, durationValue);
-                            // now subtract 1 interval unit from the end date
-                            endCalendar.set(interval,
-                                    endCalendar.get(interval) - 1);
-                            endCalendar.getTime();
-                        }
-                    }
-
-                    Date end = endCalendar.getTime();
-                    if (DEBUG) {
-                        log("Using end date " + end.toString());
-                    }
-                    Date current = startDate.getTime();
-
-                    while (current.before(end)) {
-                        startDate.add(interval, 1);
-                        current = startDate.getTime();
-                        if (from != null) {
-                            if (current.after(from)) {
-                                dateList.add(startDate.clone());
-                                if (DEBUG) {
-                                    log("Added date " + current.toString());
-                                }
-                            }
-                        } else {
-                            dateList.add(startDate.clone());
-                            if (DEBUG) {
-                                log("Added date " + current.toString());
-                            }
-                        }
-                    }
-                }
+                log("No events scheduled");
             }
+            return Collections.<Calendar>emptyList().iterator();
         }
-        return dateList.iterator();
+        return rec.iterator(fromDate, untilDate);
     }
 
     /**
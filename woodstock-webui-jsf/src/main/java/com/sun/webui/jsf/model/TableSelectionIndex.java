@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.jsf.model;
+
+import com.sun.data.provider.RowKey;
+
+/**
+ * Index of the selected rows of a {@code TableRowGroup} component.
+ * <p>
+ * When an index is given to the {@code selectionIndex} property of a
+ * {@code TableRowGroup} component, the selected, rendered selected and hidden
+ * selected rows are looked up in this index instead of evaluating the
+ * {@code selected} property for each row of the table. The index must
+ * therefore hold the same state the {@code selected} property is bound to.
+ * </p>
+ *
+ * @see com.sun.webui.jsf.event.TableSelectPhaseListener
+ */
+public interface TableSelectionIndex {
+
+    /**
+     * Test if the row associated with the given RowKey is selected.
+     *
+     * @param rowKey row key
+     * @return {@code boolean}
+     */
+    boolean isSelected(RowKey rowKey);
+
+    /**
+     * Get the row ids of the selected rows, in selection order.
+     *
+     * @return String[]
+     */
+    String[] getSelectedRowIds();
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.jsf.model;
+
+import com.sun.webui.jsf.component.TreeNode;
+import java.util.List;
+
+/**
+ * Tree node provider, used by a {@code Tree} to create the child nodes of
+ * its nodes on demand.
+ * <p>
+ * The child nodes of a node are created when the node is expanded. A
+ * collapsed node is rendered with a turner if
+ * {@link #hasChildNodes(String)} returns {@code true}, without creating its
+ * child nodes. In a server-side tree, the child nodes are removed when the
+ * node is collapsed, so that only the expanded nodes are kept in the
+ * component tree and in the view state. In a client-side tree, the child
+ * nodes of a collapsed node are requested with Ajax when it is expanded.
+ * </p>
+ * <p>
+ * A client-side tree expands and collapses its nodes in the browser, without
+ * telling the server. The child nodes loaded with Ajax are therefore never
+ * removed: they stay in the component tree and in the view state until the
+ * view is discarded, even after their parent node is collapsed. Use a
+ * server-side tree if the user may browse many large branches of the same
+ * view.
+ * </p>
+ * <p>
+ * The provider is resolved once per request, the {@code nodeProvider}
+ * expression of the tree should not depend on the node being processed.
+ * </p>
+ * <p>
+ * The provider is only used for the nodes that do not have child nodes
+ * declared in the page. Node ids must be unique within the tree.
+ * </p>
+ */
+public interface TreeNodeProvider {
+
+    /**
+     * Test if a node has child nodes, without creating them.
+     *
+     * @param nodeId the id of the node, the id of the tree for the root
+     * @return {@code true} if the node has child nodes
+     */
+    boolean hasChildNodes(String nodeId);
+
+    /**
+     * Create the child nodes of a node.
+     *
+     * @param nodeId the id of the node, the id of the tree for the root
+     * @return the child nodes, may be empty
+     */
+    List<TreeNode> getChildNodes(String nodeId);
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.jsf.model;
+
+import com.sun.data.provider.TableDataProvider;
+
+/**
+ * Optional interface for a {@code TableDataProvider} that can report a
+ * version of its row data. The {@code TableRowGroup} component uses the
+ * version to keep sorted rows across requests: as long as the version does
+ * not change, re-paginating or toggling the sort order of a column re-uses the
+ * previous sort instead of reading every row again.
+ * <p>
+ * Implementations must return a different version whenever a row is added or
+ * removed, or whenever a value that may be used as a sort value changes.
+ * Providers that do not implement this interface are only sorted once per
+ * request.
+ * </p>
+ */
+public interface VersionedTableDataProvider extends TableDataProvider {
+
+    /**
+     * Get the current version of the row data.
+     *
+     * @return data version
+     */
+    long getDataVersion();
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.webui.jsf.model.list;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hash index of list items by value object and by value string. When several
+ * items have the same value, the first one added is indexed.
+ *
+ * @param <T> the type of the indexed entries, e.g. the list item itself or
+ * its key in a map of list items
+ */
+public final class ListItemIndex<T> {
+
+    /**
+     * Entries by value object.
+     */
+    private final Map<Object, T> valueObjects;
+
+    /**
+     * Entries by value string.
+     */
+    private final Map<String, T> values;
+
+    /**
+     * Create a new instance.
+     */
+    public ListItemIndex() {
+        valueObjects = new HashMap<Object, T>();
+        values = new HashMap<String, T>();
+    }
+
+    /**
+     * Add an entry for a list item, unless an entry already exists for the
+     * same value.
+     *
+     * @param item list item
+     * @param entry entry to index
+     */
+    public void add(final ListItem item, final T entry) {
+        Object valueObject = item.getValueObject();
+        if (valueObject != null && !valueObjects.containsKey(valueObject)) {
+            valueObjects.put(valueObject, entry);
+        }
+        String value = item.getValue();
+        if (value != null && !values.containsKey(value)) {
+            values.put(value, entry);
+        }
+    }
+
+    /**
+     * Get the entry of the first item whose value object is equal to the
+     * given object.
+     *
+     * @param valueObject value object
+     * @return the entry, or {@code null} if no item matches
+     */
+    public T getByValueObject(final Object valueObject) {
+        if (valueObject == null) {
+            return null;
+        }
+        return valueObjects.get(valueObject);
+    }
+
+    /**
+     * Get the entry of the first item whose value string is equal to the
+     * given string.
+     *
+     * @param value value string
+     * @return the entry, or {@code null} if no item matches
+     */
+    public T getByValue(final String value) {
+        if (value == null) {
+            return null;
+        }
+        return values.get(value);
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.webui.jsf.model.scheduler;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Recurrence of a scheduled event. The occurrences are computed with
+ * calendar arithmetic from the start time, the repeat interval and the
+ * duration of the event, i.e. the occurrence {@code n} is the start time plus
+ * {@code n} repeat intervals. No occurrence is stored, the occurrences in a
+ * range are iterated lazily and the test for an occurrence on a given day is
+ * done in constant time.
+ * <p>
+ * Instances are immutable and may be shared between threads.
+ * </p>
+ */
+public final class Recurrence {
+
+    /**
+     * Number of milliseconds in an hour.
+     */
+    private static final long HOUR_MILLIS = 60L * 60L * 1000L;
+
+    /**
+     * Number of milliseconds in a day, without daylight saving time
+     * transition.
+     */
+    private static final long DAY_MILLIS = 24L * HOUR_MILLIS;
+
+    /**
+     * Number of milliseconds in a week, without daylight saving time
+     * transition.
+     */
+    private static final long WEEK_MILLIS = 7L * DAY_MILLIS;
+
+    /**
+     * Number of months in a year.
+     */
+    private static final int YEAR_MONTHS = 12;
+
+    /**
+     * Calendar set to the start time, cloned for computations.
+     */
+    private final Calendar prototype;
+
+    /**
+     * The start time in milliseconds.
+     */
+    private final long start;
+
+    /**
+     * Number of months from the year 0 to the start time.
+     */
+    private final long startMonths;
+
+    /**
+     * Calendar field of the repeat interval, or {@code -1} if the event does
+     * not repeat.
+     */
+    private final int field;
+
+    /**
+     * Time in milliseconds from which there are no more occurrences,
+     * {@code Long.MAX_VALUE} if the event repeats forever.
+     */
+    private final long limit;
+
+    /**
+     * Create a new instance.
+     *
+     * @param calendar calendar providing the time zone and locale used for
+     * the computations
+     * @param startTime the start time of the event
+     * @param repeatInterval the repeat interval, {@code null} if the event
+     * does not repeat
+     * @param duration the number of duration units the event repeats for,
+     * {@code null} if the event repeats forever
+     * @param durationUnit the duration unit, {@code null} if the event
+     * repeats forever
+     */
+    public Recurrence(final Calendar calendar, final Date startTime,
+            final RepeatInterval repeatInterval, final Integer duration,
+            final RepeatUnit durationUnit) {
+
+        prototype = (Calendar) calendar.clone();
+        prototype.setTime(startTime);
+        start = prototype.getTimeInMillis();
+        // computes all the fields, the prototype is not modified after this
+        startMonths = getMonths(prototype);
+
+        int intervalField = -1;
+        if (repeatInterval != null
+                && repeatInterval.getCalendarField() != null) {
+            intervalField = repeatInterval.getCalendarField();
+        }
+        field = intervalField;
+
+        long end = Long.MAX_VALUE;
+        if (field == -1) {
+            end = start + 1;
+        } else if (duration != null && duration > 0 && durationUnit != null
+                && durationUnit.getCalendarField() != null) {
+            Calendar cal = (Calendar) prototype.clone();
+            cal.add(durationUnit.getCalendarField(), duration);
+            end = cal.getTimeInMillis();
+        }
+        limit = end;
+    }
+
+    /**
+     * Test if this recurrence can be used for computations with the given
+     * calendar, i.e. if it uses the same calendar system and time zone.
+     *
+     * @param calendar calendar to test
+     * @return {@code boolean}
+     */
+    public boolean isCompatible(final Calendar calendar) {
+        return calendar.getClass().equals(prototype.getClass())
+                && calendar.getTimeZone().equals(prototype.getTimeZone());
+    }
+
+    /**
+     * Test if the event repeats.
+     *
+     * @return {@code boolean}
+     */
+    public boolean isRepeating() {
+        return field != -1;
+    }
+
+    /**
+     * Test if there is an occurrence in the day of the given calendar. The
+     * day boundaries are computed in the time zone of the calendar.
+     *
+     * @param day calendar set to any time of the day to test
+     * @return {@code boolean}
+     */
+    public boolean occursOn(final Calendar day) {
+        Calendar cal = (Calendar) day.clone();
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        long dayStart = cal.getTimeInMillis();
+        cal.add(Calendar.DATE, 1);
+        return occursBetween(dayStart, cal.getTimeInMillis());
+    }
+
+    /**
+     * Test if there is an occurrence in the given time range.
+     *
+     * @param from start of the range in milliseconds, inclusive
+     * @param until end of the range in milliseconds, exclusive
+     * @return {@code boolean}
+     */
+    public boolean occursBetween(final long from, final long until) {
+        if (from >= until || from >= limit) {
+            return false;
+        }
+        Calendar cal = (Calendar) prototype.clone();
+        long time = getOccurrence(cal, getIndex(cal, from));
+        return time < until && time < limit;
+    }
+
+    /**
+     * Get an iterator of the occurrences in the given range. The occurrences
+     * are computed when iterating.
+     *
+     * @param from start of the range, inclusive, or {@code null} to start
+     * with the first occurrence
+     * @param until end of the range, exclusive, or {@code null} for an
+     * unbounded range
+     * @return an iterator of new {@link java.util.Calendar} instances
+     */
+    public Iterator<Calendar> iterator(final Calendar from,
+            final Calendar until) {
+
+        long end = limit;
+        if (until != null) {
+            end = Math.min(end, until.getTimeInMillis());
+        }
+        Calendar cal = (Calendar) prototype.clone();
+        int index = 0;
+        if (from != null) {
+            index = getIndex(cal, from.getTimeInMillis());
+        }
+        return new OccurrenceIterator(cal, index, end);
+    }
+
+    /**
+     * Compute an occurrence.
+     *
+     * @param cal calendar to use for the computation, set to the occurrence
+     * @param index index of the occurrence
+     * @return the time of the occurrence in milliseconds
+     */
+    private long getOccurrence(final Calendar cal, final int index) {
+        if (index == 0) {
+            return start;
+        }
+        if (field == -1) {
+            return Long.MAX_VALUE;
+        }
+        cal.setTimeInMillis(start);
+        cal.add(field, index);
+        return cal.getTimeInMillis();
+    }
+
+    /**
+     * Get the number of months from the year 0 to the time of a calendar.
+     *
+     * @param cal calendar
+     * @return number of months
+     */
+    private static long getMonths(final Calendar cal) {
+        return (long) cal.get(Calendar.YEAR) * YEAR_MONTHS
+                + cal.get(Calendar.MONTH);
+    }
+
+    /**
+     * Get the index of the first occurrence at or after the given time. The
+     * index is estimated from the elapsed time and then corrected, which
+     * takes a constant number of steps.
+     *
+     * @param cal calendar to use for the computation
+     * @param time time in milliseconds
+     * @return index of the occurrence
+     */
+    private int getIndex(final Calendar cal, final long time) {
+        if (time <= start) {
+            return 0;
+        }
+        if (field == -1) {
+            return 1;
+        }
+        long estimate;
+        if (field == Calendar.MONTH) {
+            cal.setTimeInMillis(time);
+            estimate = getMonths(cal) - startMonths - 1;
+        } else {
+            long step = getStep(cal);
+            if (step <= 0) {
+                estimate = 0;
+            } else {
+                estimate = (time - start) / step;
+            }
+        }
+        int index = (int) Math.max(0, Math.min(estimate, Integer.MAX_VALUE));
+        while (getOccurrence(cal, index) < time) {
+            index++;
+        }
+        while (index > 0 && getOccurrence(cal, index - 1) >= time) {
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * Get the approximate length of the repeat interval.
+     *
+     * @param cal calendar to use for the computation
+     * @return length in milliseconds
+     */
+    private long getStep(final Calendar cal) {
+        switch (field) {
+            case Calendar.HOUR_OF_DAY:
+            case Calendar.HOUR:
+                return HOUR_MILLIS;
+            case Calendar.DATE:
+            case Calendar.DAY_OF_YEAR:
+            case Calendar.DAY_OF_WEEK:
+                return DAY_MILLIS;
+            case Calendar.WEEK_OF_YEAR:
+            case Calendar.WEEK_OF_MONTH:
+                return WEEK_MILLIS;
+            default:
+                return getOccurrence(cal, 1) - start;
+        }
+    }
+
+    /**
+     * Iterator of the occurrences in a range.
+     */
+    private final class OccurrenceIterator implements Iterator<Calendar> {
+
+        /**
+         * Calendar used for the computations.
+         */
+        private final Calendar cal;
+
+        /**
+         * End of the range in milliseconds, exclusive.
+         */
+        private final long end;
+
+        /**
+         * Index of the next occurrence.
+         */
+        private int index;
+
+        /**
+         * Time of the next occurrence in milliseconds.
+         */
+        private long next;
+
+        /**
+         * Create a new instance.
+         *
+         * @param newCal calendar used for the computations
+         * @param firstIndex index of the first occurrence
+         * @param newEnd end of the range in milliseconds, exclusive
+         */
+        OccurrenceIterator(final Calendar newCal, final int firstIndex,
+                final long newEnd) {
+
+            this.cal = newCal;
+            this.end = newEnd;
+            this.index = firstIndex;
+            this.next = getOccurrence(cal, index);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        public Calendar next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Calendar occurrence = (Calendar) cal.clone();
+            occurrence.setTimeInMillis(next);
+            index++;
+            next = getOccurrence(cal, index);
+            return occurrence;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.webui.jsf.renderkit.ajax;
+
+import com.sun.faces.annotation.Renderer;
+import com.sun.faces.extensions.avatar.lifecycle.AsyncResponse;
+import com.sun.webui.jsf.component.Listbox;
+import com.sun.webui.jsf.model.list.ListItem;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.context.FacesContext;
+import jakarta.json.JsonObject;
+import jakarta.json.stream.JsonGenerator;
+
+import static com.sun.webui.jsf.util.JsonUtilities.JSON_GENERATOR_FACTORY;
+import static com.sun.webui.jsf.util.JsonUtilities.parseJsonObject;
+
+/**
+ * This class renders the options of a virtual Listbox component.
+ * <p>
+ * The options requested by a scroll or type-ahead event are written as a
+ * JSON object with the following properties:
+ * </p>
+ * <ul>
+ * <li>{@code count}: number of options matching the filter</li>
+ * <li>{@code first}: index of the first option written</li>
+ * <li>{@code options}: array of options, each option being an array of its
+ * value, label, disabled flag and title flag</li>
+ * </ul>
+ * <p>
+ * The request is described by the X-JSON header, with the following
+ * properties:
+ * </p>
+ * <ul>
+ * <li>{@code first}: index of the first option, among the options matching
+ * the filter</li>
+ * <li>{@code count}: number of options, the {@code virtualRows} property of
+ * the component by default</li>
+ * <li>{@code filter}: case insensitive prefix of the option labels, all the
+ * options are matched by default</li>
+ * </ul>
+ */
+@Renderer(@Renderer.Renders(
+        rendererType = "com.sun.webui.jsf.ajax.Listbox",
+        componentFamily = "com.sun.webui.jsf.Listbox"))
+public final class ListboxRenderer extends jakarta.faces.render.Renderer {
+
+    /**
+     * Maximum number of options sent in a response.
+     */
+    private static final int MAX_ROWS = 1000;
+
+    @Override
+    public void encodeBegin(final FacesContext context,
+            final UIComponent component) {
+
+        // Do nothing...
+    }
+
+    @Override
+    public void encodeChildren(final FacesContext context,
+            final UIComponent component) {
+
+        // Do nothing...
+    }
+
+    @Override
+    public void encodeEnd(final FacesContext context,
+            final UIComponent component) throws IOException {
+
+        if (context == null || component == null) {
+            throw new NullPointerException();
+        }
+
+        String xjson = (String) context.getExternalContext().
+                getRequestHeaderMap().get(AsyncResponse.XJSON_HEADER);
+        if (xjson == null) {
+            return;
+        }
+
+        Listbox listbox = (Listbox) component;
+        JsonObject json = parseJsonObject(xjson);
+        int first = 0;
+        int count = listbox.getVirtualRows();
+        String filter = null;
+        if (json != null) {
+            first = Math.max(0, json.getInt("first", 0));
+            int value = json.getInt("count", -1);
+            if (value > 0) {
+                count = value;
+            }
+            filter = json.getString("filter", null);
+        }
+        if (filter != null && filter.length() > 0) {
+            Locale locale = context.getViewRoot().getLocale();
+            filter = filter.toLowerCase(locale);
+        } else {
+            filter = null;
+        }
+        writeOptions(context, listbox, first, Math.min(MAX_ROWS, count),
+                filter);
+    }
+
+    @Override
+    public boolean getRendersChildren() {
+        return true;
+    }
+
+    /**
+     * Helper method to write the options.
+     *
+     * @param context FacesContext for the current request.
+     * @param listbox Listbox to be rendered.
+     * @param first index of the first option to write
+     * @param count maximum number of options to write
+     * @param filter lower case prefix of the labels, may be {@code null}
+     * @throws IOException if an IO error occurs
+     */
+    private static void writeOptions(final FacesContext context,
+            final Listbox listbox, final int first, final int count,
+            final String filter) throws IOException {
+
+        Locale locale = context.getViewRoot().getLocale();
+        JsonGenerator generator = JSON_GENERATOR_FACTORY
+                .createGenerator(context.getResponseWriter());
+        generator.writeStartObject();
+        generator.writeStartArray("options");
+
+        // Count all the matching options, but only write the requested ones.
+        int matched = 0;
+        Iterator items = listbox.getListItems(context, false);
+        while (items.hasNext()) {
+            Object option = items.next();
+            if (!(option instanceof ListItem)) {
+                continue;
+            }
+            ListItem item = (ListItem) option;
+            String label = item.getLabel();
+            if (filter != null && (label == null
+                    || !label.toLowerCase(locale).startsWith(filter))) {
+                continue;
+            }
+            if (matched >= first && matched - first < count) {
+                generator.writeStartArray();
+                if (item.getValue() == null) {
+                    generator.writeNull();
+                } else {
+                    generator.write(item.getValue());
+                }
+                if (label == null) {
+                    generator.writeNull();
+                } else {
+                    generator.write(label);
+                }
+                generator.write(item.isDisabled());
+                generator.write(item.isTitle());
+                generator.writeEnd();
+            }
+            ++matched;
+        }
+        generator.writeEnd();
+        generator.write("count", matched);
+        generator.write("first", first);
+        generator.writeEnd();
+        // Do not close the generator, which would close the response writer.
+        generator.flush();
+    }
+}
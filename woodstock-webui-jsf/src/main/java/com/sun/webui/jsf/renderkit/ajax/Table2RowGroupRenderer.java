@@ -21,27 +21,60 @@ import com.sun.data.provider.RowKey;
 import com.sun.faces.extensions.avatar.lifecycle.AsyncResponse;
 import com.sun.webui.jsf.component.Table2Column;
 import com.sun.webui.jsf.component.Table2RowGroup;
+import com.sun.webui.jsf.util.FastStringWriter;
+import com.sun.webui.jsf.util.RenderingUtilities;
 import com.sun.webui.jsf.util.WidgetUtilities;
 import java.io.IOException;
 import java.util.Iterator;
 import jakarta.faces.component.UIComponent;
 import jakarta.faces.context.FacesContext;
-import jakarta.json.JsonArray;
-import jakarta.json.JsonArrayBuilder;
+import jakarta.faces.context.ResponseWriter;
 import jakarta.json.JsonObject;
+import jakarta.json.stream.JsonGenerator;
 
-import static com.sun.webui.jsf.util.JsonUtilities.JSON_BUILDER_FACTORY;
+import static com.sun.webui.jsf.util.JsonUtilities.JSON_GENERATOR_FACTORY;
 import static com.sun.webui.jsf.util.JsonUtilities.parseJsonObject;
-import static com.sun.webui.jsf.util.JsonUtilities.writeJsonObject;
 
 /**
  * This class renders Table2RowGroup components.
+ * <p>
+ * The rows requested by a scroll event are written as a JSON array of rows,
+ * each row being an array of the HTML rendered for the children of the
+ * rendered Table2Column components. The request is described by the X-JSON
+ * header, with the following properties:
+ * </p>
+ * <ul>
+ * <li>{@code first}: index of the first row</li>
+ * <li>{@code count}: number of rows, the {@code rows} property of the
+ * component by default</li>
+ * <li>{@code prefetch}: number of additional rows to send in advance, the
+ * {@code count} by default</li>
+ * </ul>
+ * <p>
+ * Both values are bounded by {@code MAX_ROWS}, which is also used when the
+ * component is not paged, and so is the number of rows sent.
+ * </p>
+ * <p>
+ * Rows are streamed as they are rendered: the HTML of a cell is buffered in a
+ * single writer reused for the whole response, so that the memory used does
+ * not depend on the number of rows.
+ * </p>
  */
 @Renderer(@Renderer.Renders(
         rendererType = "com.sun.webui.jsf.ajax.Table2RowGroup",
         componentFamily = "com.sun.webui.jsf.Table2RowGroup"))
 public final class Table2RowGroupRenderer extends jakarta.faces.render.Renderer {
 
+    /**
+     * Maximum number of rows sent in a response.
+     */
+    private static final int MAX_ROWS = 1000;
+
+    /**
+     * Initial capacity of the buffer used to render a cell.
+     */
+    private static final int BUFFER_SIZE = 1024;
+
     @Override
     public void encodeBegin(final FacesContext context,
             final UIComponent component) {
@@ -68,22 +101,35 @@ public final class Table2RowGroupRenderer extends jakarta.faces.render.Renderer
         Table2RowGroup group = (Table2RowGroup) component;
 
         // Set first and max rows.
+        int maxRows = group.getRows();
+        int count = MAX_ROWS;
+        if (maxRows > 0) {
+            count = maxRows;
+        }
+        int prefetch = -1;
         if (json != null) {
-            Integer first = json.getInt("first", -1);
+            int first = json.getInt("first", -1);
             if (first >= 0) {
                 // To do: move to decode method.
                 group.setFirst(first);
             }
+            int value = json.getInt("count", -1);
+            if (value > 0) {
+                count = value;
+            }
+            prefetch = json.getInt("prefetch", -1);
         }
+        count = clampRows(count);
+        if (prefetch < 0) {
+            prefetch = count;
+        }
+        prefetch = clampRows(prefetch);
 
-        // FIXME: Need algorithm to retrieve rows
-        int maxRows = group.getRows();
-        group.setRows(maxRows * 2);
-        JsonArray rows = getRows(context, group);
-        group.setRows(maxRows);
-
-        if (rows != null) {
-            writeJsonObject(json, context.getResponseWriter());
+        group.setRows(Math.min(MAX_ROWS, count + prefetch));
+        try {
+            writeRows(context, group);
+        } finally {
+            group.setRows(maxRows);
         }
     }
 
@@ -100,62 +146,101 @@ public final class Table2RowGroupRenderer extends jakarta.faces.render.Renderer
     }
 
     /**
-     * Helper method to render rows.
+     * Bound a number of rows to {@code [1, MAX_ROWS]}.
+     *
+     * @param rows number of rows
+     * @return int
+     */
+    private static int clampRows(final int rows) {
+        if (rows < 1) {
+            return 1;
+        }
+        return Math.min(MAX_ROWS, rows);
+    }
+
+    /**
+     * Helper method to write rows.
      *
      * @param context FacesContext for the current request.
      * @param component UIComponent to be rendered.
-     * @return JsonArray
      * @throws IOException if an IO error occurs
      */
-    private JsonArray getRows(final FacesContext context,
+    private static void writeRows(final FacesContext context,
             final Table2RowGroup component) throws IOException {
 
-        if (context == null || component == null) {
-            throw new NullPointerException();
-        }
-        if (!component.isRendered()) {
-            return null;
-        }
-
-        // Render empty data message.
-        if (component.getRowCount() == 0) {
-            return null;
-        }
+        ResponseWriter writer = context.getResponseWriter();
+        JsonGenerator generator = JSON_GENERATOR_FACTORY
+                .createGenerator(writer);
+        generator.writeStartArray();
 
         // Get rendered row keys.
-        RowKey[] rowKeys = component.getRenderedRowKeys();
-        if (rowKeys == null) {
-            return null;
+        RowKey[] rowKeys = null;
+        if (component.isRendered() && component.getRowCount() != 0) {
+            rowKeys = component.getRenderedRowKeys();
         }
+        if (rowKeys != null) {
+            FastStringWriter buffer = new FastStringWriter(BUFFER_SIZE);
+            ResponseWriter bufferWriter = WidgetUtilities
+                    .createResponseWriter(context, buffer);
+
+            // Iterate over the rendered RowKey objects.
+            try {
+                for (RowKey rowKey : rowKeys) {
+                    component.setRowKey(rowKey);
+                    if (!component.isRowAvailable()) {
+                        break;
+                    }
+                    generator.writeStartArray();
+                    writeColumns(context, component, generator, buffer,
+                            bufferWriter);
+                    generator.writeEnd();
+                }
+            } finally {
+                context.setResponseWriter(writer);
+                component.setRowKey(null); // Clean up.
+            }
+        }
+        generator.writeEnd();
+        // Do not close the generator, which would close the response writer.
+        generator.flush();
+    }
 
-        JsonArrayBuilder rowBuilder = JSON_BUILDER_FACTORY
-                .createArrayBuilder();
-
-        // Iterate over the rendered RowKey objects.
-        for (RowKey rowKey : rowKeys) {
-            component.setRowKey(rowKey);
-            if (!component.isRowAvailable()) {
-                break;
+    /**
+     * Helper method to write the cells of the current row.
+     *
+     * @param context FacesContext for the current request.
+     * @param component UIComponent to be rendered.
+     * @param generator The generator to write to.
+     * @param buffer The buffer used to render a cell.
+     * @param bufferWriter The writer of {@code buffer}.
+     * @throws IOException if an IO error occurs
+     */
+    private static void writeColumns(final FacesContext context,
+            final Table2RowGroup component, final JsonGenerator generator,
+            final FastStringWriter buffer, final ResponseWriter bufferWriter)
+            throws IOException {
+
+        ResponseWriter writer = context.getResponseWriter();
+        Iterator kids = component.getTable2ColumnChildren();
+        while (kids.hasNext()) {
+            Table2Column col = (Table2Column) kids.next();
+            if (!col.isRendered()) {
+                continue;
             }
-            // Render Table2Column components.
-            JsonArrayBuilder cols = JSON_BUILDER_FACTORY
-                    .createArrayBuilder();
-            Iterator kids = component.getTable2ColumnChildren();
-            while (kids.hasNext()) {
-                Table2Column col = (Table2Column) kids.next();
-                if (!col.isRendered()) {
-                    continue;
-                }
-                // Render Table2Column children.
-                Iterator grandKids = col.getChildren().iterator();
-                while (grandKids.hasNext()) {
-                    cols.add(WidgetUtilities.renderComponent(context,
-                            (UIComponent) grandKids.next()));
+            // Render Table2Column children.
+            Iterator grandKids = col.getChildren().iterator();
+            while (grandKids.hasNext()) {
+                buffer.getBuffer().setLength(0);
+                context.setResponseWriter(bufferWriter);
+                try {
+                    RenderingUtilities.renderComponent(
+                            (UIComponent) grandKids.next(), context);
+                    bufferWriter.flush();
+                } finally {
+                    context.setResponseWriter(writer);
                 }
+                generator.write(buffer.toString());
             }
-            rowBuilder.add(cols);
         }
-            component.setRowKey(null); // Clean up.
-        return rowBuilder.build();
     }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.jsf.renderkit.ajax;
+
+import com.sun.faces.annotation.Renderer;
+import com.sun.faces.extensions.avatar.lifecycle.AsyncResponse;
+import com.sun.webui.jsf.component.TreeNode;
+import java.io.IOException;
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.context.FacesContext;
+import jakarta.json.JsonObject;
+
+import static com.sun.webui.jsf.util.JsonUtilities.parseJsonObject;
+
+/**
+ * This class renders the child nodes of a TreeNode component, created on
+ * demand by the node provider of the tree.
+ * <p>
+ * The child nodes of a collapsed node of a client-side tree are requested
+ * when the node is expanded, with an X-JSON header containing the
+ * {@code childNodes} property set to {@code true}. Only the HTML of the child
+ * nodes is written, to be inserted in the element of the node containing its
+ * child nodes. Other Ajax requests render the node as usual.
+ * </p>
+ */
+@Renderer(@Renderer.Renders(
+        rendererType = "com.sun.webui.jsf.ajax.TreeNode",
+        componentFamily = "com.sun.webui.jsf.TreeNode"))
+public final class TreeNodeRenderer
+        extends com.sun.webui.jsf.renderkit.html.TreeNodeRenderer {
+
+    @Override
+    public void encodeEnd(final FacesContext context,
+            final UIComponent component) throws IOException {
+
+        if (context == null || component == null) {
+            throw new NullPointerException();
+        }
+
+        String xjson = (String) context.getExternalContext().
+                getRequestHeaderMap().get(AsyncResponse.XJSON_HEADER);
+        JsonObject json = null;
+        if (xjson != null) {
+            json = parseJsonObject(xjson);
+        }
+        if (json == null || !json.getBoolean("childNodes", false)) {
+            super.encodeEnd(context, component);
+            return;
+        }
+        if (!component.isRendered()) {
+            return;
+        }
+
+        TreeNode node = (TreeNode) component;
+        node.loadChildNodes();
+        renderChildNodes(node.getChildren(),
+                createRowContext(node, TreeNode.getAbsoluteRoot(node)),
+                context);
+    }
+}
@@ -277,13 +277,20 @@ public class ImageRenderer extends AbstractRenderer {
 
         ClientSniffer cs = ClientSniffer.getInstance(context);
 
+        // Theme image paths end with the version parameter.
+        String path = url;
+        int query = path.indexOf('?');
+        if (query != -1) {
+            path = path.substring(0, query);
+        }
+
         //Some time encodeResourceURL(url) adds the sessiod to the
         // image URL, make sure to take that in to account
-        if (url.contains("sessionid")) {
-            if (url.substring(0, url.indexOf(';')).
+        if (path.contains("sessionid")) {
+            if (path.substring(0, path.indexOf(';')).
                     endsWith(".png") && cs.isIe6up()) {
                 return false;
-            } else if (url.substring(0, url.indexOf(';')).endsWith(".png")
+            } else if (path.substring(0, path.indexOf(';')).endsWith(".png")
                     && cs.isIe5up()) {
                 return true;
             }
@@ -293,7 +300,7 @@ public class ImageRenderer extends AbstractRenderer {
             // images
             // But not SP1. For things to work on IE6 one needs to upgrade to
             // SP2.
-            if (url.endsWith(".png")) {
+            if (path.endsWith(".png")) {
                 if (cs.isIe6up()) {
                     return false;
                 } else if (cs.isIe5up()) {
@@ -19,14 +19,25 @@ package com.sun.webui.jsf.renderkit.html;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import jakarta.faces.component.UIComponent;
 import jakarta.faces.component.EditableValueHolder;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.context.ResponseWriter;
 import jakarta.faces.render.Renderer;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
 import com.sun.webui.jsf.component.ListManager;
+import com.sun.webui.jsf.component.Listbox;
 import com.sun.webui.jsf.component.ListSelector;
 import com.sun.webui.jsf.model.Separator;
 import com.sun.webui.jsf.model.OptionTitle;
@@ -36,6 +47,9 @@ import com.sun.webui.jsf.model.list.EndGroup;
 import com.sun.webui.jsf.util.LogUtil;
 
 import static com.sun.webui.jsf.util.ConversionUtilities.setRenderedValue;
+import static com.sun.webui.jsf.util.JavaScriptUtilities.renderInitScriptTag;
+import static com.sun.webui.jsf.util.JsonUtilities.JSON_BUILDER_FACTORY;
+import static com.sun.webui.jsf.util.JsonUtilities.parseJsonObject;
 import static com.sun.webui.jsf.util.RenderingUtilities.renderComponent;
 import static com.sun.webui.jsf.util.RenderingUtilities.writeStringAttributes;
 
@@ -334,6 +348,25 @@ public abstract class ListRendererBase extends Renderer {
             styleClass = styles[2];
         }
 
+        // A flat list with more options than the virtual rows of a listbox
+        // renders only the first options, the others are fetched with Ajax.
+        Iterator items = listManager.getListItems(context, true);
+        List<ListItem> virtualItems = null;
+        if (getVirtualRows(listManager) > 0) {
+            ArrayList<Object> options = new ArrayList<Object>();
+            while (items.hasNext()) {
+                options.add(items.next());
+            }
+            virtualItems = getVirtualItems(options,
+                    getVirtualRows(listManager));
+            if (virtualItems == null) {
+                items = options.iterator();
+            } else {
+                items = virtualItems.subList(0,
+                        getVirtualRows(listManager)).iterator();
+            }
+        }
+
         ResponseWriter writer = context.getResponseWriter();
         writer.startElement("select", (UIComponent) listManager);
 
@@ -352,7 +385,7 @@ public abstract class ListRendererBase extends Renderer {
 
         writer.writeAttribute("class", styleClass, null);
         writer.writeAttribute("id", id, null);
-        if (listManager.mainListSubmits()) {
+        if (listManager.mainListSubmits() && virtualItems == null) {
             writer.writeAttribute("name", id, null);
         }
         int size = listManager.getRows();
@@ -391,12 +424,92 @@ public abstract class ListRendererBase extends Renderer {
 
         writer.writeText("\n", null);
 
-        renderListOptions((UIComponent) listManager,
-                listManager.getListItems(context, true),
-                writer, styles);
+        renderListOptions((UIComponent) listManager, items, writer, styles);
 
         writer.endElement("select");
         writer.writeText("\n", null);
+
+        if (virtualItems != null) {
+            renderVirtualList((Listbox) listManager, id, context,
+                    virtualItems.size());
+        }
+    }
+
+    /**
+     * Get the number of options rendered by a virtual listbox.
+     * @param listManager list manager
+     * @return number of options, or {@code 0} if the list is not virtual
+     */
+    private static int getVirtualRows(final ListManager listManager) {
+        if (!(listManager instanceof Listbox)
+                || !listManager.mainListSubmits()) {
+            return 0;
+        }
+        return Math.max(0, ((Listbox) listManager).getVirtualRows());
+    }
+
+    /**
+     * Get the options of a listbox that should be rendered virtually.
+     * @param options list options
+     * @param virtualRows number of options to render
+     * @return the options, or {@code null} if all of them must be rendered
+     */
+    private static List<ListItem> getVirtualItems(final List<Object> options,
+            final int virtualRows) {
+
+        if (options.size() <= virtualRows) {
+            return null;
+        }
+        // Options groups and separators can't be loaded in slices.
+        ArrayList<ListItem> result = new ArrayList<ListItem>(options.size());
+        for (Object option : options) {
+            if (!(option instanceof ListItem)) {
+                return null;
+            }
+            result.add((ListItem) option);
+        }
+        return result;
+    }
+
+    /**
+     * Render the hidden field used to submit the selection changes of a
+     * virtual listbox, and the script that loads the remaining options.
+     * @param listbox listbox component
+     * @param id DOM id of the select element
+     * @param context faces context
+     * @param count number of options of the list
+     * @throws IOException if an IO error occurs
+     */
+    private static void renderVirtualList(final Listbox listbox,
+            final String id, final FacesContext context, final int count)
+            throws IOException {
+
+        String clientId = listbox.getClientId(context);
+        String deltaId = clientId.concat(Listbox.VIRTUAL_DELTA_ID);
+        ResponseWriter writer = context.getResponseWriter();
+        writer.startElement("input", listbox);
+        writer.writeAttribute("type", "hidden", null);
+        writer.writeAttribute("id", deltaId, null);
+        writer.writeAttribute("name", deltaId, null);
+        writer.writeAttribute("value", "", null);
+        writer.endElement("input");
+        writer.writeText("\n", null);
+
+        JsonArrayBuilder selected = JSON_BUILDER_FACTORY.createArrayBuilder();
+        for (String value : listbox.getValueAsStringArray(context)) {
+            if (value != null) {
+                selected.add(value);
+            }
+        }
+        JsonObject initProps = JSON_BUILDER_FACTORY.createObjectBuilder()
+                .add("id", id)
+                .add("renderId", clientId)
+                .add("deltaId", deltaId)
+                .add("count", count)
+                .add("rows", listbox.getVirtualRows())
+                .add("selected", selected)
+                .build();
+        renderInitScriptTag(writer, "listbox", initProps);
     }
 
     /**
@@ -730,7 +843,18 @@ public abstract class ListRendererBase extends Renderer {
 
         String[] values;
         Object p = params.get(id);
-        if (p == null) {
+        String[] delta = null;
+        if (component instanceof Listbox) {
+            delta = (String[]) params.get(component.getClientId(context)
+                    .concat(Listbox.VIRTUAL_DELTA_ID));
+        }
+        if (delta != null && delta.length > 0 && p == null) {
+            values = decodeVirtualDelta(context, (Listbox) component,
+                    delta[0]);
+            if (values == null) {
+                return;
+            }
+        } else if (p == null) {
             values = new String[0];
         } else {
             if (DEBUG) {
@@ -778,6 +902,69 @@ public abstract class ListRendererBase extends Renderer {
         }
     }
 
+    /**
+     * Apply the selection changes submitted by a virtual listbox to its
+     * current value. The expected format of the delta is
+     * {@code {"add":[value, ...],"remove":[value, ...]}}.
+     * @param context The FacesContext of this request
+     * @param listbox The listbox component
+     * @param delta The submitted selection changes
+     * @return the selected values, or {@code null} if the delta is invalid
+     */
+    private static String[] decodeVirtualDelta(final FacesContext context,
+            final Listbox listbox, final String delta) {
+
+        Set<String> values = new LinkedHashSet<String>(
+                Arrays.asList(listbox.getValueAsStringArray(context)));
+        values.remove(null);
+        if (delta.length() == 0) {
+            // The selection did not change.
+            return values.toArray(new String[values.size()]);
+        }
+        JsonObject json;
+        try {
+            json = parseJsonObject(delta);
+        } catch (JsonException ex) {
+            if (DEBUG) {
+                log("\tInvalid selection delta: " + ex.getMessage());
+            }
+            return null;
+        }
+        if (json == null) {
+            return null;
+        }
+        values.removeAll(getStrings(json.get("remove")));
+        values.addAll(getStrings(json.get("add")));
+        values.remove(OptionTitle.NONESELECTED);
+        if (!listbox.isMultiple() && values.size() > 1) {
+            // Only the last selected option is kept.
+            String last = null;
+            for (String value : values) {
+                last = value;
+            }
+            values.clear();
+            values.add(last);
+        }
+        return values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * Get the strings of a JSON array.
+     * @param value JSON value
+     * @return list of strings, empty if the value is not an array
+     */
+    private static List<String> getStrings(final JsonValue value) {
+        ArrayList<String> strings = new ArrayList<String>();
+        if (value instanceof JsonArray) {
+            for (JsonValue item : (JsonArray) value) {
+                if (item instanceof JsonString) {
+                    strings.add(((JsonString) item).getString());
+                }
+            }
+        }
+        return strings;
+    }
+
     /**
      * The list is not responsible for rendering any child components, so this
      * method returns false.(This is not intuitive, but it causes the right
@@ -23,6 +23,8 @@ import com.sun.webui.jsf.component.ImageHyperlink;
 import com.sun.webui.jsf.component.Hyperlink;
 import com.sun.webui.jsf.component.IconHyperlink;
 import com.sun.webui.theme.Theme;
+import com.sun.webui.theme.ThemeImage;
+import com.sun.webui.jsf.theme.ThemeImages;
 import com.sun.webui.jsf.theme.ThemeStyles;
 import com.sun.webui.jsf.util.JavaScriptUtilities;
 import com.sun.webui.jsf.util.RenderingUtilities;
@@ -35,6 +37,7 @@ import jakarta.faces.component.UIComponent;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.context.ResponseWriter;
 import jakarta.faces.event.ActionListener;
+import java.util.Map;
 
 import com.sun.webui.html.HTMLAttributes;
 import com.sun.webui.html.HTMLElements;
@@ -46,6 +49,19 @@ import com.sun.webui.html.HTMLElements;
         @Renderer.Renders(componentFamily = "com.sun.webui.jsf.TreeNode"))
 public class TreeNodeRenderer extends jakarta.faces.render.Renderer {
 
+    /**
+     * Faces context attribute key of the {@code RowContext} of the child
+     * nodes being rendered.
+     */
+    private static final String ROW_CONTEXT_KEY =
+            TreeNodeRenderer.class.getName() + ".rowContext";
+
+    /**
+     * Prefix of the ids of the line image facets created by previous
+     * versions.
+     */
+    private static final String LINE_IMAGE_FACET_PREFIX = "icon";
+
     /**
      * This implementation is empty.
      *
@@ -107,10 +123,24 @@ public class TreeNodeRenderer extends jakarta.faces.render.Renderer {
         // Get the theme
         Theme theme = ThemeUtilities.getTheme(context);
 
-        Tree root = TreeNode.getAbsoluteRoot(node);
+        RowContext row = getRowContext(context, node);
+        Tree root = row.root;
         boolean csFlag = root.isClientSide();
         // boolean esFlag = root.isExpandOnSelect();
 
+        // The child nodes created by the node provider of the tree are only
+        // kept while the node is expanded. The child nodes of a collapsed
+        // node of a client-side tree are requested with Ajax, and are then
+        // kept since collapsing it does not reach the server.
+        boolean provided = root.getRequestNodeProvider() != null;
+        if (provided && node.isExpanded()) {
+            node.loadChildNodes();
+        } else if (provided && !csFlag) {
+            node.unloadChildNodes();
+        }
+        RowContext childRow = new RowContext(root, node, row.appendLine(node),
+                getLineImageKey(node), false);
+
         // Check if the TreeNode has children. If so, render each child which
         // in turn will invoke methods of this class.
         // Check if the treeNode has facets, if so render these facets and
@@ -138,11 +168,21 @@ public class TreeNodeRenderer extends jakarta.faces.render.Renderer {
                     node.getStyle(), null);
         }
 
-        // Getting the list of images for a given row before they are
-        // used for the first time.
-        Iterator imageIter = node.getImageKeys().iterator();
-
-        IconHyperlink ihl = node.getTurnerImageHyperlink();
+        // The handle is the turner if the node has child nodes, otherwise
+        // a line image.
+        removeLineImageFacets(node);
+        boolean hasChildNodes = childRow.lastNode != null
+                || (provided && node.hasChildNodes());
+        String handleIcon = node.getHandleImageKey(hasChildNodes,
+                row.lastNode == node, row.topLine && row.firstNode == node);
+        IconHyperlink ihl = null;
+        LineImage lines = row.lines;
+        if (hasChildNodes) {
+            ihl = node.getTurnerImageHyperlink(handleIcon, csFlag);
+        } else {
+            lines = new LineImage(lines, handleIcon,
+                    node.getText() + " node", node.getText() + " node icon");
+        }
         UIComponent imageFacet = null;
         if (ihl != null) {
             imageFacet = ihl.getImageFacet();
@@ -161,10 +201,8 @@ public class TreeNodeRenderer extends jakarta.faces.render.Renderer {
                 buff.toString(), null);
 
         // writer.writeText("\n", null);
-        // Render the treeRow now. Passing the retrived
-        // iterator so that the same task does not have to
-        // be repeated inside the method.
-        renderTreeRow(node, imageIter, context, writer);
+        // Render the treeRow now.
+        renderTreeRow(node, lines, ihl, root, context, writer);
         // treerow div ends
         writer.endElement(HTMLElements.DIV);
         //writer.writeText("\n", null);
@@ -190,10 +228,7 @@ public class TreeNodeRenderer extends jakarta.faces.render.Renderer {
             }
             // writer.writeText("\n", null);
 
-            Iterator<UIComponent> iter = children.iterator();
-            while (iter.hasNext()) {
-                RenderingUtilities.renderComponent(iter.next(), context);
-            }
+            renderChildNodes(children, childRow, context);
 
             writer.endElement(HTMLElements.DIV);
             // writer.writeText("\n", null);
@@ -244,6 +279,49 @@ public class TreeNodeRenderer extends jakarta.faces.render.Renderer {
             final FacesContext context, final ResponseWriter writer)
             throws IOException {
 
+        renderTreeRow(node, imageIter, null, null,
+                TreeNode.getAbsoluteRoot(node), context, writer);
+    }
+
+    /**
+     * Renders a tree row, with line images rendered directly.
+     *
+     * @param node The TreeNode object whose row is to be rendered
+     * @param lines The line images to render before the turner, may be
+     * {@code null}
+     * @param turner The turner to render, may be {@code null}
+     * @param root The root of the tree
+     * @param context The current FacesContext
+     * @param writer The current ResponseWriter
+     *
+     * @exception IOException if an input/output error occurs
+     */
+    protected void renderTreeRow(final TreeNode node, final LineImage lines,
+            final UIComponent turner, final Tree root,
+            final FacesContext context, final ResponseWriter writer)
+            throws IOException {
+
+        renderTreeRow(node, null, lines, turner, root, context, writer);
+    }
+
+    /**
+     * Renders a tree row.
+     *
+     * @param node The TreeNode object whose row is to be rendered
+     * @param imageIter The image components to render, may be {@code null}
+     * @param lines The line images to render, may be {@code null}
+     * @param turner The turner to render, may be {@code null}
+     * @param root The root of the tree
+     * @param context The current FacesContext
+     * @param writer The current ResponseWriter
+     *
+     * @exception IOException if an input/output error occurs
+     */
+    private void renderTreeRow(final TreeNode node, final Iterator imageIter,
+            final LineImage lines, final UIComponent turner, final Tree root,
+            final FacesContext context, final ResponseWriter writer)
+            throws IOException {
+
         Theme theme = ThemeUtilities.getTheme(context);
 
         //image div
@@ -255,13 +333,18 @@ public class TreeNodeRenderer extends jakarta.faces.render.Renderer {
 
         // render turner and other images before the actual
         // data for a given tree row.
-        // Iterator imageIter = node.getImageKeys().iterator();
-        while (imageIter.hasNext()) {
+        while (imageIter != null && imageIter.hasNext()) {
             // read each image IconHyperlink or ImageHyperlink and render it
             UIComponent imageComp = (UIComponent) imageIter.next();
             RenderingUtilities.renderComponent(imageComp, context);
             //writer.writeText("\n", null);
         }
+        if (lines != null) {
+            lines.render(node, theme, context, writer);
+        }
+        if (turner != null) {
+            RenderingUtilities.renderComponent(turner, context);
+        }
 
         // check if image facet has been supplied. If so, render it.
         UIComponent imageFacet = node.getFacet(Tree.TREE_IMAGE_FACET_NAME);
@@ -277,7 +360,7 @@ public class TreeNodeRenderer extends jakarta.faces.render.Renderer {
                 ImageHyperlink ihl
                         = node.getNodeImageHyperlink();
                 setToolTip(ihl, node);
-                renderImageOrText(node, ihl, context);
+                renderImageOrText(node, ihl, root, context);
             }
         }
         //writer.writeText("\n", null);
@@ -310,7 +393,7 @@ public class TreeNodeRenderer extends jakarta.faces.render.Renderer {
             if (hasURL || hasAction) {
                 // new Hyperlink();
                 Hyperlink link = node.getContentHyperlink();
-                renderImageOrText(node, link, context);
+                renderImageOrText(node, link, root, context);
             } else if (treeText != null && treeText.length() > 0) {
                 writer.write(treeText);
             }
@@ -326,13 +409,13 @@ public class TreeNodeRenderer extends jakarta.faces.render.Renderer {
      * Render an image or text.
      * @param node tree node
      * @param link link
+     * @param root root of the tree
      * @param context faces context
      * @throws IOException if an IO error occurs
      */
     private void renderImageOrText(final TreeNode node, final Hyperlink link,
-            final FacesContext context) throws IOException {
+            final Tree root, final FacesContext context) throws IOException {
 
-        Tree root = TreeNode.getAbsoluteRoot(node);
         boolean csFlag = root.isClientSide();
         boolean esFlag = root.isExpandOnSelect();
         String nodeURL = node.getUrl();
@@ -379,4 +462,293 @@ public class TreeNodeRenderer extends jakarta.faces.render.Renderer {
             RenderingUtilities.renderComponent(link, context);
         }
     }
+
+    /**
+     * Render the child nodes of a node, making the row context of the child
+     * nodes available to their renderers.
+     *
+     * @param children The children to render
+     * @param childRow The row context of the child nodes
+     * @param context The current FacesContext
+     *
+     * @exception IOException if an input/output error occurs
+     */
+    protected static void renderChildNodes(final List<UIComponent> children,
+            final RowContext childRow, final FacesContext context)
+            throws IOException {
+
+        Map<Object, Object> attributes = context.getAttributes();
+        Object previous = attributes.put(ROW_CONTEXT_KEY, childRow);
+        try {
+            Iterator<UIComponent> iter = children.iterator();
+            while (iter.hasNext()) {
+                RenderingUtilities.renderComponent(iter.next(), context);
+            }
+        } finally {
+            attributes.put(ROW_CONTEXT_KEY, previous);
+        }
+    }
+
+    /**
+     * Get the row context of a node. The context set by the parent renderer
+     * is used when the node is rendered with its parent, otherwise it is
+     * computed from the ancestors of the node.
+     *
+     * @param context The current FacesContext
+     * @param node The node to be rendered
+     * @return RowContext
+     */
+    private static RowContext getRowContext(final FacesContext context,
+            final TreeNode node) {
+
+        TreeNode parent = TreeNode.getParentTreeNode(node);
+        RowContext row = (RowContext) context.getAttributes()
+                .get(ROW_CONTEXT_KEY);
+        if (row != null && row.parent == parent) {
+            return row;
+        }
+        return createRowContext(parent, TreeNode.getAbsoluteRoot(node));
+    }
+
+    /**
+     * Compute the row context of the child nodes of a node from its
+     * ancestors.
+     *
+     * @param parent The parent node, may be {@code null}
+     * @param root The root of the tree
+     * @return RowContext
+     */
+    protected static RowContext createRowContext(final TreeNode parent,
+            final Tree root) {
+
+        if (parent == null) {
+            return new RowContext(root, null, null, null, false);
+        }
+        TreeNode grandParent = TreeNode.getParentTreeNode(parent);
+        if (grandParent == null) {
+            return createRootRowContext(parent, root);
+        }
+        RowContext row = createRowContext(grandParent, root);
+        return new RowContext(root, parent, row.appendLine(parent),
+                getLineImageKey(parent), false);
+    }
+
+    /**
+     * Create the row context of the child nodes of the root. No line is drawn
+     * up to the root unless it has an image.
+     *
+     * @param node The root node
+     * @param root The root of the tree
+     * @return RowContext
+     */
+    protected static RowContext createRootRowContext(final TreeNode node,
+            final Tree root) {
+
+        String imgURL = node.getImageURL();
+        boolean topLine = (imgURL == null || imgURL.length() == 0)
+                && node.getFacet(TreeNode.IMAGE_FACET_KEY) == null;
+        return new RowContext(root, node, null, getLineImageKey(node),
+                topLine && node instanceof Tree);
+    }
+
+    /**
+     * Get the line image drawn under a node in the rows of its descendants.
+     *
+     * @param node The node
+     * @return The theme key of the image
+     */
+    private static String getLineImageKey(final TreeNode node) {
+        Object value = node.getAttributes().get("lastChild");
+        if (value != null && value.toString().equals("true")) {
+            return ThemeImages.TREE_BLANK;
+        }
+        return ThemeImages.TREE_LINE_VERTICAL;
+    }
+
+    /**
+     * Remove the line image facets created by previous versions, which would
+     * otherwise remain in the saved state.
+     *
+     * @param node The node
+     */
+    private static void removeLineImageFacets(final TreeNode node) {
+        if (node.getFacetCount() == 0) {
+            return;
+        }
+        Map<String, UIComponent> facets = node.getFacets();
+        for (int i = 1; facets.remove(LINE_IMAGE_FACET_PREFIX + i) != null;
+                i++) {
+            // Nothing else to do.
+        }
+    }
+
+    /**
+     * Line images drawn before the handle of a node, from left to right. The
+     * line images of a node share the images of its parent.
+     */
+    protected static final class LineImage {
+
+        /**
+         * The images drawn before this image.
+         */
+        private final LineImage previous;
+
+        /**
+         * Theme key of the image.
+         */
+        private final String icon;
+
+        /**
+         * Tool-tip of the image.
+         */
+        private final String toolTip;
+
+        /**
+         * Alternate text of the image.
+         */
+        private final String alt;
+
+        /**
+         * Create a new line image.
+         * @param newPrevious images drawn before this image, may be
+         * {@code null}
+         * @param newIcon theme key of the image
+         * @param newToolTip tool-tip of the image
+         * @param newAlt alternate text of the image
+         */
+        LineImage(final LineImage newPrevious, final String newIcon,
+                final String newToolTip, final String newAlt) {
+
+            this.previous = newPrevious;
+            this.icon = newIcon;
+            this.toolTip = newToolTip;
+            this.alt = newAlt;
+        }
+
+        /**
+         * Render the images.
+         * @param node The node whose row is rendered
+         * @param theme The current theme
+         * @param context The current FacesContext
+         * @param writer The current ResponseWriter
+         * @throws IOException if an IO error occurs
+         */
+        void render(final TreeNode node, final Theme theme,
+                final FacesContext context, final ResponseWriter writer)
+                throws IOException {
+
+            if (previous != null) {
+                previous.render(node, theme, context, writer);
+            }
+            ThemeImage image = theme.getImage(icon);
+            String url = image.getPath();
+            if (url != null && url.trim().length() != 0) {
+                url = context.getExternalContext().encodeResourceURL(url);
+            } else {
+                url = "";
+            }
+            writer.startElement(HTMLElements.IMG, node);
+            writer.writeURIAttribute(HTMLAttributes.SRC, url, null);
+            writer.writeAttribute(HTMLAttributes.ALT, alt, null);
+            writer.writeAttribute(HTMLAttributes.TITLE, toolTip, null);
+            if (image.getHeight() >= 0) {
+                writer.writeAttribute(HTMLAttributes.HEIGHT,
+                        Integer.toString(image.getHeight()), null);
+            }
+            if (image.getWidth() >= 0) {
+                writer.writeAttribute(HTMLAttributes.WIDTH,
+                        Integer.toString(image.getWidth()), null);
+            }
+            writer.endElement(HTMLElements.IMG);
+        }
+    }
+
+    /**
+     * Rendering context shared by the child nodes of a node: the line images
+     * drawn before their handles and their position.
+     */
+    protected static final class RowContext {
+
+        /**
+         * The root of the tree.
+         */
+        private final Tree root;
+
+        /**
+         * The parent of the nodes.
+         */
+        private final TreeNode parent;
+
+        /**
+         * The line images drawn before the handles of the nodes.
+         */
+        private final LineImage lines;
+
+        /**
+         * Theme key of the line image drawn under the parent in the rows of
+         * the descendants of the nodes.
+         */
+        private final String lineIcon;
+
+        /**
+         * {@code true} if no line is drawn up to the parent.
+         */
+        private final boolean topLine;
+
+        /**
+         * The first child node of the parent.
+         */
+        private final TreeNode firstNode;
+
+        /**
+         * The last child node of the parent.
+         */
+        private final TreeNode lastNode;
+
+        /**
+         * Create a new row context.
+         * @param newRoot the root of the tree
+         * @param newParent the parent of the nodes, may be {@code null}
+         * @param newLines the line images, may be {@code null}
+         * @param newLineIcon the line image drawn under the parent
+         * @param newTopLine {@code true} if no line is drawn up to the parent
+         */
+        RowContext(final Tree newRoot, final TreeNode newParent,
+                final LineImage newLines, final String newLineIcon,
+                final boolean newTopLine) {
+
+            this.root = newRoot;
+            this.parent = newParent;
+            this.lines = newLines;
+            this.lineIcon = newLineIcon;
+            this.topLine = newTopLine;
+            TreeNode first = null;
+            TreeNode last = null;
+            if (newParent != null) {
+                for (UIComponent kid : newParent.getChildren()) {
+                    if (kid instanceof TreeNode) {
+                        if (first == null) {
+                            first = (TreeNode) kid;
+                        }
+                        last = (TreeNode) kid;
+                    }
+                }
+            }
+            this.firstNode = first;
+            this.lastNode = last;
+        }
+
+        /**
+         * Get the line images of the child nodes of a node.
+         * @param node one of the nodes
+         * @return LineImage or {@code null} if no image is drawn
+         */
+        LineImage appendLine(final TreeNode node) {
+            if (lineIcon == null) {
+                return lines;
+            }
+            return new LineImage(lines, lineIcon, node.getText() + " child",
+                    node.getText() + " child icon");
+        }
+    }
 }
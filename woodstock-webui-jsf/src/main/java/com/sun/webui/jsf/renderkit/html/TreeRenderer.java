@@ -35,7 +35,6 @@ import static com.sun.webui.jsf.util.JavaScriptUtilities.renderScripTag;
 import static com.sun.webui.jsf.util.JavaScriptUtilities.renderCall;
 import static com.sun.webui.jsf.util.JsonUtilities.JSON_BUILDER_FACTORY;
 import static com.sun.webui.jsf.util.RenderingUtilities.renderAnchor;
-import static com.sun.webui.jsf.util.RenderingUtilities.renderComponent;
 import static com.sun.webui.jsf.util.RenderingUtilities.renderSkipLink;
 import static com.sun.webui.jsf.util.ThemeUtilities.getTheme;
 
@@ -152,11 +151,10 @@ public final class TreeRenderer extends TreeNodeRenderer {
             writer.writeAttribute(HTMLAttributes.CLASS,
                     theme.getStyleClass(ThemeStyles.TREE_ROOT_ROW), null);
             writer.write("\n");
-            Iterator imageIter = node.getImageKeys().iterator();
             if (((node.getUrl() != null) && (node.getUrl().length() > 0))
                     || hasRootContentFacet) {
 
-                renderTreeRow(node, imageIter, context, writer);
+                renderTreeRow(node, null, null, node, context, writer);
 
             } else {
 
@@ -165,7 +163,7 @@ public final class TreeRenderer extends TreeNodeRenderer {
                 writer.writeAttribute(HTMLAttributes.CLASS,
                         theme.getStyleClass(ThemeStyles.TREE_TITLE), null);
                 writer.write("\n");
-                renderTreeRow(node, imageIter, context, writer);
+                renderTreeRow(node, null, null, node, context, writer);
                 writer.endElement(HTMLElements.SPAN);
             }
             writer.endElement(HTMLElements.DIV);
@@ -174,16 +172,16 @@ public final class TreeRenderer extends TreeNodeRenderer {
 
         // Check if the TreeNode has children. If so, render each child which
         // in turn would cause each of the descendent nodes to get rendered.
-        Iterator<UIComponent> iter = node.getChildren().iterator();
-
+        // The line images of the rows are computed top-down, from the ones
+        // of the parent row.
         //writer.writeText("\n", null);
         String clientId = node.getClientId(context);
         writer.startElement(HTMLElements.DIV, node);
         writer.writeAttribute(HTMLAttributes.ID,
                 clientId + "_children", null);
-        while (iter.hasNext()) {
-            renderComponent(iter.next(), context);
-        }
+        node.loadChildNodes();
+        renderChildNodes(node.getChildren(), createRootRowContext(node, node),
+                context);
 
         writer.endElement(HTMLElements.DIV);
         //writer.writeText("\n", null);
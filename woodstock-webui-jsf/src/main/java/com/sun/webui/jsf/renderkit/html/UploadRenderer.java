@@ -33,7 +33,7 @@ import com.sun.webui.jsf.util.LogUtil;
 import com.sun.webui.jsf.util.MessageUtil;
 import com.sun.webui.theme.Theme;
 import com.sun.webui.jsf.util.ThemeUtilities;
-import org.apache.commons.fileupload.FileUploadBase.SizeLimitExceededException;
+import org.apache.commons.fileupload.FileUploadBase.SizeException;
 import static com.sun.webui.jsf.util.JavaScriptUtilities.renderCall;
 import static com.sun.webui.jsf.util.JavaScriptUtilities.renderScripTag;
 import static com.sun.webui.jsf.util.RenderingUtilities.renderHiddenField;
@@ -100,8 +100,8 @@ public final class UploadRenderer extends FieldRenderer {
         Object error = map.get(Upload.UPLOAD_ERROR_KEY);
         if (error != null) {
             if (error instanceof Throwable) {
-                if (error instanceof SizeLimitExceededException) {
-                    // Caused by the file size is too big
+                if (error instanceof SizeException) {
+                    // Caused by the request or file size is too big
                     String maxSize = (String) map.get(Upload.FILE_SIZE_KEY);
                     String[] detailArgs = {maxSize};
                     String summaryMsg = theme.getMessage("FileUpload.noFile");
@@ -17,18 +17,18 @@ package com.sun.webui.jsf.renderkit.widget;
 
 import com.sun.webui.jsf.component.Widget;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.Arrays;
 import java.util.Map;
-import java.util.Map.Entry;
 import jakarta.faces.component.UIComponent;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.context.ResponseWriter;
 import jakarta.faces.render.Renderer;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonObjectBuilder;
-import jakarta.json.JsonValue;
 
 import static com.sun.webui.jsf.util.JsonUtilities.jsonValueOf;
+import static com.sun.webui.jsf.util.JsonUtilities.writeJsonMembers;
 import static com.sun.webui.jsf.util.JavaScriptUtilities.renderCall;
 import static com.sun.webui.jsf.util.JavaScriptUtilities.renderScripTag;
 
@@ -40,6 +40,9 @@ import static com.sun.webui.jsf.util.JavaScriptUtilities.renderScripTag;
  * may contain further key-value pairs of properties or an HTML string. This
  * base class shall ensure that all properties are obtained and rendered at the
  * appropriate time.
+ *
+ * The properties are rendered as a single {@code data-dojo-props} attribute,
+ * generated directly to the response writer.
  */
 public abstract class RendererBase extends Renderer {
 
@@ -76,21 +79,21 @@ public abstract class RendererBase extends Renderer {
         if (!isSubComponent && widgetType != null) {
 
             // declare widget
-            StringBuilder widget = new StringBuilder();
-            widget.append("<div data-dojo-type=\"webui/suntheme/widget/")
-                    .append(widgetType)
-                    .append("\" ")
-                    .append(renderWidgetProp("id",
-                            component.getClientId(context)));
             JsonObject json = getProperties(context, component).build();
-            for (Entry<String, JsonValue> entry : json.entrySet()) {
-                widget.append(renderWidgetProp(entry.getKey(),
-                        entry.getValue().toString()));
-            }
-            widget.append("\n");
             renderNestedContent(context, component);
-            writer.append("</div>\n")
-                    .append(widget.toString());
+            writer.write("</div>\n");
+            writer.write("<div data-dojo-type=\"webui/suntheme/widget/");
+            writer.write(widgetType);
+            writer.write("\" data-dojo-props=\"");
+            Writer props = new AttributeWriter(writer);
+            props.write("id:'");
+            props.write(component.getClientId(context));
+            props.write("'");
+            if (!json.isEmpty()) {
+                props.write(",");
+                writeJsonMembers(json, props);
+            }
+            writer.write("\" \n");
         }
 
         // Render for JSF facets, but not subcomponents.
@@ -172,19 +175,60 @@ public abstract class RendererBase extends Renderer {
     }
 
     /**
-     * Create a {@code StringBuilder} for a widget property name/value pair.
-     * @param name property name
-     * @param value property value
-     * @return rendered widget property
+     * Writer escaping the characters that cannot appear in a double quoted
+     * HTML attribute value.
      */
-    private static StringBuilder renderWidgetProp(final String name,
-            final String value) {
-
-        return new StringBuilder()
-                .append("data-dojo-props=\"")
-                .append(name)
-                .append(":'")
-                .append(value)
-                .append("'\" ");
+    private static final class AttributeWriter extends Writer {
+
+        /**
+         * Underlying writer.
+         */
+        private final Writer out;
+
+        /**
+         * Create a new instance.
+         * @param newOut underlying writer
+         */
+        AttributeWriter(final Writer newOut) {
+            this.out = newOut;
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len)
+                throws IOException {
+
+            int start = off;
+            int end = off + len;
+            for (int i = off; i < end; i++) {
+                String entity;
+                switch (cbuf[i]) {
+                    case '&':
+                        entity = "&amp;";
+                        break;
+                    case '"':
+                        entity = "&quot;";
+                        break;
+                    case '<':
+                        entity = "&lt;";
+                        break;
+                    default:
+                        continue;
+                }
+                out.write(cbuf, start, i - start);
+                out.write(entity);
+                start = i + 1;
+            }
+            out.write(cbuf, start, end - start);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() {
+            // The underlying writer is not closed
+        }
     }
 }
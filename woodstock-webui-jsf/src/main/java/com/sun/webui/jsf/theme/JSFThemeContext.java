@@ -20,6 +20,7 @@ import java.beans.Beans;
 import java.net.URL;
 import java.util.Map;
 import jakarta.faces.context.FacesContext;
+import jakarta.servlet.http.HttpServletRequest;
 import com.sun.webui.jsf.util.ClassLoaderFinder;
 import com.sun.webui.theme.ServletThemeContext;
 import com.sun.webui.theme.ThemeContext;
@@ -39,6 +40,12 @@ public final class JSFThemeContext extends ServletThemeContext {
      */
     private static final Object SYNC_OBJECT = new Object();
 
+    /**
+     * Faces context attribute key of the resource path key of the request.
+     */
+    private static final String RESOURCE_PATH_KEY =
+            JSFThemeContext.class.getName() + ".resourcePathKey";
+
     /**
      * Construction is controlled by {@code getInstance}.
      * @param context faces context
@@ -69,10 +76,15 @@ public final class JSFThemeContext extends ServletThemeContext {
         // ServletContext and there is not "interface compatible".
         //
         // We need synchronization here because there is one
-        // ThemeContext per application servlet.
+        // ThemeContext per application servlet. The application map is
+        // thread safe, so that synchronization is only needed until the
+        // instance is created.
 
         Map map = context.getExternalContext().getApplicationMap();
-        ThemeContext themeContext;
+        ThemeContext themeContext = (ThemeContext) map.get(THEME_CONTEXT);
+        if (themeContext != null) {
+            return themeContext;
+        }
         synchronized (SYNC_OBJECT) {
             // try again in case another thread created it.
             //
@@ -104,6 +116,35 @@ public final class JSFThemeContext extends ServletThemeContext {
     public void setRequestContextPath(final String path) {
     }
 
+    /**
+     * The resource paths are translated by the {@code ViewHandler}, which
+     * may rewrite them for each request. The key is the path of the theme
+     * servlet translated by the {@code ViewHandler}, computed once per
+     * request. The translated paths are not cached if the request is not an
+     * HTTP servlet request, e.g. in a portlet.
+     *
+     * @return the key, or {@code null} if the translated paths of the
+     * current request must not be cached
+     */
+    @Override
+    public String getResourcePathKey() {
+        if (Beans.isDesignTime()) {
+            return super.getResourcePathKey();
+        }
+        FacesContext context = FacesContext.getCurrentInstance();
+        if (!(context.getExternalContext().getRequest()
+                instanceof HttpServletRequest)) {
+            return null;
+        }
+        Map<Object, Object> attributes = context.getAttributes();
+        String key = (String) attributes.get(RESOURCE_PATH_KEY);
+        if (key == null) {
+            key = getResourcePath("/");
+            attributes.put(RESOURCE_PATH_KEY, key);
+        }
+        return key;
+    }
+
     @Override
     public String getResourcePath(final String path) {
         String resourcePath = path;
@@ -15,6 +15,7 @@
  */
 package com.sun.webui.jsf.util;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.StringTokenizer;
 
@@ -33,7 +34,7 @@ import jakarta.faces.context.FacesContext;
  * </p><p>
  * <pre>
  * FacesContext context = FacesContext.getCurrentInstance();
- * ClientSniffer cs = new ClientSniffer(context);
+ * ClientSniffer cs = ClientSniffer.getInstance(context);
  *
  * String stylesheet = CCStyle.IE6_UP_CSS;
  *
@@ -49,7 +50,12 @@ import jakarta.faces.context.FacesContext;
  *     stylesheet = CCStyle.NS4_SOL_CSS;
  * }
  * </pre></p><p>
- *
+ * Instances are immutable. The instances returned by
+ * {@link #getInstance(FacesContext)} are kept in the request scope, and
+ * shared by all the requests sent with the same user agent. The least
+ * recently used ones are discarded once {@code MAX_CACHED_AGENTS} user
+ * agents have been classified.
+ * </p>
  */
 @SuppressWarnings("checkstyle:magicnumber")
 public final class ClientSniffer {
@@ -85,15 +91,51 @@ public final class ClientSniffer {
     // HotJava 1.0.1    HotJava/1.0.1/JRE1.1.3
     // Generic    Profile/MIDP-1.0 Configuration/CLDC-1.0
 
+    /**
+     * Maximum number of user agents kept in the classification cache.
+     */
+    private static final int MAX_CACHED_AGENTS = 64;
+
+    /**
+     * Classifications, keyed by raw user agent.
+     */
+    private static final AgentCache CACHE = new AgentCache();
+
+    /**
+     * Classification of the requests without user agent.
+     */
+    private static final ClientSniffer UNKNOWN = new ClientSniffer(
+            (String) null);
+
     /**
      * User agent.
      */
-    private String agent = null;
+    private final String agent;
 
     /**
      * User agent major version number.
      */
-    private int major = -1;
+    private final int major;
+
+    /**
+     * Client type used by the theme.
+     */
+    private final ClientType clientType;
+
+    /**
+     * Windows platform flag.
+     */
+    private final boolean win;
+
+    /**
+     * Sun platform flag.
+     */
+    private final boolean sun;
+
+    /**
+     * Gecko engine flag.
+     */
+    private final boolean gecko;
 
     /**
      * Default constructor.
@@ -102,9 +144,26 @@ public final class ClientSniffer {
      * the user agent.
      */
     public ClientSniffer(final FacesContext context) {
+        this(getUserAgent(context));
+    }
+
+    /**
+     * Create a new instance for the given user agent.
+     *
+     * @param userAgent raw user agent, may be {@code null}
+     */
+    private ClientSniffer(final String userAgent) {
         String version = null;
-        setUserAgent(context);
-        agent = getUserAgent();
+        if (userAgent != null) {
+            agent = userAgent.toLowerCase();
+        } else {
+            agent = null;
+        }
+        win = agent != null
+                && (agent.contains("win") || agent.contains("16bit"));
+        sun = agent != null && agent.contains("sunos");
+        gecko = agent != null && agent.contains("gecko");
+        clientType = classify(agent);
 
         // Parse user agent.
         if (agent != null) {
@@ -131,60 +190,74 @@ public final class ClientSniffer {
         }
 
         // Parse user agent major version number.
+        int majorVersion = -1;
         if (version != null) {
             StringTokenizer st = new StringTokenizer(version, ".");
 
             if (st.hasMoreTokens()) {
                 try {
-                    major = Integer.parseInt(st.nextToken());
+                    majorVersion = Integer.parseInt(st.nextToken());
                 } catch (NumberFormatException ex) {
                     // Ignore
                 }
             }
         }
+        major = majorVersion;
     }
 
     /**
-     * This method gets an instance of this class associated with the given
-     * {@code FacesContext}. It will look in the request scope to see if an
-     * instance already exists, if not, it will create one.
+     * This method gets an instance of this class for the user agent of the
+     * request of the given {@code FacesContext}. It will look in the request
+     * scope to see if an instance already exists, if not, it will look in the
+     * application wide classification cache, and create one if this user
+     * agent has not been classified yet.
      *
      * @param context The {@code FacesContext}
      *
      * @return  A {@code ClientSniffer} instance.
      */
     public static ClientSniffer getInstance(final FacesContext context) {
-        // Look for a cached one
+        // Look for the one of this request
         Map<String, Object> requestMap = context.getExternalContext()
                 .getRequestMap();
         ClientSniffer sniffer = (ClientSniffer) requestMap.get("__sniffer");
-
-        if (sniffer == null) {
-            // Not yet created, create one
-            sniffer = new ClientSniffer(context);
-            requestMap.put("__sniffer", sniffer);
+        if (sniffer != null) {
+            return sniffer;
         }
 
-        // Return the sniffer
+        String userAgent = getUserAgent(context);
+        if (userAgent == null) {
+            sniffer = UNKNOWN;
+        } else {
+            // Look for a cached one
+            synchronized (CACHE) {
+                sniffer = CACHE.get(userAgent);
+                if (sniffer == null) {
+                    // Not yet created, create one
+                    sniffer = new ClientSniffer(userAgent);
+                    CACHE.put(userAgent, sniffer);
+                }
+            }
+        }
+        requestMap.put("__sniffer", sniffer);
         return sniffer;
     }
 
     /**
-     * This method initializes the user agent via the supplied
+     * This method gets the raw user agent via the supplied
      * {@code FacesContext}. It will use the {@code ExternalContext}
      * to get at the request header Map. It will use this Map to obtain the
      * value for {@code USER-AGENT}.
      *
      * @param context The {@code FacesContext}
+     * @return The raw user agent, or {@code null} if not available
      */
-    protected void setUserAgent(final FacesContext context) {
+    private static String getUserAgent(final FacesContext context) {
         Map headerMap = context.getExternalContext().getRequestHeaderMap();
-        if (null != headerMap) {
-            agent = (String) headerMap.get("USER-AGENT");
-            if (null != agent) {
-                agent = agent.toLowerCase();
-            }
+        if (null == headerMap) {
+            return null;
         }
+        return (String) headerMap.get("USER-AGENT");
     }
 
     /**
@@ -212,14 +285,7 @@ public final class ClientSniffer {
      * @return {@code true} if Windows {@code false} otherwise
      */
     public boolean isWin() {
-        boolean result = false;
-
-        if ((agent != null) && ((agent.contains("win"))
-                || (agent.contains("16bit")))) {
-            result = true;
-        }
-
-        return result;
+        return win;
     }
 
     /**
@@ -228,13 +294,7 @@ public final class ClientSniffer {
      * @return {@code true} if SunOs {@code false} otherwise
      */
     public boolean isSun() {
-        boolean result = false;
-
-        if ((agent != null) && (agent.contains("sunos"))) {
-            result = true;
-        }
-
-        return result;
+        return sun;
     }
 
     /**
@@ -243,14 +303,7 @@ public final class ClientSniffer {
      * @return {@code true} if Gecko {@code false} otherwise
      */
     public boolean isGecko() {
-        boolean result = false;
-
-        if ((agent != null)
-                && (agent.contains("gecko"))) {
-            result = true;
-        }
-
-        return result;
+        return gecko;
     }
 
     /**
@@ -533,6 +586,15 @@ public final class ClientSniffer {
         return result;
     }
 
+    /**
+     * Get the client type used by the theme.
+     *
+     * @return The {@link ClientType}.
+     */
+    public ClientType getClientType() {
+        return clientType;
+    }
+
     /**
      * This method is used by the Theme.
      *
@@ -540,16 +602,19 @@ public final class ClientSniffer {
      * @return  The {@link ClientType}.
      */
     public static ClientType getClientType(final FacesContext context) {
-        Map map = context.getExternalContext().getRequestHeaderMap();
-        if (null == map) {
-            return ClientType.OTHER;
-        }
-        String agent = (String) map.get("USER-AGENT");
+        return getInstance(context).getClientType();
+    }
 
+    /**
+     * Classify a user agent.
+     *
+     * @param agent lower case user agent, may be {@code null}
+     * @return The {@link ClientType}.
+     */
+    private static ClientType classify(final String agent) {
         if (agent == null) {
             return ClientType.OTHER;
         }
-        agent = agent.toLowerCase();
         // Need to test for Safari first since it has "Gecko like"
         // in the user agent string and this will match "gecko"
         if (agent.contains("safari")) {
@@ -566,4 +631,29 @@ public final class ClientSniffer {
             return ClientType.OTHER;
         }
     }
+
+    /**
+     * Classification cache, evicts the least recently used user agent.
+     */
+    private static final class AgentCache
+            extends LinkedHashMap<String, ClientSniffer> {
+
+        /**
+         * Serialization UID.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Create a new instance.
+         */
+        AgentCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<String, ClientSniffer> eldest) {
+            return size() > MAX_CACHED_AGENTS;
+        }
+    }
 }
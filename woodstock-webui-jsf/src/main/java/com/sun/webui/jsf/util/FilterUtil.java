@@ -72,15 +72,21 @@ public final class FilterUtil implements FileFilter {
 
     @Override
     public boolean accept(final File f) {
+        return f.isDirectory() || accept(f.getName());
+    }
 
-        if (f.isDirectory()
-                || filterString == null
+    /**
+     * Test if a file name is accepted by this filter.
+     * @param fileName file name to test
+     * @return {@code boolean}
+     */
+    public boolean accept(final String fileName) {
+        if (filterString == null
                 || filterString.length() == 0
                 || filterString.equals("*")) {
             return true;
         }
 
-        String fileName = f.getName();
         if (filterString.equals(fileName)) {
             return true;
         }
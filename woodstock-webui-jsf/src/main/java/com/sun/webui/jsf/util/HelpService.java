@@ -0,0 +1,650 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.jsf.util;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.help.HelpSet;
+import javax.help.HelpSetException;
+import javax.help.IndexView;
+import javax.help.Merge;
+import javax.help.NavigatorView;
+import javax.help.SearchHit;
+import javax.help.SearchTOCItem;
+import javax.help.SearchView;
+import javax.help.TOCView;
+import javax.help.search.MergingSearchEngine;
+import javax.help.search.SearchEvent;
+import javax.help.search.SearchItem;
+import javax.help.search.SearchListener;
+import javax.help.search.SearchQuery;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreeNode;
+import jakarta.faces.context.ExternalContext;
+import jakarta.faces.context.FacesContext;
+
+/**
+ * Application scoped access to a parsed JavaHelp help set.
+ *
+ * One instance exists per help set and locale, it is created on first use
+ * and persisted in the {@code ApplicationMap}. The help sets are identified
+ * by their path in the web application and loaded from the resources of the
+ * application, not from the host name of a request. At most
+ * {@link #MAX_HELP_SERVICES} instances are kept, the least recently used one
+ * is evicted first. The help set, the TOC and index trees are built once and
+ * must be treated as read-only by callers.
+ *
+ * Search results are cached per query in a bounded LRU map. Up to
+ * {@link #MAX_SEARCH_ENGINES} searches run concurrently, each with its own
+ * search engine, and a search never blocks the calling thread for longer than
+ * {@link #SEARCH_TIMEOUT} milliseconds, a search that does not complete in
+ * time fails with a {@code TimeoutException}.
+ */
+public final class HelpService {
+
+    /**
+     * Application map key of the help services.
+     */
+    private static final String HELP_SERVICES
+            = "com.sun.webui.jsf.util.HELP_SERVICES";
+
+    /**
+     * Used to synchronize the creation of the help services.
+     */
+    private static final Object SYNC_OBJECT = new Object();
+
+    /**
+     * Maximum number of search queries kept in the result cache.
+     */
+    private static final int MAX_CACHED_QUERIES = 128;
+
+    /**
+     * Maximum number of help services kept in the {@code ApplicationMap}.
+     */
+    public static final int MAX_HELP_SERVICES = 32;
+
+    /**
+     * Maximum number of search engines, i.e. of concurrent searches, per
+     * help set.
+     */
+    public static final int MAX_SEARCH_ENGINES = 4;
+
+    /**
+     * Maximum time in milliseconds a search may take.
+     */
+    public static final long SEARCH_TIMEOUT = 10000L;
+
+    /**
+     * Node ID of the root TOC tree node.
+     */
+    private static final String BASE_ID = HelpUtils.BASE_ID;
+
+    /**
+     * The help set.
+     */
+    private final HelpSet helpSet;
+
+    /**
+     * External form of the URL of the web application resources the help
+     * set is loaded from, or {@code null}.
+     */
+    private final String baseURL;
+
+    /**
+     * Locale used for the search queries.
+     */
+    private final Locale locale;
+
+    /**
+     * TOC top node.
+     */
+    private final DefaultMutableTreeNode tocTopNode;
+
+    /**
+     * TOC tree nodes in pre-order.
+     */
+    private final List<Object> tocTreeList;
+
+    /**
+     * Index tree nodes in pre-order.
+     */
+    private final List<Object> indexTreeList;
+
+    /**
+     * IDs of the TOC and index tree nodes.
+     */
+    private final Map<TreeNode, String> nodeIds;
+
+    /**
+     * Search view, may be {@code null}.
+     */
+    private final SearchView searchView;
+
+    /**
+     * Idle search engines.
+     */
+    private final BlockingQueue<MergingSearchEngine> searchEngines;
+
+    /**
+     * Number of search engines created, guarded by {@link #searchEngines}.
+     */
+    private int searchEngineCount;
+
+    /**
+     * Search results cache, keyed by query.
+     */
+    private final Map<String, List<SearchTOCItem>> searchCache;
+
+    /**
+     * Construction is controlled by {@code getInstance}.
+     * @param newHelpSet help set
+     * @param newBaseURL URL of the web application resources, or
+     * {@code null}
+     * @param newLocale search locale
+     */
+    private HelpService(final HelpSet newHelpSet, final String newBaseURL,
+            final Locale newLocale) {
+
+        this.helpSet = newHelpSet;
+        this.baseURL = newBaseURL;
+        this.locale = newLocale;
+        this.nodeIds = new IdentityHashMap<TreeNode, String>();
+
+        TOCView tocView = (TOCView) helpSet.getNavigatorView(
+                HelpUtils.TOC_VIEW_NAME);
+        if (tocView != null) {
+            tocTopNode = tocView.getDataAsTree();
+            addSubHelpSets(tocView, helpSet);
+            tocTreeList = toList(tocTopNode);
+            initNodeIds(tocTopNode, BASE_ID);
+        } else {
+            tocTopNode = null;
+            tocTreeList = Collections.emptyList();
+        }
+
+        IndexView indexView = (IndexView) helpSet.getNavigatorView(
+                HelpUtils.INDEX_VIEW_NAME);
+        if (indexView != null) {
+            DefaultMutableTreeNode indexTopNode = indexView.getDataAsTree();
+            indexTreeList = toList(indexTopNode);
+            initNodeIds(indexTopNode, "");
+        } else {
+            indexTreeList = Collections.emptyList();
+        }
+
+        searchView = (SearchView) helpSet.getNavigatorView(
+                HelpUtils.SEARCH_VIEW_NAME);
+        searchEngines = new LinkedBlockingQueue<MergingSearchEngine>();
+        searchCache = new SearchCache();
+    }
+
+    /**
+     * Return the help service for the given help set and locale, parsing the
+     * help set if necessary. A help set located in the web application is
+     * loaded from the resources of the application.
+     *
+     * @param context faces context
+     * @param path path of the help set relative to the web application, or
+     * absolute URL of the help set
+     * @param locale search locale
+     * @return HelpService
+     * @throws HelpSetException if the help set does not exist, or cannot be
+     * parsed
+     * @throws MalformedURLException if the path is not valid
+     */
+    @SuppressWarnings("unchecked")
+    public static HelpService getInstance(final FacesContext context,
+            final String path, final Locale locale)
+            throws HelpSetException, MalformedURLException {
+
+        ExternalContext externalContext = context.getExternalContext();
+        Map<String, Object> map = externalContext.getApplicationMap();
+        Map<String, HelpService> services =
+                (Map<String, HelpService>) map.get(HELP_SERVICES);
+        if (services == null) {
+            synchronized (SYNC_OBJECT) {
+                // try again in case another thread created it.
+                services = (Map<String, HelpService>) map.get(HELP_SERVICES);
+                if (services == null) {
+                    services = new ServiceCache();
+                    map.put(HELP_SERVICES, services);
+                }
+            }
+        }
+
+        String key = path + "|" + locale;
+        synchronized (services) {
+            HelpService service = services.get(key);
+            if (service != null) {
+                return service;
+            }
+        }
+
+        URL url;
+        String base = null;
+        if (path.startsWith("/")) {
+            url = externalContext.getResource(path);
+            if (url == null) {
+                throw new HelpSetException("Help set not found: " + path);
+            }
+            URL root = externalContext.getResource("/");
+            if (root != null) {
+                base = root.toExternalForm();
+            }
+        } else {
+            url = new URL(path);
+        }
+
+        // The help set is parsed outside of the lock, a help set parsed
+        // concurrently by another thread is kept.
+        HelpService service = new HelpService(new HelpSet(null, url), base,
+                locale);
+        synchronized (services) {
+            HelpService existing = services.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            services.put(key, service);
+        }
+        return service;
+    }
+
+    /**
+     * Get the URL under which the help set pages can be requested by the
+     * client.
+     *
+     * @param url URL of a help set page
+     * @param requestBaseURL external form of the URL of the web application
+     * for the current request, ending with a slash
+     * @return String
+     */
+    public String getRequestURL(final URL url, final String requestBaseURL) {
+        String external = url.toExternalForm();
+        if (baseURL != null && external.startsWith(baseURL)) {
+            return requestBaseURL + external.substring(baseURL.length());
+        }
+        return external;
+    }
+
+    /**
+     * Get the help set.
+     * @return HelpSet
+     */
+    public HelpSet getHelpSet() {
+        return helpSet;
+    }
+
+    /**
+     * Get the locale used for the search queries.
+     * @return Locale
+     */
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Get the TOC top node.
+     * @return DefaultMutableTreeNode or {@code null} if there is no TOC view
+     */
+    public DefaultMutableTreeNode getTOCTopNode() {
+        return tocTopNode;
+    }
+
+    /**
+     * Get the TOC tree nodes in pre-order.
+     * @return unmodifiable list
+     */
+    public List<Object> getTOCTreeList() {
+        return tocTreeList;
+    }
+
+    /**
+     * Get the index tree nodes in pre-order.
+     * @return unmodifiable list
+     */
+    public List<Object> getIndexTreeList() {
+        return indexTreeList;
+    }
+
+    /**
+     * Return the ID of a TOC or index tree node.
+     * @param node tree node
+     * @return String or {@code null} if the node is not part of this help set
+     */
+    public String getID(final TreeNode node) {
+        return nodeIds.get(node);
+    }
+
+    /**
+     * Search the help set. The hits are merged per page in the order the
+     * pages are first found.
+     *
+     * @param query search query
+     * @return unmodifiable list of {@code SearchTOCItem}, or {@code null} if
+     * the help set has no search view
+     * @throws TimeoutException if the search did not complete within
+     * {@link #SEARCH_TIMEOUT} milliseconds
+     */
+    public List<SearchTOCItem> search(final String query)
+            throws TimeoutException {
+
+        if (query == null || searchView == null) {
+            return null;
+        }
+
+        List<SearchTOCItem> items = getCachedSearch(query);
+        if (items != null) {
+            return items;
+        }
+
+        long deadline = System.currentTimeMillis() + SEARCH_TIMEOUT;
+        MergingSearchEngine searchEngine;
+        try {
+            searchEngine = acquireSearchEngine();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Help search interrupted: " + query);
+        }
+        if (searchEngine == null) {
+            throw new TimeoutException(
+                    "Help search timed out waiting for an engine: " + query);
+        }
+
+        try {
+            // try again in case another thread ran the same query.
+            items = getCachedSearch(query);
+            if (items != null) {
+                return items;
+            }
+
+            SearchCollector collector = new SearchCollector();
+            SearchQuery searchQuery = searchEngine.createQuery();
+            searchQuery.addSearchListener(collector);
+            searchQuery.start(query, locale);
+
+            boolean finished;
+            try {
+                finished = collector.await(
+                        deadline - System.currentTimeMillis());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                finished = false;
+            }
+            if (!finished) {
+                searchQuery.stop();
+                throw new TimeoutException("Help search timed out: " + query);
+            }
+
+            items = collector.getItems();
+            synchronized (searchCache) {
+                searchCache.put(query, items);
+            }
+            return items;
+        } finally {
+            searchEngines.add(searchEngine);
+        }
+    }
+
+    /**
+     * Take an idle search engine, creating one if less than
+     * {@link #MAX_SEARCH_ENGINES} exist, otherwise waiting for one to be
+     * released.
+     *
+     * @return MergingSearchEngine, or {@code null} if none was released
+     * within {@link #SEARCH_TIMEOUT} milliseconds
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private MergingSearchEngine acquireSearchEngine()
+            throws InterruptedException {
+
+        MergingSearchEngine engine = searchEngines.poll();
+        if (engine != null) {
+            return engine;
+        }
+        synchronized (searchEngines) {
+            if (searchEngineCount < MAX_SEARCH_ENGINES) {
+                engine = new MergingSearchEngine(searchView);
+                searchEngineCount++;
+                return engine;
+            }
+        }
+        return searchEngines.poll(SEARCH_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get cached search results.
+     * @param query search query
+     * @return list of {@code SearchTOCItem} or {@code null} if not cached
+     */
+    private List<SearchTOCItem> getCachedSearch(final String query) {
+        synchronized (searchCache) {
+            return searchCache.get(query);
+        }
+    }
+
+    /**
+     * Adds sub-help sets TOC views to the master merged TOC.
+     *
+     * @param tocView master TOC view
+     * @param hs The HelpSet to which sub help sets will be added
+     */
+    private void addSubHelpSets(final TOCView tocView, final HelpSet hs) {
+        for (Enumeration e = hs.getHelpSets(); e.hasMoreElements();) {
+            HelpSet ehs = (HelpSet) e.nextElement();
+            if (ehs == null) {
+                continue;
+            }
+
+            // Merge views
+            NavigatorView[] views = ehs.getNavigatorViews();
+            for (NavigatorView view : views) {
+                if (view instanceof TOCView) {
+                    Merge mergeObject = Merge.DefaultMergeFactory
+                            .getMerge(tocView, view);
+                    if (mergeObject != null) {
+                        mergeObject.processMerge(tocTopNode);
+                    }
+                }
+            }
+            addSubHelpSets(tocView, ehs);
+        }
+    }
+
+    /**
+     * Assign the IDs of the given node and of its descendants. The ID of a
+     * node is the ID of its parent followed by {@code _<index>}.
+     *
+     * @param node tree node
+     * @param id node ID
+     */
+    private void initNodeIds(final TreeNode node, final String id) {
+        nodeIds.put(node, id);
+        int count = node.getChildCount();
+        for (int i = 0; i < count; i++) {
+            initNodeIds(node.getChildAt(i), id.concat("_" + i));
+        }
+    }
+
+    /**
+     * Collect the nodes of a tree in pre-order.
+     * @param topNode top node
+     * @return unmodifiable list
+     */
+    private static List<Object> toList(final DefaultMutableTreeNode topNode) {
+        List<Object> list = new ArrayList<Object>();
+        Enumeration e = topNode.preorderEnumeration();
+        while (e.hasMoreElements()) {
+            list.add(e.nextElement());
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Return the key used to merge the hits of a page: the URL without the
+     * reference, see {@link URL#sameFile(URL)}.
+     *
+     * @param url page URL
+     * @return String
+     */
+    private static String getPageKey(final URL url) {
+        String key = url.toExternalForm();
+        int index = key.indexOf('#');
+        if (index >= 0) {
+            return key.substring(0, index);
+        }
+        return key;
+    }
+
+    /**
+     * Search results cache, evicts the least recently used query.
+     */
+    private static final class SearchCache
+            extends LinkedHashMap<String, List<SearchTOCItem>> {
+
+        /**
+         * Serialization UID.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Create a new instance.
+         */
+        @SuppressWarnings("checkstyle:magicnumber")
+        SearchCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<String, List<SearchTOCItem>> eldest) {
+            return size() > MAX_CACHED_QUERIES;
+        }
+    }
+
+    /**
+     * Help services cache, evicts the least recently used help set.
+     */
+    private static final class ServiceCache
+            extends LinkedHashMap<String, HelpService> {
+
+        /**
+         * Serialization UID.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Create a new instance.
+         */
+        @SuppressWarnings("checkstyle:magicnumber")
+        ServiceCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<String, HelpService> eldest) {
+            return size() > MAX_HELP_SERVICES;
+        }
+    }
+
+    /**
+     * Collects the items of a single search query.
+     */
+    private static final class SearchCollector implements SearchListener {
+
+        /**
+         * Search items merged by page.
+         */
+        private final Map<String, SearchTOCItem> items;
+
+        /**
+         * Released when the search is finished.
+         */
+        private final CountDownLatch finished;
+
+        /**
+         * Create a new instance.
+         */
+        SearchCollector() {
+            items = new LinkedHashMap<String, SearchTOCItem>();
+            finished = new CountDownLatch(1);
+        }
+
+        /**
+         * Wait for the search to finish.
+         * @param timeout maximum time to wait in milliseconds
+         * @return {@code true} if the search is finished
+         * @throws InterruptedException if the thread is interrupted
+         */
+        boolean await(final long timeout) throws InterruptedException {
+            return finished.await(timeout, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Get the items found so far.
+         * @return unmodifiable list
+         */
+        synchronized List<SearchTOCItem> getItems() {
+            return Collections.unmodifiableList(
+                    new ArrayList<SearchTOCItem>(items.values()));
+        }
+
+        @Override
+        public void searchStarted(final SearchEvent evt) {
+        }
+
+        @Override
+        public void searchFinished(final SearchEvent evt) {
+            finished.countDown();
+        }
+
+        @Override
+        public synchronized void itemsFound(final SearchEvent evt) {
+            Enumeration itemEnum = evt.getSearchItems();
+            while (itemEnum.hasMoreElements()) {
+                SearchItem item = (SearchItem) itemEnum.nextElement();
+                URL url;
+                try {
+                    url = new URL(item.getBase(), item.getFilename());
+                } catch (MalformedURLException ex) {
+                    continue;
+                }
+                String key = getPageKey(url);
+                SearchTOCItem tocItem = items.get(key);
+                if (tocItem != null) {
+                    tocItem.addSearchHit(new SearchHit(item.getConfidence(),
+                            item.getBegin(), item.getEnd()));
+                } else {
+                    items.put(key, new SearchTOCItem(item));
+                }
+            }
+        }
+    }
+}
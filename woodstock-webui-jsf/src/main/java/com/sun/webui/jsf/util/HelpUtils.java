@@ -22,31 +22,20 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.TimeoutException;
 
 import javax.help.HelpSet;
 import javax.help.HelpSetException;
 import javax.help.IndexItem;
-import javax.help.IndexView;
 import javax.help.InvalidHelpSetContextException;
 import javax.help.Map;
 import javax.help.Map.ID;
-import javax.help.Merge;
-import javax.help.NavigatorView;
-import javax.help.SearchHit;
 import javax.help.SearchTOCItem;
-import javax.help.SearchView;
 import javax.help.ServletHelpBroker;
 import javax.help.TOCItem;
-import javax.help.TOCView;
 import javax.help.TreeItem;
-import javax.help.search.MergingSearchEngine;
-import javax.help.search.SearchEvent;
-import javax.help.search.SearchItem;
-import javax.help.search.SearchListener;
-import javax.help.search.SearchQuery;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreeNode;
 import jakarta.faces.context.FacesContext;
@@ -55,8 +44,12 @@ import jakarta.servlet.http.HttpServletRequest;
 
 /**
  * This is a set of utilities used for accessing JavaHelp content.
+ *
+ * <p>The parsed help set, the TOC and index trees and the search results are
+ * shared by all instances through {@link HelpService}.</p>
  */
-public final class HelpUtils implements SearchListener {
+public final class HelpUtils {
+
 
     /**
      * URL separator character.
@@ -79,84 +72,31 @@ public final class HelpUtils implements SearchListener {
     public static final String SEARCH_VIEW_NAME = "Search";
 
     /**
-     * Helper broker.
+     * Helper broker, created on first use.
      */
     private ServletHelpBroker helpBroker;
 
     /**
-     * TOC view.
-     */
-    private TOCView tocView;
-
-    /**
-     * TOC tree enumeration.
-     */
-    private Enumeration tocTreeEnum;
-
-    /**
-     * TOC tree list.
-     */
-    private ArrayList<Object> tocTreeList;
-
-    /**
-     * TOC top node.
+     * Private copy of the broker help set, created when a help set is first
+     * merged into it.
      */
-    private DefaultMutableTreeNode tocTopNode;
+    private HelpSet mergedHelpSet = null;
 
     /**
-     * Index view.
+     * Shared help service.
      */
-    private IndexView indexView;
+    private HelpService helpService;
 
     /**
-     * Index tree enumeration.
-     */
-    private Enumeration indexTreeEnum;
-
-    /**
-     * Index tree list.
-     */
-    private ArrayList<Object> indexTreeList;
-
-    /**
-     * Index top node.
-     */
-    private DefaultMutableTreeNode indexTopNode;
-
-    /**
-     * Search view.
-     */
-    private SearchView searchView;
-
-    /**
-     * Help search.
-     */
-    private MergingSearchEngine helpSearch;
-
-    /**
-     * Search query.
-     */
-    private SearchQuery searchQuery;
-
-    /**
-     * Search nodes.
-     */
-    private List<SearchTOCItem> searchNodes;
-
-    /**
-     * Search enumeration.
-     */
-    private Enumeration searchEnum;
-
-    /**
-     * Flag to track if the search is finished.
+     * Current request scheme.
      */
-    private boolean searchFinished;
+    private String currentRequestScheme = null;
 
     /**
-     * Current request scheme.
+     * URL of the web application for the request that created this
+     * instance, ending with a slash.
      */
-    private String currentRequestScheme = null;
+    private String requestBaseURL;
 
     /**
      * The application name (context name).
@@ -225,7 +165,7 @@ public final class HelpUtils implements SearchListener {
         // Set up the currentLocale object.
         currentLocale = getLocale();
 
-        // Initialize the helpBroker and create/validate the helpset.
+        // Create/validate the helpset.
         initHelp(request);
     }
 
@@ -246,7 +186,7 @@ public final class HelpUtils implements SearchListener {
         currentLocale = getLocale();
         currentRequestScheme = requestScheme;
 
-        // Initialize the helpBroker and create/validate the helpset.
+        // Create/validate the helpset.
         initHelp(request);
     }
 
@@ -271,7 +211,7 @@ public final class HelpUtils implements SearchListener {
         // Set up the currentLocale object.
         currentLocale = getLocale();
 
-        // Initialize the helpBroker and create/validate the helpset.
+        // Create/validate the helpset.
         initHelp(request);
     }
 
@@ -335,24 +275,32 @@ public final class HelpUtils implements SearchListener {
      */
     private void initHelp(final HttpServletRequest request) {
 
-        instantiateHelpBroker(request);
-
         // Grab the default HelpSet path: /<appName>/html/<locale>/help/app.hs
         String hsPath = getDefaultHelpSetPath();
         // Debug.trace3("hsPath: " + hsPath);
 
-        // Validate the HelpSets and the help IDs (use null to get current ID).
-        validateHelpSet(request, hsPath, false);
-        validateID(null);
+        int port = httpPort;
+        if (port == -1) {
+            port = request.getServerPort();
+        }
+        try {
+            requestBaseURL = new URL(getCurrentRequestScheme(),
+                    request.getServerName(), port,
+                    request.getContextPath() + URL_SEPARATOR)
+                    .toExternalForm();
+        } catch (MalformedURLException e) {
+            requestBaseURL = request.getContextPath() + URL_SEPARATOR;
+        }
 
-        initNavigatorViews();
+        // The help set is parsed once per application, the help broker is
+        // only created if requested.
+        helpService = createHelpService(request, hsPath);
     }
 
     /**
      * Instantiate the ServletHelpBroker bean.
-     * @param request servlet request
      */
-    private void instantiateHelpBroker(final HttpServletRequest request) {
+    private void instantiateHelpBroker() {
         try {
             helpBroker = (ServletHelpBroker) java.beans.Beans.instantiate(
                     this.getClass().getClassLoader(),
@@ -367,10 +315,22 @@ public final class HelpUtils implements SearchListener {
     }
 
     /**
-     * Return a handle to the ServletHelpBroker.
+     * Return a handle to the ServletHelpBroker, creating it if necessary.
+     * Note that the broker help set is shared by all the users of the
+     * application until a help set is merged into it, and must not be
+     * modified.
+     *
      * @return ServletHelpBroker
      */
     public ServletHelpBroker getHelpBroker() {
+        if (helpBroker == null) {
+            instantiateHelpBroker();
+            if (helpBroker != null) {
+                // Validate the help IDs (use null to get current ID).
+                helpBroker.setHelpSet(helpService.getHelpSet());
+                validateID(null);
+            }
+        }
         return helpBroker;
     }
 
@@ -435,43 +395,6 @@ public final class HelpUtils implements SearchListener {
         }
     }
 
-    /**
-     * Initialize navigator views.
-     */
-    private void initNavigatorViews() {
-        // Initialize TOC.
-        HelpSet hs = helpBroker.getHelpSet();
-        Locale locale = hs.getLocale();
-
-        tocView = (TOCView) hs.getNavigatorView(TOC_VIEW_NAME);
-        if (tocView != null) {
-            // Grab the tree data from the navigator view.
-            tocTopNode = tocView.getDataAsTree();
-
-            // Add all the sub-helpsets to the master merged helpset.
-            addSubHelpSets(hs);
-
-            // Set the tocTreeEnum and tocTreeList objects for future use.
-            tocTreeEnum = tocTopNode.preorderEnumeration();
-            setTOCTreeList();
-        }
-
-        // Initialize Index.
-        // Get the Index navigator view and index tree data.
-        indexView = (IndexView) hs.getNavigatorView(INDEX_VIEW_NAME);
-        if (indexView != null) {
-            indexTopNode = indexView.getDataAsTree();
-
-            // Set the indexTreeEnum and indexTreeList objects for future use.
-            indexTreeEnum = indexTopNode.preorderEnumeration();
-            setIndexTreeList();
-        }
-
-        // Initialize Search.
-        // Get the Search navigator view and index tree data.
-        searchView = (SearchView) hs.getNavigatorView(SEARCH_VIEW_NAME);
-    }
-
     /**
      * This method validates the help set.
      *
@@ -482,7 +405,8 @@ public final class HelpUtils implements SearchListener {
     public void validateHelpSet(final HttpServletRequest request,
             final String hsName, final boolean merge) {
 
-        HelpSet hs = helpBroker.getHelpSet();
+        ServletHelpBroker broker = getHelpBroker();
+        HelpSet hs = broker.getHelpSet();
 
         // The HelpSet exists.
         if (hs != null) {
@@ -493,10 +417,10 @@ public final class HelpUtils implements SearchListener {
             }
 
             HelpSet newHS = createHelpSet(request, hsName);
-            if (merge && !hs.contains(newHS)) {
-                hs.add(newHS);
+            if (merge && newHS != null && !containsHelpSet(hs, newHS)) {
+                mergeHelpSet(broker, hs, newHS);
             } else {
-                helpBroker.setHelpSet(newHS);
+                broker.setHelpSet(newHS);
             }
 
             // The HelpSet does not exist.
@@ -508,8 +432,69 @@ public final class HelpUtils implements SearchListener {
                 // XXX: Forward to invalid url page.
                 return;
             }
-            helpBroker.setHelpSet(createHelpSet(request, hsName));
+            broker.setHelpSet(createHelpSet(request, hsName));
+        }
+    }
+
+    /**
+     * Merge a help set into the help set of the broker. The help sets of the
+     * help services are shared by all the users of the application, so they
+     * are copied and the copies are merged.
+     *
+     * @param broker The help broker.
+     * @param hs The current help set of the broker.
+     * @param newHS The help set to merge.
+     */
+    private void mergeHelpSet(final ServletHelpBroker broker,
+            final HelpSet hs, final HelpSet newHS) {
+
+        try {
+            if (hs != mergedHelpSet) {
+                mergedHelpSet = copyHelpSet(hs);
+                broker.setHelpSet(mergedHelpSet);
+            }
+            mergedHelpSet.add(copyHelpSet(newHS));
+        } catch (HelpSetException ex) {
+            LogUtil.warning("Cannot merge help set "
+                    + newHS.getHelpSetURL() + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Create a private copy of a help set, parsed from the same URL.
+     *
+     * @param hs The help set to copy.
+     * @return HelpSet
+     * @throws HelpSetException if the help set cannot be parsed
+     */
+    private static HelpSet copyHelpSet(final HelpSet hs)
+            throws HelpSetException {
+
+        return new HelpSet(hs.getLoader(), hs.getHelpSetURL());
+    }
+
+    /**
+     * Test if a help set, or one of its sub help sets, has been parsed from
+     * the URL of another help set.
+     *
+     * @param hs The help set to search.
+     * @param other The help set to look for.
+     * @return {@code true} if found, {@code false} otherwise
+     */
+    private static boolean containsHelpSet(final HelpSet hs,
+            final HelpSet other) {
+
+        String url = other.getHelpSetURL().toExternalForm();
+        if (url.equals(hs.getHelpSetURL().toExternalForm())) {
+            return true;
+        }
+        for (Enumeration e = hs.getHelpSets(); e.hasMoreElements();) {
+            HelpSet sub = (HelpSet) e.nextElement();
+            if (sub != null && containsHelpSet(sub, other)) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
@@ -519,12 +504,13 @@ public final class HelpUtils implements SearchListener {
      * @param helpID the current ID.
      */
     public void validateID(final String helpID) {
+        ServletHelpBroker broker = getHelpBroker();
         if (helpID != null) {
-            helpBroker.setCurrentID(helpID);
-        } else if (helpBroker.getCurrentID() == null
-                && helpBroker.getCurrentURL() == null) {
+            broker.setCurrentID(helpID);
+        } else if (broker.getCurrentID() == null
+                && broker.getCurrentURL() == null) {
             try {
-                helpBroker.setCurrentID(helpBroker.getHelpSet().getHomeID());
+                broker.setCurrentID(broker.getHelpSet().getHomeID());
             } catch (InvalidHelpSetContextException e) {
                 // Ignore
             }
@@ -536,7 +522,7 @@ public final class HelpUtils implements SearchListener {
      * @param url new current URL
      */
     public void setCurrentHelpPage(final URL url) {
-        helpBroker.setCurrentURL(url);
+        getHelpBroker().setCurrentURL(url);
     }
 
     /**
@@ -549,28 +535,43 @@ public final class HelpUtils implements SearchListener {
     private HelpSet createHelpSet(final HttpServletRequest request,
             final String hsName) {
 
-        String helpSetName = hsName;
-        if (!helpSetName.startsWith(REQUEST_SCHEME)
-                && !helpSetName.startsWith(URL_SEPARATOR)) {
-            helpSetName = URL_SEPARATOR + helpSetName;
+        HelpService service = createHelpService(request, hsName);
+        if (service == null) {
+            return null;
         }
+        return service.getHelpSet();
+    }
 
-        HelpSet hs = null;
+    /**
+     * Get the shared help service of a help set, parsing the help set if
+     * it is not yet known to the application. The help sets located in the
+     * web application are identified by their path relative to the
+     * application, whatever the host name used by the request.
+     *
+     * @param request The request for this page
+     * @param hsName the HelpSet name
+     * @return the HelpService
+     */
+    private HelpService createHelpService(final HttpServletRequest request,
+            final String hsName) {
 
-        int port = httpPort;
-        if (port == -1) {
-            port = request.getServerPort();
+        String helpSetName = hsName;
+        if (!helpSetName.startsWith(REQUEST_SCHEME)) {
+            if (!helpSetName.startsWith(URL_SEPARATOR)) {
+                helpSetName = URL_SEPARATOR + helpSetName;
+            }
+            String contextPath = request.getContextPath();
+            if (contextPath.length() > 0
+                    && helpSetName.startsWith(contextPath + URL_SEPARATOR)) {
+                helpSetName = helpSetName.substring(contextPath.length());
+            }
         }
 
+        HelpService service = null;
         try {
-            URL url;
-            if (helpSetName.startsWith(REQUEST_SCHEME)) {
-                url = new URL(helpSetName);
-            } else {
-                url = new URL(getCurrentRequestScheme(),
-                            request.getServerName(), port, hsName);
-            }
-            hs = new HelpSet(null, url);
+            service = HelpService.getInstance(
+                    FacesContext.getCurrentInstance(), helpSetName,
+                    currentLocale);
         } catch (MalformedURLException e) {
             // ignore
         } catch (HelpSetException hse) {
@@ -579,7 +580,8 @@ public final class HelpUtils implements SearchListener {
             if (!currentLocale.equals(Locale.ENGLISH)) {
                 currentLocale = Locale.ENGLISH;
                 try {
-                    hs = createHelpSet(request, getDefaultHelpSetPath());
+                    service = createHelpService(request,
+                            getDefaultHelpSetPath());
                 } catch (Exception ex) {
                     LogUtil.warning("Can not create helpset for en locale: "
                             + ex.getMessage());
@@ -594,34 +596,7 @@ public final class HelpUtils implements SearchListener {
                 throw new RuntimeException(hse);
             }
         }
-        return hs;
-    }
-
-    /**
-     * Adds sub-help sets to the master merged help set.
-     *
-     * @param hs The HelpSet to which sub help sets will be added
-     */
-    private void addSubHelpSets(final HelpSet hs) {
-        for (Enumeration e = hs.getHelpSets(); e.hasMoreElements();) {
-            HelpSet ehs = (HelpSet) e.nextElement();
-            if (ehs == null) {
-                continue;
-            }
-
-            // Merge views
-            NavigatorView[] views = ehs.getNavigatorViews();
-            for (NavigatorView view : views) {
-                if (view instanceof TOCView) {
-                    Merge mergeObject = Merge.DefaultMergeFactory
-                            .getMerge(tocView, view);
-                    if (mergeObject != null) {
-                        mergeObject.processMerge(tocTopNode);
-                    }
-                }
-            }
-            addSubHelpSets(ehs);
-        }
+        return service;
     }
 
     /**
@@ -630,7 +605,11 @@ public final class HelpUtils implements SearchListener {
      * @return String
      */
     public String getID(final TreeNode node) {
-        if (node == tocTopNode) {
+        String nodeId = helpService.getID(node);
+        if (nodeId != null) {
+            return nodeId;
+        }
+        if (node == helpService.getTOCTopNode()) {
             return BASE_ID;
         }
 
@@ -662,20 +641,22 @@ public final class HelpUtils implements SearchListener {
             }
         }
         if (url != null) {
-            return url.toExternalForm();
+            return getRequestURL(url);
         }
         return "";
     }
 
     /**
-     * Set the TOC tree list object using the tocTreeEnum object.
+     * Return the URL under which a help set page can be requested by the
+     * client. The help sets located in the web application are loaded from
+     * its resources, their pages are requested relative to the URL of the
+     * application.
+     *
+     * @param url URL of a help set page
+     * @return String
      */
-    @SuppressWarnings("unchecked")
-    private void setTOCTreeList() {
-        tocTreeList = new ArrayList<Object>();
-        while (tocTreeEnum.hasMoreElements()) {
-            tocTreeList.add(tocTreeEnum.nextElement());
-        }
+    public String getRequestURL(final URL url) {
+        return helpService.getRequestURL(url, requestBaseURL);
     }
 
     /**
@@ -683,20 +664,7 @@ public final class HelpUtils implements SearchListener {
      * @return ArrayList
      */
     public ArrayList getTOCTreeList() {
-        if (tocTreeList == null) {
-            setTOCTreeList();
-        }
-        return tocTreeList;
-    }
-
-    /**
-     * Set the Index tree list object using the indexTreeEnum object.
-     */
-    private void setIndexTreeList() {
-        indexTreeList = new ArrayList<Object>();
-        while (indexTreeEnum.hasMoreElements()) {
-            indexTreeList.add(indexTreeEnum.nextElement());
-        }
+        return new ArrayList<Object>(helpService.getTOCTreeList());
     }
 
     /**
@@ -704,121 +672,23 @@ public final class HelpUtils implements SearchListener {
      * @return ArrayList
      */
     public ArrayList getIndexTreeList() {
-        if (indexTreeList == null) {
-            setIndexTreeList();
-        }
-        return indexTreeList;
+        return new ArrayList<Object>(helpService.getIndexTreeList());
     }
 
     /**
-     * Do a search on the query passed in.
+     * Do a search on the query passed in. The results are shared with the
+     * other users of the help set and must not be modified.
+     *
      * @param query search query
-     * @return Enumeration
+     * @return Enumeration of {@code SearchTOCItem}
+     * @throws TimeoutException if the search did not complete in time
      */
-    public synchronized Enumeration doSearch(final String query) {
-        if (query == null) {
+    public Enumeration doSearch(final String query) throws TimeoutException {
+        List<SearchTOCItem> items = helpService.search(query);
+        if (items == null) {
             return null;
         }
-
-        if (helpSearch == null) {
-            if (searchView == null) {
-                searchView = (SearchView) helpBroker.getHelpSet()
-                        .getNavigatorView(SEARCH_VIEW_NAME);
-            }
-
-            if (searchView == null) {
-                return null;
-            }
-
-            helpSearch = new MergingSearchEngine(searchView);
-            searchQuery = helpSearch.createQuery();
-            searchQuery.addSearchListener(this);
-        }
-
-        if (searchQuery.isActive()) {
-            searchQuery.stop();
-        }
-
-        searchFinished = false;
-        searchQuery.start(query, currentLocale);
-
-        // Wait for search to finish.
-        if (!searchFinished) {
-            try {
-                wait();
-            } catch (InterruptedException e) {
-                // ignore
-            }
-        }
-
-        // searchEnum is set in searchFinished method.
-        return searchEnum;
-    }
-
-    /**
-     * Tells the listener that the search has started.
-     * @param evt search event
-     */
-    @Override
-    public synchronized void searchStarted(final SearchEvent evt) {
-        searchNodes = new ArrayList<SearchTOCItem>();
-        searchFinished = false;
-    }
-
-    /**
-     * Tells the listener that the search has finished.
-     * @param evt search event
-     */
-    @Override
-    public synchronized void searchFinished(final SearchEvent evt) {
-        searchFinished = true;
-        searchEnum = Collections.enumeration(searchNodes);
-        notifyAll();
-    }
-
-    /**
-     * Tells the listener that matching SearchItems have been found.
-     * @param e
-     */
-    @Override
-    public synchronized void itemsFound(final SearchEvent e) {
-        SearchTOCItem tocitem;
-        Enumeration itemEnum = e.getSearchItems();
-
-        // Iterate through each search item in the searchEvent
-        while (itemEnum.hasMoreElements()) {
-            SearchItem item = (SearchItem) itemEnum.nextElement();
-            URL url;
-            try {
-                url = new URL(item.getBase(), item.getFilename());
-            } catch (MalformedURLException me) {
-                /* Debug.trace3("Could not create URL from: "
-            + item.getBase() + "|" + item.getFilename()); */
-                continue;
-            }
-            boolean foundNode = false;
-
-            // See if this search item matches that of one we currently have
-            // if so just do an update
-            Iterator<SearchTOCItem> nodesIt = searchNodes.iterator();
-            while (nodesIt.hasNext()) {
-                tocitem = nodesIt.next();
-                URL testURL = tocitem.getURL();
-                if (testURL != null && url.sameFile(testURL)) {
-                    tocitem.addSearchHit(new SearchHit(item.getConfidence(),
-                            item.getBegin(), item.getEnd()));
-                    foundNode = true;
-                    break;
-                }
-            }
-
-            // No match.
-            // OK then add a new one.
-            if (!foundNode) {
-                tocitem = new SearchTOCItem(item);
-                searchNodes.add(tocitem);
-            }
-        }
+        return Collections.enumeration(items);
     }
 
     /**
@@ -23,10 +23,11 @@ import jakarta.faces.component.UIComponent;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.context.ResponseWriter;
 import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
 import jakarta.json.JsonWriter;
 
 import static com.sun.webui.jsf.util.JsonUtilities.JSON_BUILDER_FACTORY;
-import static com.sun.webui.jsf.util.JsonUtilities.JSON_WRITER_FACTORY;
+import static com.sun.webui.jsf.util.JsonUtilities.getJsonWriterFactory;
 import static com.sun.webui.jsf.util.JsonUtilities.writeJsonObject;
 import java.util.Iterator;
 import java.util.List;
@@ -51,6 +52,11 @@ public final class JavaScriptUtilities {
     /**
      * Render the DOJO config object.
      * Note: Must be rendered before including {@code dojo.js} in the page.
+     * <p>
+     * If the theme supports bundling, the JS files are included with a single
+     * script tag, and the base URL of DOJO is configured explicitly since it
+     * cannot be derived from the bundle URL.
+     * </p>
      *
      * @param debug Enable JavaScript debugging.
      * @param parseWidgets Enable searching of dojoType widget tags.
@@ -61,34 +67,56 @@ public final class JavaScriptUtilities {
             final boolean parseWidgets, final ResponseWriter writer)
             throws IOException {
 
+        Theme theme = getTheme();
+        String bundle = theme.getPathToJSBundle(new String[]{
+            ThemeJavascript.DOJO,
+            ThemeJavascript.HELPER,
+            ThemeJavascript.PROTOTYPE,
+            ThemeJavascript.JSFX
+        });
+
         JsonObject path = JSON_BUILDER_FACTORY
                 .createObjectBuilder()
                 .add("webui/suntheme",
                         "../../com/sun/webui/jsf/suntheme/javascript")
                 .build();
-        JsonObject json = JSON_BUILDER_FACTORY
+        JsonObjectBuilder jsonBuilder = JSON_BUILDER_FACTORY
                 .createObjectBuilder()
                 .add("isDebug", debug)
                 .add("debugAtAllCosts", debug)
                 .add("parseWidgets", parseWidgets)
                 .add("async", true)
-                .add("paths", path)
-                .build();
+                .add("paths", path);
+        if (bundle != null) {
+            String dojo = theme.getPathToJSFile(ThemeJavascript.DOJO);
+            jsonBuilder.add("baseUrl",
+                    dojo.substring(0, dojo.lastIndexOf('/') + 1));
+        }
+        JsonObject json = jsonBuilder.build();
 
         StringWriter buff = new StringWriter();
         buff.append("var dojoConfig=");
-        JsonWriter jsonWriter = JSON_WRITER_FACTORY.createWriter(buff);
+        JsonWriter jsonWriter = getJsonWriterFactory(debug).createWriter(buff);
         jsonWriter.writeObject(json);
         buff.append(";\n");
         renderScripTag(writer, buff.toString());
 
+        if (bundle != null) {
+            writer.startElement("script", null);
+            writer.writeAttribute("type", "text/javascript", null);
+            writer.writeURIAttribute("src", bundle, null);
+            writer.endElement("script");
+            writer.write("\n");
+            return;
+        }
+
         renderInclude(writer, ThemeJavascript.DOJO);
         renderInclude(writer, ThemeJavascript.HELPER);
         renderInclude(writer, ThemeJavascript.PROTOTYPE);
         renderInclude(writer, ThemeJavascript.JSFX);
 
         // Render global include.
-        String[] jsFiles = getTheme().getGlobalJSFiles();
+        String[] jsFiles = theme.getGlobalJSFiles();
         if (jsFiles == null) {
             return;
         }
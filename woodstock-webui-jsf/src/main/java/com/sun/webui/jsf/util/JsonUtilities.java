@@ -15,10 +15,13 @@
  */
 package com.sun.webui.jsf.util;
 
+import java.io.IOException;
 import java.io.StringReader;
 import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
+import jakarta.faces.application.ProjectStage;
+import jakarta.faces.context.FacesContext;
 import jakarta.json.Json;
 import jakarta.json.JsonBuilderFactory;
 import jakarta.json.JsonObject;
@@ -26,10 +29,16 @@ import jakarta.json.JsonValue;
 import jakarta.json.JsonWriter;
 import jakarta.json.JsonWriterFactory;
 import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+import jakarta.json.stream.JsonParser;
 import jakarta.json.stream.JsonParserFactory;
 
 /**
  * JSON utilities.
+ * <p>
+ * JSON is written without whitespace, unless pretty printing is requested
+ * for debugging, or the project stage is {@code Development}.
+ * </p>
  */
 public final class JsonUtilities {
 
@@ -46,17 +55,54 @@ public final class JsonUtilities {
             = Json.createBuilderFactory(null);
 
     /**
-     * JSON generator factory.
+     * JSON writer factory, without pretty printing.
      */
     public static final JsonWriterFactory JSON_WRITER_FACTORY
+            = Json.createWriterFactory(null);
+
+    /**
+     * JSON writer factory, with pretty printing enabled.
+     */
+    public static final JsonWriterFactory PRETTY_JSON_WRITER_FACTORY
             = createJsonWriterFactory();
 
+    /**
+     * JSON generator factory, without pretty printing.
+     */
+    public static final JsonGeneratorFactory JSON_GENERATOR_FACTORY =
+            Json.createGeneratorFactory(null);
+
     /**
      * JSON parser factory.
      */
     public static final JsonParserFactory JSON_PARSER_FACTORY =
             Json.createParserFactory(null);
 
+    /**
+     * Get the JSON writer factory to use.
+     * @param prettyPrinting {@code true} to enable pretty printing
+     * @return JsonWriterFactory
+     */
+    public static JsonWriterFactory getJsonWriterFactory(
+            final boolean prettyPrinting) {
+
+        if (prettyPrinting) {
+            return PRETTY_JSON_WRITER_FACTORY;
+        }
+        return JSON_WRITER_FACTORY;
+    }
+
+    /**
+     * Test if JSON should be pretty printed, i.e. if the project stage of the
+     * application is {@code Development}.
+     * @param context faces context, may be {@code null}
+     * @return {@code boolean}
+     */
+    public static boolean isPrettyPrinting(final FacesContext context) {
+        return context != null
+                && context.isProjectStage(ProjectStage.Development);
+    }
+
     /**
      * Write a given JSON object.
      * @param json the object to write
@@ -65,18 +111,49 @@ public final class JsonUtilities {
     public static void writeJsonObject(final JsonObject json,
             final Writer writer) {
 
-        JsonWriter jsonWriter = JSON_WRITER_FACTORY.createWriter(writer);
+        JsonWriter jsonWriter = getJsonWriterFactory(isPrettyPrinting(
+                FacesContext.getCurrentInstance())).createWriter(writer);
         jsonWriter.writeObject(json);
     }
 
+    /**
+     * Write the members of a given JSON object, i.e. the object without the
+     * enclosing braces. The members are generated directly to the writer.
+     * This can be used to render an object as JavaScript object literal
+     * properties, e.g. the value of a {@code data-dojo-props} attribute.
+     *
+     * @param json the object to write
+     * @param writer the writer to use
+     * @throws IOException if an error occurs
+     */
+    public static void writeJsonMembers(final JsonObject json,
+            final Writer writer) throws IOException {
+
+        MembersWriter membersWriter = new MembersWriter(writer);
+        JsonGenerator generator = JSON_GENERATOR_FACTORY
+                .createGenerator(membersWriter);
+        generator.write(json);
+        // Do not close the generator, which would close the writer.
+        generator.flush();
+    }
+
     /**
      * Parse the given string as a JSON object.
      * @param input the input string to parse
-     * @return JsonObject
+     * @return JsonObject, or {@code null} if the input is not a JSON object
      */
     public static JsonObject parseJsonObject(final String input) {
-        return JSON_PARSER_FACTORY.createParser(new StringReader(input))
-                .getObject();
+        JsonParser parser = JSON_PARSER_FACTORY
+                .createParser(new StringReader(input));
+        try {
+            if (!parser.hasNext()
+                    || parser.next() != JsonParser.Event.START_OBJECT) {
+                return null;
+            }
+            return parser.getObject();
+        } finally {
+            parser.close();
+        }
     }
 
     /**
@@ -105,6 +182,66 @@ public final class JsonUtilities {
         return jsonValue;
     }
 
+    /**
+     * Writer that removes the first and the last character written, i.e. the
+     * braces enclosing a JSON object.
+     */
+    private static final class MembersWriter extends Writer {
+
+        /**
+         * Underlying writer.
+         */
+        private final Writer out;
+
+        /**
+         * Flag indicating that the first character has been skipped.
+         */
+        private boolean started;
+
+        /**
+         * Last character written, held back until another one is written.
+         */
+        private int last = -1;
+
+        /**
+         * Create a new instance.
+         * @param newOut underlying writer
+         */
+        MembersWriter(final Writer newOut) {
+            this.out = newOut;
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len)
+                throws IOException {
+
+            int start = off;
+            int end = off + len;
+            if (!started && start < end) {
+                started = true;
+                start++;
+            }
+            if (start >= end) {
+                return;
+            }
+            if (last != -1) {
+                out.write(last);
+            }
+            out.write(cbuf, start, end - start - 1);
+            last = cbuf[end - 1];
+        }
+
+        @Override
+        public void flush() {
+            // The underlying writer is flushed by its owner
+        }
+
+        @Override
+        public void close() {
+            // The last character is discarded, the writer is not closed
+        }
+    }
+
     /**
      * Create a JSON writer factory with pretty printing enabled.
      *
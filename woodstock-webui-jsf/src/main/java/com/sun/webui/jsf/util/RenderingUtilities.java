@@ -512,6 +512,14 @@ public final class RenderingUtilities {
             final Theme theme, final FacesContext context,
             final ResponseWriter writer) throws IOException {
 
+        // Single bundle, if supported by the theme.
+        ClientType clientType = ClientSniffer.getClientType(context);
+        String bundle = theme.getPathToStylesheetBundle(clientType.toString());
+        if (bundle != null) {
+            renderStylesheetLinks(new String[]{bundle}, component, writer);
+            return;
+        }
+
         //Master.
         //String master = theme.getPathToMasterStylesheet();
         String[] files = theme.getMasterStylesheets();
@@ -519,7 +527,6 @@ public final class RenderingUtilities {
             renderStylesheetLinks(files, component, writer);
         }
         // browser specific stylesheets
-        ClientType clientType = ClientSniffer.getClientType(context);
         files = theme.getStylesheets(clientType.toString());
         if (files != null && files.length != 0) {
             renderStylesheetLinks(files, component, writer);
@@ -573,13 +580,21 @@ public final class RenderingUtilities {
         writer.writeAttribute(HTMLAttributes.TYPE, "text/css", null);
         writer.write("\n");
 
+        // Single bundle, if supported by the theme.
+        ClientType clientType = ClientSniffer.getClientType(context);
+        String bundle = theme.getPathToStylesheetBundle(clientType.toString());
+        if (bundle != null) {
+            renderImports(new String[]{bundle}, writer);
+            writer.endElement(HTMLElements.STYLE);
+            return;
+        }
+
         String[] files = theme.getMasterStylesheets();
         if (files != null && files.length != 0) {
             renderImports(files, writer);
         }
 
         // browser specific stylesheets
-        ClientType clientType = ClientSniffer.getClientType(context);
         files = theme.getStylesheets(clientType.toString());
         if (files != null && files.length != 0) {
             renderImports(files, writer);
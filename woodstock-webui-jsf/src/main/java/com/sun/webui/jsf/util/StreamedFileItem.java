@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.jsf.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemHeaders;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.ParameterParser;
+import org.apache.commons.fileupload.util.Streams;
+
+/**
+ * File item read with the streaming API of commons fileupload, used by the
+ * {@link UploadFilter} in streaming mode. The content of a part is read
+ * once: it is kept in memory up to the size threshold, larger parts are
+ * written to a temporary file. The temporary file is opened lazily by
+ * {@link #getInputStream()} and moved by {@link #write(File)}, it is never
+ * copied.
+ */
+final class StreamedFileItem implements FileItem {
+
+    /**
+     * Default charset of the form fields.
+     */
+    private static final String DEFAULT_CHARSET = "ISO-8859-1";
+
+    /**
+     * Buffer size used to read the parts.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Field name.
+     */
+    private String fieldName;
+
+    /**
+     * Form field flag.
+     */
+    private boolean formField;
+
+    /**
+     * Content type of the part.
+     */
+    private final String contentType;
+
+    /**
+     * File name of the part.
+     */
+    private final String fileName;
+
+    /**
+     * Headers of the part.
+     */
+    private FileItemHeaders headers;
+
+    /**
+     * Content, if kept in memory.
+     */
+    private byte[] content;
+
+    /**
+     * File holding the content, if not kept in memory.
+     */
+    private File file;
+
+    /**
+     * Flag indicating that the file is a temporary file owned by this item.
+     */
+    private boolean temporary;
+
+    /**
+     * Size of the content.
+     */
+    private final long size;
+
+    /**
+     * Read a part.
+     * @param stream the part to read
+     * @param sizeThreshold size above which the content is written to a
+     * temporary file
+     * @param tmpDir directory of the temporary files
+     * @throws IOException if an error occurs
+     */
+    StreamedFileItem(final FileItemStream stream, final int sizeThreshold,
+            final File tmpDir) throws IOException {
+
+        this.fieldName = stream.getFieldName();
+        this.formField = stream.isFormField();
+        this.contentType = stream.getContentType();
+        this.fileName = stream.getName();
+        this.headers = stream.getHeaders();
+
+        try (InputStream in = stream.openStream()) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] buf = new byte[BUFFER_SIZE];
+            long total = 0;
+            int len;
+            while ((len = in.read(buf)) != -1) {
+                total += len;
+                if (total > sizeThreshold) {
+                    // Too large for memory, write to a temporary file and
+                    // transfer the rest of the part
+                    file = File.createTempFile("upload_", ".tmp", tmpDir);
+                    temporary = true;
+                    try (OutputStream out = Files.newOutputStream(
+                            file.toPath())) {
+                        buffer.writeTo(out);
+                        out.write(buf, 0, len);
+                        total += Streams.copy(in, out, false, buf);
+                    } catch (IOException ex) {
+                        delete();
+                        throw ex;
+                    }
+                    break;
+                }
+                buffer.write(buf, 0, len);
+            }
+            if (file == null) {
+                content = buffer.toByteArray();
+            }
+            size = total;
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (content != null) {
+            return new ByteArrayInputStream(content);
+        }
+        if (file == null) {
+            throw new IOException("The content has been deleted");
+        }
+        return Files.newInputStream(file.toPath());
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getName() {
+        return fileName;
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return content != null;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public byte[] get() {
+        if (content != null) {
+            return content;
+        }
+        if (file == null) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public String getString(final String encoding)
+            throws UnsupportedEncodingException {
+
+        byte[] bytes = get();
+        if (bytes == null) {
+            return null;
+        }
+        return new String(bytes, encoding);
+    }
+
+    @Override
+    public String getString() {
+        String charset = getCharset();
+        if (charset == null) {
+            charset = DEFAULT_CHARSET;
+        }
+        try {
+            return getString(charset);
+        } catch (UnsupportedEncodingException ex) {
+            byte[] bytes = get();
+            if (bytes == null) {
+                return null;
+            }
+            return new String(bytes);
+        }
+    }
+
+    /**
+     * Get the charset specified by the content type of the part.
+     * @return String, or {@code null} if not specified
+     */
+    private String getCharset() {
+        if (contentType == null) {
+            return null;
+        }
+        ParameterParser parser = new ParameterParser();
+        parser.setLowerCaseNames(true);
+        Map<String, String> params = parser.parse(contentType, ';');
+        return params.get("charset");
+    }
+
+    @Override
+    public void write(final File destination) throws Exception {
+        if (content != null) {
+            Files.write(destination.toPath(), content);
+            return;
+        }
+        if (file == null) {
+            throw new IOException("The content has been deleted");
+        }
+        // Move the temporary file instead of copying it
+        Files.move(file.toPath(), destination.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        file = destination;
+        temporary = false;
+    }
+
+    @Override
+    public void delete() {
+        content = null;
+        if (file != null && temporary && !file.delete()
+                && file.exists()) {
+            LogUtil.fine("Cannot delete " + file);
+        }
+        if (temporary) {
+            file = null;
+        }
+    }
+
+    @Override
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    @Override
+    public void setFieldName(final String name) {
+        this.fieldName = name;
+    }
+
+    @Override
+    public boolean isFormField() {
+        return formField;
+    }
+
+    @Override
+    public void setFormField(final boolean state) {
+        this.formField = state;
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        throw new IOException("Streamed items are read only");
+    }
+
+    @Override
+    public FileItemHeaders getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public void setHeaders(final FileItemHeaders newHeaders) {
+        this.headers = newHeaders;
+    }
+}
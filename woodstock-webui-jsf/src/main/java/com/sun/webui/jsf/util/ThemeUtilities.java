@@ -19,7 +19,9 @@ package com.sun.webui.jsf.util;
 import java.util.Locale;
 import java.util.Map;
 
+import jakarta.faces.context.ExternalContext;
 import jakarta.faces.context.FacesContext;
+import jakarta.servlet.http.Cookie;
 
 import com.sun.webui.jsf.component.Icon;
 import com.sun.webui.jsf.theme.JSFThemeContext;
@@ -52,6 +54,14 @@ public final class ThemeUtilities {
      * request map, obtain an instance from the {@code ThemeFactory}.If the
      * theme is obtained from the {@code ThemeFactory} place it in the request
      * map.
+     * <p>
+     * The theme name is read from the session, and the default theme name is
+     * stored in the session if none is set. If the
+     * {@code com.sun.webui.theme.STATELESS_THEME} context parameter is
+     * {@code true}, the session is not used: the theme name is read from the
+     * {@link Theme#THEME_ATTR} request attribute or cookie, the default theme
+     * of the {@code ThemeContext} being used otherwise.
+     * </p>
      *
      * @param context faces context
      * @return Theme
@@ -72,6 +82,15 @@ public final class ThemeUtilities {
             return theme;
         }
         Locale locale = context.getViewRoot().getLocale();
+        ThemeContext themeContext = JSFThemeContext.getInstance(context);
+        ThemeFactory themeFactory = themeContext.getThemeFactory();
+        if (themeContext.isStatelessTheme()) {
+            // We must ensure that a theme instance is always returned.
+            theme = themeFactory.getTheme(getStatelessThemeName(context,
+                    themeContext), locale, themeContext);
+            context.getExternalContext().getRequestMap().put(JSFTHEME, theme);
+            return theme;
+        }
 
         String themeName = null;
         Map<String, Object> sessionAttributes
@@ -81,10 +100,7 @@ public final class ThemeUtilities {
             themeName = themeObject.toString().trim();
         }
 
-        ThemeContext themeContext = JSFThemeContext.getInstance(context);
-
         // We must ensure that a theme instance is always returned.
-        ThemeFactory themeFactory = themeContext.getThemeFactory();
         theme = themeFactory.getTheme(themeName, locale, themeContext);
 
         // Now see if this call to getTheme, set a default theme
@@ -103,6 +119,40 @@ public final class ThemeUtilities {
         return theme;
     }
 
+    /**
+     * Return the theme name of a request without using the session. The
+     * theme name is obtained from the {@link Theme#THEME_ATTR} request
+     * attribute, or the {@link Theme#THEME_ATTR} cookie (see
+     * {@link CookieUtils#getValidCookieName(String)}), or is the default
+     * theme of {@code themeContext}.
+     *
+     * @param context faces context
+     * @param themeContext theme context
+     * @return theme name, or {@code null} to use the default theme of the
+     * {@code ThemeFactory}
+     */
+    private static String getStatelessThemeName(final FacesContext context,
+            final ThemeContext themeContext) {
+
+        ExternalContext externalContext = context.getExternalContext();
+        Object themeObject = externalContext.getRequestMap()
+                .get(Theme.THEME_ATTR);
+        if (themeObject == null) {
+            Cookie cookie = CookieUtils.getCookieValue(context,
+                    Theme.THEME_ATTR);
+            if (cookie != null) {
+                themeObject = cookie.getValue();
+            }
+        }
+        if (themeObject != null) {
+            String themeName = themeObject.toString().trim();
+            if (themeName.length() != 0) {
+                return themeName;
+            }
+        }
+        return themeContext.getDefaultTheme();
+    }
+
     /**
      * Return an {@code Icon} component for the {@code iconKey}.
      * @param theme theme to use
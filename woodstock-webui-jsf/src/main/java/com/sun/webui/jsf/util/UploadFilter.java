@@ -33,12 +33,16 @@ import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpSession;
 
 import com.sun.webui.jsf.component.Upload;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileUploadBase.FileSizeLimitExceededException;
+import org.apache.commons.fileupload.FileUploadBase.FileUploadIOException;
 import org.apache.commons.fileupload.FileUploadException;
 import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
@@ -81,7 +85,20 @@ import org.apache.commons.fileupload.servlet.ServletFileUpload;
  * <li>{@code tmpDir} Use this directory to specify the directory to be
  * used for temporary storage of files. The default behaviour is to use the
  * directory specified in the system property "java.io.tmpdir". </li>
- * </ul>  *
+ * <li>{@code maxFileSize} The maximum allowed size of each uploaded file in
+ * bytes. If negative, there is no maximum. The default value is -1, only
+ * {@code maxSize} applies.</li>
+ * <li>{@code streaming} If {@code true}, the request is read with the
+ * streaming API of commons fileupload. Each part is read once, form fields
+ * are kept in memory and files larger than {@code sizeThreshold} are written
+ * once to a temporary file, which is moved when written to its destination
+ * with {@code UploadedFile.write}. The default value is {@code false}.</li>
+ * </ul>
+ * <p>
+ * The progress of an upload is available as an {@link UploadProgress} in the
+ * request attribute, and the session attribute if a session exists, named
+ * {@code Upload.UPLOAD_PROGRESS_KEY}.
+ * </p>
  */
 public final class UploadFilter implements Filter {
 
@@ -103,6 +120,18 @@ public final class UploadFilter implements Filter {
      */
     public static final String TMP_DIR = "tmpDir";
 
+    /**
+     * The name of the filter init parameter used to specify the maximum
+     * allowable size of each uploaded file.
+     */
+    public static final String MAX_FILE_SIZE = "maxFileSize";
+
+    /**
+     * The name of the filter init parameter used to enable the streaming
+     * mode.
+     */
+    public static final String STREAMING = "streaming";
+
     /**
      * Max upload size in byte.
      */
@@ -115,6 +144,16 @@ public final class UploadFilter implements Filter {
     @SuppressWarnings("checkstyle:magicnumber")
     private int sizeThreshold = 4096;
 
+    /**
+     * Max size of each uploaded file in byte.
+     */
+    private long maxFileSize = -1;
+
+    /**
+     * Streaming mode flag.
+     */
+    private boolean streaming = false;
+
     /**
      * Temp directory.
      */
@@ -177,6 +216,15 @@ public final class UploadFilter implements Filter {
             // limitation is enforced.
             // It is a big security hole to allow any file to be uploaded
             fu.setSizeMax(maxSize);
+            fu.setFileSizeMax(maxFileSize);
+
+            UploadProgress progress = new UploadProgress();
+            fu.setProgressListener(progress);
+            request.setAttribute(Upload.UPLOAD_PROGRESS_KEY, progress);
+            HttpSession session = req.getSession(false);
+            if (session != null) {
+                session.setAttribute(Upload.UPLOAD_PROGRESS_KEY, progress);
+            }
 
             // files with names in other languages (like Japanese) are not
             // being uploaded with the proper names. Proper encoding has to
@@ -186,15 +234,25 @@ public final class UploadFilter implements Filter {
             } else {
                 fu.setHeaderEncoding("UTF-8");
             }
-            List fileItems = null;
+            List<FileItem> fileItems = null;
             HashMap<String, String[]> parameters;
             try {
-                fileItems = fu.parseRequest(req);
+                if (streaming) {
+                    fileItems = parseStreaming(fu, req);
+                } else {
+                    fileItems = fu.parseRequest(req);
+                }
             } catch (FileUploadException fue) {
                 request.setAttribute(Upload.UPLOAD_ERROR_KEY, fue);
-                request.setAttribute(Upload.FILE_SIZE_KEY,
-                        String.valueOf(maxSize));
+                if (fue instanceof FileSizeLimitExceededException) {
+                    request.setAttribute(Upload.FILE_SIZE_KEY,
+                            String.valueOf(maxFileSize));
+                } else {
+                    request.setAttribute(Upload.FILE_SIZE_KEY,
+                            String.valueOf(maxSize));
+                }
             }
+            progress.setComplete();
 
             if (fileItems != null) {
                 parameters = parseRequest(fileItems, req);
@@ -213,7 +271,8 @@ public final class UploadFilter implements Filter {
                     parameters.put(param, new String[]{paramValue});
                 } else {
                     String[] origParamValue = parameters.get(param);
-                    List<String> paramList = Arrays.asList(origParamValue);
+                    List<String> paramList = new ArrayList<String>(
+                            Arrays.asList(origParamValue));
                     paramList.add(paramValue);
                     String[] newParamValue = (String[]) paramList.toArray(
                             new String[0]);
@@ -222,13 +281,16 @@ public final class UploadFilter implements Filter {
             }
 
             UploadRequest wrappedRequest = new UploadRequest(req, parameters);
-            chain.doFilter(wrappedRequest, response);
-
-            Enumeration e = request.getAttributeNames();
-            while (e.hasMoreElements()) {
-                Object o = request.getAttribute(e.nextElement().toString());
-                if (o instanceof FileItem) {
-                    ((FileItem) o).delete();
+            try {
+                chain.doFilter(wrappedRequest, response);
+            } finally {
+                if (session != null) {
+                    session.removeAttribute(Upload.UPLOAD_PROGRESS_KEY);
+                }
+                if (fileItems != null) {
+                    for (FileItem fileItem : fileItems) {
+                        fileItem.delete();
+                    }
                 }
             }
         } else {
@@ -236,6 +298,42 @@ public final class UploadFilter implements Filter {
         }
     }
 
+    /**
+     * Read the parts of a request with the streaming API.
+     * @param fu file upload
+     * @param request incoming request
+     * @return the parts of the request
+     * @throws FileUploadException if the request cannot be read, or a size
+     * limit is exceeded
+     */
+    private List<FileItem> parseStreaming(final ServletFileUpload fu,
+            final HttpServletRequest request) throws FileUploadException {
+
+        List<FileItem> fileItems = new ArrayList<FileItem>();
+        boolean success = false;
+        try {
+            File dir = new File(tmpDir);
+            FileItemIterator items = fu.getItemIterator(request);
+            while (items.hasNext()) {
+                fileItems.add(new StreamedFileItem(items.next(),
+                        sizeThreshold, dir));
+            }
+            success = true;
+            return fileItems;
+        } catch (FileUploadIOException ex) {
+            // Size limits are reported as an IOException while reading
+            throw (FileUploadException) ex.getCause();
+        } catch (IOException ex) {
+            throw new FileUploadException(ex.getMessage(), ex);
+        } finally {
+            if (!success) {
+                for (FileItem fileItem : fileItems) {
+                    fileItem.delete();
+                }
+            }
+        }
+    }
+
     /**
      * Parse a request.
      * @param fileItems file items
@@ -415,6 +513,22 @@ public final class UploadFilter implements Filter {
                 errorMessageBuffer.append(msg);
             }
         }
+        param = filterConfig.getInitParameter(MAX_FILE_SIZE);
+        if (param != null) {
+            try {
+                maxFileSize = Long.parseLong(param);
+            } catch (NumberFormatException nfe) {
+                Object[] params = {MAX_FILE_SIZE, param};
+                errorMessageBuffer.append(" ");
+                String msg = MessageUtil.getMessage(MESSAGES,
+                        "Upload.invalidLong", params);
+                errorMessageBuffer.append(msg);
+            }
+        }
+        param = filterConfig.getInitParameter(STREAMING);
+        if (param != null) {
+            streaming = Boolean.parseBoolean(param);
+        }
         param = filterConfig.getInitParameter(TMP_DIR);
         if (param != null) {
             tmpDir = param;
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.jsf.util;
+
+import java.io.Serializable;
+import org.apache.commons.fileupload.ProgressListener;
+
+/**
+ * Progress of a multipart upload processed by the {@link UploadFilter}. An
+ * instance is updated while the request body is read, it is stored in the
+ * request attribute {@code Upload.UPLOAD_PROGRESS_KEY} and, if a session
+ * exists, in the session attribute with the same name so that the progress
+ * can be polled by other requests.
+ */
+public final class UploadProgress implements ProgressListener, Serializable {
+
+    /**
+     * Serialization UID.
+     */
+    private static final long serialVersionUID = -3187522436611704178L;
+
+    /**
+     * Number of bytes read so far.
+     */
+    private volatile long bytesRead = 0;
+
+    /**
+     * Total number of bytes, {@code -1} if unknown.
+     */
+    private volatile long contentLength = -1;
+
+    /**
+     * Number of the part being read, starting at 1.
+     */
+    private volatile int item = 0;
+
+    /**
+     * Completion flag.
+     */
+    private volatile boolean complete = false;
+
+    @Override
+    public void update(final long newBytesRead, final long newContentLength,
+            final int newItem) {
+
+        this.bytesRead = newBytesRead;
+        this.contentLength = newContentLength;
+        this.item = newItem;
+    }
+
+    /**
+     * Get the number of bytes read so far.
+     * @return long
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Get the total number of bytes of the request body.
+     * @return long, {@code -1} if unknown
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * Get the number of the part being read, starting at 1.
+     * @return int, {@code 0} if no part has been read yet
+     */
+    public int getItem() {
+        return item;
+    }
+
+    /**
+     * Get the percentage of the request body read so far.
+     * @return int, {@code -1} if the content length is unknown
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    public int getPercentage() {
+        if (complete) {
+            return 100;
+        }
+        long length = contentLength;
+        if (length <= 0) {
+            return -1;
+        }
+        return (int) (bytesRead * 100 / length);
+    }
+
+    /**
+     * Test if the request body has been read entirely.
+     * @return {@code boolean}
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Mark the upload as complete.
+     */
+    void setComplete() {
+        this.complete = true;
+    }
+}
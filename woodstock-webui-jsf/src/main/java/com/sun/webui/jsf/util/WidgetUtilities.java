@@ -81,30 +81,43 @@ public final class WidgetUtilities {
             return null;
         }
 
-        // Get render kit.
-        RenderKitFactory renderFactory = (RenderKitFactory) FactoryFinder
-                .getFactory(FactoryFinder.RENDER_KIT_FACTORY);
-        RenderKit renderKit = renderFactory.getRenderKit(context,
-                context.getViewRoot().getRenderKitId());
-
-        // Get writers.
-        ResponseWriter oldWriter = context.getResponseWriter();
         //CHECKSTYLE:OFF
         Writer strWriter = new FastStringWriter(1024);
         //CHECKSTYLE:ON
-        ResponseWriter newWriter;
 
-        // Initialize new writer.
-        if (null != oldWriter) {
-            newWriter = oldWriter.cloneWithWriter(strWriter);
-        } else {
-            ExternalContext extContext = context.getExternalContext();
-            ServletRequest request = (ServletRequest) extContext.getRequest();
-            newWriter = renderKit.createResponseWriter(strWriter, null,
-                    request.getCharacterEncoding());
-        }
         // Set new writer in context.
-        context.setResponseWriter(newWriter);
+        context.setResponseWriter(createResponseWriter(context, strWriter));
         return strWriter;
     }
+
+    /**
+     * Helper method to create a {@code ResponseWriter} writing to the given
+     * writer, with the same configuration as the current writer. The writer
+     * in the given context is not replaced, so that the returned writer can
+     * be reused to buffer the rendered output of several components.
+     *
+     * @param context FacesContext for the current request.
+     * @param writer The writer to write to.
+     *
+     * @return ResponseWriter
+     */
+    public static ResponseWriter createResponseWriter(
+            final FacesContext context, final Writer writer) {
+
+        // Get writers.
+        ResponseWriter oldWriter = context.getResponseWriter();
+        if (null != oldWriter) {
+            return oldWriter.cloneWithWriter(writer);
+        }
+
+        // Get render kit.
+        RenderKitFactory renderFactory = (RenderKitFactory) FactoryFinder
+                .getFactory(FactoryFinder.RENDER_KIT_FACTORY);
+        RenderKit renderKit = renderFactory.getRenderKit(context,
+                context.getViewRoot().getRenderKitId());
+        ExternalContext extContext = context.getExternalContext();
+        ServletRequest request = (ServletRequest) extContext.getRequest();
+        return renderKit.createResponseWriter(writer, null,
+                request.getCharacterEncoding());
+    }
 }
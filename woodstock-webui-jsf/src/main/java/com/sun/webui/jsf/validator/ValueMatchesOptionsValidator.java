@@ -18,7 +18,6 @@ package com.sun.webui.jsf.validator;
 
 import java.io.Serializable;
 import java.lang.reflect.Array;
-import java.util.Iterator;
 import java.util.List;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.component.UIComponent;
@@ -26,7 +25,6 @@ import jakarta.faces.context.FacesContext;
 import jakarta.faces.validator.Validator;
 import jakarta.faces.validator.ValidatorException;
 import com.sun.webui.jsf.component.ListSelector;
-import com.sun.webui.jsf.model.list.ListItem;
 import com.sun.webui.jsf.util.LogUtil;
 import com.sun.webui.jsf.util.ThemeUtilities;
 
@@ -132,44 +130,24 @@ public final class ValueMatchesOptionsValidator
         }
 
         Object currentValue;
-        Iterator itemsIterator;
-        ListItem listItem;
-        Object listObject;
-        boolean foundValue;
         boolean error = false;
 
         for (int counter = 0; counter < numValues; ++counter) {
             currentValue = Array.get(valuesAsArray, counter);
-            itemsIterator = list.getListItems();
-            foundValue = false;
 
             if (DEBUG) {
                 log("\tChecking: " + String.valueOf(currentValue));
             }
-            while (itemsIterator.hasNext()) {
-                listObject = itemsIterator.next();
-                if (!(listObject instanceof ListItem)) {
-                    continue;
-                }
-                listItem = (ListItem) listObject;
-                if (DEBUG) {
-                    log("ListItem is " + listItem.getLabel());
-                }
-                if (currentValue.equals(listItem.getValueObject())) {
-                    if (DEBUG) {
-                        log("Found match");
-                    }
-                    foundValue = true;
-                    break;
-                }
-            }
-            if (!foundValue) {
+            if (list.getListItem(currentValue) == null) {
                 if (DEBUG) {
                     log("No match found");
                 }
                 error = true;
                 break;
             }
+            if (DEBUG) {
+                log("Found match");
+            }
         }
 
         if (error) {
@@ -17,12 +17,16 @@
 
 package com.sun.webui.theme;
 
+import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import jakarta.faces.context.FacesContext;
 import com.sun.webui.jsf.util.ClientSniffer;
 import com.sun.webui.jsf.util.ClientType;
@@ -152,6 +156,24 @@ public final class JarTheme implements Theme {
      */
     private String[] globalStylesheets = null;
 
+    /**
+     * Maximum number of resource path keys for which resources are resolved.
+     */
+    private static final int MAX_RESOLVED = 16;
+
+    /**
+     * Resolved resources, keyed by resource path key, see
+     * {@link ThemeContext#getResourcePathKey()}.
+     */
+    private final ConcurrentMap<String, ResolvedResources> resolved =
+            new ConcurrentHashMap<String, ResolvedResources>();
+
+    /**
+     * JS and CSS bundles, keyed by the keys of their members.
+     */
+    private final ConcurrentMap<String, ThemeResource> bundles =
+            new ConcurrentHashMap<String, ThemeResource>();
+
     /**
      * Theme prefix.
      */
@@ -401,13 +423,153 @@ public final class JarTheme implements Theme {
 
     @Override
     public String[] getStylesheets(final String key) {
-        String css = getPathToStylesheet(key);
+        ConcurrentMap<String, String> clientPaths =
+                getResolved(getThemeContext()).getStylesheets();
+        String css = clientPaths.get(key);
         if (css == null) {
+            css = getPathToStylesheet(key);
+            if (css == null) {
+                css = "";
+            }
+            clientPaths.putIfAbsent(key, css);
+        }
+        if (css.length() == 0) {
             return null;
         }
         return new String[]{css};
     }
 
+    /**
+     * Returns a path to a single resource concatenating the JS files
+     * corresponding to the keys, followed by the global JS files. The bundle
+     * is created the first time it is requested, and is not updated if its
+     * members are modified.
+     *
+     * @param keys Keys to retrieve the JS files, in order
+     * @return a path to the bundle, or {@code null} if bundling is not
+     * enabled in the {@code ThemeContext}
+     */
+    @Override
+    public String getPathToJSBundle(final String[] keys) {
+        if (!getThemeContext().isBundleResources()) {
+            return null;
+        }
+        String bundleKey = "js:" + String.join(" ", keys);
+        ThemeResource resource = bundles.get(bundleKey);
+        if (resource == null) {
+            List<String> paths = new ArrayList<String>();
+            for (String key : keys) {
+                addPath(paths, jsFiles, key);
+            }
+            addGlobalPaths(paths, jsFiles, GLOBAL_JSFILES);
+            try {
+                resource = ThemeResourceBundler.bundleScripts(paths,
+                        System.currentTimeMillis(),
+                        getThemeContext().getBundleSecret());
+            } catch (IOException ex) {
+                LogUtil.fine("Cannot bundle JavaScript files", ex);
+                return null;
+            }
+            if (resource == null) {
+                return null;
+            }
+            bundles.putIfAbsent(bundleKey, resource);
+        }
+        return getVersionedPath(resource);
+    }
+
+    /**
+     * Returns a path to a single resource concatenating the master style
+     * sheet, the style sheet for the client type and the global style sheets.
+     * The bundle is created the first time it is requested, and is not
+     * updated if its members are modified.
+     *
+     * @param clientName client type name
+     * @return a path to the bundle, or {@code null} if bundling is not
+     * enabled in the {@code ThemeContext}
+     */
+    @Override
+    public String getPathToStylesheetBundle(final String clientName) {
+        if (!getThemeContext().isBundleResources()) {
+            return null;
+        }
+        String bundleKey = "css:" + clientName;
+        ThemeResource resource = bundles.get(bundleKey);
+        if (resource == null) {
+            List<String> paths = new ArrayList<String>();
+            addPath(paths, stylesheets, MASTER_STYLESHEET);
+            addPath(paths, stylesheets, clientName);
+            addGlobalPaths(paths, stylesheets, GLOBAL_STYLESHEETS);
+            try {
+                resource = ThemeResourceBundler.bundleStylesheets(paths,
+                        System.currentTimeMillis(),
+                        getThemeContext().getBundleSecret());
+            } catch (IOException ex) {
+                LogUtil.fine("Cannot bundle style sheets", ex);
+                return null;
+            }
+            if (resource == null) {
+                return null;
+            }
+            bundles.putIfAbsent(bundleKey, resource);
+        }
+        return getVersionedPath(resource);
+    }
+
+    /**
+     * Add the untranslated resource path corresponding to a key, if it is
+     * not empty.
+     *
+     * @param paths list of paths to add to
+     * @param resources resource bundle containing the key
+     * @param key resource bundle key
+     */
+    private static void addPath(final List<String> paths,
+            final ResourceBundle resources, final String key) {
+
+        String path = resources.getString(key);
+        if (path != null && path.length() != 0) {
+            paths.add(path);
+        }
+    }
+
+    /**
+     * Add the untranslated resource paths of the global resources.
+     *
+     * @param paths list of paths to add to
+     * @param resources resource bundle containing the global key
+     * @param globalKey key of the space separated list of global resource
+     * keys
+     */
+    private static void addGlobalPaths(final List<String> paths,
+            final ResourceBundle resources, final String globalKey) {
+
+        String keys;
+        try {
+            keys = resources.getString(globalKey);
+        } catch (MissingResourceException mre) {
+            // There are no global resources
+            return;
+        }
+        StringTokenizer tokenizer = new StringTokenizer(keys, " ");
+        while (tokenizer.hasMoreTokens()) {
+            addPath(paths, resources, tokenizer.nextToken());
+        }
+    }
+
+    /**
+     * Returns a translated path to a bundle, including the version parameter
+     * that makes the {@code ThemeServlet} allow the response to be cached
+     * forever.
+     *
+     * @param resource bundle resource
+     * @return translated path
+     */
+    private String getVersionedPath(final ThemeResource resource) {
+        return getThemeContext().getResourcePath(resource.getPath()) + "?"
+                + ThemeServlet.VERSION_PARAM + "=" + resource.getVersion();
+    }
+
     /**
      * Returns a String that represents a valid path to the HTML template
      * corresponding to the key.
@@ -602,6 +764,9 @@ public final class JarTheme implements Theme {
      * type of path to generate is available when the Theme is configured,
      * and it does not vary from request to request. So it should be
      * fixed on startup.
+     * Translated paths are cached per resource path key. The paths of the
+     * resources located in a jar include their version, so that they can be
+     * cached forever by the clients.
      * @param uri URI to be translated
      * @return translated URI String
      */
@@ -610,7 +775,72 @@ public final class JarTheme implements Theme {
             return null;
         }
         ThemeContext tc = getThemeContext();
-        return tc.getResourcePath(uri);
+        ConcurrentMap<String, String> paths = getResolved(tc).getPaths();
+        String path = paths.get(uri);
+        if (path == null) {
+            path = tc.getResourcePath(uri);
+            if (path != null) {
+                path = addVersion(uri, path);
+                paths.putIfAbsent(uri, path);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Add the version of a resource to its translated path. The version is
+     * not added to the resources located in a directory, which may be
+     * modified while the translated path is cached, nor to the resources
+     * that are not served from the class path.
+     * @param uri URI of the resource
+     * @param path translated path
+     * @return the translated path, with the version parameter if available
+     */
+    private static String addVersion(final String uri, final String path) {
+        if (path.indexOf('?') != -1) {
+            return path;
+        }
+        ThemeResource resource;
+        try {
+            resource = ThemeResource.getInstance(uri,
+                    System.currentTimeMillis());
+        } catch (IOException ex) {
+            LogUtil.fine("Cannot read theme resource " + uri, ex);
+            return path;
+        }
+        if (resource == null || resource.getFile() != null) {
+            return path;
+        }
+        return path + "?" + ThemeServlet.VERSION_PARAM + "="
+                + resource.getVersion();
+    }
+
+    /**
+     * Get the resources resolved for the resource path key of a theme
+     * context. If the key is {@code null}, or if resources are already
+     * resolved for {@link #MAX_RESOLVED} other keys, empty resources that are
+     * not cached are returned.
+     * @param tc theme context
+     * @return ResolvedResources
+     */
+    private ResolvedResources getResolved(final ThemeContext tc) {
+        String key = tc.getResourcePathKey();
+        if (key == null) {
+            return new ResolvedResources();
+        }
+        ResolvedResources resources = resolved.get(key);
+        if (resources == null) {
+            resources = new ResolvedResources();
+            if (resolved.size() >= MAX_RESOLVED) {
+                return resources;
+            }
+            ResolvedResources existing = resolved.putIfAbsent(key,
+                    resources);
+            if (existing != null) {
+                resources = existing;
+            }
+        }
+        return resources;
     }
 
     /**
@@ -673,12 +903,35 @@ public final class JarTheme implements Theme {
      * <li>{@link com.sun.webui.jsf.theme.ThemeImage.UNITS_SUFFIX}</li>
      * </ul>
      * If {@code key} is not defined {@code key} is returned.
+     * <p>
+     * Images are cached per resource path key, a copy of the cached image
+     * is returned.
+     * </p>
      */
     @Override
     public ThemeImage getImage(final String key) {
         // make sure to setIcon on parent and not the icon itself which
         // now does the theme stuff in the component
 
+        ConcurrentMap<String, ThemeImage> images =
+                getResolved(getThemeContext()).getImages();
+        ThemeImage image = images.get(key);
+        if (image == null) {
+            image = createImage(key);
+            images.putIfAbsent(key, image);
+        }
+        return new ThemeImage(image.getWidth(), image.getHeight(),
+                image.getUnits(), image.getAlt(), image.getTitle(),
+                image.getPath());
+    }
+
+    /**
+     * Create a {@code ThemeImage} instance for an image identified by
+     * {@code key}, see {@link #getImage(String)}.
+     * @param key image key
+     * @return ThemeImage
+     */
+    private ThemeImage createImage(final String key) {
         String path = null;
         try {
             path = translateURI(imageResources.getString(key));
@@ -728,4 +981,53 @@ public final class JarTheme implements Theme {
     public String getImageString(final String key) {
         return imageResources.getString(key);
     }
+
+    /**
+     * Theme resources resolved for a resource path key.
+     */
+    private static final class ResolvedResources {
+
+        /**
+         * Translated paths, keyed by resource path.
+         */
+        private final ConcurrentMap<String, String> paths =
+                new ConcurrentHashMap<String, String>();
+
+        /**
+         * Images, keyed by image key.
+         */
+        private final ConcurrentMap<String, ThemeImage> images =
+                new ConcurrentHashMap<String, ThemeImage>();
+
+        /**
+         * Translated client style-sheet paths, keyed by client type name. An
+         * empty path denotes a client type without style-sheet.
+         */
+        private final ConcurrentMap<String, String> stylesheets =
+                new ConcurrentHashMap<String, String>();
+
+        /**
+         * Get the translated paths.
+         * @return ConcurrentMap
+         */
+        ConcurrentMap<String, String> getPaths() {
+            return paths;
+        }
+
+        /**
+         * Get the images.
+         * @return ConcurrentMap
+         */
+        ConcurrentMap<String, ThemeImage> getImages() {
+            return images;
+        }
+
+        /**
+         * Get the translated client style-sheet paths.
+         * @return ConcurrentMap
+         */
+        ConcurrentMap<String, String> getStylesheets() {
+            return stylesheets;
+        }
+    }
 }
@@ -61,7 +61,7 @@ public final class JarThemeFactory implements ThemeFactory {
     /**
      * Theme manager.
      */
-    private ThemeManager themeManager;
+    private volatile ThemeManager themeManager;
 
     /**
      * Create a new instance.
@@ -369,20 +369,35 @@ public final class JarThemeFactory implements ThemeFactory {
             final ThemeContext themeContext) {
 
         // First, get the ThemeManager
-        if (themeManager == null) {
-            themeManager = createThemeManager(themeContext);
-        }
-        JarTheme theme = themeManager.getTheme(themeName, locale);
+        JarTheme theme = getThemeManager(themeContext)
+                .getTheme(themeName, locale);
         theme.setThemeContext(themeContext);
         return theme;
     }
 
     @Override
     public String getDefaultThemeName(final ThemeContext themeContext) {
-        if (themeManager == null) {
-            themeManager = createThemeManager(themeContext);
+        return getThemeManager(themeContext).getDefaultThemeName();
+    }
+
+    /**
+     * Get the theme manager, creating it if necessary. The method does not
+     * lock once the theme manager is created.
+     * @param themeContext theme context
+     * @return ThemeManager
+     */
+    private ThemeManager getThemeManager(final ThemeContext themeContext) {
+        ThemeManager manager = themeManager;
+        if (manager == null) {
+            synchronized (this) {
+                manager = themeManager;
+                if (manager == null) {
+                    manager = createThemeManager(themeContext);
+                    themeManager = manager;
+                }
+            }
         }
-        return themeManager.getDefaultThemeName();
+        return manager;
     }
 
     /**
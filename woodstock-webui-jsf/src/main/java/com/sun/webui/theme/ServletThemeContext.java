@@ -103,6 +103,18 @@ public class ServletThemeContext extends ThemeContext {
         if (value != null) {
             setThemeServletContext(value);
         }
+        value = (String) initParamMap.get(BUNDLE_RESOURCES);
+        if (value != null) {
+            setBundleResources(Boolean.parseBoolean(value.trim()));
+        }
+        value = (String) initParamMap.get(STATELESS_THEME);
+        if (value != null) {
+            setStatelessTheme(Boolean.parseBoolean(value.trim()));
+        }
+        value = (String) initParamMap.get(BUNDLE_SECRET);
+        if (value != null && !value.trim().isEmpty()) {
+            setBundleSecret(value.trim());
+        }
     }
 
     /**
@@ -147,6 +159,18 @@ public class ServletThemeContext extends ThemeContext {
         if (value != null) {
             setThemeServletContext(value);
         }
+        value = (String) context.getInitParameter(BUNDLE_RESOURCES);
+        if (value != null) {
+            setBundleResources(Boolean.parseBoolean(value.trim()));
+        }
+        value = (String) context.getInitParameter(STATELESS_THEME);
+        if (value != null) {
+            setStatelessTheme(Boolean.parseBoolean(value.trim()));
+        }
+        value = (String) context.getInitParameter(BUNDLE_SECRET);
+        if (value != null && !value.trim().isEmpty()) {
+            setBundleSecret(value.trim());
+        }
     }
 
     /**
@@ -162,7 +186,11 @@ public class ServletThemeContext extends ThemeContext {
         //
         // Should there be a JSFThemeServlet to complement the
         // JSFThemeContext's use of "ApplicationMap" ?
-        ThemeContext themeContext;
+        ThemeContext themeContext = (ThemeContext) context
+                .getAttribute(THEME_CONTEXT);
+        if (themeContext != null) {
+            return themeContext;
+        }
         synchronized (LOCK) {
             // Need to make sure another thread didn't just finish
             themeContext = (ThemeContext) context.getAttribute(THEME_CONTEXT);
@@ -104,6 +104,34 @@ public interface Theme {
      */
     String getJSString(String key);
 
+    /**
+     * Returns a path to a single resource concatenating the JS files
+     * corresponding to the keys, followed by the global JS files. The path
+     * includes the version of the content, so that the resource can be
+     * cached forever.
+     *
+     * @param keys Keys to retrieve the JS files, in order
+     * @return a path to the bundle, or {@code null} if bundling is not
+     * enabled or not supported by the theme
+     */
+    default String getPathToJSBundle(final String[] keys) {
+        return null;
+    }
+
+    /**
+     * Returns a path to a single resource concatenating the master style
+     * sheet, the style sheet for the client type and the global style sheets.
+     * The path includes the version of the content, so that the resource can
+     * be cached forever.
+     *
+     * @param clientName client type name
+     * @return a path to the bundle, or {@code null} if bundling is not
+     * enabled or not supported by the theme
+     */
+    default String getPathToStylesheetBundle(final String clientName) {
+        return null;
+    }
+
     /**
      * Get master style-sheets.
      * @return String[]
@@ -148,6 +148,27 @@ public abstract class ThemeContext {
     protected static final String THEME_SERVLET_CONTEXT
             = "com.sun.webui.theme.THEME_SERVLET_CONTEXT";
 
+    /**
+     * Identifies the flag enabling the bundling of the theme JavaScript files
+     * and style sheets referenced by the page head.
+     */
+    protected static final String BUNDLE_RESOURCES
+            = "com.sun.webui.theme.BUNDLE_RESOURCES";
+
+    /**
+     * Identifies the flag enabling the resolution of the theme name without
+     * using the session.
+     */
+    protected static final String STATELESS_THEME
+            = "com.sun.webui.theme.STATELESS_THEME";
+
+    /**
+     * Identifies the secret used to sign the paths of the theme resource
+     * bundles.
+     */
+    protected static final String BUNDLE_SECRET
+            = "com.sun.webui.theme.BUNDLE_SECRET";
+
     /**
      * The default locale for the default theme in this {@code ThemeContext}.
      */
@@ -196,6 +217,24 @@ public abstract class ThemeContext {
      */
     private String themeServletContext;
 
+    /**
+     * If {@code true}, the JavaScript files and the style sheets of a theme
+     * are referenced by a single concatenated resource each.
+     */
+    private boolean bundleResources;
+
+    /**
+     * If {@code true}, the theme name is not read from or stored in the
+     * session.
+     */
+    private boolean statelessTheme;
+
+    /**
+     * Secret used to sign the paths of the theme resource bundles, or
+     * {@code null}.
+     */
+    private String bundleSecret;
+
     /**
      * Bundle names of theme resources that augment a core theme. These
      * resources typically contain theme overrides and are referenced first
@@ -224,7 +263,7 @@ public abstract class ThemeContext {
     /**
      * Theme factory.
      */
-    private ThemeFactory themeFactory;
+    private volatile ThemeFactory themeFactory;
 
     /**
      * Construct a {@code ThemeContext}.
@@ -269,11 +308,15 @@ public abstract class ThemeContext {
     }
 
     /**
-     * Get the theme factory.
+     * Get the theme factory. The factory is created once, the method does
+     * not lock once it is created.
      * @return ThemeFactory
      */
     public ThemeFactory getThemeFactory() {
-        //FIXME double-checked locking
+        ThemeFactory factory = themeFactory;
+        if (factory != null) {
+            return factory;
+        }
         synchronized (this) {
             if (themeFactory == null) {
                 try {
@@ -283,11 +326,11 @@ public abstract class ThemeContext {
                 } catch (Exception e) {
                     // Use JarThemeFactory as the fallback default
                     // This should come from subclasses.
-                    return (ThemeFactory) new JarThemeFactory();
+                    themeFactory = (ThemeFactory) new JarThemeFactory();
                 }
             }
+            return themeFactory;
         }
-        return themeFactory;
     }
 
     /**
@@ -332,6 +375,23 @@ public abstract class ThemeContext {
         this.requestContextPath = newReqContextPath;
     }
 
+    /**
+     * Return a key identifying how theme resource paths are translated for
+     * the current request, see {@link #getResourcePath(String)}. Themes cache
+     * the translated paths per key. This implementation returns the request
+     * context path, since the translation only depends on it.
+     *
+     * @return the key, or {@code null} if the translated paths of the
+     * current request must not be cached
+     */
+    public String getResourcePathKey() {
+        String contextPath = getRequestContextPath();
+        if (contextPath == null) {
+            return "";
+        }
+        return contextPath;
+    }
+
     /**
      * Return a path used as a prefix that is prepended to a a theme resource
      * path reference.This implementation returns
@@ -483,6 +543,70 @@ public abstract class ThemeContext {
         this.themeServletContext = newThemeServletContext;
     }
 
+    /**
+     * Test if the JavaScript files and the style sheets of a theme are
+     * referenced by a single concatenated resource each, see
+     * {@link Theme#getPathToJSBundle(String[])}.
+     *
+     * @return {@code true} if theme resources are bundled
+     */
+    public boolean isBundleResources() {
+        return bundleResources;
+    }
+
+    /**
+     * Enable or disable the bundling of the JavaScript files and the style
+     * sheets of a theme.
+     *
+     * @param newBundleResources {@code true} to bundle theme resources
+     */
+    public final void setBundleResources(final boolean newBundleResources) {
+        this.bundleResources = newBundleResources;
+    }
+
+    /**
+     * Test if the theme name is resolved without using the session. The
+     * theme name is then obtained from a request attribute or a cookie named
+     * {@link Theme#THEME_ATTR}, or is the default theme of this
+     * {@code ThemeContext}.
+     *
+     * @return {@code true} if the theme resolution is stateless
+     */
+    public boolean isStatelessTheme() {
+        return statelessTheme;
+    }
+
+    /**
+     * Enable or disable the resolution of the theme name without using the
+     * session.
+     *
+     * @param newStatelessTheme {@code true} to not use the session
+     */
+    public final void setStatelessTheme(final boolean newStatelessTheme) {
+        this.statelessTheme = newStatelessTheme;
+    }
+
+    /**
+     * Get the secret used to sign the paths of the theme resource bundles.
+     * The instances of an application that share the same secret can build
+     * again the bundles referenced by each other. If there is no secret, a
+     * bundle is only served by the instance that created it.
+     *
+     * @return the secret, or {@code null}
+     */
+    public String getBundleSecret() {
+        return bundleSecret;
+    }
+
+    /**
+     * Set the secret used to sign the paths of the theme resource bundles.
+     *
+     * @param newBundleSecret secret, or {@code null}
+     */
+    public final void setBundleSecret(final String newBundleSecret) {
+        this.bundleSecret = newBundleSecret;
+    }
+
     // This also doesn't make sense in the presence of more than
     // one theme. Consider this an implementation detail for an
     // application, theme validation feature.
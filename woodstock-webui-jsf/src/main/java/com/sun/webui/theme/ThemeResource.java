@@ -0,0 +1,587 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.theme;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A theme resource located on the class path, served by the
+ * {@code ThemeServlet}.
+ * <p>
+ * Resources are resolved once and kept in a registry, together with their
+ * length and a hash of their content. The hash is used as a strong entity tag
+ * and as the version of the resource. Resources located in a directory (i.e.
+ * not in a jar) are resolved again when the file is modified.
+ * </p><p>
+ * A gzip variant of a resource is provided either by a precompressed
+ * {@code .gz} sibling on the class path, or by compressing the resource in
+ * memory the first time the variant is requested. The total size of the
+ * content compressed in memory is bounded.
+ * </p><p>
+ * Bundles of resources are kept as in-memory resources in a separate
+ * registry, see {@link ThemeResourceBundler}. The total size of the in-memory
+ * resources is bounded, the least recently used ones are evicted first.
+ * </p>
+ */
+final class ThemeResource {
+
+    /**
+     * Size of the buffer used to read resources.
+     */
+    static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Number of digest bytes used for the version.
+     */
+    private static final int VERSION_BYTES = 10;
+
+    /**
+     * Suffix of the precompressed variant of a resource.
+     */
+    static final String GZIP_SUFFIX = ".gz";
+
+    /**
+     * Minimum length of the resources compressed in memory.
+     */
+    private static final long MIN_GZIP_LENGTH = 256;
+
+    /**
+     * Maximum total size of the content compressed in memory.
+     */
+    private static final long MAX_GZIP_CACHE_SIZE = 16L * 1024 * 1024;
+
+    /**
+     * Total size of the content compressed in memory.
+     */
+    private static final AtomicLong GZIP_CACHE_SIZE = new AtomicLong();
+
+    /**
+     * Maximum total size of the in-memory resources kept in the registry.
+     */
+    private static final long MAX_MEMORY_REGISTRY_SIZE = 16L * 1024 * 1024;
+
+    /**
+     * Load factor of the registry of in-memory resources.
+     */
+    private static final float MEMORY_REGISTRY_LOAD_FACTOR = 0.75f;
+
+    /**
+     * Initial capacity of the registry of in-memory resources.
+     */
+    private static final int MEMORY_REGISTRY_CAPACITY = 16;
+
+    /**
+     * Registry of the in-memory resources, keyed by path, in access order.
+     * Access is synchronized on the registry.
+     */
+    private static final Map<String, ThemeResource> MEMORY_REGISTRY =
+            new LinkedHashMap<String, ThemeResource>(
+                    MEMORY_REGISTRY_CAPACITY, MEMORY_REGISTRY_LOAD_FACTOR,
+                    true);
+
+    /**
+     * Total size of the in-memory resources kept in the registry, guarded by
+     * {@link #MEMORY_REGISTRY}.
+     */
+    private static long memoryRegistrySize;
+
+    /**
+     * Milliseconds per second.
+     */
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    /**
+     * Hexadecimal digits.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Registry of the resolved resources, keyed by path. Only resources that
+     * exist are registered, so that the size of the registry is bounded by the
+     * number of resources on the class path.
+     */
+    private static final ConcurrentMap<String, ThemeResource> REGISTRY =
+            new ConcurrentHashMap<String, ThemeResource>();
+
+    /**
+     * Resource path.
+     */
+    private final String path;
+
+    /**
+     * Resource URL.
+     */
+    private final URL url;
+
+    /**
+     * Resource file, if the resource is located in a directory.
+     */
+    private final File file;
+
+    /**
+     * Content of an in-memory resource, or {@code null}.
+     */
+    private final byte[] content;
+
+    /**
+     * Content length.
+     */
+    private final long length;
+
+    /**
+     * Last modification time.
+     */
+    private final long lastModified;
+
+    /**
+     * Version, the hexadecimal hash of the content.
+     */
+    private final String version;
+
+    /**
+     * Precompressed variant, or {@code null}.
+     */
+    private final ThemeResource gzipResource;
+
+    /**
+     * Content compressed in memory, or {@code null}.
+     */
+    private volatile byte[] gzipContent;
+
+    /**
+     * Flag indicating that the content has been compressed in memory, or that
+     * it will not be.
+     */
+    private volatile boolean gzipResolved;
+
+    /**
+     * Create a new instance.
+     *
+     * @param newPath resource path
+     * @param newUrl resource URL
+     * @param defaultLastModified last modification time used if the time
+     * is not available from the URL
+     * @param gzipUrl URL of the precompressed variant, or {@code null}
+     * @throws IOException if an error occurs while reading the resource
+     */
+    private ThemeResource(final String newPath, final URL newUrl,
+            final long defaultLastModified, final URL gzipUrl)
+            throws IOException {
+
+        this.path = newPath;
+        this.url = newUrl;
+        this.file = toFile(newUrl);
+        this.content = null;
+        if (gzipUrl != null) {
+            this.gzipResource = new ThemeResource(newPath + GZIP_SUFFIX,
+                    gzipUrl, defaultLastModified, null);
+        } else {
+            this.gzipResource = null;
+        }
+
+        URLConnection conn = newUrl.openConnection();
+        conn.setUseCaches(false);
+        long time = conn.getLastModified();
+        if (time <= 0) {
+            time = defaultLastModified;
+        }
+        // HTTP dates have a precision of one second.
+        this.lastModified = time - (time % MILLIS_PER_SECOND);
+
+        MessageDigest digest = newDigest();
+        long count = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (ReadableByteChannel in = Channels.newChannel(
+                conn.getInputStream())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+                count += read;
+            }
+        }
+        this.length = count;
+        this.version = toHex(digest.digest(), VERSION_BYTES);
+    }
+
+    /**
+     * Create a new in-memory resource.
+     *
+     * @param newPath resource path
+     * @param newContent resource content
+     * @param newLastModified last modification time
+     */
+    private ThemeResource(final String newPath, final byte[] newContent,
+            final long newLastModified) {
+
+        this.path = newPath;
+        this.url = null;
+        this.file = null;
+        this.content = newContent;
+        this.gzipResource = null;
+        this.lastModified = newLastModified
+                - (newLastModified % MILLIS_PER_SECOND);
+        this.length = newContent.length;
+        this.version = getVersion(newContent);
+    }
+
+    /**
+     * Register an in-memory resource. If a resource is already registered
+     * for the given path, the registered resource is returned. The least
+     * recently used in-memory resources are evicted to keep the total size
+     * within the memory reserved for them. A resource larger than that
+     * memory is returned without being registered.
+     *
+     * @param path resource path
+     * @param content resource content
+     * @param lastModified last modification time
+     * @return ThemeResource
+     */
+    static ThemeResource register(final String path, final byte[] content,
+            final long lastModified) {
+
+        ThemeResource existing = getMemoryResource(path);
+        if (existing != null) {
+            return existing;
+        }
+        ThemeResource resource = new ThemeResource(path, content,
+                lastModified);
+        if (content.length > MAX_MEMORY_REGISTRY_SIZE) {
+            return resource;
+        }
+        synchronized (MEMORY_REGISTRY) {
+            existing = MEMORY_REGISTRY.get(path);
+            if (existing != null) {
+                return existing;
+            }
+            MEMORY_REGISTRY.put(path, resource);
+            memoryRegistrySize += content.length;
+            Iterator<ThemeResource> it = MEMORY_REGISTRY.values().iterator();
+            while (memoryRegistrySize > MAX_MEMORY_REGISTRY_SIZE) {
+                ThemeResource eldest = it.next();
+                it.remove();
+                memoryRegistrySize -= eldest.length;
+                eldest.release();
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * Get a registered in-memory resource.
+     *
+     * @param path resource path
+     * @return ThemeResource, or {@code null} if no in-memory resource is
+     * registered for the path
+     */
+    private static ThemeResource getMemoryResource(final String path) {
+        synchronized (MEMORY_REGISTRY) {
+            return MEMORY_REGISTRY.get(path);
+        }
+    }
+
+    /**
+     * Get the version of the given content, as computed for the resources.
+     *
+     * @param bytes content to hash
+     * @return String
+     */
+    static String getVersion(final byte[] bytes) {
+        return toHex(newDigest().digest(bytes), VERSION_BYTES);
+    }
+
+    /**
+     * Get the resource for the given path, resolving it if it is not
+     * registered yet.
+     *
+     * @param path resource path
+     * @param defaultLastModified last modification time used if the time
+     * is not available from the resource
+     * @return ThemeResource, or {@code null} if the resource does not exist
+     * @throws IOException if an error occurs while reading the resource
+     */
+    static ThemeResource getInstance(final String path,
+            final long defaultLastModified) throws IOException {
+
+        if (path == null || !path.startsWith("/")) {
+            return null;
+        }
+        ThemeResource resource = getMemoryResource(path);
+        if (resource != null) {
+            return resource;
+        }
+        resource = REGISTRY.get(path);
+        if (resource != null) {
+            if (!resource.isModified()) {
+                return resource;
+            }
+            resource.release();
+        }
+        URL url = ThemeResource.class.getResource(path);
+        if (url == null) {
+            REGISTRY.remove(path);
+            return null;
+        }
+        URL gzipUrl = null;
+        if (!path.endsWith(GZIP_SUFFIX)) {
+            gzipUrl = ThemeResource.class.getResource(path + GZIP_SUFFIX);
+        }
+        resource = new ThemeResource(path, url, defaultLastModified, gzipUrl);
+        REGISTRY.put(path, resource);
+        return resource;
+    }
+
+    /**
+     * Get the resource path.
+     *
+     * @return String
+     */
+    String getPath() {
+        return path;
+    }
+
+    /**
+     * Get the resource file, if the resource is located in a directory.
+     *
+     * @return File or {@code null}
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Get the content length.
+     *
+     * @return long
+     */
+    long getLength() {
+        return length;
+    }
+
+    /**
+     * Get the last modification time, in milliseconds.
+     *
+     * @return long
+     */
+    long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Get the version of the resource, a hash of its content.
+     *
+     * @return String
+     */
+    String getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the strong entity tag of the resource.
+     *
+     * @return String
+     */
+    String getETag() {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Get the strong entity tag of the gzip variant of the resource.
+     *
+     * @return String
+     */
+    String getGzipETag() {
+        return "\"" + version + "-gz\"";
+    }
+
+    /**
+     * Get the precompressed variant of the resource.
+     *
+     * @return ThemeResource, or {@code null} if there is no {@code .gz}
+     * sibling on the class path
+     */
+    ThemeResource getGzipResource() {
+        return gzipResource;
+    }
+
+    /**
+     * Get the content of the resource compressed in memory, compressing it
+     * if this method is called for the first time. The content is not
+     * compressed if the resource is small, if compression does not reduce its
+     * size, or if the memory reserved for compressed content is used up.
+     *
+     * @return byte[], or {@code null} if the content is not compressed
+     * @throws IOException if an error occurs while reading the resource
+     */
+    byte[] getGzipContent() throws IOException {
+        if (!gzipResolved) {
+            synchronized (this) {
+                if (!gzipResolved) {
+                    gzipContent = compress();
+                    gzipResolved = true;
+                }
+            }
+        }
+        return gzipContent;
+    }
+
+    /**
+     * Compress the content of the resource.
+     *
+     * @return byte[], or {@code null} if the content is not compressed
+     * @throws IOException if an error occurs while reading the resource
+     */
+    private byte[] compress() throws IOException {
+        if (length < MIN_GZIP_LENGTH
+                || GZIP_CACHE_SIZE.get() + length > MAX_GZIP_CACHE_SIZE) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                (int) length / 2);
+        try (InputStream in = openStream();
+                GZIPOutputStream out = new GZIPOutputStream(bytes,
+                        BUFFER_SIZE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        int size = bytes.size();
+        if (size >= length) {
+            return null;
+        }
+        if (GZIP_CACHE_SIZE.addAndGet(size) > MAX_GZIP_CACHE_SIZE) {
+            GZIP_CACHE_SIZE.addAndGet(-size);
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Release the memory reserved for the compressed content of a resource
+     * that is replaced in or evicted from the registry.
+     */
+    private synchronized void release() {
+        if (gzipContent != null) {
+            GZIP_CACHE_SIZE.addAndGet(-gzipContent.length);
+            gzipContent = null;
+        }
+        // the content is not compressed after the release
+        gzipResolved = true;
+    }
+
+    /**
+     * Open a stream to read the content of the resource.
+     *
+     * @return InputStream
+     * @throws IOException if an error occurs
+     */
+    InputStream openStream() throws IOException {
+        if (content != null) {
+            return new ByteArrayInputStream(content);
+        }
+        URLConnection conn = url.openConnection();
+        conn.setUseCaches(false);
+        return conn.getInputStream();
+    }
+
+    /**
+     * Test if the resource file has been modified since it was resolved.
+     *
+     * @return {@code boolean}
+     */
+    private boolean isModified() {
+        if (file == null) {
+            return false;
+        }
+        long time = file.lastModified();
+        return time - (time % MILLIS_PER_SECOND) != lastModified
+                || file.length() != length;
+    }
+
+    /**
+     * Get the file of a resource located in a directory.
+     *
+     * @param url resource URL
+     * @return File, or {@code null} if the resource is not a file
+     */
+    private static File toFile(final URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            File file = new File(url.toURI());
+            if (file.isFile()) {
+                return file;
+            }
+        } catch (URISyntaxException | IllegalArgumentException ex) {
+            // not a usable file URL
+        }
+        return null;
+    }
+
+    /**
+     * Create the digest used to hash the resource content.
+     *
+     * @return MessageDigest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            // SHA-256 is required on every Java platform
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Convert the first bytes of an array to an hexadecimal string.
+     *
+     * @param bytes bytes to convert
+     * @param count number of bytes to convert
+     * @return String
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    private static String toHex(final byte[] bytes, final int count) {
+        char[] chars = new char[count * 2];
+        for (int i = 0; i < count; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,643 @@
+/*
+ * Copyright (c) 2020 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+package com.sun.webui.theme;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Concatenate theme resources into bundles, so that a page can reference all
+ * the JavaScript files or all the style sheets of a theme with a single
+ * request.
+ * <p>
+ * A bundle is registered as an in-memory {@link ThemeResource}, located in
+ * the directory of its first member. Its name encodes the paths of its
+ * members, so that a bundle that is not registered, e.g. after a restart or
+ * when the request reaches another instance of the application, is built
+ * again from its path by {@link #getBundle(String, long, String)}. The
+ * version of the bundle is the hash of its content, as for the other
+ * resources.
+ * </p><p>
+ * The name is signed with an HMAC of the member paths, so that only the
+ * bundles created by the theme are built again. The key is the bundle secret
+ * of the {@code ThemeContext}, or a random key if there is no secret, in
+ * which case the bundles are only built again by the instance that created
+ * them. A bundle has at most {@link #MAX_MEMBERS} distinct members.
+ * </p><p>
+ * Style sheets imported with a relative {@code @import} rule are inlined,
+ * unless the rule specifies media queries. The rules that are not inlined are
+ * moved to the top of the bundle, and the relative {@code url()} references
+ * of the members located in another directory are rewritten relative to the
+ * bundle. The content is not minified.
+ * </p>
+ */
+final class ThemeResourceBundler {
+
+    /**
+     * Prefix of the bundle names.
+     */
+    private static final String BUNDLE_PREFIX = "bundle-";
+
+    /**
+     * Extension of the JavaScript bundles.
+     */
+    private static final String SCRIPT_EXTENSION = ".js";
+
+    /**
+     * Extension of the style sheet bundles.
+     */
+    private static final String STYLESHEET_EXTENSION = ".css";
+
+    /**
+     * Separator of the member paths encoded in the bundle names.
+     */
+    private static final String MEMBER_SEPARATOR = "\n";
+
+    /**
+     * Separator of the signature and of the member paths in the bundle
+     * names, which is not used by the URL-safe Base64 alphabet.
+     */
+    private static final char SIGNATURE_SEPARATOR = '.';
+
+    /**
+     * Maximum number of members of a bundle.
+     */
+    static final int MAX_MEMBERS = 64;
+
+    /**
+     * Number of HMAC bytes used for the signature of the bundle names.
+     */
+    private static final int SIGNATURE_BYTES = 16;
+
+    /**
+     * Length of the random key used if there is no bundle secret.
+     */
+    private static final int RANDOM_KEY_BYTES = 32;
+
+    /**
+     * HMAC algorithm used to sign the bundle names.
+     */
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    /**
+     * Key used to sign the bundle names if there is no bundle secret.
+     */
+    private static final byte[] RANDOM_KEY = newRandomKey();
+
+    /**
+     * Separator of the JavaScript members, which terminates a last statement
+     * without a semicolon.
+     */
+    private static final byte[] SCRIPT_SEPARATOR =
+            "\n;\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Byte order mark.
+     */
+    private static final char BOM = '\uFEFF';
+
+    /**
+     * Group of {@link #CSS_TOKENS} matching the URL of an import rule.
+     */
+    private static final int IMPORT_URL_GROUP = 2;
+
+    /**
+     * Group of {@link #CSS_TOKENS} matching the media of an import rule.
+     */
+    private static final int IMPORT_MEDIA_GROUP = 3;
+
+    /**
+     * Group of {@link #CSS_TOKENS} matching a {@code url()} reference.
+     */
+    private static final int URL_GROUP = 5;
+
+    /**
+     * Tokens of a style sheet processed when bundling: comments (kept as is),
+     * import rules, {@code url()} references and charset rules.
+     */
+    private static final Pattern CSS_TOKENS = Pattern.compile(
+            "/\\*.*?\\*/"
+            + "|@import\\s+(?:url\\(\\s*)?(['\"]?)([^'\"()\\s;]+)\\1\\s*\\)?"
+            + "\\s*([^;]*);"
+            + "|url\\(\\s*(['\"]?)([^'\"()]+)\\4\\s*\\)"
+            + "|@charset\\s+[^;]*;",
+            Pattern.DOTALL);
+
+    /**
+     * Cannot be instanciated.
+     */
+    private ThemeResourceBundler() {
+    }
+
+    /**
+     * Concatenate JavaScript files into a bundle.
+     *
+     * @param paths resource paths of the files, in order, the files listed
+     * more than once are only added the first time
+     * @param lastModified last modification time used if the time is not
+     * available from the members
+     * @param secret bundle secret of the theme context, or {@code null}
+     * @return ThemeResource, or {@code null} if {@code paths} is empty
+     * @throws IOException if a member does not exist, or cannot be read, or
+     * if there are more than {@link #MAX_MEMBERS} members
+     */
+    static ThemeResource bundleScripts(final List<String> paths,
+            final long lastModified, final String secret) throws IOException {
+
+        List<String> members = getMembers(paths);
+        if (members.isEmpty()) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long modified = 0;
+        for (String path : members) {
+            ThemeResource member = getMember(path, lastModified);
+            modified = Math.max(modified, member.getLastModified());
+            if (bytes.size() > 0) {
+                bytes.write(SCRIPT_SEPARATOR);
+            }
+            copy(member, bytes);
+        }
+        return register(members, SCRIPT_EXTENSION, bytes.toByteArray(),
+                modified, secret);
+    }
+
+    /**
+     * Concatenate style sheets into a bundle.
+     *
+     * @param paths resource paths of the style sheets, in order, the style
+     * sheets listed more than once are only added the first time
+     * @param lastModified last modification time used if the time is not
+     * available from the members
+     * @param secret bundle secret of the theme context, or {@code null}
+     * @return ThemeResource, or {@code null} if {@code paths} is empty
+     * @throws IOException if a member does not exist, or cannot be read, or
+     * if there are more than {@link #MAX_MEMBERS} members
+     */
+    static ThemeResource bundleStylesheets(final List<String> paths,
+            final long lastModified, final String secret) throws IOException {
+
+        List<String> members = getMembers(paths);
+        if (members.isEmpty()) {
+            return null;
+        }
+        String dir = getDirectory(members.get(0));
+        StringBuilder imports = new StringBuilder();
+        StringBuilder rules = new StringBuilder();
+        Set<String> visited = new HashSet<String>();
+        long modified = 0;
+        for (String path : members) {
+            modified = Math.max(modified, appendStylesheet(path, dir,
+                    lastModified, visited, imports, rules));
+        }
+        byte[] content = imports.append(rules).toString()
+                .getBytes(StandardCharsets.UTF_8);
+        return register(members, STYLESHEET_EXTENSION, content, modified,
+                secret);
+    }
+
+    /**
+     * Build the bundle located at the given path, from the member paths
+     * encoded in its name. The members are only read if the signature of the
+     * name is valid.
+     *
+     * @param path resource path of the bundle
+     * @param lastModified last modification time used if the time is not
+     * available from the members
+     * @param secret bundle secret of the theme context, or {@code null}
+     * @return ThemeResource, or {@code null} if the path is not the path of
+     * a bundle created with the same secret, or if a member does not exist
+     */
+    static ThemeResource getBundle(final String path,
+            final long lastModified, final String secret) {
+
+        if (path == null || !path.startsWith("/")) {
+            return null;
+        }
+        String dir = getDirectory(path);
+        String name = path.substring(dir.length());
+        String extension;
+        if (name.endsWith(SCRIPT_EXTENSION)) {
+            extension = SCRIPT_EXTENSION;
+        } else if (name.endsWith(STYLESHEET_EXTENSION)) {
+            extension = STYLESHEET_EXTENSION;
+        } else {
+            return null;
+        }
+        if (!name.startsWith(BUNDLE_PREFIX)) {
+            return null;
+        }
+        String signed = name.substring(BUNDLE_PREFIX.length(),
+                name.length() - extension.length());
+        int separator = signed.indexOf(SIGNATURE_SEPARATOR);
+        if (separator == -1) {
+            return null;
+        }
+        String encoded = signed.substring(separator + 1);
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(
+                    signed.substring(0, separator));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(signature, sign(encoded, secret))) {
+            return null;
+        }
+        List<String> paths = decodeMembers(dir, encoded, extension);
+        if (paths == null) {
+            return null;
+        }
+
+        ThemeResource bundle;
+        try {
+            if (extension.equals(SCRIPT_EXTENSION)) {
+                bundle = bundleScripts(paths, lastModified, secret);
+            } else {
+                bundle = bundleStylesheets(paths, lastModified, secret);
+            }
+        } catch (IOException ex) {
+            return null;
+        }
+        // Only the canonical name of the members is accepted.
+        if (bundle == null || !bundle.getPath().equals(path)) {
+            return null;
+        }
+        return bundle;
+    }
+
+    /**
+     * Get the members of a bundle, without duplicates.
+     *
+     * @param paths resource paths of the members, in order
+     * @return the distinct paths, in order
+     * @throws IOException if there are more than {@link #MAX_MEMBERS}
+     * distinct paths
+     */
+    private static List<String> getMembers(final List<String> paths)
+            throws IOException {
+
+        Set<String> members = new LinkedHashSet<String>(paths);
+        if (members.size() > MAX_MEMBERS) {
+            throw new IOException("Too many bundle members: "
+                    + members.size());
+        }
+        return new ArrayList<String>(members);
+    }
+
+    /**
+     * Sign the encoded member paths of a bundle.
+     *
+     * @param encoded encoded member paths
+     * @param secret bundle secret, or {@code null} to use the random key
+     * @return the first bytes of the HMAC of the encoded paths
+     */
+    private static byte[] sign(final String encoded, final String secret) {
+        byte[] key = RANDOM_KEY;
+        if (secret != null) {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+            return Arrays.copyOf(mac.doFinal(
+                    encoded.getBytes(StandardCharsets.US_ASCII)),
+                    SIGNATURE_BYTES);
+        } catch (GeneralSecurityException ex) {
+            // HmacSHA256 is required on every Java platform
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Create the key used to sign the bundle names if there is no bundle
+     * secret.
+     *
+     * @return byte[]
+     */
+    private static byte[] newRandomKey() {
+        byte[] key = new byte[RANDOM_KEY_BYTES];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
+    /**
+     * Encode the member paths of a bundle. The paths located in the
+     * directory of the bundle are relative to it.
+     *
+     * @param dir directory of the bundle
+     * @param paths resource paths of the members
+     * @return the encoded paths, safe to use in a URL path segment
+     */
+    private static String encodeMembers(final String dir,
+            final List<String> paths) {
+
+        StringBuilder members = new StringBuilder();
+        for (String path : paths) {
+            if (members.length() > 0) {
+                members.append(MEMBER_SEPARATOR);
+            }
+            if (path.startsWith(dir)) {
+                members.append(path, dir.length(), path.length());
+            } else {
+                members.append(path);
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                members.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode the member paths of a bundle. Only plain resource paths with the
+     * extension of the bundle are accepted.
+     *
+     * @param dir directory of the bundle
+     * @param encoded encoded member paths
+     * @param extension extension of the members
+     * @return the resource paths of the members, or {@code null} if they are
+     * not valid
+     */
+    private static List<String> decodeMembers(final String dir,
+            final String encoded, final String extension) {
+
+        String members;
+        try {
+            members = new String(Base64.getUrlDecoder().decode(encoded),
+                    StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        String[] names = members.split(MEMBER_SEPARATOR, -1);
+        if (names.length > MAX_MEMBERS) {
+            return null;
+        }
+        Set<String> paths = new LinkedHashSet<String>();
+        for (String member : names) {
+            String path = member;
+            if (!path.startsWith("/")) {
+                path = dir + path;
+            }
+            if (!path.endsWith(extension) || path.contains("//")
+                    || path.contains("/./") || path.contains("/../")
+                    || !paths.add(path)) {
+                return null;
+            }
+        }
+        return new ArrayList<String>(paths);
+    }
+
+    /**
+     * Append a style sheet to a bundle, inlining the style sheets it
+     * imports.
+     *
+     * @param path resource path of the style sheet
+     * @param bundleDir directory of the bundle
+     * @param lastModified last modification time used if the time is not
+     * available from the style sheet
+     * @param visited paths of the style sheets already appended
+     * @param imports import rules that are not inlined
+     * @param rules rules of the bundle
+     * @return the last modification time of the style sheet and the style
+     * sheets it imports
+     * @throws IOException if the style sheet does not exist, or cannot be read
+     */
+    private static long appendStylesheet(final String path,
+            final String bundleDir, final long lastModified,
+            final Set<String> visited, final StringBuilder imports,
+            final StringBuilder rules) throws IOException {
+
+        if (!visited.add(path)) {
+            return 0;
+        }
+        ThemeResource member = getMember(path, lastModified);
+        long modified = member.getLastModified();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        copy(member, bytes);
+        String css = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        if (!css.isEmpty() && css.charAt(0) == BOM) {
+            css = css.substring(1);
+        }
+
+        Matcher matcher = CSS_TOKENS.matcher(css);
+        int start = 0;
+        while (matcher.find()) {
+            rules.append(css, start, matcher.start());
+            start = matcher.end();
+            String token = matcher.group();
+            if (token.startsWith("/*")) {
+                rules.append(token);
+            } else if (matcher.group(IMPORT_URL_GROUP) != null) {
+                String url = matcher.group(IMPORT_URL_GROUP);
+                String media = matcher.group(IMPORT_MEDIA_GROUP).trim();
+                String imported = resolve(path, url);
+                if (media.isEmpty() && imported != null
+                        && ThemeResource.class.getResource(imported) != null) {
+                    modified = Math.max(modified, appendStylesheet(imported,
+                            bundleDir, lastModified, visited, imports, rules));
+                } else {
+                    imports.append("@import url(\"")
+                            .append(rebase(path, url, bundleDir))
+                            .append("\")");
+                    if (!media.isEmpty()) {
+                        imports.append(' ').append(media);
+                    }
+                    imports.append(";\n");
+                }
+            } else if (matcher.group(URL_GROUP) != null) {
+                String url = matcher.group(URL_GROUP).trim();
+                String rebased = rebase(path, url, bundleDir);
+                if (rebased.equals(url)) {
+                    rules.append(token);
+                } else {
+                    rules.append("url(\"").append(rebased).append("\")");
+                }
+            }
+            // charset rules are dropped, the bundle is encoded in UTF-8
+        }
+        rules.append(css, start, css.length()).append('\n');
+        return modified;
+    }
+
+    /**
+     * Get a member of a bundle.
+     *
+     * @param path resource path of the member
+     * @param lastModified last modification time used if the time is not
+     * available from the member
+     * @return ThemeResource
+     * @throws IOException if the member does not exist, or cannot be read
+     */
+    private static ThemeResource getMember(final String path,
+            final long lastModified) throws IOException {
+
+        ThemeResource member = ThemeResource.getInstance(path, lastModified);
+        if (member == null) {
+            throw new IOException("Theme resource not found: " + path);
+        }
+        return member;
+    }
+
+    /**
+     * Copy the content of a resource.
+     *
+     * @param resource resource to copy
+     * @param out stream to write to
+     * @throws IOException if an error occurs
+     */
+    private static void copy(final ThemeResource resource,
+            final ByteArrayOutputStream out) throws IOException {
+
+        try (InputStream in = resource.openStream()) {
+            byte[] buffer = new byte[ThemeResource.BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * Register a bundle.
+     *
+     * @param paths resource paths of the members
+     * @param extension extension of the bundle name
+     * @param content content of the bundle
+     * @param lastModified last modification time
+     * @param secret bundle secret, or {@code null}
+     * @return ThemeResource
+     */
+    private static ThemeResource register(final List<String> paths,
+            final String extension, final byte[] content,
+            final long lastModified, final String secret) {
+
+        String dir = getDirectory(paths.get(0));
+        String encoded = encodeMembers(dir, paths);
+        String path = dir + BUNDLE_PREFIX
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(
+                        sign(encoded, secret))
+                + SIGNATURE_SEPARATOR + encoded + extension;
+        return ThemeResource.register(path, content, lastModified);
+    }
+
+    /**
+     * Get the directory of a resource path.
+     *
+     * @param path resource path
+     * @return the directory, including the trailing slash
+     */
+    private static String getDirectory(final String path) {
+        return path.substring(0, path.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Test if a reference is relative to the referencing resource.
+     *
+     * @param ref reference to test
+     * @return {@code boolean}
+     */
+    private static boolean isRelative(final String ref) {
+        return !ref.startsWith("/") && !ref.startsWith("#")
+                && ref.indexOf(':') == -1;
+    }
+
+    /**
+     * Resolve a reference to a resource path.
+     *
+     * @param path resource path of the referencing resource
+     * @param ref reference to resolve
+     * @return the resource path, or {@code null} if the reference is not a
+     * path on the class path
+     */
+    private static String resolve(final String path, final String ref) {
+        if (!isRelative(ref)) {
+            return null;
+        }
+        try {
+            URI uri = new URI(path).resolve(new URI(ref)).normalize();
+            if (uri.getRawQuery() != null || uri.getRawFragment() != null
+                    || uri.getPath().startsWith("/..")) {
+                return null;
+            }
+            return uri.getPath();
+        } catch (URISyntaxException | IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Rewrite a relative reference of a member located in another directory
+     * than the bundle, so that it is relative to the bundle.
+     *
+     * @param path resource path of the member
+     * @param ref reference to rewrite
+     * @param bundleDir directory of the bundle
+     * @return the rewritten reference
+     */
+    private static String rebase(final String path, final String ref,
+            final String bundleDir) {
+
+        String dir = getDirectory(path);
+        if (dir.equals(bundleDir) || !isRelative(ref)) {
+            return ref;
+        }
+        URI target;
+        try {
+            target = new URI(dir).resolve(new URI(ref)).normalize();
+        } catch (URISyntaxException | IllegalArgumentException ex) {
+            return ref;
+        }
+        String[] from = bundleDir.split("/");
+        String[] to = target.getRawPath().split("/", -1);
+        int common = 0;
+        while (common < from.length && common < to.length - 1
+                && from[common].equals(to[common])) {
+            common++;
+        }
+        List<String> segments = new ArrayList<String>();
+        for (int i = common; i < from.length; i++) {
+            segments.add("..");
+        }
+        for (int i = common; i < to.length; i++) {
+            segments.add(to[i]);
+        }
+        StringBuilder rebased = new StringBuilder(String.join("/", segments));
+        if (target.getRawQuery() != null) {
+            rebased.append('?').append(target.getRawQuery());
+        }
+        if (target.getRawFragment() != null) {
+            rebased.append('#').append(target.getRawFragment());
+        }
+        return rebased.toString();
+    }
+}
@@ -19,14 +19,19 @@
  */
 package com.sun.webui.theme;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.StringTokenizer;
 import jakarta.servlet.ServletConfig;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -90,6 +95,33 @@ import jakarta.servlet.http.HttpServletResponse;
  * {@code /theme/*} it just must be the same for the servlet-mapping and the
  * {@code THEME_SERVLET_CONTEXT} {@code context-param}.
  * </p>
+ * <p>
+ * <b>Caching</b></p>
+ * <p>
+ * Each resource is sent with a strong {@code ETag} computed from its content.
+ * Resources requested with their version (the {@code v} request parameter)
+ * are cached for one year. The theme adds the version to the paths of the
+ * resources located in the theme jars. Other resources are cached for the
+ * number of seconds given by the {@code com.sun.webui.theme.MAX_AGE}
+ * init-param or context-param, 0 by default, and revalidated with
+ * conditional requests.
+ * </p>
+ * <p>
+ * Text resources such as JavaScript and CSS files are sent with the gzip
+ * content coding to clients that accept it. The compressed content is read
+ * from a {@code .gz} sibling of the resource if the theme jar provides one,
+ * otherwise it is compressed once and kept in memory.
+ * </p>
+ * <p>
+ * If the {@code com.sun.webui.theme.BUNDLE_RESOURCES} context-param is
+ * {@code true}, the JavaScript files and the style sheets referenced by the
+ * page head are concatenated into one bundle each, served from memory by
+ * this servlet with their version. The path of a bundle lists its members,
+ * signed with the {@code com.sun.webui.theme.BUNDLE_SECRET} context-param,
+ * so that any instance of the application configured with the same secret
+ * can build it again. Without a secret, bundles are only built again by the
+ * instance that created them.
+ * </p>
  *
  * @see com.sun.webui.theme.ThemeContext
  * @see com.sun.webui.theme.Theme
@@ -108,13 +140,45 @@ public final class ThemeServlet extends HttpServlet {
     private static final boolean DEBUG = false;
 
     /**
-     * The "last modified" timestamp we should broadcast for all resources
-     * provided by this servlet. This will enable browsers that cache static
-     * resources to send an "If-Modified-Since" header, which will allow us to
-     * return a "Not Modified" response.
+     * Name of the servlet init parameter or context parameter specifying the
+     * maximum age in seconds of the resources that are not requested with a
+     * version.
+     */
+    public static final String MAX_AGE_PARAM = "com.sun.webui.theme.MAX_AGE";
+
+    /**
+     * Name of the request parameter specifying the version of a resource.
+     */
+    public static final String VERSION_PARAM = "v";
+
+    /**
+     * Cache-Control header of the resources requested with their version.
+     */
+    private static final String IMMUTABLE_CACHE_CONTROL =
+            "public, max-age=31536000, immutable";
+
+    /**
+     * Unit of the Range header.
+     */
+    private static final String BYTES_UNIT = "bytes=";
+
+    /**
+     * The "last modified" timestamp we should broadcast for resources that do
+     * not provide their own modification time.
      */
     private final long lastModified = (new Date()).getTime();
 
+    /**
+     * Cache-Control header of the resources requested without version.
+     */
+    private String cacheControl = "public, max-age=0";
+
+    /**
+     * Secret used to verify the paths of the theme resource bundles, or
+     * {@code null}.
+     */
+    private String bundleSecret;
+
     /**
      * Content types.
      */
@@ -197,6 +261,13 @@ public final class ThemeServlet extends HttpServlet {
 
     /**
      * This method handles the requests for the Theme files.
+     * <p>
+     * Conditional requests ({@code If-None-Match} and
+     * {@code If-Modified-Since}) are answered with a "Not Modified" response,
+     * and a single byte range may be requested with the {@code Range} header.
+     * If the request has a {@code v} parameter equal to the version of the
+     * resource, the response may be cached forever.
+     * </p>
      *
      * @param request The Servlet Request for the theme file
      * @param response The Servlet Response
@@ -205,7 +276,6 @@ public final class ThemeServlet extends HttpServlet {
      * ThemeFile
      */
     @Override
-    @SuppressWarnings("checkstyle:magicnumber")
     protected void doGet(final HttpServletRequest request,
             final HttpServletResponse response)
             throws ServletException, IOException {
@@ -213,66 +283,364 @@ public final class ThemeServlet extends HttpServlet {
         if (DEBUG) {
             log("doGet()");
         }
-        String resourceName = request.getPathInfo();
-        InputStream inStream = null;
-        OutputStream outStream = null;
-        try {
-            // The issue here is, do we try and get the resource
-            // from the jar that defined this resource ?
-            // Or hope that it is unique enough to come from the
-            // jar it was defined in.
-            //
-            // Get InputStream
-            inStream = this.getClass().getResourceAsStream(resourceName);
-            if (inStream == null) {
-                // Send 404 (without the original URI for XSS security reasons)
-                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        // The issue here is, do we try and get the resource
+        // from the jar that defined this resource ?
+        // Or hope that it is unique enough to come from the
+        // jar it was defined in.
+        ThemeResource resource = ThemeResource.getInstance(
+                request.getPathInfo(), lastModified);
+        if (resource == null) {
+            // A bundle that is not registered, e.g. after a restart or on
+            // another instance of the application, is built again.
+            resource = ThemeResourceBundler.getBundle(request.getPathInfo(),
+                    lastModified, bundleSecret);
+        }
+        if (resource == null) {
+            // Send 404 (without the original URI for XSS security reasons)
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // Select the gzip variant of compressible resources if the client
+        // accepts it. Byte ranges are only served from the identity variant.
+        String type = getContentType(resource.getPath());
+        boolean compressible = isCompressible(type);
+        ThemeResource gzipResource = null;
+        byte[] gzipContent = null;
+        if (compressible && request.getHeader("Range") == null
+                && acceptsGzip(request.getHeader("Accept-Encoding"))) {
+            gzipResource = resource.getGzipResource();
+            if (gzipResource == null) {
+                gzipContent = resource.getGzipContent();
+            }
+        }
+        boolean gzip = gzipResource != null || gzipContent != null;
+
+        // Set the validators and caching policy of the response
+        String etag = resource.getETag();
+        if (gzip) {
+            etag = resource.getGzipETag();
+        }
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", resource.getLastModified());
+        response.setHeader("Accept-Ranges", "bytes");
+        if (compressible) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+        if (resource.getVersion().equals(
+                request.getParameter(VERSION_PARAM))) {
+            response.setHeader("Cache-Control", IMMUTABLE_CACHE_CONTROL);
+        } else {
+            response.setHeader("Cache-Control", cacheControl);
+        }
+        if (isNotModified(request, etag, resource.getLastModified())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // Set the content type of this response
+        if (type != null) {
+            response.setContentType(type);
+        }
+
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+            if (gzipResource != null) {
+                response.setContentLengthLong(gzipResource.getLength());
+            } else {
+                response.setContentLength(gzipContent.length);
+            }
+            if ("HEAD".equals(request.getMethod())) {
                 return;
             }
-            inStream = new BufferedInputStream(inStream, 4096);
-
-            // Ask the container to resolve the MIME type if possible
-            String type = getServletContext().getMimeType(resourceName);
-            if (type == null) {
-                // Otherwise, use our own hard coded list
-                int lastDot = resourceName.lastIndexOf('.');
-                if (lastDot != -1) {
-                    String suffix = resourceName.substring(lastDot + 1);
-                    type = (String) CONTENT_TYPES.get(suffix.toLowerCase());
-                }
+            if (gzipResource != null) {
+                write(gzipResource, 0, gzipResource.getLength(),
+                        response.getOutputStream());
+            } else {
+                response.getOutputStream().write(gzipContent);
             }
-            // Set the content type of this response
-            if (type != null) {
-                response.setContentType(type);
+            return;
+        }
+
+        long length = resource.getLength();
+        long start = 0;
+        long count = length;
+        long[] range = getRange(request, resource);
+        if (range != null) {
+            if (range[0] >= length) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.sendError(
+                        HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
             }
+            start = range[0];
+            count = Math.min(range[1], length - 1) - start + 1;
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", "bytes " + start + "-"
+                    + (start + count - 1) + "/" + length);
+        }
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        write(resource, start, count, response.getOutputStream());
+    }
 
-            // Set the timestamp of the response to enable caching
-            response.setDateHeader("Last-Modified", getLastModified(request));
+    /**
+     * Test if the client has a current copy of the resource. The
+     * {@code If-None-Match} header takes precedence over the
+     * {@code If-Modified-Since} header.
+     *
+     * @param request The HttpServletRequest being processed
+     * @param etag The entity tag of the selected variant of the resource
+     * @param modified The last modification time of the resource
+     * @return {@code true} if the resource has not been modified
+     */
+    private static boolean isNotModified(final HttpServletRequest request,
+            final String etag, final long modified) {
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag);
+        }
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+        return ifModifiedSince != -1 && modified <= ifModifiedSince;
+    }
+
+    /**
+     * Test if a content type benefits from compression.
+     *
+     * @param type The content type, or {@code null}
+     * @return {@code boolean}
+     */
+    private static boolean isCompressible(final String type) {
+        return type != null && (type.startsWith("text/")
+                || type.contains("javascript")
+                || type.contains("json")
+                || type.contains("xml")
+                || type.contains("svg"));
+    }
+
+    /**
+     * Test if the gzip content coding is acceptable according to an
+     * {@code Accept-Encoding} header.
+     *
+     * @param acceptEncoding The header value, or {@code null}
+     * @return {@code boolean}
+     */
+    private static boolean acceptsGzip(final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean accepted = false;
+        StringTokenizer tokens = new StringTokenizer(acceptEncoding, ",");
+        while (tokens.hasMoreTokens()) {
+            String token = tokens.nextToken().trim();
+            String coding = token;
+            boolean zero = false;
+            int semicolon = token.indexOf(';');
+            if (semicolon != -1) {
+                coding = token.substring(0, semicolon).trim();
+                zero = isZeroQuality(token.substring(semicolon + 1));
+            }
+            if ("gzip".equalsIgnoreCase(coding)
+                    || "x-gzip".equalsIgnoreCase(coding)) {
+                // An explicit gzip coding overrides the wildcard.
+                return !zero;
+            }
+            if ("*".equals(coding)) {
+                accepted = !zero;
+            }
+        }
+        return accepted;
+    }
 
-            // Get the OutputStream
-            outStream = response.getOutputStream();
-            outStream = new BufferedOutputStream(outStream, 4096);
+    /**
+     * Test if the parameters of an {@code Accept-Encoding} element give a
+     * quality value of zero.
+     *
+     * @param params The parameters following the content coding
+     * @return {@code boolean}
+     */
+    private static boolean isZeroQuality(final String params) {
+        String param = params.trim();
+        if (!param.startsWith("q=")) {
+            return false;
+        }
+        try {
+            return Float.parseFloat(param.substring(2).trim()) <= 0;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
 
-            int character;
-            while ((character = inStream.read()) != -1) {
-                outStream.write(character);
+    /**
+     * Test if an entity tag matches a list of entity tags, using the weak
+     * comparison function.
+     *
+     * @param etags comma separated list of entity tags, or {@code *}
+     * @param etag entity tag to compare
+     * @return {@code boolean}
+     */
+    private static boolean matches(final String etags, final String etag) {
+        StringTokenizer tokens = new StringTokenizer(etags, ",");
+        while (tokens.hasMoreTokens()) {
+            String token = tokens.nextToken().trim();
+            if (token.startsWith("W/")) {
+                token = token.substring(2);
             }
-        } catch (IOException ioex) {
-            // Log an error
-        } finally {
+            if ("*".equals(token) || etag.equals(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the byte range requested with the {@code Range} header. Only a
+     * single range is supported, the whole resource is sent if several ranges
+     * are requested, or if the {@code If-Range} header does not match the
+     * resource.
+     *
+     * @param request The HttpServletRequest being processed
+     * @param resource The requested resource
+     * @return the first and last byte positions, or {@code null} if the whole
+     * resource should be sent
+     */
+    private static long[] getRange(final HttpServletRequest request,
+            final ThemeResource resource) {
+
+        String header = request.getHeader("Range");
+        if (header == null || !header.startsWith(BYTES_UNIT)
+                || header.indexOf(',') != -1) {
+            return null;
+        }
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange != null && !ifRange.equals(resource.getETag())) {
+            long date;
             try {
-                if (inStream != null) {
-                    inStream.close();
+                date = request.getDateHeader("If-Range");
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+            if (date != resource.getLastModified()) {
+                return null;
+            }
+        }
+
+        String spec = header.substring(BYTES_UNIT.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash == -1) {
+            return null;
+        }
+        long length = resource.getLength();
+        try {
+            if (dash == 0) {
+                // Suffix range, the last n bytes.
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return null;
                 }
-            } catch (IOException t) {
+                return new long[]{Math.max(0, length - suffix), length - 1};
             }
-            try {
-                if (outStream != null) {
-                    outStream.close();
+            long first = Long.parseLong(spec.substring(0, dash));
+            long last = Long.MAX_VALUE;
+            if (dash < spec.length() - 1) {
+                last = Long.parseLong(spec.substring(dash + 1));
+            }
+            if (first < 0 || last < first) {
+                return null;
+            }
+            return new long[]{first, last};
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Write a part of the content of a resource with bulk transfers. If the
+     * resource is a file, the content is transferred from the file channel
+     * directly.
+     *
+     * @param resource The resource to write
+     * @param start The position of the first byte to write
+     * @param count The number of bytes to write
+     * @param out The stream to write to
+     * @throws IOException if an error occurs
+     */
+    private static void write(final ThemeResource resource, final long start,
+            final long count, final OutputStream out) throws IOException {
+
+        WritableByteChannel outChannel = Channels.newChannel(out);
+        long position = start;
+        long remaining = count;
+        if (resource.getFile() != null) {
+            try (FileChannel in = FileChannel.open(
+                    resource.getFile().toPath(), StandardOpenOption.READ)) {
+                while (remaining > 0) {
+                    long written = in.transferTo(position, remaining,
+                            outChannel);
+                    if (written <= 0) {
+                        break;
+                    }
+                    position += written;
+                    remaining -= written;
+                }
+            }
+            return;
+        }
+        try (InputStream in = resource.openStream()) {
+            while (position > 0) {
+                long skipped = in.skip(position);
+                if (skipped <= 0) {
+                    return;
+                }
+                position -= skipped;
+            }
+            ReadableByteChannel inChannel = Channels.newChannel(in);
+            ByteBuffer buffer = ByteBuffer.allocate(
+                    ThemeResource.BUFFER_SIZE);
+            while (remaining > 0) {
+                if (remaining < buffer.capacity()) {
+                    buffer.limit((int) remaining);
+                }
+                int read = inChannel.read(buffer);
+                if (read == -1) {
+                    break;
                 }
-            } catch (IOException t) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    outChannel.write(buffer);
+                }
+                buffer.clear();
+                remaining -= read;
+            }
+        }
+    }
+
+    /**
+     * Get the content type of a resource.
+     *
+     * @param resourceName The resource path
+     * @return The content type, or {@code null} if unknown
+     */
+    private String getContentType(final String resourceName) {
+        // Ask the container to resolve the MIME type if possible
+        String type = getServletContext().getMimeType(resourceName);
+        if (type == null) {
+            // Otherwise, use our own hard coded list
+            int lastDot = resourceName.lastIndexOf('.');
+            if (lastDot != -1) {
+                String suffix = resourceName.substring(lastDot + 1);
+                type = (String) CONTENT_TYPES.get(suffix.toLowerCase());
             }
         }
+        return type;
     }
 
     /**
@@ -295,6 +663,25 @@ public final class ThemeServlet extends HttpServlet {
     public void init(final ServletConfig config) throws ServletException {
         super.init(config);
 
+        String maxAge = config.getInitParameter(MAX_AGE_PARAM);
+        if (maxAge == null) {
+            maxAge = config.getServletContext().getInitParameter(
+                    MAX_AGE_PARAM);
+        }
+        if (maxAge != null) {
+            try {
+                cacheControl = "public, max-age="
+                        + Math.max(0, Integer.parseInt(maxAge.trim()));
+            } catch (NumberFormatException ex) {
+                log("Invalid " + MAX_AGE_PARAM + ": " + maxAge);
+            }
+        }
+        String secret = config.getServletContext().getInitParameter(
+                ThemeContext.BUNDLE_SECRET);
+        if (secret != null && !secret.trim().isEmpty()) {
+            bundleSecret = secret.trim();
+        }
+
         // Note that there is no control exerted here to direct a
         // request to a particular theme or override a theme.
         // The assumption is that the rendered output has exerted that
@@ -331,16 +718,15 @@ public final class ThemeServlet extends HttpServlet {
     /**
      * <p>
      * Return the timestamp for when resources provided by this servlet were
-     * last modified. By default, this will be the timestamp when this servlet
-     * was first loaded at the deployment of the containing web-app, so that any
-     * changes in the resources will be automatically sent to the clients who
-     * might have cached earlier versions.</p>
+     * last modified. Conditional requests are handled by {@code doGet} with
+     * the entity tag and modification time of each resource, so this method
+     * returns -1 to let every request through.</p>
      *
      * @param request The HttpServletRequest being processed
-     * @return The date when the resource was last modified
+     * @return -1
      */
     @Override
     public long getLastModified(final HttpServletRequest request) {
-        return this.lastModified;
+        return -1;
     }
 }